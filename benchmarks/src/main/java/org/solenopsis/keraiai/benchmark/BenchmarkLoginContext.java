@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.benchmark;
+
+import java.util.concurrent.CompletableFuture;
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.ApiWebService;
+import org.solenopsis.keraiai.soap.LoginWebService;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+
+/**
+ * A login context, and login web service returning it, that never calls SFDC.
+ *
+ * @author Scot P. Floess
+ */
+public final class BenchmarkLoginContext implements LoginContext, LoginWebService {
+    /**
+     * Our server URL.
+     */
+    public static final String SERVER_URL = "https://na1.salesforce.com/services/Soap/u/39.0/00D000000000001";
+
+    /**
+     * Our credentials.
+     */
+    private final Credentials credentials;
+
+    /**
+     * Default constructor.
+     */
+    public BenchmarkLoginContext() {
+        this.credentials = new StringCredentials("https://test.salesforce.com", "user@example.com", "password", "token", "39.0");
+    }
+
+    @Override
+    public String getMetadataServerUrl() {
+        return "https://na1.salesforce.com/services/Soap/m/39.0/00D000000000001";
+    }
+
+    @Override
+    public boolean isPasswordExpired() {
+        return false;
+    }
+
+    @Override
+    public boolean isSandbox() {
+        return true;
+    }
+
+    @Override
+    public String getServerUrl() {
+        return SERVER_URL;
+    }
+
+    @Override
+    public String getBaseServerUrl() {
+        return "https://na1.salesforce.com";
+    }
+
+    @Override
+    public String getSessionId() {
+        return "00D000000000001!BENCHMARK_SESSION_ID";
+    }
+
+    @Override
+    public String getUserId() {
+        return "005000000000001AAA";
+    }
+
+    @Override
+    public int getSessionSecondsValid() {
+        return 7200;
+    }
+
+    @Override
+    public Credentials getCredentials() {
+        return credentials;
+    }
+
+    @Override
+    public ApiWebService getApiWebService() {
+        return ApiWebServiceEnum.PARTNER_SERVICE;
+    }
+
+    @Override
+    public LoginContext login(final Credentials credentials) {
+        return this;
+    }
+
+    @Override
+    public CompletableFuture<LoginContext> loginAsync(final Credentials credentials) {
+        return CompletableFuture.<LoginContext>completedFuture(this);
+    }
+
+    @Override
+    public LoginContext restoreLogin(final Credentials credentials) {
+        return this;
+    }
+
+    @Override
+    public CompletableFuture<LoginContext> restoreLoginAsync(final Credentials credentials) {
+        return CompletableFuture.<LoginContext>completedFuture(this);
+    }
+
+    @Override
+    public void logout(final LoginContext loginContext) {
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+import org.solenopsis.keraiai.soap.session.SessionHeaderStrategyEnum;
+import org.solenopsis.keraiai.soap.session.SessionPortFactory;
+import org.solenopsis.keraiai.stub.StubSalesforceServer;
+import org.solenopsis.keraiai.wsdl.partner.GetServerTimestampResult;
+import org.solenopsis.keraiai.wsdl.partner.QueryResult;
+import org.solenopsis.keraiai.wsdl.partner.Soap;
+
+/**
+ * End to end calls through a proxy port against the stub server - marshalling, session header, HTTP and unmarshalling.
+ * Run with <code>-prof gc</code> to compare allocation per call between session header strategies.
+ *
+ * @author Scot P. Floess
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProxyPortBenchmark {
+    @Param({"HANDLER", "OUTBOUND_HEADERS"})
+    SessionHeaderStrategyEnum sessionHeaderStrategy;
+
+    @Param({"10", "2000"})
+    int queryRecords;
+
+    StubSalesforceServer stubServer;
+
+    Soap port;
+
+    @Setup
+    public void setup() throws IOException {
+        stubServer = new StubSalesforceServer();
+        stubServer.setQueryRecords(queryRecords);
+        stubServer.start();
+
+        SessionPortFactory.setSessionHeaderStrategy(sessionHeaderStrategy);
+
+        port = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        stubServer.stop();
+    }
+
+    /**
+     * Smallest round trip.
+     */
+    @Benchmark
+    public GetServerTimestampResult getServerTimestamp() {
+        return port.getServerTimestamp();
+    }
+
+    /**
+     * Query returning <code>queryRecords</code> records.
+     */
+    @Benchmark
+    public QueryResult query() throws Exception {
+        return port.query("SELECT Id, Name FROM Account");
+    }
+}
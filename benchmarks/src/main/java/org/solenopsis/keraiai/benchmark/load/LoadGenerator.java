@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.benchmark.load;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+import org.solenopsis.keraiai.soap.session.SessionPortFactory;
+import org.solenopsis.keraiai.soap.session.TransportConfiguration;
+import org.solenopsis.keraiai.stub.StubFaultEnum;
+import org.solenopsis.keraiai.stub.StubSalesforceServer;
+import org.solenopsis.keraiai.wsdl.partner.Soap;
+
+/**
+ * Drives a mix of operations through a single partner proxy port, from a number of concurrent callers, against the stub
+ * server. Each caller issues its next call as soon as the prior one returns, so latencies are those seen by a saturated closed
+ * system. Latency and throughput per concurrency level are printed and written as JSON to the report file so results from
+ * different versions of the library can be compared.
+ *
+ * Configured via system properties:
+ * <ul>
+ * <li><code>load.concurrency</code> - comma separated concurrent callers, one run each (default 10,100,1000).</li>
+ * <li><code>load.warmup</code> - seconds of warm up, not recorded, before each run (default 5).</li>
+ * <li><code>load.duration</code> - seconds recorded per run (default 30).</li>
+ * <li><code>load.mix</code> - comma separated operation=weight pairs (default GET_SERVER_TIMESTAMP=1,QUERY=4,CREATE=2,RETRIEVE=2,DESCRIBE_SOBJECT=1).</li>
+ * <li><code>load.records</code> - records returned per query (default 200).</li>
+ * <li><code>load.latency</code> - minimum,maximum stub latency in milliseconds (default 0,0).</li>
+ * <li><code>load.faultRate</code> - rate, between 0 and 1, of UNABLE_TO_LOCK_ROW faults (default 0).</li>
+ * <li><code>load.maxConnections</code> - if set, the maximum connections kept alive per host.</li>
+ * <li><code>load.label</code> - label identifying this run in the report (default the library version).</li>
+ * <li><code>load.report</code> - report file (default target/load-report.json).</li>
+ * </ul>
+ *
+ * @author Scot P. Floess
+ */
+public final class LoadGenerator {
+    /**
+     * Histograms track values to this many significant digits.
+     */
+    static final int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * Operations, in ordinal order.
+     */
+    static final LoadOperationEnum[] OPERATIONS = LoadOperationEnum.values();
+
+    /**
+     * Concurrent callers per run.
+     */
+    private final int[] concurrencies;
+
+    /**
+     * Seconds of warm up per run.
+     */
+    private final int warmup;
+
+    /**
+     * Seconds recorded per run.
+     */
+    private final int duration;
+
+    /**
+     * The operation mix as given.
+     */
+    private final String mix;
+
+    /**
+     * Cumulative weights, indexed by operation ordinal.
+     */
+    private final int[] cumulativeWeights;
+
+    /**
+     * Records returned per query.
+     */
+    private final int records;
+
+    /**
+     * Minimum stub latency in milliseconds.
+     */
+    private final long minimumLatency;
+
+    /**
+     * Maximum stub latency in milliseconds.
+     */
+    private final long maximumLatency;
+
+    /**
+     * Rate of UNABLE_TO_LOCK_ROW faults.
+     */
+    private final double faultRate;
+
+    /**
+     * Label identifying this run.
+     */
+    private final String label;
+
+    /**
+     * Where the report is written.
+     */
+    private final File report;
+
+    /**
+     * Parse a comma separated list of integers.
+     */
+    static int[] parseInts(final String value) {
+        final String[] values = value.split(",");
+        final int[] retVal = new int[values.length];
+
+        for (int index = 0; index < values.length; index++) {
+            retVal[index] = Integer.parseInt(values[index].trim());
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Parse <code>mix</code> into cumulative weights indexed by operation ordinal.
+     *
+     * @throws IllegalArgumentException if mix contains an unknown operation, a negative weight or no weight at all.
+     */
+    static int[] computeCumulativeWeights(final String mix) {
+        final int[] weights = new int[OPERATIONS.length];
+
+        for (final String pair : mix.split(",")) {
+            final String[] operationAndWeight = pair.split("=");
+
+            if (2 != operationAndWeight.length) {
+                throw new IllegalArgumentException("Mix must be operation=weight pairs: [" + pair + "]");
+            }
+
+            final int weight = Integer.parseInt(operationAndWeight[1].trim());
+
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weights cannot be negative: [" + pair + "]");
+            }
+
+            weights[LoadOperationEnum.valueOf(operationAndWeight[0].trim()).ordinal()] += weight;
+        }
+
+        for (int index = 1; index < weights.length; index++) {
+            weights[index] += weights[index - 1];
+        }
+
+        if (0 == weights[weights.length - 1]) {
+            throw new IllegalArgumentException("Mix must have at least one weighted operation!");
+        }
+
+        return weights;
+    }
+
+    /**
+     * Randomly choose the next operation per the mix.
+     */
+    LoadOperationEnum computeOperation() {
+        final int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+
+        for (int index = 0; index < cumulativeWeights.length; index++) {
+            if (value < cumulativeWeights[index]) {
+                return OPERATIONS[index];
+            }
+        }
+
+        throw new IllegalStateException("Value [" + value + "] beyond mix!");
+    }
+
+    /**
+     * Format <code>nanos</code> as microseconds.
+     */
+    static String micros(final double nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+
+    /**
+     * Append the latency of <code>histogram</code> as JSON.
+     */
+    static StringBuilder appendLatency(final StringBuilder sb, final Histogram histogram) {
+        return sb.append("{\"count\": ").append(histogram.getTotalCount())
+                .append(", \"mean\": ").append(micros(histogram.getMean()))
+                .append(", \"p50\": ").append(micros(histogram.getValueAtPercentile(50)))
+                .append(", \"p99\": ").append(micros(histogram.getValueAtPercentile(99)))
+                .append(", \"p999\": ").append(micros(histogram.getValueAtPercentile(99.9)))
+                .append(", \"max\": ").append(micros(histogram.getMaxValue())).append("}");
+    }
+
+    /**
+     * Call operations from <code>concurrency</code> callers for <code>seconds</code>.
+     *
+     * @param port        the port to call.
+     * @param concurrency total concurrent callers.
+     * @param seconds     how long to call.
+     * @param histograms  latencies, per operation ordinal, are recorded here.
+     * @param errors      failures, per operation ordinal, are counted here.
+     */
+    void call(final Soap port, final int concurrency, final int seconds, final Histogram[] histograms, final AtomicLongArray errors) throws InterruptedException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(concurrency);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(concurrency);
+        final long[] end = new long[1];
+
+        for (int caller = 0; caller < concurrency; caller++) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+
+                        while (System.nanoTime() < end[0]) {
+                            final LoadOperationEnum operation = computeOperation();
+                            final long begin = System.nanoTime();
+
+                            try {
+                                operation.call(port);
+                                histograms[operation.ordinal()].recordValue(System.nanoTime() - begin);
+                            } catch (final Exception exception) {
+                                errors.incrementAndGet(operation.ordinal());
+                            }
+                        }
+                    } catch (final InterruptedException interruptedException) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        end[0] = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        start.countDown();
+        done.await();
+
+        executorService.shutdown();
+    }
+
+    /**
+     * Perform one run of <code>concurrency</code> callers.
+     *
+     * @return the run as JSON.
+     */
+    String run(final int concurrency) throws IOException, InterruptedException {
+        final StubSalesforceServer stubServer = new StubSalesforceServer(concurrency);
+
+        stubServer.setQueryRecords(records);
+        stubServer.setLatency(minimumLatency, maximumLatency);
+        stubServer.start();
+
+        try {
+            final Soap port = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+
+            final Histogram[] histograms = new Histogram[OPERATIONS.length];
+
+            for (int index = 0; index < histograms.length; index++) {
+                histograms[index] = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+            }
+
+            if (warmup > 0) {
+                call(port, concurrency, warmup, histograms, new AtomicLongArray(OPERATIONS.length));
+
+                for (final Histogram histogram : histograms) {
+                    histogram.reset();
+                }
+            }
+
+            stubServer.setFaultRate(StubFaultEnum.UNABLE_TO_LOCK_ROW, faultRate);
+
+            final AtomicLongArray errors = new AtomicLongArray(OPERATIONS.length);
+            final long begin = System.nanoTime();
+
+            call(port, concurrency, duration, histograms, errors);
+
+            final double elapsedSeconds = (System.nanoTime() - begin) / 1.0E9;
+            final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+            final StringBuilder operations = new StringBuilder();
+
+            long totalErrors = 0;
+
+            for (final LoadOperationEnum operation : OPERATIONS) {
+                final Histogram histogram = histograms[operation.ordinal()];
+
+                if (0 == histogram.getTotalCount() && 0 == errors.get(operation.ordinal())) {
+                    continue;
+                }
+
+                total.add(histogram);
+                totalErrors += errors.get(operation.ordinal());
+
+                operations.append(0 == operations.length() ? "" : ",\n").append("        \"").append(operation.name()).append("\": {\"errors\": ").append(errors.get(operation.ordinal())).append(", \"latencyMicros\": ");
+                appendLatency(operations, histogram).append("}");
+            }
+
+            final double throughput = total.getTotalCount() / elapsedSeconds;
+
+            System.out.println(String.format("concurrency %5d: %10.1f ops/s  p50 %10s us  p99 %10s us  p999 %10s us  errors %d  stub faults %d  logins %d",
+                    concurrency, throughput, micros(total.getValueAtPercentile(50)), micros(total.getValueAtPercentile(99)), micros(total.getValueAtPercentile(99.9)), totalErrors, stubServer.getFaults(), stubServer.getSessions()));
+
+            final StringBuilder sb = new StringBuilder("    {\"concurrency\": ").append(concurrency)
+                    .append(", \"seconds\": ").append(String.format("%.3f", elapsedSeconds))
+                    .append(", \"operations\": ").append(total.getTotalCount())
+                    .append(", \"errors\": ").append(totalErrors)
+                    .append(", \"stubFaults\": ").append(stubServer.getFaults())
+                    .append(", \"logins\": ").append(stubServer.getSessions())
+                    .append(", \"throughput\": ").append(String.format("%.1f", throughput))
+                    .append(", \"latencyMicros\": ");
+
+            return appendLatency(sb, total).append(",\n      \"byOperation\": {\n").append(operations).append("\n      }}").toString();
+        } finally {
+            stubServer.stop();
+        }
+    }
+
+    /**
+     * Perform all runs and write the report.
+     */
+    void run() throws IOException, InterruptedException {
+        final List<String> runs = new ArrayList<>();
+
+        for (final int concurrency : concurrencies) {
+            runs.add(run(concurrency));
+        }
+
+        final SimpleDateFormat timestamp = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
+        timestamp.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        final StringBuilder sb = new StringBuilder("{\n")
+                .append("  \"label\": \"").append(label).append("\",\n")
+                .append("  \"timestamp\": \"").append(timestamp.format(new Date())).append("\",\n")
+                .append("  \"javaVersion\": \"").append(System.getProperty("java.version")).append("\",\n")
+                .append("  \"processors\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n")
+                .append("  \"mix\": \"").append(mix).append("\",\n")
+                .append("  \"queryRecords\": ").append(records).append(",\n")
+                .append("  \"stubLatencyMillis\": [").append(minimumLatency).append(", ").append(maximumLatency).append("],\n")
+                .append("  \"faultRate\": ").append(faultRate).append(",\n")
+                .append("  \"runs\": [\n");
+
+        for (int index = 0; index < runs.size(); index++) {
+            sb.append(runs.get(index)).append(index < runs.size() - 1 ? ",\n" : "\n");
+        }
+
+        sb.append("  ]\n}\n");
+
+        if (null != report.getAbsoluteFile().getParentFile()) {
+            report.getAbsoluteFile().getParentFile().mkdirs();
+        }
+
+        try (final Writer writer = new OutputStreamWriter(new FileOutputStream(report), Charset.forName("UTF-8"))) {
+            writer.write(sb.toString());
+        }
+
+        System.out.println("Report written to [" + report.getAbsolutePath() + "]");
+    }
+
+    /**
+     * This constructor reads all configuration from system properties.
+     */
+    LoadGenerator() {
+        final int[] latency = parseInts(System.getProperty("load.latency", "0,0"));
+        final String version = ApiWebServiceEnum.class.getPackage().getImplementationVersion();
+
+        this.concurrencies = parseInts(System.getProperty("load.concurrency", "10,100,1000"));
+        this.warmup = Integer.getInteger("load.warmup", 5);
+        this.duration = Integer.getInteger("load.duration", 30);
+        this.mix = System.getProperty("load.mix", "GET_SERVER_TIMESTAMP=1,QUERY=4,CREATE=2,RETRIEVE=2,DESCRIBE_SOBJECT=1");
+        this.cumulativeWeights = computeCumulativeWeights(mix);
+        this.records = Integer.getInteger("load.records", 200);
+        this.minimumLatency = latency[0];
+        this.maximumLatency = latency.length > 1 ? latency[1] : latency[0];
+        this.faultRate = Double.parseDouble(System.getProperty("load.faultRate", "0"));
+        this.label = System.getProperty("load.label", null == version ? "unknown" : version);
+        this.report = new File(System.getProperty("load.report", "target/load-report.json"));
+
+        if (null != System.getProperty("load.maxConnections")) {
+            SessionPortFactory.setTransportConfiguration(new TransportConfiguration(Integer.getInteger("load.maxConnections"), 5, 0, 0, 0, 0));
+        }
+    }
+
+    /**
+     * Run the load generator.
+     *
+     * @param args ignored - configure via system properties.
+     */
+    public static void main(final String[] args) throws Exception {
+        new LoadGenerator().run();
+    }
+}
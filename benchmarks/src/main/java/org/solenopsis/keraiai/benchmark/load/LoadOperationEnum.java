@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.benchmark.load;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.solenopsis.keraiai.wsdl.partner.SObject;
+import org.solenopsis.keraiai.wsdl.partner.Soap;
+
+/**
+ * Operations the load generator can call on a partner proxy port.
+ *
+ * @author Scot P. Floess
+ */
+public enum LoadOperationEnum {
+    GET_SERVER_TIMESTAMP {
+        @Override
+        void call(final Soap port) throws Exception {
+            port.getServerTimestamp();
+        }
+    },
+    QUERY {
+        @Override
+        void call(final Soap port) throws Exception {
+            port.query("SELECT Id, Name, Description FROM Account");
+        }
+    },
+    CREATE {
+        @Override
+        void call(final Soap port) throws Exception {
+            final SObject account = new SObject();
+
+            account.setType("Account");
+
+            port.create(Collections.singletonList(account));
+        }
+    },
+    RETRIEVE {
+        @Override
+        void call(final Soap port) throws Exception {
+            port.retrieve("Id, Name, Description", "Account", Arrays.asList("001000000000000001", "001000000000000002"));
+        }
+    },
+    DESCRIBE_SOBJECT {
+        @Override
+        void call(final Soap port) throws Exception {
+            port.describeSObject("Account");
+        }
+    };
+
+    /**
+     * Call the operation on <code>port</code>.
+     *
+     * @param port the port to call.
+     *
+     * @throws Exception if the call fails.
+     */
+    abstract void call(Soap port) throws Exception;
+}
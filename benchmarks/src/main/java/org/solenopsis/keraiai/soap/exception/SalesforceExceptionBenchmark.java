@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.exception;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import javax.xml.ws.WebServiceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks classifying failures via {@link SalesforceExceptionEnum#computeType(Throwable)} and accounting for them in an
+ * {@link ExceptionContext}. Failures are wrapped as the proxy sees them - in an InvocationTargetException.
+ *
+ * @author Scot P. Floess
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SalesforceExceptionBenchmark {
+    final Throwable invalidSessionId = new InvocationTargetException(new WebServiceException("INVALID_SESSION_ID: Invalid Session ID found in SessionHeader: Illegal Session"));
+
+    final Throwable unableToLockRow = new InvocationTargetException(new WebServiceException("UNABLE_TO_LOCK_ROW: unable to obtain exclusive access to this record"));
+
+    final Throwable ioException = new InvocationTargetException(new WebServiceException(new IOException("Connection reset")));
+
+    final Throwable unknown = new InvocationTargetException(new IllegalStateException("Something unexpected"));
+
+    @Benchmark
+    public SalesforceExceptionEnum computeType_invalidSessionId() {
+        return SalesforceExceptionEnum.computeType(invalidSessionId);
+    }
+
+    @Benchmark
+    public SalesforceExceptionEnum computeType_unableToLockRow() {
+        return SalesforceExceptionEnum.computeType(unableToLockRow);
+    }
+
+    @Benchmark
+    public SalesforceExceptionEnum computeType_ioException() {
+        return SalesforceExceptionEnum.computeType(ioException);
+    }
+
+    @Benchmark
+    public SalesforceExceptionEnum computeType_unknown() {
+        return SalesforceExceptionEnum.computeType(unknown);
+    }
+
+    /**
+     * What the proxy does per call that fails once: create a context, account for the failure and compute totals.
+     */
+    @Benchmark
+    public String exceptionContext() {
+        final ExceptionContext exceptionContext = new ExceptionContext();
+
+        exceptionContext.incrementFailureCount(SalesforceExceptionEnum.UNABLE_TO_LOCK_ROW);
+
+        return exceptionContext.computeTotals();
+    }
+
+    /**
+     * Creating an exception context - done for every proxied call.
+     */
+    @Benchmark
+    public ExceptionContext exceptionContext_create() {
+        return new ExceptionContext();
+    }
+}
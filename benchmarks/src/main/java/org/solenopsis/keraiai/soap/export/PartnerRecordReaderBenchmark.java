@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.xml.stream.XMLStreamException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks decoding a partner query response via {@link PartnerRecordReader} - reported as records per second. One batch is
+ * refilled, as a {@link RecordCursor} does. Run with <code>-prof gc</code> to see allocation per record.
+ *
+ * @author Scot P. Floess
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PartnerRecordReaderBenchmark {
+    /**
+     * Records per response - SFDC's largest batch.
+     */
+    static final int RECORDS = 2000;
+
+    final RecordBatch batch = new RecordBatch();
+
+    byte[] response;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder sb = new StringBuilder("<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"><soapenv:Body>")
+                .append("<queryResponse xmlns=\"urn:partner.soap.sforce.com\" xmlns:sf=\"urn:sobject.partner.soap.sforce.com\"><result><done>true</done><queryLocator xsi:nil=\"true\"/>");
+
+        for (int index = 0; index < RECORDS; index++) {
+            final String id = String.format("001000000000%06d", index);
+
+            sb.append("<records xsi:type=\"sf:sObject\"><sf:type>Account</sf:type><sf:Id>").append(id).append("</sf:Id><sf:Id>").append(id).append("</sf:Id>")
+                    .append("<sf:Name>Account ").append(index).append("</sf:Name>")
+                    .append("<sf:Description>A stub account used to exercise large responses</sf:Description>")
+                    .append("<sf:Owner xsi:type=\"sf:sObject\"><sf:type>User</sf:type><sf:Id xsi:nil=\"true\"/><sf:Name>Owner ").append(index).append("</sf:Name></sf:Owner>")
+                    .append("</records>");
+        }
+
+        response = sb.append("<size>").append(RECORDS).append("</size></result></queryResponse></soapenv:Body></soapenv:Envelope>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public int read() throws XMLStreamException {
+        PartnerRecordReader.read(new ByteArrayInputStream(response), "query", batch);
+
+        return batch.getRecordCount();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.solenopsis.keraiai.wsdl.partner.SObject;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Benchmarks formatting partner records via {@link SObjectExporter} - reported as records per second. Bytes are discarded so
+ * only formatting is measured.
+ *
+ * @author Scot P. Floess
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SObjectExporterBenchmark {
+    /**
+     * Records formatted per invocation.
+     */
+    static final int RECORDS = 1000;
+
+    /**
+     * Namespace of partner record fields.
+     */
+    static final String SOBJECT_NAMESPACE = "urn:sobject.partner.soap.sforce.com";
+
+    /**
+     * The fields exported.
+     */
+    static final List<String> FIELD_NAMES = Arrays.asList("Id", "Name", "Description", "Industry", "Owner.Name");
+
+    /**
+     * Discards everything written.
+     */
+    static final WritableByteChannel DISCARD = new WritableByteChannel() {
+        @Override
+        public int write(final ByteBuffer buffer) {
+            final int retVal = buffer.remaining();
+
+            buffer.position(buffer.limit());
+
+            return retVal;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    final List<SObject> records = new ArrayList<>(RECORDS);
+
+    SObjectExporter csvExporter;
+
+    SObjectExporter ndjsonExporter;
+
+    /**
+     * Create a field element of <code>document</code>.
+     */
+    static Element createField(final Document document, final String name, final String value) {
+        final Element retVal = document.createElementNS(SOBJECT_NAMESPACE, "sf:" + name);
+
+        if (null == value) {
+            retVal.setAttributeNS(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "xsi:nil", "true");
+        } else {
+            retVal.setTextContent(value);
+        }
+
+        return retVal;
+    }
+
+    @Setup
+    public void setUp() throws ParserConfigurationException {
+        final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+
+        final Document document = documentBuilderFactory.newDocumentBuilder().newDocument();
+
+        for (int index = 0; index < RECORDS; index++) {
+            final SObject record = new SObject();
+            final Element owner = document.createElementNS(SOBJECT_NAMESPACE, "sf:Owner");
+
+            owner.appendChild(createField(document, "type", "User"));
+            owner.appendChild(createField(document, "Name", "Owner " + index));
+
+            record.setType("Account");
+            record.getAny().add(createField(document, "Id", String.format("001000000000%06d", index)));
+            record.getAny().add(createField(document, "Name", "Account \"" + index + "\", Inc."));
+            record.getAny().add(createField(document, "Description", 0 == index % 2 ? null : "A stub account used to exercise large exports"));
+            record.getAny().add(createField(document, "Industry", "Manufacturing"));
+            record.getAny().add(owner);
+
+            records.add(record);
+        }
+
+        csvExporter = new SObjectExporter(ExportFormatEnum.CSV, DISCARD, FIELD_NAMES);
+        ndjsonExporter = new SObjectExporter(ExportFormatEnum.NDJSON, DISCARD, FIELD_NAMES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long export_csv() throws IOException {
+        for (final SObject record : records) {
+            csvExporter.write(record);
+        }
+
+        return csvExporter.getRecordCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long export_ndjson() throws IOException {
+        for (final SObject record : records) {
+            ndjsonExporter.write(record);
+        }
+
+        return ndjsonExporter.getRecordCount();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.port;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.benchmark.BenchmarkLoginContext;
+import org.solenopsis.keraiai.soap.limits.ApiLimitThrottle;
+import org.solenopsis.keraiai.soap.limits.ApiLimits;
+import org.solenopsis.keraiai.soap.limits.RateLimitConfiguration;
+import org.solenopsis.keraiai.soap.limits.RateLimiters;
+import org.solenopsis.keraiai.soap.metrics.JmxMetricsRegistry;
+import org.solenopsis.keraiai.soap.metrics.MetricsRegistryEnum;
+import org.solenopsis.keraiai.soap.metrics.MetricsRegistryFactory;
+import org.solenopsis.keraiai.soap.session.SessionPortFactory;
+import org.solenopsis.keraiai.wsdl.partner.GetServerTimestampResult;
+import org.solenopsis.keraiai.wsdl.partner.Soap;
+
+/**
+ * Benchmarks the dispatch overhead of {@link PortInvocationHandler#invoke(Object, Method, Object[])}. Calls are made to the
+ * LoginContext methods of the proxy, and to a port method answered by a port that never leaves the JVM, so no network traffic
+ * is involved. Port methods are measured with metrics, API usage throttling, rate limiting and deadlines each on or off. JFR
+ * events are only emitted while recording - run with <code>-jvmArgs -XX:StartFlightRecording</code> to include them.
+ *
+ * @author Scot P. Floess
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PortInvocationHandlerBenchmark {
+    PortInvocationHandler portInvocationHandler;
+
+    Object proxy;
+
+    Method getSessionId;
+
+    /**
+     * A proxy port whose port answers calls without leaving the JVM, with the features on the port call path on or off.
+     */
+    @State(Scope.Benchmark)
+    public static class PortDispatch {
+        @Param({"false", "true"})
+        boolean metrics;
+
+        @Param({"false", "true"})
+        boolean throttling;
+
+        @Param({"false", "true"})
+        boolean rateLimiting;
+
+        @Param({"0", "60000"})
+        long callTimeout;
+
+        PortInvocationHandler portInvocationHandler;
+
+        Object proxy;
+
+        Method getServerTimestamp;
+
+        JmxMetricsRegistry metricsRegistry;
+
+        @Setup
+        public void setup() throws NoSuchMethodException, TimeoutException {
+            if (metrics) {
+                metricsRegistry = new JmxMetricsRegistry();
+
+                MetricsRegistryFactory.setMetricsRegistry(metricsRegistry);
+            }
+
+            if (throttling) {
+                ApiLimits.setThrottle(new ApiLimitThrottle(0.9, 1000));
+            }
+
+            // Rate high enough that calls never wait - only the bookkeeping is measured.
+            if (rateLimiting) {
+                RateLimiters.setRateLimitConfiguration(new RateLimitConfiguration(1_000_000_000, 1_000_000, 1024));
+            }
+
+            SessionPortFactory.setCallTimeout(callTimeout);
+
+            final BenchmarkLoginContext loginContext = new BenchmarkLoginContext();
+            final GetServerTimestampResult result = new GetServerTimestampResult();
+
+            portInvocationHandler = new PortInvocationHandler(loginContext.getCredentials(), loginContext, WebServiceTypeEnum.PARTNER_SERVICE_TYPE, ApiWebServiceEnum.PARTNER_SERVICE.getService(), Soap.class);
+            portInvocationHandler.awaitLogin();
+            portInvocationHandler.getPort().set(Proxy.newProxyInstance(PortInvocationHandlerBenchmark.class.getClassLoader(), new Class[]{Soap.class}, new InvocationHandler() {
+                @Override
+                public Object invoke(final Object port, final Method method, final Object[] args) {
+                    return result;
+                }
+            }));
+
+            proxy = Proxy.newProxyInstance(PortInvocationHandlerBenchmark.class.getClassLoader(), new Class[]{Soap.class, LoginContext.class}, portInvocationHandler);
+            getServerTimestamp = Soap.class.getMethod("getServerTimestamp");
+        }
+
+        @TearDown
+        public void tearDown() {
+            if (null != metricsRegistry) {
+                metricsRegistry.unregister();
+            }
+
+            MetricsRegistryFactory.setMetricsRegistry(MetricsRegistryEnum.NONE);
+            ApiLimits.setThrottle(null);
+            RateLimiters.setRateLimitConfiguration(null);
+            SessionPortFactory.setCallTimeout(0);
+        }
+    }
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        final BenchmarkLoginContext loginContext = new BenchmarkLoginContext();
+
+        portInvocationHandler = new PortInvocationHandler(loginContext.getCredentials(), loginContext, WebServiceTypeEnum.PARTNER_SERVICE_TYPE, ApiWebServiceEnum.PARTNER_SERVICE.getService(), Soap.class);
+        proxy = Proxy.newProxyInstance(PortInvocationHandlerBenchmark.class.getClassLoader(), new Class[]{Soap.class, LoginContext.class}, portInvocationHandler);
+        getSessionId = LoginContext.class.getMethod("getSessionId");
+    }
+
+    /**
+     * Dispatch through the invocation handler directly.
+     */
+    @Benchmark
+    public Object invoke() throws Throwable {
+        return portInvocationHandler.invoke(proxy, getSessionId, null);
+    }
+
+    /**
+     * Dispatch through the JDK proxy and the invocation handler.
+     */
+    @Benchmark
+    public String proxy() {
+        return ((LoginContext) proxy).getSessionId();
+    }
+
+    /**
+     * Dispatch a port method through the invocation handler directly.
+     */
+    @Benchmark
+    public Object invokePort(final PortDispatch portDispatch) throws Throwable {
+        return portDispatch.portInvocationHandler.invoke(portDispatch.proxy, portDispatch.getServerTimestamp, null);
+    }
+
+    /**
+     * Dispatch a port method through the JDK proxy and the invocation handler.
+     */
+    @Benchmark
+    public GetServerTimestampResult proxyPort(final PortDispatch portDispatch) {
+        return ((Soap) portDispatch.proxy).getServerTimestamp();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.util.HashMap;
+import java.util.Set;
+import javax.xml.bind.JAXBContext;
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPMessage;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.handler.soap.SOAPMessageContext;
+
+/**
+ * A bare bones outbound SOAP message context so handlers can be exercised outside of a JAX-WS runtime.
+ *
+ * @author Scot P. Floess
+ */
+final class BenchmarkSoapMessageContext extends HashMap<String, Object> implements SOAPMessageContext {
+    /**
+     * The message being handled.
+     */
+    private SOAPMessage message;
+
+    /**
+     * Create an outbound context for <code>message</code>.
+     *
+     * @param message the message being sent.
+     */
+    BenchmarkSoapMessageContext(final SOAPMessage message) {
+        this.message = message;
+
+        put(MessageContext.MESSAGE_OUTBOUND_PROPERTY, Boolean.TRUE);
+    }
+
+    @Override
+    public SOAPMessage getMessage() {
+        return message;
+    }
+
+    @Override
+    public void setMessage(final SOAPMessage message) {
+        this.message = message;
+    }
+
+    @Override
+    public Object[] getHeaders(final QName header, final JAXBContext context, final boolean allRoles) {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    @Override
+    public Set<String> getRoles() {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    @Override
+    public void setScope(final String name, final Scope scope) {
+    }
+
+    @Override
+    public Scope getScope(final String name) {
+        return Scope.APPLICATION;
+    }
+}
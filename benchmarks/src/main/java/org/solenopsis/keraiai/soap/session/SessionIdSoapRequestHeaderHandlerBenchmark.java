@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.util.concurrent.TimeUnit;
+import javax.xml.namespace.QName;
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.SOAPException;
+import org.flossware.jcore.soap.AbstractSoapRequestHeaderHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+import org.solenopsis.keraiai.soap.utils.SalesforceSessionHeaderUtils;
+
+/**
+ * Compares adding the session header via {@link SessionIdSoapRequestHeaderHandler}, whose names are computed once, to jCore's
+ * handler, which computes them for every message as was done prior.  Each invocation uses a freshly created SOAP message - the
+ * cost of which is reported by {@link #baseline()}.
+ *
+ * @author Scot P. Floess
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionIdSoapRequestHeaderHandlerBenchmark {
+    /**
+     * Builds the session header for every message.
+     */
+    static final class PerMessageSessionHeaderHandler extends AbstractSoapRequestHeaderHandler {
+        private final QName sessionHeaderName;
+
+        private final String sessionId;
+
+        PerMessageSessionHeaderHandler(final QName sessionHeaderName, final String sessionId) {
+            this.sessionHeaderName = sessionHeaderName;
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        protected QName getHeaderName() {
+            return sessionHeaderName;
+        }
+
+        @Override
+        protected String getName() {
+            return SalesforceSessionHeaderUtils.SESSION_ID;
+        }
+
+        @Override
+        protected String getValue() {
+            return sessionId;
+        }
+    }
+
+    static final String SESSION_ID = "00D000000000001!BENCHMARK_SESSION_ID";
+
+    MessageFactory messageFactory;
+
+    SessionIdSoapRequestHeaderHandler precomputed;
+
+    PerMessageSessionHeaderHandler perMessage;
+
+    @Setup
+    public void setup() throws SOAPException {
+        messageFactory = MessageFactory.newInstance();
+        precomputed = new SessionIdSoapRequestHeaderHandler(ApiWebServiceEnum.PARTNER_SERVICE.getService(), SESSION_ID);
+        perMessage = new PerMessageSessionHeaderHandler(SalesforceSessionHeaderUtils.computeSessionHeaderNameForService(ApiWebServiceEnum.PARTNER_SERVICE.getService()), SESSION_ID);
+    }
+
+    /**
+     * Only creates the message.
+     */
+    @Benchmark
+    public BenchmarkSoapMessageContext baseline() throws SOAPException {
+        return new BenchmarkSoapMessageContext(messageFactory.createMessage());
+    }
+
+    /**
+     * Adds the session header using precomputed names.
+     */
+    @Benchmark
+    public BenchmarkSoapMessageContext precomputed() throws SOAPException {
+        final BenchmarkSoapMessageContext context = new BenchmarkSoapMessageContext(messageFactory.createMessage());
+
+        precomputed.handleMessage(context);
+
+        return context;
+    }
+
+    /**
+     * Builds and adds the session header.
+     */
+    @Benchmark
+    public BenchmarkSoapMessageContext perMessage() throws SOAPException {
+        final BenchmarkSoapMessageContext context = new BenchmarkSoapMessageContext(messageFactory.createMessage());
+
+        perMessage.handleMessage(context);
+
+        return context;
+    }
+}
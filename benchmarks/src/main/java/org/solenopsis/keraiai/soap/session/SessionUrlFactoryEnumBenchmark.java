@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.util.concurrent.TimeUnit;
+import javax.xml.ws.Service;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.solenopsis.keraiai.benchmark.BenchmarkLoginContext;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+
+/**
+ * Benchmarks {@link SessionUrlFactoryEnum#computeSessionUrl(org.solenopsis.keraiai.LoginContext, Service)}.
+ *
+ * @author Scot P. Floess
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SessionUrlFactoryEnumBenchmark {
+    @Param({"PARTNER_SESSION_URL_FACTORY", "METADATA_SESSION_URL_FACTORY"})
+    SessionUrlFactoryEnum sessionUrlFactory;
+
+    BenchmarkLoginContext loginContext;
+
+    Service service;
+
+    @Setup
+    public void setup() {
+        loginContext = new BenchmarkLoginContext();
+        service = ApiWebServiceEnum.PARTNER_SERVICE.getService();
+    }
+
+    @Benchmark
+    public String computeSessionUrl() {
+        return sessionUrlFactory.computeSessionUrl(loginContext, service);
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.solenopsis.keraiai;
 
+import org.solenopsis.keraiai.soap.session.SessionRefreshPolicy;
+
 /**
  * Non web service specific login result. Same information as one will receive from the enterprise, partner and tooling web
  * services.
@@ -73,6 +75,15 @@ public interface LoginContext {
      */
     String getUserId();
 
+    /**
+     * The seconds the session is valid, as reported by SFDC on login. By default SFDC's default session timeout.
+     *
+     * @return the seconds the session is valid or 0 if unknown.
+     */
+    default int getSessionSecondsValid() {
+        return SessionRefreshPolicy.DEFAULT_SESSION_SECONDS_VALID;
+    }
+
     /**
      * The credentials used for login.
      *
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.bulk;
+
+import java.util.Map;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.flossware.jcore.utils.StringUtils;
+
+/**
+ * What SFDC reported about a bulk job when last asked.
+ *
+ * @author Scot P. Floess
+ */
+public final class BulkJob {
+    /**
+     * The job id.
+     */
+    private final String id;
+
+    /**
+     * The job operation.
+     */
+    private final BulkOperationEnum operation;
+
+    /**
+     * The SObject of the job.
+     */
+    private final String object;
+
+    /**
+     * The job state.
+     */
+    private final BulkJobStateEnum state;
+
+    /**
+     * Total records processed.
+     */
+    private final long numberRecordsProcessed;
+
+    /**
+     * Total records failed - always 0 for query jobs.
+     */
+    private final long numberRecordsFailed;
+
+    /**
+     * Why the job failed - null if it did not.
+     */
+    private final String errorMessage;
+
+    /**
+     * Return <code>value</code> as a long - 0 if absent.
+     */
+    static long computeLong(final String value) {
+        return null == value ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * This constructor sets all values.
+     *
+     * @param id                     the job id.
+     * @param operation              the job operation.
+     * @param object                 the SObject of the job - may be null.
+     * @param state                  the job state.
+     * @param numberRecordsProcessed total records processed.
+     * @param numberRecordsFailed    total records failed.
+     * @param errorMessage           why the job failed - may be null.
+     *
+     * @throws IllegalArgumentException if id is null/empty or operation or state are null.
+     */
+    public BulkJob(final String id, final BulkOperationEnum operation, final String object, final BulkJobStateEnum state, final long numberRecordsProcessed, final long numberRecordsFailed, final String errorMessage) {
+        this.id = StringUtils.ensureString(id, "Must provide a job id!");
+        this.operation = ObjectUtils.ensureObject(operation, "Must provide an operation!");
+        this.object = object;
+        this.state = ObjectUtils.ensureObject(state, "Must provide a state!");
+        this.numberRecordsProcessed = numberRecordsProcessed;
+        this.numberRecordsFailed = numberRecordsFailed;
+        this.errorMessage = errorMessage;
+    }
+
+    /**
+     * This constructor sets all values from the job info SFDC returns.
+     *
+     * @param jobInfo the job info.
+     *
+     * @throws IllegalArgumentException if the id, operation or state are missing or unknown.
+     */
+    BulkJob(final Map<String, String> jobInfo) {
+        this(jobInfo.get("id"), BulkOperationEnum.computeOperation(jobInfo.get("operation")), jobInfo.get("object"), BulkJobStateEnum.computeState(jobInfo.get("state")), computeLong(jobInfo.get("numberRecordsProcessed")), computeLong(jobInfo.get("numberRecordsFailed")), jobInfo.get("errorMessage"));
+    }
+
+    /**
+     * Return the job id.
+     *
+     * @return the job id.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Return the job operation.
+     *
+     * @return the job operation.
+     */
+    public BulkOperationEnum getOperation() {
+        return operation;
+    }
+
+    /**
+     * Return the SObject of the job.
+     *
+     * @return the SObject or null if not reported.
+     */
+    public String getObject() {
+        return object;
+    }
+
+    /**
+     * Return the job state.
+     *
+     * @return the job state.
+     */
+    public BulkJobStateEnum getState() {
+        return state;
+    }
+
+    /**
+     * Return the total records processed.
+     *
+     * @return the total records processed.
+     */
+    public long getNumberRecordsProcessed() {
+        return numberRecordsProcessed;
+    }
+
+    /**
+     * Return the total records failed.
+     *
+     * @return the total records failed.
+     */
+    public long getNumberRecordsFailed() {
+        return numberRecordsFailed;
+    }
+
+    /**
+     * Return why the job failed.
+     *
+     * @return the error message or null if none.
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "BulkJob [" + getId() + "] " + getOperation().getOperation() + " " + getObject() + " " + getState().getState() + " processed [" + getNumberRecordsProcessed() + "] failed [" + getNumberRecordsFailed() + "]";
+    }
+}
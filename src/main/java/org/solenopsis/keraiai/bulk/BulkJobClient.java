@@ -0,0 +1,654 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.bulk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import javax.net.ssl.HttpsURLConnection;
+import org.flossware.jcore.AbstractCommonBase;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.flossware.jcore.utils.StringUtils;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.soap.port.ProxyPortUtils;
+import org.solenopsis.keraiai.soap.session.SessionPortFactory;
+import org.solenopsis.keraiai.soap.session.TransportConfiguration;
+
+/**
+ * Client for SFDC Bulk API 2.0 jobs, for loads too large for SOAP calls. Calls use the session of a {@link LoginContext} - pass a
+ * proxy port, which is also a login context, so calls follow its re-logins. The transport configuration of
+ * {@link SessionPortFactory}, if any, applies to calls as it does to ports.
+ *
+ * Should SFDC refuse a call as its session is invalid (HTTP 401), a proxy port is asked to log in again, see
+ * {@link ProxyPortUtils#invalidateSession(LoginContext, String)}, and the call is made once more with the new session. Any other
+ * login context cannot log in again, so the refusal is raised. Uploads streamed from an <code>InputStream</code> cannot be sent
+ * again: they are raised after logging in again, while uploads from a <code>File</code> are sent again.
+ *
+ * CSV is streamed in both directions: uploads use chunked transfer encoding and downloads are copied as they arrive, so neither is
+ * held in memory. Jobs are polled until done on a scheduler shared by all clients.
+ *
+ * @author Scot P. Floess
+ */
+public final class BulkJobClient extends AbstractCommonBase {
+    /**
+     * Content type of JSON requests.
+     */
+    static final String JSON_CONTENT_TYPE = "application/json; charset=UTF-8";
+
+    /**
+     * Content type of CSV.
+     */
+    static final String CSV_CONTENT_TYPE = "text/csv";
+
+    /**
+     * Size of chunks when uploading, and of buffers when copying.
+     */
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Header containing the locator of the next page of query results.
+     */
+    static final String LOCATOR_HEADER = "Sforce-Locator";
+
+    /**
+     * Total calls of a request whose session is refused - once more after logging in again.
+     */
+    static final int MAX_CALLS = 2;
+
+    /**
+     * Polls job states - daemon threads so callers need not shut it down.
+     */
+    static final ScheduledExecutorService POLL_EXECUTOR = Executors.newScheduledThreadPool(2, new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread retVal = new Thread(runnable, "keraiai-bulk-poll");
+
+            retVal.setDaemon(true);
+
+            return retVal;
+        }
+    });
+
+    /**
+     * The session used for calls.
+     */
+    private final LoginContext loginContext;
+
+    /**
+     * The API version of calls - for example <code>39.0</code>.
+     */
+    private final String apiVersion;
+
+    /**
+     * Copy <code>inputStream</code> to <code>outputStream</code>.
+     *
+     * @return the total bytes copied.
+     */
+    static long copy(final InputStream inputStream, final OutputStream outputStream) throws IOException {
+        final byte[] buffer = new byte[CHUNK_SIZE];
+
+        long retVal = 0;
+
+        for (int total = inputStream.read(buffer); total >= 0; total = inputStream.read(buffer)) {
+            outputStream.write(buffer, 0, total);
+            retVal += total;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Read all of <code>inputStream</code> as UTF-8 - an empty string if null.
+     */
+    static String read(final InputStream inputStream) throws IOException {
+        if (null == inputStream) {
+            return "";
+        }
+
+        try (final InputStream toRead = inputStream) {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+            copy(toRead, outputStream);
+
+            return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Skip the first line, the CSV header, of <code>inputStream</code>.
+     */
+    static void skipLine(final InputStream inputStream) throws IOException {
+        for (int c = inputStream.read(); c >= 0 && '\n' != c; c = inputStream.read()) {
+        }
+    }
+
+    /**
+     * This constructor sets the session and API version.
+     *
+     * @param loginContext the session used for calls.
+     * @param apiVersion   the API version of calls - for example <code>39.0</code>.
+     *
+     * @throws IllegalArgumentException if loginContext is null or apiVersion is null/empty.
+     */
+    public BulkJobClient(final LoginContext loginContext, final String apiVersion) {
+        this.loginContext = ObjectUtils.ensureObject(loginContext, "Must provide a login context!");
+        this.apiVersion = StringUtils.ensureString(apiVersion, "Must provide an API version!");
+    }
+
+    /**
+     * This constructor uses the API version of the credentials of <code>loginContext</code>.
+     *
+     * @param loginContext the session used for calls.
+     *
+     * @throws IllegalArgumentException if loginContext is null.
+     */
+    public BulkJobClient(final LoginContext loginContext) {
+        this(loginContext, ObjectUtils.ensureObject(loginContext, "Must provide a login context!").getCredentials().getApiVersion());
+    }
+
+    /**
+     * Return the session used for calls.
+     *
+     * @return the login context.
+     */
+    public LoginContext getLoginContext() {
+        return loginContext;
+    }
+
+    /**
+     * Return the API version of calls.
+     *
+     * @return the API version.
+     */
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    /**
+     * Compute the URL of <code>path</code>, relative to the jobs resource.
+     */
+    String computeUrl(final String path) {
+        return getLoginContext().getBaseServerUrl() + "/services/data/v" + getApiVersion() + "/jobs/" + path;
+    }
+
+    /**
+     * Open a connection calling <code>method</code> on <code>path</code>, relative to the jobs resource, using
+     * <code>sessionId</code>.
+     */
+    HttpURLConnection openConnection(final String sessionId, final String method, final String path, final String accept) throws IOException {
+        final HttpURLConnection retVal = (HttpURLConnection) new URL(computeUrl(path)).openConnection();
+        final TransportConfiguration transportConfiguration = SessionPortFactory.getTransportConfiguration();
+
+        retVal.setRequestMethod(method);
+        retVal.setRequestProperty("Authorization", "Bearer " + sessionId);
+        retVal.setRequestProperty("Accept", accept);
+
+        if (null != transportConfiguration) {
+            retVal.setConnectTimeout(transportConfiguration.getConnectTimeout());
+            retVal.setReadTimeout(transportConfiguration.getReadTimeout());
+
+            if (retVal instanceof HttpsURLConnection) {
+                ((HttpsURLConnection) retVal).setSSLSocketFactory(transportConfiguration.getSslSocketFactory());
+            }
+        }
+
+        log(Level.FINE, "Calling [{0} {1}]", method, path);
+
+        return retVal;
+    }
+
+    /**
+     * Ensure the call on <code>connection</code> succeeded.
+     *
+     * @throws IllegalStateException if SFDC responded with an error.
+     */
+    static void ensureSuccess(final HttpURLConnection connection) throws IOException {
+        final int status = connection.getResponseCode();
+
+        if (status >= HttpURLConnection.HTTP_MULT_CHOICE) {
+            throw new IllegalStateException("Bulk API call [" + connection.getRequestMethod() + " " + connection.getURL() + "] failed with HTTP status [" + status + "]: " + read(connection.getErrorStream()));
+        }
+    }
+
+    /**
+     * Return true if SFDC refused the call on <code>connection</code> as <code>sessionId</code> is invalid, and our login context
+     * has since logged in again - so the call may be made again.
+     */
+    boolean isRelogin(final HttpURLConnection connection, final String sessionId) throws IOException {
+        if (HttpURLConnection.HTTP_UNAUTHORIZED != connection.getResponseCode()) {
+            return false;
+        }
+
+        log(Level.WARNING, "Session refused calling [{0} {1}], logging in again", connection.getRequestMethod(), connection.getURL());
+
+        if (!ProxyPortUtils.invalidateSession(getLoginContext(), sessionId)) {
+            return false;
+        }
+
+        read(connection.getErrorStream());
+
+        return true;
+    }
+
+    /**
+     * Open a connection calling <code>method</code> on <code>path</code>, sending <code>body</code> of <code>contentType</code> if
+     * not null, and ensure it succeeded - calling once more should our session be refused and we log in again.
+     *
+     * @return the connection, whose response is ready to read.
+     */
+    HttpURLConnection call(final String method, final String path, final String accept, final String contentType, final String body) throws IOException {
+        for (int totalCalls = 1;; totalCalls++) {
+            final String sessionId = getLoginContext().getSessionId();
+            final HttpURLConnection retVal = openConnection(sessionId, method, path, accept);
+
+            if (null != body) {
+                retVal.setDoOutput(true);
+                retVal.setRequestProperty("Content-Type", contentType);
+
+                try (final OutputStream outputStream = retVal.getOutputStream()) {
+                    outputStream.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            if (totalCalls < MAX_CALLS && isRelogin(retVal, sessionId)) {
+                continue;
+            }
+
+            ensureSuccess(retVal);
+
+            return retVal;
+        }
+    }
+
+    /**
+     * Call <code>method</code> on <code>path</code>, sending <code>json</code> if not null.
+     *
+     * @return the JSON object returned.
+     */
+    Map<String, String> callJson(final String method, final String path, final String json) {
+        try {
+            return BulkJson.parseObject(read(call(method, path, "application/json", JSON_CONTENT_TYPE, json).getInputStream()));
+        } catch (final IOException ioException) {
+            throw new IllegalStateException("Trouble calling Bulk API [" + method + " " + path + "]", ioException);
+        }
+    }
+
+    /**
+     * Compute the path of <code>job</code>.
+     */
+    static String computeJobPath(final BulkJob job) {
+        return ObjectUtils.ensureObject(job, "Must provide a job!").getOperation().getJobType() + "/" + job.getId();
+    }
+
+    /**
+     * Change the state of <code>job</code> - SFDC expects PATCH, which <code>HttpURLConnection</code> cannot send, so it is sent as
+     * a POST with the method overridden.
+     */
+    BulkJob changeState(final BulkJob job, final BulkJobStateEnum state) {
+        return new BulkJob(callJson("POST", computeJobPath(job) + "?_HttpMethod=PATCH", BulkJson.toJson("state", state.getState())));
+    }
+
+    /**
+     * Create an ingest job.
+     *
+     * @param object              the SObject to load - for example <code>Account</code>.
+     * @param operation           an ingest operation.
+     * @param externalIdFieldName the external id field for upserts - may be null.
+     *
+     * @return the job, open for upload.
+     *
+     * @throws IllegalArgumentException if object is null/empty or operation is null or a query.
+     */
+    public BulkJob createIngestJob(final String object, final BulkOperationEnum operation, final String externalIdFieldName) {
+        StringUtils.ensureString(object, "Must provide an object!");
+
+        if (ObjectUtils.ensureObject(operation, "Must provide an operation!").isQuery()) {
+            throw new IllegalArgumentException("Operation [" + operation.getOperation() + "] is not an ingest operation!");
+        }
+
+        return new BulkJob(callJson("POST", "ingest", BulkJson.toJson("object", object, "operation", operation.getOperation(), "externalIdFieldName", externalIdFieldName, "contentType", "CSV")));
+    }
+
+    /**
+     * Create an ingest job.
+     *
+     * @param object    the SObject to load - for example <code>Account</code>.
+     * @param operation an ingest operation other than upsert.
+     *
+     * @return the job, open for upload.
+     *
+     * @throws IllegalArgumentException if object is null/empty or operation is null or a query.
+     */
+    public BulkJob createIngestJob(final String object, final BulkOperationEnum operation) {
+        return createIngestJob(object, operation, null);
+    }
+
+    /**
+     * Upload the CSV records of <code>job</code>, streamed in chunks.
+     *
+     * @return false if SFDC refused our session and we logged in again, so the upload may be sent again.
+     */
+    boolean upload(final BulkJob job, final InputStream csv) throws IOException {
+        final String sessionId = getLoginContext().getSessionId();
+        final HttpURLConnection connection = openConnection(sessionId, "PUT", computeJobPath(job) + "/batches", "application/json");
+
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(CHUNK_SIZE);
+        connection.setRequestProperty("Content-Type", CSV_CONTENT_TYPE);
+
+        try (final OutputStream outputStream = connection.getOutputStream()) {
+            log(Level.FINE, "Uploaded [{0}] bytes to job [{1}]", copy(csv, outputStream), job.getId());
+        }
+
+        if (isRelogin(connection, sessionId)) {
+            return false;
+        }
+
+        ensureSuccess(connection);
+        read(connection.getInputStream());
+
+        return true;
+    }
+
+    /**
+     * Upload the CSV records of <code>job</code>, streamed in chunks. The stream cannot be sent again: should SFDC refuse our
+     * session, the upload fails even if we log in again.
+     *
+     * @param job the ingest job, open for upload.
+     * @param csv the CSV records including the header - not closed.
+     *
+     * @throws IllegalArgumentException if job or csv are null.
+     * @throws IllegalStateException    if the upload fails.
+     */
+    public void uploadJobData(final BulkJob job, final InputStream csv) {
+        ObjectUtils.ensureObject(csv, "Must provide CSV!");
+        ObjectUtils.ensureObject(job, "Must provide a job!");
+
+        try {
+            if (!upload(job, csv)) {
+                throw new IllegalStateException("Session refused uploading to job [" + job.getId() + "] - logged in again, but the CSV stream cannot be sent again");
+            }
+        } catch (final IOException ioException) {
+            throw new IllegalStateException("Trouble uploading to job [" + job.getId() + "]", ioException);
+        }
+    }
+
+    /**
+     * Upload the CSV records of <code>job</code> from <code>file</code>, streamed in chunks - sent again should SFDC refuse our
+     * session and we log in again.
+     *
+     * @param job  the ingest job, open for upload.
+     * @param file the CSV records including the header.
+     *
+     * @throws IllegalArgumentException if job or file are null.
+     * @throws IllegalStateException    if the file cannot be read or the upload fails.
+     */
+    public void uploadJobData(final BulkJob job, final File file) {
+        ObjectUtils.ensureObject(file, "Must provide a file!");
+        ObjectUtils.ensureObject(job, "Must provide a job!");
+
+        for (int totalCalls = 1;; totalCalls++) {
+            try (final InputStream inputStream = new FileInputStream(file)) {
+                if (upload(job, inputStream)) {
+                    return;
+                }
+
+                if (totalCalls >= MAX_CALLS) {
+                    throw new IllegalStateException("Session refused uploading [" + file + "] to job [" + job.getId() + "] after logging in again");
+                }
+            } catch (final IOException ioException) {
+                throw new IllegalStateException("Trouble uploading [" + file + "] to job [" + job.getId() + "]", ioException);
+            }
+        }
+    }
+
+    /**
+     * Tell SFDC all records of <code>job</code> are uploaded, so processing starts.
+     *
+     * @param job the ingest job.
+     *
+     * @return the job.
+     *
+     * @throws IllegalArgumentException if job is null.
+     */
+    public BulkJob closeJob(final BulkJob job) {
+        return changeState(job, BulkJobStateEnum.UPLOAD_COMPLETE);
+    }
+
+    /**
+     * Abort <code>job</code>.
+     *
+     * @param job the job.
+     *
+     * @return the job.
+     *
+     * @throws IllegalArgumentException if job is null.
+     */
+    public BulkJob abortJob(final BulkJob job) {
+        return changeState(job, BulkJobStateEnum.ABORTED);
+    }
+
+    /**
+     * Delete <code>job</code> - it must be done.
+     *
+     * @param job the job.
+     *
+     * @throws IllegalArgumentException if job is null.
+     */
+    public void deleteJob(final BulkJob job) {
+        callJson("DELETE", computeJobPath(job), null);
+    }
+
+    /**
+     * Return what SFDC now reports about <code>job</code>.
+     *
+     * @param job the job.
+     *
+     * @return the job.
+     *
+     * @throws IllegalArgumentException if job is null.
+     */
+    public BulkJob getJob(final BulkJob job) {
+        return new BulkJob(callJson("GET", computeJobPath(job), null));
+    }
+
+    /**
+     * Create a query job.
+     *
+     * @param query     the SOQL query.
+     * @param operation a query operation.
+     *
+     * @return the job.
+     *
+     * @throws IllegalArgumentException if query is null/empty or operation is null or not a query.
+     */
+    public BulkJob createQueryJob(final String query, final BulkOperationEnum operation) {
+        StringUtils.ensureString(query, "Must provide a query!");
+
+        if (!ObjectUtils.ensureObject(operation, "Must provide an operation!").isQuery()) {
+            throw new IllegalArgumentException("Operation [" + operation.getOperation() + "] is not a query operation!");
+        }
+
+        return new BulkJob(callJson("POST", "query", BulkJson.toJson("operation", operation.getOperation(), "query", query)));
+    }
+
+    /**
+     * Create a query job not including deleted and archived records.
+     *
+     * @param query the SOQL query.
+     *
+     * @return the job.
+     *
+     * @throws IllegalArgumentException if query is null/empty.
+     */
+    public BulkJob createQueryJob(final String query) {
+        return createQueryJob(query, BulkOperationEnum.QUERY);
+    }
+
+    /**
+     * Poll <code>job</code> every <code>pollInterval</code> until it is done - completed, failed or aborted.
+     *
+     * @param job          the job.
+     * @param pollInterval time between polls.
+     * @param unit         the unit of pollInterval.
+     *
+     * @return completes with the job once done, or exceptionally if polling fails. Cancelling it stops polling.
+     *
+     * @throws IllegalArgumentException if job or unit are null or pollInterval is less than 1.
+     */
+    public CompletableFuture<BulkJob> awaitJob(final BulkJob job, final long pollInterval, final TimeUnit unit) {
+        ObjectUtils.ensureObject(job, "Must provide a job!");
+        ObjectUtils.ensureObject(unit, "Must provide a time unit!");
+
+        if (pollInterval < 1) {
+            throw new IllegalArgumentException("Poll interval must be at least 1!");
+        }
+
+        final CompletableFuture<BulkJob> retVal = new CompletableFuture<>();
+
+        POLL_EXECUTOR.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (retVal.isDone()) {
+                    return;
+                }
+
+                try {
+                    final BulkJob polledJob = getJob(job);
+
+                    if (polledJob.getState().isTerminal()) {
+                        retVal.complete(polledJob);
+                    } else {
+                        POLL_EXECUTOR.schedule(this, pollInterval, unit);
+                    }
+                } catch (final RuntimeException pollFailure) {
+                    log(Level.WARNING, pollFailure, "Trouble polling job [{0}]", job.getId());
+
+                    retVal.completeExceptionally(pollFailure);
+                }
+            }
+        }, 0, unit);
+
+        return retVal;
+    }
+
+    /**
+     * Download the results of the ingest <code>job</code>.
+     *
+     * @param job          the ingest job, done.
+     * @param resultType   the results to download.
+     * @param outputStream where the CSV results are written - not closed.
+     *
+     * @return the total bytes written.
+     *
+     * @throws IllegalArgumentException if any param is null.
+     * @throws IllegalStateException    if the download fails.
+     */
+    public long downloadIngestResults(final BulkJob job, final BulkResultTypeEnum resultType, final OutputStream outputStream) {
+        ObjectUtils.ensureObject(resultType, "Must provide a result type!");
+        ObjectUtils.ensureObject(outputStream, "Must provide an output stream!");
+
+        final String path = computeJobPath(job) + "/" + resultType.getPath();
+
+        try {
+            final HttpURLConnection connection = call("GET", path, CSV_CONTENT_TYPE, null, null);
+
+            try (final InputStream inputStream = connection.getInputStream()) {
+                return copy(inputStream, outputStream);
+            }
+        } catch (final IOException ioException) {
+            throw new IllegalStateException("Trouble downloading [" + path + "]", ioException);
+        }
+    }
+
+    /**
+     * Download the results of the query <code>job</code> - all pages, as one CSV with one header.
+     *
+     * @param job          the query job, completed.
+     * @param outputStream where the CSV results are written - not closed.
+     *
+     * @return the total bytes written.
+     *
+     * @throws IllegalArgumentException if job or outputStream are null.
+     * @throws IllegalStateException    if the download fails.
+     */
+    public long downloadQueryResults(final BulkJob job, final OutputStream outputStream) {
+        ObjectUtils.ensureObject(outputStream, "Must provide an output stream!");
+
+        final String path = computeJobPath(job) + "/results";
+
+        long retVal = 0;
+        String locator = null;
+
+        try {
+            do {
+                final HttpURLConnection connection = call("GET", null == locator ? path : path + "?locator=" + URLEncoder.encode(locator, "UTF-8"), CSV_CONTENT_TYPE, null, null);
+
+                try (final InputStream inputStream = new BufferedInputStream(connection.getInputStream(), CHUNK_SIZE)) {
+                    // Each page repeats the header.
+                    if (null != locator) {
+                        skipLine(inputStream);
+                    }
+
+                    retVal += copy(inputStream, outputStream);
+                }
+
+                locator = connection.getHeaderField(LOCATOR_HEADER);
+            } while (null != locator && !locator.isEmpty() && !"null".equals(locator));
+        } catch (final IOException ioException) {
+            throw new IllegalStateException("Trouble downloading [" + path + "]", ioException);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Download the results of the query <code>job</code> to <code>file</code> - all pages, as one CSV with one header.
+     *
+     * @param job  the query job, completed.
+     * @param file where the CSV results are written.
+     *
+     * @return the total bytes written.
+     *
+     * @throws IllegalArgumentException if job or file are null.
+     * @throws IllegalStateException    if the file cannot be written or the download fails.
+     */
+    public long downloadQueryResults(final BulkJob job, final File file) {
+        try (final OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(ObjectUtils.ensureObject(file, "Must provide a file!")), CHUNK_SIZE)) {
+            return downloadQueryResults(job, outputStream);
+        } catch (final IOException ioException) {
+            throw new IllegalStateException("Trouble writing [" + file + "]", ioException);
+        }
+    }
+}
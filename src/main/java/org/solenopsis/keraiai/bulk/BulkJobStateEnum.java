@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.bulk;
+
+/**
+ * The states of bulk jobs.
+ *
+ * @author Scot P. Floess
+ */
+public enum BulkJobStateEnum {
+    OPEN("Open", false),
+    UPLOAD_COMPLETE("UploadComplete", false),
+    IN_PROGRESS("InProgress", false),
+    JOB_COMPLETE("JobComplete", true),
+    FAILED("Failed", true),
+    ABORTED("Aborted", true);
+
+    /**
+     * The state as SFDC names it.
+     */
+    private final String state;
+
+    /**
+     * True if the job will not change state again.
+     */
+    private final boolean isTerminal;
+
+    /**
+     * This constructor sets the state and whether it is terminal.
+     *
+     * @param state      the state as SFDC names it.
+     * @param isTerminal true if the job will not change state again.
+     */
+    private BulkJobStateEnum(final String state, final boolean isTerminal) {
+        this.state = state;
+        this.isTerminal = isTerminal;
+    }
+
+    /**
+     * Return the state as SFDC names it.
+     *
+     * @return the state.
+     */
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * Return true if the job will not change state again.
+     *
+     * @return true if terminal.
+     */
+    public boolean isTerminal() {
+        return isTerminal;
+    }
+
+    /**
+     * Find the state SFDC names <code>state</code>.
+     *
+     * @param state the state as SFDC names it.
+     *
+     * @return the state.
+     *
+     * @throws IllegalArgumentException if not a known state.
+     */
+    public static BulkJobStateEnum computeState(final String state) {
+        for (final BulkJobStateEnum jobState : values()) {
+            if (jobState.getState().equals(state)) {
+                return jobState;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown bulk job state [" + state + "]");
+    }
+}
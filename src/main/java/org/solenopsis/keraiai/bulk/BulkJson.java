@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.bulk;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the Bulk API: requests are flat objects of strings, and responses are read as flat objects whose nested
+ * values are skipped.
+ *
+ * @author Scot P. Floess
+ */
+final class BulkJson {
+    /**
+     * Append <code>value</code> to <code>sb</code> as a JSON string.
+     */
+    static StringBuilder appendString(final StringBuilder sb, final String value) {
+        sb.append('"');
+
+        for (int index = 0; index < value.length(); index++) {
+            final char c = value.charAt(index);
+
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+
+        return sb.append('"');
+    }
+
+    /**
+     * Create a JSON object of string values.
+     *
+     * @param keyValues alternating keys and values - entries whose value is null are omitted.
+     *
+     * @return the JSON object.
+     */
+    static String toJson(final String... keyValues) {
+        final StringBuilder sb = new StringBuilder("{");
+
+        for (int index = 0; index + 1 < keyValues.length; index += 2) {
+            if (null == keyValues[index + 1]) {
+                continue;
+            }
+
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+
+            appendString(appendString(sb, keyValues[index]).append(':'), keyValues[index + 1]);
+        }
+
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Return the index of the first non whitespace character at or after <code>index</code>.
+     */
+    static int skipWhitespace(final String json, final int index) {
+        int retVal = index;
+
+        while (retVal < json.length() && Character.isWhitespace(json.charAt(retVal))) {
+            retVal++;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Ensure <code>json</code> has <code>expected</code> at <code>index</code>.
+     */
+    static void ensureChar(final String json, final int index, final char expected) {
+        if (index >= json.length() || json.charAt(index) != expected) {
+            throw new IllegalArgumentException("Expected [" + expected + "] at [" + index + "] of JSON [" + json + "]");
+        }
+    }
+
+    /**
+     * Parse the string starting at the quote at <code>index</code> into <code>sb</code>.
+     *
+     * @return the index after the closing quote.
+     */
+    static int parseString(final String json, final int index, final StringBuilder sb) {
+        ensureChar(json, index, '"');
+
+        for (int current = index + 1; current < json.length(); current++) {
+            final char c = json.charAt(current);
+
+            if ('"' == c) {
+                return current + 1;
+            }
+
+            if ('\\' != c) {
+                sb.append(c);
+
+                continue;
+            }
+
+            if (++current >= json.length()) {
+                break;
+            }
+
+            final char escaped = json.charAt(current);
+
+            switch (escaped) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    if (current + 4 >= json.length()) {
+                        throw new IllegalArgumentException("Truncated unicode escape in JSON [" + json + "]");
+                    }
+
+                    sb.append((char) Integer.parseInt(json.substring(current + 1, current + 5), 16));
+                    current += 4;
+                    break;
+                default:
+                    sb.append(escaped);
+            }
+        }
+
+        throw new IllegalArgumentException("Unterminated string in JSON [" + json + "]");
+    }
+
+    /**
+     * Skip the object or array starting at <code>index</code>.
+     *
+     * @return the index after it.
+     */
+    static int skipNested(final String json, final int index) {
+        int depth = 0;
+        int current = index;
+
+        while (current < json.length()) {
+            final char c = json.charAt(current);
+
+            if ('"' == c) {
+                current = parseString(json, current, new StringBuilder());
+
+                continue;
+            }
+
+            if ('{' == c || '[' == c) {
+                depth++;
+            } else if ('}' == c || ']' == c) {
+                depth--;
+            }
+
+            current++;
+
+            if (0 == depth) {
+                return current;
+            }
+        }
+
+        throw new IllegalArgumentException("Unterminated value in JSON [" + json + "]");
+    }
+
+    /**
+     * Parse a flat JSON object. Values are returned as their text - nested objects and arrays, and nulls, are omitted.
+     *
+     * @param json the JSON object - may be null or empty.
+     *
+     * @return the values per key - empty if json is null or empty.
+     *
+     * @throws IllegalArgumentException if json is not an object.
+     */
+    static Map<String, String> parseObject(final String json) {
+        final Map<String, String> retVal = new HashMap<>();
+
+        if (null == json || json.trim().isEmpty()) {
+            return retVal;
+        }
+
+        int index = skipWhitespace(json, 0);
+
+        ensureChar(json, index, '{');
+
+        index = skipWhitespace(json, index + 1);
+
+        if (index < json.length() && '}' == json.charAt(index)) {
+            return retVal;
+        }
+
+        while (true) {
+            final StringBuilder key = new StringBuilder();
+
+            index = skipWhitespace(json, parseString(json, skipWhitespace(json, index), key));
+
+            ensureChar(json, index, ':');
+
+            index = skipWhitespace(json, index + 1);
+
+            if (index >= json.length()) {
+                throw new IllegalArgumentException("Missing value in JSON [" + json + "]");
+            }
+
+            final char c = json.charAt(index);
+
+            if ('"' == c) {
+                final StringBuilder value = new StringBuilder();
+
+                index = parseString(json, index, value);
+                retVal.put(key.toString(), value.toString());
+            } else if ('{' == c || '[' == c) {
+                index = skipNested(json, index);
+            } else {
+                final int start = index;
+
+                while (index < json.length() && ',' != json.charAt(index) && '}' != json.charAt(index)) {
+                    index++;
+                }
+
+                final String value = json.substring(start, index).trim();
+
+                if (!"null".equals(value)) {
+                    retVal.put(key.toString(), value);
+                }
+            }
+
+            index = skipWhitespace(json, index);
+
+            if (index < json.length() && ',' == json.charAt(index)) {
+                index++;
+
+                continue;
+            }
+
+            ensureChar(json, index, '}');
+
+            return retVal;
+        }
+    }
+
+    /**
+     * Default constructor not allowed.
+     */
+    private BulkJson() {
+    }
+}
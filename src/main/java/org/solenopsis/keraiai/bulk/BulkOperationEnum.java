@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.bulk;
+
+/**
+ * The operations of bulk jobs.
+ *
+ * @author Scot P. Floess
+ */
+public enum BulkOperationEnum {
+    INSERT("insert", false),
+    UPDATE("update", false),
+    UPSERT("upsert", false),
+    DELETE("delete", false),
+    HARD_DELETE("hardDelete", false),
+    QUERY("query", true),
+    QUERY_ALL("queryAll", true);
+
+    /**
+     * The operation as SFDC names it.
+     */
+    private final String operation;
+
+    /**
+     * True if a query job, false if an ingest job.
+     */
+    private final boolean isQuery;
+
+    /**
+     * This constructor sets the operation and whether it is a query.
+     *
+     * @param operation the operation as SFDC names it.
+     * @param isQuery   true if a query job, false if an ingest job.
+     */
+    private BulkOperationEnum(final String operation, final boolean isQuery) {
+        this.operation = operation;
+        this.isQuery = isQuery;
+    }
+
+    /**
+     * Return the operation as SFDC names it.
+     *
+     * @return the operation.
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Return true if a query job, false if an ingest job.
+     *
+     * @return true if a query job.
+     */
+    public boolean isQuery() {
+        return isQuery;
+    }
+
+    /**
+     * Return the job type, used in job URLs.
+     *
+     * @return <code>query</code> or <code>ingest</code>.
+     */
+    public String getJobType() {
+        return isQuery() ? "query" : "ingest";
+    }
+
+    /**
+     * Find the operation SFDC names <code>operation</code>.
+     *
+     * @param operation the operation as SFDC names it.
+     *
+     * @return the operation.
+     *
+     * @throws IllegalArgumentException if not a known operation.
+     */
+    public static BulkOperationEnum computeOperation(final String operation) {
+        for (final BulkOperationEnum bulkOperation : values()) {
+            if (bulkOperation.getOperation().equals(operation)) {
+                return bulkOperation;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown bulk operation [" + operation + "]");
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.bulk;
+
+/**
+ * The results of ingest jobs available for download.
+ *
+ * @author Scot P. Floess
+ */
+public enum BulkResultTypeEnum {
+    SUCCESSFUL_RESULTS("successfulResults"),
+    FAILED_RESULTS("failedResults"),
+    UNPROCESSED_RECORDS("unprocessedrecords");
+
+    /**
+     * The last segment of the results URL.
+     */
+    private final String path;
+
+    /**
+     * This constructor sets the last segment of the results URL.
+     *
+     * @param path the last segment of the results URL.
+     */
+    private BulkResultTypeEnum(final String path) {
+        this.path = path;
+    }
+
+    /**
+     * Return the last segment of the results URL.
+     *
+     * @return the path.
+     */
+    public String getPath() {
+        return path;
+    }
+}
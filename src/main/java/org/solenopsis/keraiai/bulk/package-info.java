@@ -0,0 +1,4 @@
+/**
+ * Client for the SFDC Bulk API 2.0: ingest and query jobs that share the sessions of SOAP logins.
+ */
+package org.solenopsis.keraiai.bulk;
@@ -58,6 +58,39 @@ public interface ApiWebService {
      */
     <P> P createProxyPort(Credentials credentials, LoginWebService loginWebService);
 
+    /**
+     * Will create a proxy port using the API services included in Keraiai, without waiting for login: login completes in the
+     * background and calls on the port wait for it. By default, delegates to the web service type.
+     *
+     * @param <P>             the type of port to create.
+     *
+     * @param credentials     are the credentials to use when creating the API proxy port.
+     * @param loginWebService used for logins and session ids.
+     *
+     * @return a proxy port
+     */
+    default <P> P createProxyPortAsync(final Credentials credentials, final LoginWebService loginWebService) {
+        return (P) getWebServiceType().createProxyPortAsync(credentials, loginWebService, getService(), getPortType());
+    }
+
+    /**
+     * Will create a proxy port, over a pool of sessions, using the API services included in Keraiai. By default, delegates to the
+     * web service type.
+     *
+     * @param <P>             the type of port to create.
+     *
+     * @param credentials     are the credentials to use when creating the API proxy port.
+     * @param loginWebService used for logins and session ids.
+     * @param totalSessions   the total sessions to pool.
+     *
+     * @return a proxy port
+     *
+     * @throws IllegalArgumentException if totalSessions is less than 1.
+     */
+    default <P> P createProxyPort(final Credentials credentials, final LoginWebService loginWebService, final int totalSessions) {
+        return (P) getWebServiceType().createProxyPort(credentials, loginWebService, getService(), getPortType(), totalSessions);
+    }
+
     /**
      * Will create a proxy port using the API services included in Keraiai.
      *
@@ -16,6 +16,8 @@
  */
 package org.solenopsis.keraiai.soap;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import org.solenopsis.keraiai.Credentials;
 import org.solenopsis.keraiai.LoginContext;
 import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
@@ -40,7 +42,7 @@ public interface LoginWebService {
     ApiWebService getApiWebService();
 
     /**
-     * Issues a login.
+     * Issues a login - always a new session, never one from the session store. The new session is stored.
      *
      * @param credentials the credentials to use on login.
      *
@@ -48,6 +50,53 @@ public interface LoginWebService {
      */
     LoginContext login(Credentials credentials);
 
+    /**
+     * Issues a login without blocking the caller - always a new session, never one from the session store. By default, calls
+     * {@link #login(org.solenopsis.keraiai.Credentials)} in the common fork join pool.
+     *
+     * @param credentials the credentials to use on login.
+     *
+     * @return completes with a login context, or exceptionally if the login fails.
+     */
+    default CompletableFuture<LoginContext> loginAsync(final Credentials credentials) {
+        return CompletableFuture.supplyAsync(new Supplier<LoginContext>() {
+            @Override
+            public LoginContext get() {
+                return login(credentials);
+            }
+        });
+    }
+
+    /**
+     * Return the session stored for <code>credentials</code> in the session store, or issue a login if none. Only use where a
+     * session shared with other logins of the same credentials is acceptable - for example the first login of a proxy port. By
+     * default, always issues a login.
+     *
+     * @param credentials the credentials to use on login.
+     *
+     * @return a login context.
+     */
+    default LoginContext restoreLogin(final Credentials credentials) {
+        return login(credentials);
+    }
+
+    /**
+     * Return, without blocking the caller, the session stored for <code>credentials</code> in the session store, or issue a login
+     * if none. By default, calls {@link #restoreLogin(org.solenopsis.keraiai.Credentials)} in the common fork join pool.
+     *
+     * @param credentials the credentials to use on login.
+     *
+     * @return completes with a login context, or exceptionally if the login fails.
+     */
+    default CompletableFuture<LoginContext> restoreLoginAsync(final Credentials credentials) {
+        return CompletableFuture.supplyAsync(new Supplier<LoginContext>() {
+            @Override
+            public LoginContext get() {
+                return restoreLogin(credentials);
+            }
+        });
+    }
+
     /**
      * Issues a logout.
      *
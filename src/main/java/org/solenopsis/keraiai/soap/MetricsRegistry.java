@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap;
+
+import java.lang.reflect.Method;
+
+/**
+ * Provides the metrics of operations called on proxy ports.
+ *
+ * @author Scot P. Floess
+ */
+public interface MetricsRegistry {
+    /**
+     * Return the metrics for calls to <code>method</code> of <code>portType</code>. Called on every call, so implementations
+     * should neither lock nor allocate once the metrics exist.
+     *
+     * @param portType the port type being called.
+     * @param method   the method being called.
+     *
+     * @return the metrics for the operation.
+     */
+    OperationMetrics getOperationMetrics(Class portType, Method method);
+}
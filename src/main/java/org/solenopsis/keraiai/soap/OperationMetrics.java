@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap;
+
+import org.solenopsis.keraiai.soap.exception.SalesforceExceptionEnum;
+
+/**
+ * Records what happens when calling one operation of a port. Called on every call, so implementations must be thread safe and
+ * should neither lock nor allocate.
+ *
+ * @author Scot P. Floess
+ */
+public interface OperationMetrics {
+    /**
+     * Record a call that succeeded.
+     *
+     * @param nanos how long the call took, including retries, in nanoseconds.
+     */
+    void recordSuccess(long nanos);
+
+    /**
+     * Record a call that failed after all retries were exhausted.
+     *
+     * @param nanos how long the call took, including retries, in nanoseconds.
+     */
+    void recordExhausted(long nanos);
+
+    /**
+     * Record a failed attempt of a call.
+     *
+     * @param failure the category of the failure.
+     */
+    void recordFailure(SalesforceExceptionEnum failure);
+
+    /**
+     * Record an attempt of a call being retried.
+     */
+    void recordRetry();
+
+    /**
+     * Record a relogin due to a failed attempt of a call.
+     */
+    void recordRelogin();
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap;
+
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.LoginContext;
+
+/**
+ * Stores sessions so they may be reused rather than logging in again - for example across JVM restarts. Stored sessions are not
+ * validated when loaded: the first call made with an invalid session invalidates it and logs in again.
+ *
+ * @author Scot P. Floess
+ */
+public interface SessionStore {
+    /**
+     * Return the stored session for <code>credentials</code> logged in via <code>loginWebService</code>.
+     *
+     * @param loginWebService used for logins and session ids.
+     * @param credentials     our login credentials.
+     *
+     * @return the stored session or null if none.
+     */
+    LoginContext load(LoginWebService loginWebService, Credentials credentials);
+
+    /**
+     * Store <code>loginContext</code>, replacing any session stored for its credentials.
+     *
+     * @param loginWebService used for logins and session ids.
+     * @param loginContext    the session to store.
+     */
+    void store(LoginWebService loginWebService, LoginContext loginContext);
+
+    /**
+     * Forget the stored session for the credentials of <code>loginContext</code> if it is <code>loginContext</code>'s session.
+     *
+     * @param loginWebService used for logins and session ids.
+     * @param loginContext    the session no longer valid.
+     */
+    void invalidate(LoginWebService loginWebService, LoginContext loginContext);
+}
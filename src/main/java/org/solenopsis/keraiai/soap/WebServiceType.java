@@ -48,6 +48,54 @@ public interface WebServiceType {
      */
     <S extends Service, P> P createProxyPort(Credentials credentials, LoginWebService loginWebService, Service service, Class<P> portType);
 
+    /**
+     * Create a proxy based port without waiting for login: login completes in the background and calls on the port wait for it.
+     * By default, logs in before returning - implementations should override.
+     *
+     * @param <S>             the type of web service being used.
+     * @param <P>             the type of port desired.
+     *
+     * @param credentials     our login credentials.
+     * @param loginWebService used for logins and session ids.
+     * @param service         contains the port for web service calls.
+     * @param portType        the type of port to perform web service calls.
+     *
+     * @return a session based port.
+     */
+    default <S extends Service, P> P createProxyPortAsync(final Credentials credentials, final LoginWebService loginWebService, final Service service, final Class<P> portType) {
+        return createProxyPort(credentials, loginWebService, service, portType);
+    }
+
+    /**
+     * Create a proxy based port over a pool of sessions. Each session logs in, retries and re-logs in independently of the others,
+     * and calls go to the least busy session. By default, only a single session is supported.
+     *
+     * @param <S>             the type of web service being used.
+     * @param <P>             the type of port desired.
+     *
+     * @param credentials     our login credentials.
+     * @param loginWebService used for logins and session ids.
+     * @param service         contains the port for web service calls.
+     * @param portType        the type of port to perform web service calls.
+     * @param totalSessions   the total sessions to pool.
+     *
+     * @return a session based port.
+     *
+     * @throws IllegalArgumentException      if totalSessions is less than 1.
+     * @throws UnsupportedOperationException if totalSessions is greater than 1 and pools are not supported.
+     */
+    default <S extends Service, P> P createProxyPort(final Credentials credentials, final LoginWebService loginWebService, final Service service, final Class<P> portType, final int totalSessions) {
+        if (totalSessions < 1) {
+            throw new IllegalArgumentException("Must pool at least one session!");
+        }
+
+        if (totalSessions > 1) {
+            throw new UnsupportedOperationException("Session pools are not supported!");
+        }
+
+        return createProxyPort(credentials, loginWebService, service, portType);
+    }
+
     /**
      * Create a proxy based port. This port will be able to perform auto logins, re-logins, etc.
      *
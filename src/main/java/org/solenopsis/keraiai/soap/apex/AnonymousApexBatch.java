@@ -0,0 +1,369 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.apex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.flossware.jcore.utils.ObjectUtils;
+
+/**
+ * A set of independent anonymous Apex scripts concatenated into one script. Each script is wrapped in its own savepoint and
+ * <code>try/catch</code> block, bracketed by debug markers, so that a failure in one script rolls back only that script and success,
+ * failure and debug log excerpts can be attributed per script.
+ *
+ * A script only succeeded if both its begin and end markers are in the debug log. Debug logs may be missing, truncated by SFDC or
+ * filtered by log level, in which case whether the script failed, and was rolled back, is unknown.
+ *
+ * Each <code>Database.setSavepoint()</code>, and each <code>Database.rollback()</code> of a failed script, counts against the DML
+ * statement governor limit of the whole batch - a batch of N scripts uses N of those statements before its scripts do any DML.
+ *
+ * @author Scot P. Floess
+ */
+final class AnonymousApexBatch {
+    /**
+     * Prefix for all markers written to the debug log.
+     */
+    static final String MARKER_PREFIX = "[KERAIAI:";
+
+    /**
+     * Marker written before a script executes.
+     */
+    static final String BEGIN_MARKER = "BEGIN";
+
+    /**
+     * Marker written when a script fails.
+     */
+    static final String FAILED_MARKER = "FAILED";
+
+    /**
+     * Marker written after a script executes.
+     */
+    static final String END_MARKER = "END";
+
+    /**
+     * Total lines in a wrapper before the script itself.
+     */
+    static final int WRAPPER_PREFIX_LINES = 3;
+
+    /**
+     * The position of each script in the originally submitted list.
+     */
+    private final List<Integer> indexes;
+
+    /**
+     * The unwrapped scripts.
+     */
+    private final List<String> scripts;
+
+    /**
+     * The wrapped scripts.
+     */
+    private final List<String> segments;
+
+    /**
+     * Return the position of each script in the originally submitted list.
+     */
+    List<Integer> getIndexes() {
+        return indexes;
+    }
+
+    /**
+     * Return the unwrapped scripts.
+     */
+    List<String> getScripts() {
+        return scripts;
+    }
+
+    /**
+     * Return the wrapped scripts.
+     */
+    List<String> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Compute a marker for the script at <code>index</code>.
+     *
+     * @param marker the type of marker.
+     * @param index  the index of the script.
+     *
+     * @return the marker.
+     */
+    static String computeMarker(final String marker, final int index) {
+        return MARKER_PREFIX + marker + ":" + index + "]";
+    }
+
+    /**
+     * Count the lines in <code>str</code>.
+     */
+    static int countLines(final String str) {
+        int lines = 1;
+
+        for (int index = 0; index < str.length(); index++) {
+            if ('\n' == str.charAt(index)) {
+                lines++;
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * Wraps <code>script</code> in a savepoint and <code>try/catch</code> block with begin, failed and end markers.
+     *
+     * @param index  the index of the script - used for markers and to make variable names unique.
+     * @param script the script to wrap.
+     *
+     * @return the wrapped script.
+     */
+    static String wrap(final int index, final String script) {
+        return new StringBuilder(script.length() + 512)
+                .append("System.debug(LoggingLevel.ERROR, '").append(computeMarker(BEGIN_MARKER, index)).append("');\n")
+                .append("Savepoint keraiaiSavepoint").append(index).append(" = Database.setSavepoint();\n")
+                .append("try {\n")
+                .append(script).append('\n')
+                .append("} catch (Exception keraiaiException) {\n")
+                .append("    Database.rollback(keraiaiSavepoint").append(index).append(");\n")
+                .append("    System.debug(LoggingLevel.ERROR, '").append(computeMarker(FAILED_MARKER, index)).append(" ' + keraiaiException.getTypeName() + ': ' + keraiaiException.getMessage());\n")
+                .append("}\n")
+                .append("System.debug(LoggingLevel.ERROR, '").append(computeMarker(END_MARKER, index)).append("');\n")
+                .toString();
+    }
+
+    /**
+     * Splits <code>scripts</code> into batches whose concatenated text does not exceed <code>maxScriptLength</code>. A script too
+     * large to be wrapped is placed in a batch by itself.
+     *
+     * @param scripts         the scripts to batch.
+     * @param maxScriptLength the maximum length of a batch.
+     *
+     * @return the batches.
+     */
+    static List<AnonymousApexBatch> computeBatches(final List<String> scripts, final int maxScriptLength) {
+        final List<AnonymousApexBatch> retVal = new ArrayList<>();
+
+        List<Integer> indexes = new ArrayList<>();
+        List<String> batchScripts = new ArrayList<>();
+        List<String> segments = new ArrayList<>();
+        int length = 0;
+
+        for (int index = 0; index < scripts.size(); index++) {
+            final String script = ObjectUtils.ensureObject(scripts.get(index), "Must provide a script!");
+            final String segment = wrap(index, script);
+
+            if (!segments.isEmpty() && length + segment.length() > maxScriptLength) {
+                retVal.add(new AnonymousApexBatch(indexes, batchScripts, segments));
+
+                indexes = new ArrayList<>();
+                batchScripts = new ArrayList<>();
+                segments = new ArrayList<>();
+                length = 0;
+            }
+
+            indexes.add(index);
+            batchScripts.add(script);
+            segments.add(segment);
+            length += segment.length();
+        }
+
+        if (!segments.isEmpty()) {
+            retVal.add(new AnonymousApexBatch(indexes, batchScripts, segments));
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Sets the scripts.
+     *
+     * @param indexes  the position of each script in the originally submitted list.
+     * @param scripts  the unwrapped scripts.
+     * @param segments the wrapped scripts.
+     */
+    AnonymousApexBatch(final List<Integer> indexes, final List<String> scripts, final List<String> segments) {
+        this.indexes = Collections.unmodifiableList(indexes);
+        this.scripts = Collections.unmodifiableList(scripts);
+        this.segments = Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * Return the total number of scripts.
+     *
+     * @return the total number of scripts.
+     */
+    int size() {
+        return getScripts().size();
+    }
+
+    /**
+     * Return the script to send to SFDC. A batch of one is sent as is.
+     *
+     * @return the script to send to SFDC.
+     */
+    String computeText() {
+        if (1 == size()) {
+            return getScripts().get(0);
+        }
+
+        final StringBuilder sb = new StringBuilder();
+
+        for (final String segment : getSegments()) {
+            sb.append(segment);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Find the position of the script containing <code>line</code> of the batch text.
+     *
+     * @param line a line number (starting at 1) in the batch text.
+     *
+     * @return the position of the script or -1 if the line is not within a script.
+     */
+    int findPosition(final int line) {
+        int startLine = 1;
+
+        for (int position = 0; position < size(); position++) {
+            final int scriptStartLine = startLine + WRAPPER_PREFIX_LINES;
+            final int scriptEndLine = scriptStartLine + countLines(getScripts().get(position)) - 1;
+
+            if (line >= scriptStartLine && line <= scriptEndLine) {
+                return position;
+            }
+
+            startLine += countLines(getSegments().get(position)) - 1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Return a batch without the script at <code>position</code>.
+     *
+     * @param position the script to exclude.
+     *
+     * @return a batch without the script at <code>position</code>.
+     */
+    AnonymousApexBatch remove(final int position) {
+        final List<Integer> newIndexes = new ArrayList<>(getIndexes());
+        final List<String> newScripts = new ArrayList<>(getScripts());
+        final List<String> newSegments = new ArrayList<>(getSegments());
+
+        newIndexes.remove(position);
+        newScripts.remove(position);
+        newSegments.remove(position);
+
+        return new AnonymousApexBatch(newIndexes, newScripts, newSegments);
+    }
+
+    /**
+     * Return the batch of just the script at <code>position</code>.
+     *
+     * @param position the script to keep.
+     *
+     * @return a batch of one.
+     */
+    AnonymousApexBatch single(final int position) {
+        return new AnonymousApexBatch(Collections.singletonList(getIndexes().get(position)), Collections.singletonList(getScripts().get(position)), Collections.singletonList(getSegments().get(position)));
+    }
+
+    /**
+     * Extract the debug log lines produced by the script at <code>position</code>.
+     *
+     * @param debugLog the debug log for the batch.
+     * @param position the position of the script.
+     *
+     * @return the lines of the debug log between the begin and end markers, or null if not found.
+     */
+    String extractDebugLog(final String debugLog, final int position) {
+        if (null == debugLog) {
+            return null;
+        }
+
+        final int index = getIndexes().get(position);
+        final String beginMarker = computeMarker(BEGIN_MARKER, index);
+        final String endMarker = computeMarker(END_MARKER, index);
+
+        final int begin = debugLog.indexOf(beginMarker);
+
+        if (begin < 0) {
+            return null;
+        }
+
+        final int excerptBegin = debugLog.indexOf('\n', begin) + 1;
+        final int end = debugLog.indexOf(endMarker, excerptBegin);
+
+        if (0 == excerptBegin) {
+            return "";
+        }
+
+        if (end < 0) {
+            return debugLog.substring(excerptBegin);
+        }
+
+        final int excerptEnd = debugLog.lastIndexOf('\n', end);
+
+        return excerptEnd < excerptBegin ? "" : debugLog.substring(excerptBegin, excerptEnd + 1);
+    }
+
+    /**
+     * Return true if the debug log shows the script at <code>position</code> ran to its end - both its begin and end markers are
+     * present.
+     *
+     * @param debugLog the debug log for the batch.
+     * @param position the position of the script.
+     *
+     * @return true if the script ran to its end or false if the debug log is missing, truncated or filtered.
+     */
+    boolean isCompleted(final String debugLog, final int position) {
+        if (null == debugLog) {
+            return false;
+        }
+
+        final int index = getIndexes().get(position);
+        final int begin = debugLog.indexOf(computeMarker(BEGIN_MARKER, index));
+
+        return begin >= 0 && debugLog.indexOf(computeMarker(END_MARKER, index), begin) >= 0;
+    }
+
+    /**
+     * Extract the failure reported by the script at <code>position</code>.
+     *
+     * @param debugLog the debug log for the batch.
+     * @param position the position of the script.
+     *
+     * @return the exception type and message, or null if the script did not fail.
+     */
+    String extractFailure(final String debugLog, final int position) {
+        if (null == debugLog) {
+            return null;
+        }
+
+        final String failedMarker = computeMarker(FAILED_MARKER, getIndexes().get(position));
+        final int failed = debugLog.indexOf(failedMarker);
+
+        if (failed < 0) {
+            return null;
+        }
+
+        final int end = debugLog.indexOf('\n', failed);
+
+        return debugLog.substring(failed + failedMarker.length(), end < 0 ? debugLog.length() : end).trim();
+    }
+}
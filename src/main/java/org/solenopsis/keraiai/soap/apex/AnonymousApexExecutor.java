@@ -0,0 +1,382 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.apex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
+import org.flossware.jcore.AbstractCommonBase;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.soap.LoginWebService;
+import org.solenopsis.keraiai.soap.exception.SalesforceExceptionEnum;
+import org.solenopsis.keraiai.soap.session.SessionPortFactory;
+
+/**
+ * Executes many small, independent anonymous Apex scripts with as few calls as possible. Scripts are concatenated into batches up
+ * to a maximum script length (see {@link AnonymousApexBatch}) and batches are executed concurrently across a number of sessions.
+ * Results, including debug log excerpts, are reported per script and in the order the scripts were submitted.
+ *
+ * When a batch fails to compile, the offending script is executed by itself and the remainder of the batch is retried. When a batch
+ * fails with an exception that cannot be caught (for example a limit exception), the whole transaction was rolled back and each
+ * script of the batch is executed by itself. When the call to SFDC fails, whether its scripts compiled or executed is unknown - see
+ * {@link AnonymousApexResult#isCompileKnown()}. When a batch succeeds, each script's outcome is read from the debug log. Should the
+ * debug log lack a script's markers - missing, truncated or filtered - the script is reported as failed with
+ * {@link #UNKNOWN_OUTCOME}: it may have been rolled back, and anonymous Apex is not idempotent so it is not executed again.
+ *
+ * Each session is logged in anew but never logged out: a session store may hand the session to another process, which logging out
+ * would break. Unused sessions simply expire.
+ *
+ * @author Scot P. Floess
+ */
+public final class AnonymousApexExecutor extends AbstractCommonBase {
+    /**
+     * The default maximum length of a script sent to SFDC.
+     */
+    public static final int DEFAULT_MAX_SCRIPT_LENGTH = 32000;
+
+    /**
+     * The default debug level (SFDC LogType).
+     */
+    public static final String DEFAULT_DEBUG_LEVEL = "Debugonly";
+
+    /**
+     * The default Apex code log level (SFDC LogCategoryLevel).
+     */
+    public static final String DEFAULT_CATEGORY_LEVEL = "Debug";
+
+    /**
+     * The exception message of scripts whose outcome is unknown because the debug log lacks their markers.
+     */
+    public static final String UNKNOWN_OUTCOME = "Outcome unknown - the debug log lacks the script's begin and end markers";
+
+    /**
+     * The credentials.
+     */
+    private final Credentials credentials;
+
+    /**
+     * The login web service.
+     */
+    private final LoginWebService loginWebService;
+
+    /**
+     * The web service to execute anonymous Apex.
+     */
+    private final AnonymousApexWebServiceEnum anonymousApexWebService;
+
+    /**
+     * The maximum length of a script sent to SFDC.
+     */
+    private final int maxScriptLength;
+
+    /**
+     * The maximum number of concurrent sessions.
+     */
+    private final int sessions;
+
+    /**
+     * A session used by one thread to execute batches.
+     */
+    final class Session {
+        /**
+         * Our login context.
+         */
+        private LoginContext loginContext;
+
+        /**
+         * Our port.
+         */
+        private Object port;
+
+        /**
+         * Login and create our port.
+         */
+        void login() {
+            loginContext = getLoginWebService().login(getCredentials());
+            port = SessionPortFactory.createSessionPort(getAnonymousApexWebService().getApiWebService(), loginContext, new DebuggingSoapHeaderHandler(getAnonymousApexWebService().getApiWebService().getService(), DEFAULT_DEBUG_LEVEL, DEFAULT_CATEGORY_LEVEL));
+        }
+
+        /**
+         * Execute <code>script</code>, logging in again if our session is invalid.
+         *
+         * @param script the script to execute.
+         *
+         * @return the result including the debug log.
+         */
+        AnonymousApexResult executeAnonymous(final String script) {
+            AnonymousApexResult result;
+
+            try {
+                result = getAnonymousApexWebService().executeAnonymous(port, script);
+            } catch (final WebServiceException webServiceException) {
+                // Anonymous Apex is not idempotent - only retry if SFDC never ran it...
+                if (SalesforceExceptionEnum.INVALID_SESSION_ID != SalesforceExceptionEnum.computeType(webServiceException)) {
+                    throw webServiceException;
+                }
+
+                login();
+
+                result = getAnonymousApexWebService().executeAnonymous(port, script);
+            }
+
+            return result.copy(script, (String) ((BindingProvider) port).getResponseContext().get(DebuggingSoapHeaderHandler.DEBUG_LOG));
+        }
+    }
+
+    /**
+     * Return the credentials.
+     */
+    Credentials getCredentials() {
+        return credentials;
+    }
+
+    /**
+     * Return the login web service.
+     */
+    LoginWebService getLoginWebService() {
+        return loginWebService;
+    }
+
+    /**
+     * Return the web service to execute anonymous Apex.
+     */
+    AnonymousApexWebServiceEnum getAnonymousApexWebService() {
+        return anonymousApexWebService;
+    }
+
+    /**
+     * Return the maximum length of a script sent to SFDC.
+     */
+    int getMaxScriptLength() {
+        return maxScriptLength;
+    }
+
+    /**
+     * Return the maximum number of concurrent sessions.
+     */
+    int getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Record a failure calling SFDC for every script in <code>batch</code> - whether they compiled is unknown.
+     */
+    void recordFailure(final AnonymousApexResult[] results, final AnonymousApexBatch batch, final Throwable failure) {
+        for (int position = 0; position < batch.size(); position++) {
+            results[batch.getIndexes().get(position)] = new AnonymousApexResult(batch.getScripts().get(position), failure.toString());
+        }
+    }
+
+    /**
+     * Execute each script of <code>batch</code> by itself.
+     */
+    void executeIndividually(final Session session, final AnonymousApexResult[] results, final AnonymousApexBatch batch) {
+        for (int position = 0; position < batch.size(); position++) {
+            execute(session, results, batch.single(position));
+        }
+    }
+
+    /**
+     * Execute <code>batch</code> placing the result of each script in <code>results</code>.
+     *
+     * @param session the session to use.
+     * @param results where results are placed - indexed by the position of the originally submitted script.
+     * @param batch   the batch to execute.
+     */
+    void execute(final Session session, final AnonymousApexResult[] results, final AnonymousApexBatch batch) {
+        final AnonymousApexResult batchResult;
+
+        try {
+            batchResult = session.executeAnonymous(batch.computeText());
+        } catch (final RuntimeException runtimeException) {
+            log(Level.WARNING, runtimeException, "Trouble executing [{0}] anonymous Apex script(s)", batch.size());
+
+            recordFailure(results, batch, runtimeException);
+
+            return;
+        }
+
+        if (1 == batch.size()) {
+            results[batch.getIndexes().get(0)] = batchResult;
+        } else if (!batchResult.isCompiled()) {
+            final int position = batch.findPosition(batchResult.getLine());
+
+            log(Level.FINE, "Batch of [{0}] scripts failed to compile at line [{1}], script position [{2}]", batch.size(), batchResult.getLine(), position);
+
+            if (position < 0) {
+                executeIndividually(session, results, batch);
+            } else {
+                execute(session, results, batch.single(position));
+                execute(session, results, batch.remove(position));
+            }
+        } else if (!batchResult.isSuccess()) {
+            log(Level.FINE, "Batch of [{0}] scripts failed with uncatchable exception [{1}] - executing individually", batch.size(), batchResult.getExceptionMessage());
+
+            executeIndividually(session, results, batch);
+        } else {
+            for (int position = 0; position < batch.size(); position++) {
+                final String extractedFailure = batch.extractFailure(batchResult.getDebugLog(), position);
+                final String failure = null == extractedFailure && !batch.isCompleted(batchResult.getDebugLog(), position) ? UNKNOWN_OUTCOME : extractedFailure;
+
+                results[batch.getIndexes().get(position)] = new AnonymousApexResult(batch.getScripts().get(position), true, null == failure, null, -1, -1, failure, null, batch.extractDebugLog(batchResult.getDebugLog(), position));
+            }
+        }
+    }
+
+    /**
+     * Create a task that logs in and executes batches until none remain.
+     */
+    Callable<Void> createTask(final Queue<AnonymousApexBatch> batches, final AnonymousApexResult[] results) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() {
+                final Session session = new Session();
+
+                session.login();
+
+                for (AnonymousApexBatch batch = batches.poll(); null != batch; batch = batches.poll()) {
+                    execute(session, results, batch);
+                }
+
+                return null;
+            }
+        };
+    }
+
+    /**
+     * This constructor sets the credentials, login web service, web service, maximum script length and maximum concurrent sessions.
+     *
+     * @param credentials             the credentials for login.
+     * @param loginWebService         used for logins and session ids.
+     * @param anonymousApexWebService the web service (apex or tooling) used to execute anonymous Apex.
+     * @param maxScriptLength         the maximum length of a script sent to SFDC.
+     * @param sessions                the maximum number of concurrent sessions (and therefore concurrent calls).
+     *
+     * @throws IllegalArgumentException if any params are null or if maxScriptLength or sessions are less than 1.
+     */
+    public AnonymousApexExecutor(final Credentials credentials, final LoginWebService loginWebService, final AnonymousApexWebServiceEnum anonymousApexWebService, final int maxScriptLength, final int sessions) {
+        this.credentials = ObjectUtils.ensureObject(credentials, "Must provide credentials!");
+        this.loginWebService = ObjectUtils.ensureObject(loginWebService, "Must provide a login web service!");
+        this.anonymousApexWebService = ObjectUtils.ensureObject(anonymousApexWebService, "Must provide an anonymous Apex web service!");
+
+        if (maxScriptLength < 1) {
+            throw new IllegalArgumentException("Max script length must be positive!");
+        }
+
+        if (sessions < 1) {
+            throw new IllegalArgumentException("Must have at least one session!");
+        }
+
+        this.maxScriptLength = maxScriptLength;
+        this.sessions = sessions;
+    }
+
+    /**
+     * This constructor uses the default login web service, default max script length and one session.
+     *
+     * @param credentials             the credentials for login.
+     * @param anonymousApexWebService the web service (apex or tooling) used to execute anonymous Apex.
+     *
+     * @throws IllegalArgumentException if any params are null.
+     */
+    public AnonymousApexExecutor(final Credentials credentials, final AnonymousApexWebServiceEnum anonymousApexWebService) {
+        this(credentials, LoginWebService.DEFAULT_LOGIN_WEB_SERVICE, anonymousApexWebService, DEFAULT_MAX_SCRIPT_LENGTH, 1);
+    }
+
+    /**
+     * Execute <code>scripts</code>. The scripts must be independent of one another as they may be combined and executed in any order.
+     *
+     * @param scripts the scripts to execute.
+     *
+     * @return a result per script in the same order as <code>scripts</code>.
+     *
+     * @throws IllegalArgumentException if scripts is null or contains a null.
+     * @throws IllegalStateException    if a session could not be established.
+     */
+    public List<AnonymousApexResult> execute(final List<String> scripts) {
+        ObjectUtils.ensureObject(scripts, "Must provide scripts!");
+
+        final AnonymousApexResult[] results = new AnonymousApexResult[scripts.size()];
+        final Queue<AnonymousApexBatch> batches = new ConcurrentLinkedQueue<>(AnonymousApexBatch.computeBatches(scripts, getMaxScriptLength()));
+
+        if (batches.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        log(Level.FINE, "Executing [{0}] anonymous Apex script(s) in [{1}] batch(es)", scripts.size(), batches.size());
+
+        final int totalSessions = Math.min(getSessions(), batches.size());
+
+        if (1 == totalSessions) {
+            try {
+                createTask(batches, results).call();
+            } catch (final Exception exception) {
+                throw new IllegalStateException("Trouble executing anonymous Apex", exception);
+            }
+
+            return Arrays.asList(results);
+        }
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(totalSessions);
+
+        try {
+            final List<Future<Void>> futures = new ArrayList<>(totalSessions);
+
+            for (int index = 0; index < totalSessions; index++) {
+                futures.add(executorService.submit(createTask(batches, results)));
+            }
+
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Interrupted executing anonymous Apex", interruptedException);
+        } catch (final ExecutionException executionException) {
+            throw new IllegalStateException("Trouble executing anonymous Apex", executionException.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Execute a single <code>script</code>.
+     *
+     * @param script the script to execute.
+     *
+     * @return the result.
+     */
+    public AnonymousApexResult execute(final String script) {
+        return execute(Collections.singletonList(ObjectUtils.ensureObject(script, "Must provide a script!"))).get(0);
+    }
+}
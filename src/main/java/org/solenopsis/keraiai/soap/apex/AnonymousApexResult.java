@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.apex;
+
+/**
+ * The outcome of executing an anonymous Apex script. Should the call to SFDC itself fail, SFDC may or may not have compiled and
+ * executed the script - see {@link #isCompileKnown()}.
+ *
+ * @author Scot P. Floess
+ */
+public final class AnonymousApexResult {
+    /**
+     * The script executed.
+     */
+    private final String script;
+
+    /**
+     * True if the script compiled.
+     */
+    private final boolean compiled;
+
+    /**
+     * True if the script executed successfully.
+     */
+    private final boolean success;
+
+    /**
+     * The compile problem if one arose.
+     */
+    private final String compileProblem;
+
+    /**
+     * Line of the compile problem.
+     */
+    private final int line;
+
+    /**
+     * Column of the compile problem.
+     */
+    private final int column;
+
+    /**
+     * The exception message if the script failed.
+     */
+    private final String exceptionMessage;
+
+    /**
+     * The exception stack trace if the script failed.
+     */
+    private final String exceptionStackTrace;
+
+    /**
+     * The debug log (or excerpt for batched scripts).
+     */
+    private final String debugLog;
+
+    /**
+     * The failure calling SFDC, if the call itself failed.
+     */
+    private final String callFailure;
+
+    /**
+     * This constructor sets all values.
+     *
+     * @param script              the script executed.
+     * @param compiled            true if the script compiled.
+     * @param success             true if the script executed successfully.
+     * @param compileProblem      the compile problem if one arose.
+     * @param line                line of the compile problem.
+     * @param column              column of the compile problem.
+     * @param exceptionMessage    the exception message if the script failed.
+     * @param exceptionStackTrace the exception stack trace if the script failed.
+     * @param debugLog            the debug log.
+     * @param callFailure         the failure calling SFDC, if the call itself failed.
+     */
+    AnonymousApexResult(final String script, final boolean compiled, final boolean success, final String compileProblem, final int line, final int column, final String exceptionMessage, final String exceptionStackTrace, final String debugLog, final String callFailure) {
+        this.script = script;
+        this.compiled = compiled;
+        this.success = success;
+        this.compileProblem = compileProblem;
+        this.line = line;
+        this.column = column;
+        this.exceptionMessage = exceptionMessage;
+        this.exceptionStackTrace = exceptionStackTrace;
+        this.debugLog = debugLog;
+        this.callFailure = callFailure;
+    }
+
+    /**
+     * This constructor sets all values for a script SFDC reported on.
+     *
+     * @param script              the script executed.
+     * @param compiled            true if the script compiled.
+     * @param success             true if the script executed successfully.
+     * @param compileProblem      the compile problem if one arose.
+     * @param line                line of the compile problem.
+     * @param column              column of the compile problem.
+     * @param exceptionMessage    the exception message if the script failed.
+     * @param exceptionStackTrace the exception stack trace if the script failed.
+     * @param debugLog            the debug log.
+     */
+    AnonymousApexResult(final String script, final boolean compiled, final boolean success, final String compileProblem, final int line, final int column, final String exceptionMessage, final String exceptionStackTrace, final String debugLog) {
+        this(script, compiled, success, compileProblem, line, column, exceptionMessage, exceptionStackTrace, debugLog, null);
+    }
+
+    /**
+     * This constructor is for a script whose call to SFDC failed - whether it compiled or executed is unknown.
+     *
+     * @param script      the script executed.
+     * @param callFailure the failure calling SFDC.
+     */
+    AnonymousApexResult(final String script, final String callFailure) {
+        this(script, false, false, null, -1, -1, null, null, null, callFailure);
+    }
+
+    /**
+     * Return a copy of self using a different script and debug log.
+     *
+     * @param script   the script executed.
+     * @param debugLog the debug log.
+     *
+     * @return a copy of self.
+     */
+    AnonymousApexResult copy(final String script, final String debugLog) {
+        return new AnonymousApexResult(script, isCompiled(), isSuccess(), getCompileProblem(), getLine(), getColumn(), getExceptionMessage(), getExceptionStackTrace(), debugLog, getCallFailure());
+    }
+
+    /**
+     * Return the script executed.
+     *
+     * @return the script executed.
+     */
+    public String getScript() {
+        return script;
+    }
+
+    /**
+     * Return true if SFDC reported whether the script compiled - false if the call to SFDC failed.
+     *
+     * @return true if whether the script compiled is known.
+     */
+    public boolean isCompileKnown() {
+        return null == callFailure;
+    }
+
+    /**
+     * Return true if the script compiled. Meaningless unless {@link #isCompileKnown()}.
+     *
+     * @return true if the script compiled.
+     */
+    public boolean isCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Return true if the script executed successfully.
+     *
+     * @return true if the script executed successfully.
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Return the compile problem.
+     *
+     * @return the compile problem or null if none.
+     */
+    public String getCompileProblem() {
+        return compileProblem;
+    }
+
+    /**
+     * Return the line of the compile problem.
+     *
+     * @return the line of the compile problem.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Return the column of the compile problem.
+     *
+     * @return the column of the compile problem.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Return the exception message.
+     *
+     * @return the exception message or null if none.
+     */
+    public String getExceptionMessage() {
+        return exceptionMessage;
+    }
+
+    /**
+     * Return the exception stack trace.
+     *
+     * @return the exception stack trace or null if none.
+     */
+    public String getExceptionStackTrace() {
+        return exceptionStackTrace;
+    }
+
+    /**
+     * Return the debug log. When scripts are batched, this is the portion of the log produced by the script.
+     *
+     * @return the debug log or null if none.
+     */
+    public String getDebugLog() {
+        return debugLog;
+    }
+
+    /**
+     * Return the failure calling SFDC.
+     *
+     * @return the failure calling SFDC or null if SFDC reported on the script.
+     */
+    public String getCallFailure() {
+        return callFailure;
+    }
+}
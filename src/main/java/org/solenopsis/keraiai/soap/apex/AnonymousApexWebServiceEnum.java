@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.apex;
+
+import org.solenopsis.keraiai.soap.ApiWebService;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+import org.solenopsis.keraiai.wsdl.apex.ApexPortType;
+import org.solenopsis.keraiai.wsdl.tooling.SforceServicePortType;
+
+/**
+ * The web services able to execute anonymous Apex: apex and tooling.
+ *
+ * @author Scot P. Floess
+ */
+public enum AnonymousApexWebServiceEnum {
+    APEX_SERVICE(ApiWebServiceEnum.APEX_SERVICE) {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        AnonymousApexResult executeAnonymous(final Object port, final String script) {
+            final org.solenopsis.keraiai.wsdl.apex.ExecuteAnonymousResult result = ((ApexPortType) port).executeAnonymous(script);
+
+            return new AnonymousApexResult(script, result.isCompiled(), result.isSuccess(), result.getCompileProblem(), result.getLine(), result.getColumn(), result.getExceptionMessage(), result.getExceptionStackTrace(), null);
+        }
+    },
+    TOOLING_SERVICE(ApiWebServiceEnum.TOOLING_SERVICE) {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        AnonymousApexResult executeAnonymous(final Object port, final String script) {
+            final org.solenopsis.keraiai.wsdl.tooling.ExecuteAnonymousResult result = ((SforceServicePortType) port).executeAnonymous(script);
+
+            return new AnonymousApexResult(script, result.isCompiled(), result.isSuccess(), result.getCompileProblem(), result.getLine(), result.getColumn(), result.getExceptionMessage(), result.getExceptionStackTrace(), null);
+        }
+    };
+
+    /**
+     * The API web service.
+     */
+    private final ApiWebService apiWebService;
+
+    /**
+     * This constructor sets the API web service.
+     *
+     * @param apiWebService the API web service.
+     */
+    private AnonymousApexWebServiceEnum(final ApiWebService apiWebService) {
+        this.apiWebService = apiWebService;
+    }
+
+    /**
+     * Return the API web service.
+     *
+     * @return the API web service.
+     */
+    public ApiWebService getApiWebService() {
+        return apiWebService;
+    }
+
+    /**
+     * Execute <code>script</code> using <code>port</code>.
+     *
+     * @param port   a session port for our API web service.
+     * @param script the anonymous Apex to execute.
+     *
+     * @return the result (without a debug log).
+     */
+    abstract AnonymousApexResult executeAnonymous(Object port, String script);
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.apex;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPElement;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPHeader;
+import javax.xml.soap.SOAPMessage;
+import javax.xml.ws.Service;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.handler.soap.SOAPHandler;
+import javax.xml.ws.handler.soap.SOAPMessageContext;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.flossware.jcore.utils.StringUtils;
+
+/**
+ * Places a <code>DebuggingHeader</code> on outbound apex and tooling messages and captures the <code>DebuggingInfo</code> debug log
+ * from the response. The debug log is made available in the port's response context under {@link #DEBUG_LOG}.
+ *
+ * @author Scot P. Floess
+ */
+final class DebuggingSoapHeaderHandler implements SOAPHandler<SOAPMessageContext> {
+    /**
+     * Response context property containing the debug log of the last call.
+     */
+    static final String DEBUG_LOG = DebuggingSoapHeaderHandler.class.getName() + ".debugLog";
+
+    /**
+     * The outbound header.
+     */
+    static final String DEBUGGING_HEADER = "DebuggingHeader";
+
+    /**
+     * The inbound header.
+     */
+    static final String DEBUGGING_INFO = "DebuggingInfo";
+
+    /**
+     * Contains the debug log in the inbound header.
+     */
+    static final String DEBUG_LOG_ELEMENT = "debugLog";
+
+    /**
+     * The log category we request - we are only interested in the output of System.debug().
+     */
+    static final String LOG_CATEGORY = "Apex_code";
+
+    /**
+     * Our logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(DebuggingSoapHeaderHandler.class.getName());
+
+    /**
+     * The namespace for the headers.
+     */
+    private final String namespaceUri;
+
+    /**
+     * The debug level (one of the SFDC LogType values).
+     */
+    private final String debugLevel;
+
+    /**
+     * The log category level (one of the SFDC LogCategoryLevel values).
+     */
+    private final String categoryLevel;
+
+    /**
+     * Return the LOGGER.
+     */
+    private static Logger getLogger() {
+        return LOGGER;
+    }
+
+    /**
+     * Return the namespace for the headers.
+     */
+    String getNamespaceUri() {
+        return namespaceUri;
+    }
+
+    /**
+     * Return the debug level.
+     */
+    String getDebugLevel() {
+        return debugLevel;
+    }
+
+    /**
+     * Return the category level.
+     */
+    String getCategoryLevel() {
+        return categoryLevel;
+    }
+
+    /**
+     * Adds the debugging header to <code>soapMessage</code>.
+     */
+    void addDebuggingHeader(final SOAPMessage soapMessage) throws SOAPException {
+        final SOAPHeader soapHeader = null == soapMessage.getSOAPHeader() ? soapMessage.getSOAPPart().getEnvelope().addHeader() : soapMessage.getSOAPHeader();
+        final SOAPElement debuggingHeader = soapHeader.addChildElement(new QName(getNamespaceUri(), DEBUGGING_HEADER));
+        final SOAPElement categories = debuggingHeader.addChildElement(new QName(getNamespaceUri(), "categories"));
+
+        categories.addChildElement(new QName(getNamespaceUri(), "category")).addTextNode(LOG_CATEGORY);
+        categories.addChildElement(new QName(getNamespaceUri(), "level")).addTextNode(getCategoryLevel());
+
+        debuggingHeader.addChildElement(new QName(getNamespaceUri(), "debugLevel")).addTextNode(getDebugLevel());
+    }
+
+    /**
+     * Find the debug log in <code>soapMessage</code>.
+     *
+     * @return the debug log or null if not present.
+     */
+    String findDebugLog(final SOAPMessage soapMessage) throws SOAPException {
+        final SOAPHeader soapHeader = soapMessage.getSOAPHeader();
+
+        if (null == soapHeader) {
+            return null;
+        }
+
+        final Iterator debuggingInfoIter = soapHeader.getChildElements(new QName(getNamespaceUri(), DEBUGGING_INFO));
+
+        while (debuggingInfoIter.hasNext()) {
+            final Object debuggingInfo = debuggingInfoIter.next();
+
+            if (debuggingInfo instanceof SOAPElement) {
+                final Iterator debugLogIter = ((SOAPElement) debuggingInfo).getChildElements(new QName(getNamespaceUri(), DEBUG_LOG_ELEMENT));
+
+                while (debugLogIter.hasNext()) {
+                    final Object debugLog = debugLogIter.next();
+
+                    if (debugLog instanceof SOAPElement) {
+                        return ((SOAPElement) debugLog).getValue();
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * This constructor sets the namespace and levels.
+     *
+     * @param namespaceUri  the namespace of the debugging header.
+     * @param debugLevel    the debug level - one of the SFDC LogType values (for example <code>Debugonly</code>).
+     * @param categoryLevel the Apex code category level - one of the SFDC LogCategoryLevel values (for example <code>Debug</code>).
+     *
+     * @throws IllegalArgumentException if any of the params are null, empty or blank.
+     */
+    DebuggingSoapHeaderHandler(final String namespaceUri, final String debugLevel, final String categoryLevel) {
+        this.namespaceUri = StringUtils.ensureString(namespaceUri, "Must provide a namespace URI!");
+        this.debugLevel = StringUtils.ensureString(debugLevel, "Must provide a debug level!");
+        this.categoryLevel = StringUtils.ensureString(categoryLevel, "Must provide a category level!");
+    }
+
+    /**
+     * This constructor uses the namespace of <code>service</code> for the debugging headers.
+     *
+     * @param service       the service whose namespace is used for the debugging headers.
+     * @param debugLevel    the debug level - one of the SFDC LogType values (for example <code>Debugonly</code>).
+     * @param categoryLevel the Apex code category level - one of the SFDC LogCategoryLevel values (for example <code>Debug</code>).
+     *
+     * @throws IllegalArgumentException if any of the params are null, empty or blank.
+     */
+    DebuggingSoapHeaderHandler(final Service service, final String debugLevel, final String categoryLevel) {
+        this(ObjectUtils.ensureObject(service, "Must provide a service!").getServiceName().getNamespaceURI(), debugLevel, categoryLevel);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<QName> getHeaders() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean handleMessage(final SOAPMessageContext context) {
+        try {
+            if ((Boolean) context.get(MessageContext.MESSAGE_OUTBOUND_PROPERTY)) {
+                addDebuggingHeader(context.getMessage());
+            } else {
+                context.put(DEBUG_LOG, findDebugLog(context.getMessage()));
+                context.setScope(DEBUG_LOG, MessageContext.Scope.APPLICATION);
+            }
+        } catch (final SOAPException soapException) {
+            getLogger().log(Level.WARNING, "Trouble processing debugging header", soapException);
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean handleFault(final SOAPMessageContext context) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close(final MessageContext context) {
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Execution of anonymous Apex via the apex and tooling web services - including batching of many small scripts.
+ */
+package org.solenopsis.keraiai.soap.apex;
@@ -16,41 +16,39 @@
  */
 package org.solenopsis.keraiai.soap.exception;
 
-import java.util.Map;
-import java.util.TreeMap;
-
 /**
  * Context for managing the type of exceptions caught when calling SFDC web services via a proxy port.
  *
+ * A context is confined to a single call, so totals are plain counters indexed by ordinal - no locking or boxing. Totals across all
+ * calls are kept by {@link ExceptionTotals}.
+ *
  * @author Scot P. Floess
  */
 public class ExceptionContext {
+    /**
+     * All Salesforce exceptions - values() returns a copy each time.
+     */
+    static final SalesforceExceptionEnum[] SALESFORCE_EXCEPTIONS = SalesforceExceptionEnum.values();
 
     /**
-     * Cache of totals.
+     * Totals per Salesforce exception ordinal.
      */
-    private final Map<SalesforceExceptionEnum, Integer> totalMap;
+    private final int[] totals;
 
     /**
-     * Return the cache of totals.
+     * Return the totals per Salesforce exception ordinal.
      *
-     * @return the cache of totals.
+     * @return the totals.
      */
-    private Map<SalesforceExceptionEnum, Integer> getTotalMap() {
-        return totalMap;
+    private int[] getTotals() {
+        return totals;
     }
 
     /**
      * Default constructor.
      */
     public ExceptionContext() {
-        totalMap = new TreeMap<>();
-
-        // Instead of complicating code later to ensure key is set,
-        // Let's just set the total to 0.
-        for (final SalesforceExceptionEnum exceptionEnum : SalesforceExceptionEnum.values()) {
-            totalMap.put(exceptionEnum, 0);
-        }
+        totals = new int[SALESFORCE_EXCEPTIONS.length];
     }
 
     /**
@@ -61,7 +59,7 @@ public class ExceptionContext {
      * @return the Salesforce exception incremented.
      */
     public SalesforceExceptionEnum incrementFailureCount(final SalesforceExceptionEnum salesforceSoapFault) {
-        getTotalMap().put(salesforceSoapFault, getTotalMap().get(salesforceSoapFault) + 1);
+        getTotals()[salesforceSoapFault.ordinal()]++;
 
         return salesforceSoapFault;
     }
@@ -77,6 +75,17 @@ public class ExceptionContext {
         return incrementFailureCount(SalesforceExceptionEnum.computeType(failure));
     }
 
+    /**
+     * Return the total for <code>salesforceSoapFault</code>.
+     *
+     * @param salesforceSoapFault the failure.
+     *
+     * @return the total.
+     */
+    public int getFailureCount(final SalesforceExceptionEnum salesforceSoapFault) {
+        return getTotals()[salesforceSoapFault.ordinal()];
+    }
+
     /**
      * Compute our totals. If <code>isZeroIncluded</code> will include all totals. Otherwise totals of zero are excluded.
      *
@@ -87,17 +96,17 @@ public class ExceptionContext {
     public String computeTotals(boolean isZeroIncluded) {
         final StringBuilder sb = new StringBuilder();
 
-        for (final SalesforceExceptionEnum exceptionEnum : SalesforceExceptionEnum.values()) {
-            final int total = getTotalMap().get(exceptionEnum);
+        for (final SalesforceExceptionEnum exceptionEnum : SALESFORCE_EXCEPTIONS) {
+            final int total = getTotals()[exceptionEnum.ordinal()];
 
             if (0 == total && !isZeroIncluded) {
                 continue;
             }
 
-            sb.append(exceptionEnum.getHumanReadbleString()).append(" [").append(total).append("] ");
+            sb.append(0 == sb.length() ? "" : " ").append(exceptionEnum.getHumanReadbleString()).append(" [").append(total).append(']');
         }
 
-        return sb.toString().trim();
+        return sb.toString();
     }
 
     /**
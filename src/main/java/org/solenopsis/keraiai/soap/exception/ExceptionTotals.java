@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.exception;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totals of the failures of all calls to SFDC web services via proxy ports across the JVM. Counters are striped so proxy ports
+ * calling concurrently do not contend, making totals cheap to maintain and read - for example for dashboards.
+ *
+ * @author Scot P. Floess
+ */
+public final class ExceptionTotals {
+    /**
+     * Totals per Salesforce exception ordinal.
+     */
+    private static final LongAdder[] TOTALS = new LongAdder[ExceptionContext.SALESFORCE_EXCEPTIONS.length];
+
+    static {
+        for (int index = 0; index < TOTALS.length; index++) {
+            TOTALS[index] = new LongAdder();
+        }
+    }
+
+    /**
+     * Increment the total for <code>salesforceSoapFault</code>.
+     *
+     * @param salesforceSoapFault the failure that arose.
+     *
+     * @return the Salesforce exception incremented.
+     */
+    public static SalesforceExceptionEnum incrementFailureCount(final SalesforceExceptionEnum salesforceSoapFault) {
+        TOTALS[salesforceSoapFault.ordinal()].increment();
+
+        return salesforceSoapFault;
+    }
+
+    /**
+     * Return the total for <code>salesforceSoapFault</code>.
+     *
+     * @param salesforceSoapFault the failure.
+     *
+     * @return the total.
+     */
+    public static long getFailureCount(final SalesforceExceptionEnum salesforceSoapFault) {
+        return TOTALS[salesforceSoapFault.ordinal()].sum();
+    }
+
+    /**
+     * Return all totals.
+     *
+     * @return the total per Salesforce exception.
+     */
+    public static Map<SalesforceExceptionEnum, Long> getFailureCounts() {
+        final Map<SalesforceExceptionEnum, Long> retVal = new EnumMap<>(SalesforceExceptionEnum.class);
+
+        for (final SalesforceExceptionEnum exceptionEnum : ExceptionContext.SALESFORCE_EXCEPTIONS) {
+            retVal.put(exceptionEnum, TOTALS[exceptionEnum.ordinal()].sum());
+        }
+
+        return Collections.unmodifiableMap(retVal);
+    }
+
+    /**
+     * Set all totals to zero.
+     */
+    public static void reset() {
+        for (final LongAdder total : TOTALS) {
+            total.reset();
+        }
+    }
+
+    /**
+     * Default constructor not allowed.
+     */
+    private ExceptionTotals() {
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.exception;
+
+/**
+ * Denotes what to do when a call to SFDC fails.
+ *
+ * @author Scot P. Floess
+ */
+public enum FailurePolicyEnum {
+    /**
+     * Call again as is - the failure is transient.
+     */
+    RETRY,
+
+    /**
+     * Login again then call again - the session is invalid or the connection is broken.
+     */
+    RELOGIN,
+
+    /**
+     * Do not call again - calling again will fail the same way.
+     */
+    FAIL;
+}
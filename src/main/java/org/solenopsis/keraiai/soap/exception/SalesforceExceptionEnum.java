@@ -17,24 +17,60 @@
 package org.solenopsis.keraiai.soap.exception;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.flossware.jcore.exception.ContainsExceptionProcessor;
-import org.flossware.jcore.exception.ContainsMessageExceptionProcessor;
-import org.flossware.jcore.exception.ExceptionProcessor;
-import org.flossware.jcore.exception.UnknownExceptionProcessor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPFault;
+import javax.xml.ws.soap.SOAPFaultException;
 
 /**
  * Enum representing Salesforce exceptions.
  *
+ * Failures are classified in a single walk of their cause chain. For each throwable, the SFDC fault code is used when available -
+ * the <code>ExceptionCode</code> of typed faults (via <code>getFaultInfo()</code>) or the fault code of a SOAP fault. Otherwise its
+ * message is scanned once for all known tokens. Across the chain, the first enum value (in declaration order) found wins.
+ *
+ * SFDC raises <code>REQUEST_LIMIT_EXCEEDED</code> both for too many concurrent long running requests, which is transient, and for
+ * exhausting the organization's daily requests, which is not. The message tells them apart - the former names
+ * <code>ConcurrentRequests</code> and is retried, the latter names <code>TotalRequests</code> and fails.
+ *
+ * Each value carries the {@link FailurePolicyEnum} denoting whether to retry, relogin or give up. Failures that are not known are
+ * retried.
+ *
  * @author Scot P. Floess
  */
 public enum SalesforceExceptionEnum {
-    INVALID_SESSION_ID(new ContainsMessageExceptionProcessor("INVALID_SESSION_ID"), "invalid session id"),
-    SERVER_UNAVAILABLE(new ContainsMessageExceptionProcessor("SERVER_UNAVAILABLE"), "server unavailable"),
-    UNABLE_TO_LOCK_ROW(new ContainsMessageExceptionProcessor("UNABLE_TO_LOCK_ROW"), "unable to lock row"),
-    SERVICE_UNAVAILABLE(new ContainsMessageExceptionProcessor("Service Unavailable"), "service unavailable"),
-    IOEXCEPTION(new ContainsExceptionProcessor(IOException.class), "IOException"),
-    UNKNOWN(new UnknownExceptionProcessor(), "Unknown");
+    INVALID_SESSION_ID("INVALID_SESSION_ID", FailurePolicyEnum.RELOGIN, "invalid session id"),
+    INVALID_OPERATION_WITH_EXPIRED_PASSWORD("INVALID_OPERATION_WITH_EXPIRED_PASSWORD", FailurePolicyEnum.FAIL, "password expired"),
+    INVALID_LOGIN("INVALID_LOGIN", FailurePolicyEnum.FAIL, "invalid login"),
+    LOGIN_MUST_USE_SECURITY_TOKEN("LOGIN_MUST_USE_SECURITY_TOKEN", FailurePolicyEnum.FAIL, "login must use security token"),
+    CONCURRENT_REQUEST_LIMIT_EXCEEDED("ConcurrentRequests", FailurePolicyEnum.RETRY, "concurrent request limit exceeded"),
+    REQUEST_LIMIT_EXCEEDED("REQUEST_LIMIT_EXCEEDED", FailurePolicyEnum.FAIL, "request limit exceeded"),
+    INVALID_QUERY_LOCATOR("INVALID_QUERY_LOCATOR", FailurePolicyEnum.FAIL, "invalid query locator"),
+    QUERY_TIMEOUT("QUERY_TIMEOUT", FailurePolicyEnum.FAIL, "query timeout"),
+    MALFORMED_QUERY("MALFORMED_QUERY", FailurePolicyEnum.FAIL, "malformed query"),
+    INVALID_FIELD("INVALID_FIELD", FailurePolicyEnum.FAIL, "invalid field"),
+    INVALID_TYPE("INVALID_TYPE", FailurePolicyEnum.FAIL, "invalid type"),
+    INVALID_ID_FIELD("INVALID_ID_FIELD", FailurePolicyEnum.FAIL, "invalid id field"),
+    INSUFFICIENT_ACCESS("INSUFFICIENT_ACCESS", FailurePolicyEnum.FAIL, "insufficient access"),
+    API_DISABLED_FOR_ORG("API_DISABLED_FOR_ORG", FailurePolicyEnum.FAIL, "api disabled for organization"),
+    SERVER_UNAVAILABLE("SERVER_UNAVAILABLE", FailurePolicyEnum.RETRY, "server unavailable"),
+    UNABLE_TO_LOCK_ROW("UNABLE_TO_LOCK_ROW", FailurePolicyEnum.RETRY, "unable to lock row"),
+    SERVICE_UNAVAILABLE("Service Unavailable", FailurePolicyEnum.RETRY, "service unavailable"),
+    IOEXCEPTION(null, FailurePolicyEnum.RELOGIN, "IOException"),
+    UNKNOWN(null, FailurePolicyEnum.RETRY, "Unknown");
+
+    /**
+     * Most causes examined - guards against cyclic cause chains.
+     */
+    static final int MAX_CAUSES = 64;
 
     /**
      * Our logger.
@@ -42,9 +78,65 @@ public enum SalesforceExceptionEnum {
     private static final Logger logger = Logger.getLogger(SalesforceExceptionEnum.class.getName());
 
     /**
-     * The exception processor.
+     * Enum value per token.
+     */
+    private static final Map<String, SalesforceExceptionEnum> TOKENS;
+
+    /**
+     * Finds any token in a message.
+     */
+    private static final Pattern TOKEN_PATTERN;
+
+    /**
+     * Enum value per fault code seen thus far.
+     */
+    private static final ConcurrentMap<String, SalesforceExceptionEnum> FAULT_CODES = new ConcurrentHashMap<>();
+
+    /**
+     * The <code>getFaultInfo()</code> method per exception class - null if none.
+     */
+    private static final ClassValue<Method> FAULT_INFO_METHODS = new ClassValue<Method>() {
+        @Override
+        protected Method computeValue(final Class<?> type) {
+            return findMethod(type, "getFaultInfo");
+        }
+    };
+
+    /**
+     * The <code>getExceptionCode()</code> method per fault info class - null if none.
+     */
+    private static final ClassValue<Method> EXCEPTION_CODE_METHODS = new ClassValue<Method>() {
+        @Override
+        protected Method computeValue(final Class<?> type) {
+            return findMethod(type, "getExceptionCode");
+        }
+    };
+
+    static {
+        TOKENS = new HashMap<>();
+
+        final StringBuilder sb = new StringBuilder();
+
+        for (final SalesforceExceptionEnum salesforceException : values()) {
+            if (null != salesforceException.getToken()) {
+                TOKENS.put(salesforceException.getToken(), salesforceException);
+
+                sb.append(0 == sb.length() ? "" : "|").append("\\b").append(Pattern.quote(salesforceException.getToken())).append("\\b");
+            }
+        }
+
+        TOKEN_PATTERN = Pattern.compile(sb.toString());
+    }
+
+    /**
+     * The fault code, or text within messages, denoting this failure - null if none.
+     */
+    private final String token;
+
+    /**
+     * What to do when this failure occurs.
      */
-    private final ExceptionProcessor exceptionProcessor;
+    private final FailurePolicyEnum failurePolicy;
 
     /**
      * The human readable string of the failure.
@@ -52,13 +144,15 @@ public enum SalesforceExceptionEnum {
     private final String humanReadableString;
 
     /**
-     * This constructor sets the exception processor and the human readable version of the failure.
+     * This constructor sets the token, failure policy and the human readable version of the failure.
      *
-     * @param exceptionProcessor can process a failure to determine its applicability.
+     * @param token               the fault code, or text within messages, denoting this failure.
+     * @param failurePolicy       what to do when this failure occurs.
      * @param humanReadableString the human readable version of the failure.
      */
-    private SalesforceExceptionEnum(final ExceptionProcessor exceptionProcessor, final String humanReadableString) {
-        this.exceptionProcessor = exceptionProcessor;
+    private SalesforceExceptionEnum(final String token, final FailurePolicyEnum failurePolicy, final String humanReadableString) {
+        this.token = token;
+        this.failurePolicy = failurePolicy;
         this.humanReadableString = humanReadableString;
     }
 
@@ -70,10 +164,139 @@ public enum SalesforceExceptionEnum {
     }
 
     /**
-     * Return the exception processor.
+     * Return the public no argument method <code>name</code> of <code>type</code>.
+     *
+     * @return the method or null if none.
      */
-    ExceptionProcessor getExceptionProcessor() {
-        return exceptionProcessor;
+    static Method findMethod(final Class<?> type, final String name) {
+        try {
+            return type.getMethod(name);
+        } catch (final NoSuchMethodException | SecurityException noMethod) {
+            return null;
+        }
+    }
+
+    /**
+     * Return the fault code, or text within messages, denoting this failure.
+     */
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * Return the first of <code>first</code> and <code>second</code> in declaration order.
+     */
+    static SalesforceExceptionEnum computeFirst(final SalesforceExceptionEnum first, final SalesforceExceptionEnum second) {
+        return first.ordinal() <= second.ordinal() ? first : second;
+    }
+
+    /**
+     * Compute the SFDC fault code of <code>throwable</code> itself (not its causes).
+     *
+     * @param throwable the failure.
+     *
+     * @return the fault code or null if not an SFDC fault.
+     */
+    static String computeFaultCode(final Throwable throwable) {
+        if (throwable instanceof SOAPFaultException) {
+            final SOAPFault soapFault = ((SOAPFaultException) throwable).getFault();
+            final QName faultCode = null == soapFault ? null : soapFault.getFaultCodeAsQName();
+
+            return null == faultCode ? null : faultCode.getLocalPart();
+        }
+
+        final Method faultInfoMethod = FAULT_INFO_METHODS.get(throwable.getClass());
+
+        if (null == faultInfoMethod) {
+            return null;
+        }
+
+        try {
+            final Object faultInfo = faultInfoMethod.invoke(throwable);
+            final Method exceptionCodeMethod = null == faultInfo ? null : EXCEPTION_CODE_METHODS.get(faultInfo.getClass());
+            final Object exceptionCode = null == exceptionCodeMethod ? null : exceptionCodeMethod.invoke(faultInfo);
+
+            if (null == exceptionCode) {
+                return null;
+            }
+
+            return exceptionCode instanceof Enum ? ((Enum) exceptionCode).name() : exceptionCode.toString();
+        } catch (final ReflectiveOperationException | RuntimeException reflectionFailure) {
+            getLogger().log(Level.FINE, "Cannot compute fault code of [" + throwable.getClass().getName() + "]", reflectionFailure);
+
+            return null;
+        }
+    }
+
+    /**
+     * Compute the type of Salesforce failure denoted by <code>text</code>, a fault code or message.
+     *
+     * @param text the fault code or message - may be null.
+     *
+     * @return the first type, in declaration order, found in text or UNKNOWN if none.
+     */
+    static SalesforceExceptionEnum computeTextType(final String text) {
+        SalesforceExceptionEnum retVal = UNKNOWN;
+
+        if (null == text) {
+            return retVal;
+        }
+
+        final Matcher matcher = TOKEN_PATTERN.matcher(text);
+
+        while (matcher.find()) {
+            retVal = computeFirst(retVal, TOKENS.get(matcher.group()));
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Compute the type of Salesforce failure denoted by SFDC fault code <code>faultCode</code>.
+     *
+     * @param faultCode the fault code - for example <code>INVALID_SESSION_ID</code>.
+     *
+     * @return the type of Salesforce failure or UNKNOWN if not a known fault code.
+     */
+    public static SalesforceExceptionEnum computeFaultCodeType(final String faultCode) {
+        SalesforceExceptionEnum retVal = FAULT_CODES.get(faultCode);
+
+        if (null == retVal) {
+            retVal = computeTextType(faultCode);
+
+            FAULT_CODES.putIfAbsent(faultCode, retVal);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Compute the type of Salesforce failure of <code>throwable</code> itself (not its causes).
+     */
+    static SalesforceExceptionEnum computeSingleType(final Throwable throwable) {
+        final String faultCode = computeFaultCode(throwable);
+
+        if (null != faultCode) {
+            final SalesforceExceptionEnum retVal = computeFaultCodeType(faultCode);
+
+            // The same fault code denotes concurrent and daily limits - only
+            // the message says which.
+            if (REQUEST_LIMIT_EXCEEDED == retVal) {
+                return computeFirst(retVal, computeTextType(throwable.getMessage()));
+            }
+
+            if (UNKNOWN != retVal) {
+                return retVal;
+            }
+        }
+
+        final SalesforceExceptionEnum retVal = computeTextType(throwable.getMessage());
+
+        if (UNKNOWN != retVal) {
+            return retVal;
+        }
+
+        return throwable instanceof IOException ? IOEXCEPTION : UNKNOWN;
     }
 
     /**
@@ -84,13 +307,17 @@ public enum SalesforceExceptionEnum {
      * @return the type of Salesforce SOAP fault based upon <code>throwable</code>.
      */
     public static SalesforceExceptionEnum computeType(final Throwable throwable) {
-        for (final SalesforceExceptionEnum soapFaultEnum : SalesforceExceptionEnum.values()) {
-            if (soapFaultEnum.getExceptionProcessor().isExceptionApplicable(throwable)) {
-                return soapFaultEnum;
-            }
+        SalesforceExceptionEnum retVal = UNKNOWN;
+
+        Throwable current = throwable;
+
+        for (int causes = 0; null != current && causes < MAX_CAUSES && 0 != retVal.ordinal(); causes++) {
+            retVal = computeFirst(retVal, computeSingleType(current));
+
+            current = current.getCause() == current ? null : current.getCause();
         }
 
-        return UNKNOWN;
+        return retVal;
     }
 
     /**
@@ -101,7 +328,7 @@ public enum SalesforceExceptionEnum {
      * @return true if relogin is necessary.
      */
     public static boolean isReloginException(final SalesforceExceptionEnum salesforceException) {
-        return INVALID_SESSION_ID == salesforceException || IOEXCEPTION == salesforceException;
+        return FailurePolicyEnum.RELOGIN == salesforceException.getFailurePolicy();
     }
 
     /**
@@ -116,14 +343,14 @@ public enum SalesforceExceptionEnum {
     }
 
     /**
-     * Returns true if the failure represents one where a retry should occur.
+     * Returns true if the failure is known to be one where a retry should occur.
      *
      * @param salesforceException the exception to examine if retry is necessary.
      *
      * @return true if retry is necessary.
      */
     public static boolean isRetryException(final SalesforceExceptionEnum salesforceException) {
-        return SERVER_UNAVAILABLE == salesforceException || UNABLE_TO_LOCK_ROW == salesforceException || SERVICE_UNAVAILABLE == salesforceException;
+        return FailurePolicyEnum.RETRY == salesforceException.getFailurePolicy() && UNKNOWN != salesforceException;
     }
 
     /**
@@ -137,6 +364,37 @@ public enum SalesforceExceptionEnum {
         return isRetryException(computeType(failure));
     }
 
+    /**
+     * Returns true if the failure represents SFDC being overloaded, where callers should slow down.
+     *
+     * @param salesforceException the exception to examine for overload.
+     *
+     * @return true if SFDC is overloaded.
+     */
+    public static boolean isOverloadException(final SalesforceExceptionEnum salesforceException) {
+        return SERVER_UNAVAILABLE == salesforceException || SERVICE_UNAVAILABLE == salesforceException || CONCURRENT_REQUEST_LIMIT_EXCEEDED == salesforceException || REQUEST_LIMIT_EXCEEDED == salesforceException;
+    }
+
+    /**
+     * Returns true if the failure represents one where calling again will fail the same way.
+     *
+     * @param salesforceException the exception to examine.
+     *
+     * @return true if calls should not be retried.
+     */
+    public static boolean isFailException(final SalesforceExceptionEnum salesforceException) {
+        return FailurePolicyEnum.FAIL == salesforceException.getFailurePolicy();
+    }
+
+    /**
+     * Return what to do when this failure occurs.
+     *
+     * @return what to do when this failure occurs.
+     */
+    public FailurePolicyEnum getFailurePolicy() {
+        return failurePolicy;
+    }
+
     /**
      * Return the human readable version of this enum.
      *
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+/**
+ * A view of characters in a shared array - no characters are copied until {@link #toString()}.
+ *
+ * @author Scot P. Floess
+ */
+final class CharSlice implements CharSequence {
+    /**
+     * The shared characters.
+     */
+    private char[] chars;
+
+    /**
+     * Where the slice starts in chars.
+     */
+    private int start;
+
+    /**
+     * The total characters in the slice.
+     */
+    private int length;
+
+    /**
+     * View <code>length</code> characters of <code>chars</code> starting at <code>start</code>.
+     */
+    CharSlice(final char[] chars, final int start, final int length) {
+        set(chars, start, length);
+    }
+
+    /**
+     * An empty view, to be {@link #set(char[], int, int)}.
+     */
+    CharSlice() {
+        this(new char[0], 0, 0);
+    }
+
+    /**
+     * View <code>length</code> characters of <code>chars</code> starting at <code>start</code>.
+     *
+     * @return this slice.
+     */
+    CharSlice set(final char[] chars, final int start, final int length) {
+        this.chars = chars;
+        this.start = start;
+        this.length = length;
+
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index [" + index + "] not in [0, " + length + ")");
+        }
+
+        return chars[start + index];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CharSequence subSequence(final int begin, final int end) {
+        if (begin < 0 || end > length || begin > end) {
+            throw new IndexOutOfBoundsException("Range [" + begin + ", " + end + ") not in [0, " + length + ")");
+        }
+
+        return new CharSlice(chars, start + begin, end - begin);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return new String(chars, start, length);
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import org.flossware.jcore.utils.ObjectUtils;
+
+/**
+ * A reusable byte buffer in front of a channel. Characters are UTF-8 encoded and escaped straight into the buffer, which is
+ * written to the channel whenever it fills - so an export never holds more than the buffer regardless of how many records it
+ * writes. Closing flushes but does not close the channel.
+ *
+ * @author Scot P. Floess
+ */
+final class ExportBuffer implements Closeable {
+    /**
+     * The smallest buffer allowed - large enough for any single encoded character or escape.
+     */
+    static final int MINIMUM_SIZE = 16;
+
+    /**
+     * Hex digits for JSON unicode escapes.
+     */
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    /**
+     * Where bytes are written.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * The reused buffer.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The total bytes written to the channel.
+     */
+    private long bytesWritten;
+
+    /**
+     * Buffer up to <code>size</code> bytes before writing to <code>channel</code>.
+     *
+     * @param channel where bytes are written.
+     * @param size    the size of the buffer.
+     *
+     * @throws IllegalArgumentException if channel is null or size is less than {@link #MINIMUM_SIZE}.
+     */
+    ExportBuffer(final WritableByteChannel channel, final int size) {
+        if (size < MINIMUM_SIZE) {
+            throw new IllegalArgumentException("Buffer size [" + size + "] must be at least [" + MINIMUM_SIZE + "]");
+        }
+
+        this.channel = ObjectUtils.ensureObject(channel, "Must provide a channel!");
+        this.buffer = ByteBuffer.allocate(size);
+    }
+
+    /**
+     * Ensure there is room for <code>length</code> bytes, writing the buffer to the channel if not.
+     */
+    private void ensureRemaining(final int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flush();
+        }
+    }
+
+    /**
+     * Put an ASCII character.
+     */
+    void put(final char c) throws IOException {
+        ensureRemaining(1);
+        buffer.put((byte) c);
+    }
+
+    /**
+     * Put bytes that were encoded ahead of time.
+     */
+    void put(final byte[] bytes) throws IOException {
+        int offset = 0;
+
+        while (offset < bytes.length) {
+            ensureRemaining(1);
+
+            final int length = Math.min(buffer.remaining(), bytes.length - offset);
+
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Put the <code>index</code>th character of <code>value</code> UTF-8 encoded.
+     *
+     * @return the index of the last character consumed - surrogate pairs consume two.
+     */
+    private int putEncoded(final CharSequence value, final int index) throws IOException {
+        final char c = value.charAt(index);
+
+        ensureRemaining(4);
+
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xc0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3f)));
+        } else if (Character.isHighSurrogate(c) && index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1))) {
+            final int codePoint = Character.toCodePoint(c, value.charAt(index + 1));
+
+            buffer.put((byte) (0xf0 | (codePoint >> 18)));
+            buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+            buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+            buffer.put((byte) (0x80 | (codePoint & 0x3f)));
+
+            return index + 1;
+        } else if (Character.isSurrogate(c)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xe0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+            buffer.put((byte) (0x80 | (c & 0x3f)));
+        }
+
+        return index;
+    }
+
+    /**
+     * Put <code>value</code> as a quoted CSV value, doubling any quotes.
+     */
+    void putCsv(final CharSequence value) throws IOException {
+        put('"');
+
+        for (int index = 0; index < value.length(); index++) {
+            if ('"' == value.charAt(index)) {
+                put('"');
+            }
+
+            index = putEncoded(value, index);
+        }
+
+        put('"');
+    }
+
+    /**
+     * Put <code>value</code> as a JSON string.
+     */
+    void putJson(final CharSequence value) throws IOException {
+        put('"');
+
+        for (int index = 0; index < value.length(); index++) {
+            final char c = value.charAt(index);
+
+            switch (c) {
+                case '"':
+                case '\\':
+                    put('\\');
+                    put(c);
+                    break;
+                case '\n':
+                    put('\\');
+                    put('n');
+                    break;
+                case '\r':
+                    put('\\');
+                    put('r');
+                    break;
+                case '\t':
+                    put('\\');
+                    put('t');
+                    break;
+                default:
+                    if (c < ' ') {
+                        ensureRemaining(6);
+                        buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0').put(HEX[c >> 4]).put(HEX[c & 0xf]);
+                    } else {
+                        index = putEncoded(value, index);
+                    }
+            }
+        }
+
+        put('"');
+    }
+
+    /**
+     * Write everything buffered to the channel.
+     */
+    void flush() throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * Return the total bytes written to the channel.
+     */
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Flush - the channel is left open.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
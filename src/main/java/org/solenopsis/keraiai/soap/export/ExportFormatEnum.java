@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+/**
+ * The formats an {@link SObjectExporter} can write. Each knows how to frame a header, a record and the values within a
+ * record - values themselves are escaped by the {@link ExportBuffer}.
+ *
+ * @author Scot P. Floess
+ */
+public enum ExportFormatEnum {
+    /**
+     * RFC 4180 CSV: a header row of field names, every value quoted and nulls written as empty (unquoted) values.
+     */
+    CSV {
+        @Override
+        void writeHeader(final ExportBuffer buffer, final String[] fieldNames) throws IOException {
+            for (int index = 0; index < fieldNames.length; index++) {
+                if (index > 0) {
+                    buffer.put(',');
+                }
+
+                buffer.putCsv(fieldNames[index]);
+            }
+
+            buffer.put('\n');
+        }
+
+        @Override
+        void beginRecord(final ExportBuffer buffer) {
+        }
+
+        @Override
+        void writeValue(final ExportBuffer buffer, final int index, final byte[] key, final CharSequence value) throws IOException {
+            if (index > 0) {
+                buffer.put(',');
+            }
+
+            if (null != value) {
+                buffer.putCsv(value);
+            }
+        }
+
+        @Override
+        void endRecord(final ExportBuffer buffer) throws IOException {
+            buffer.put('\n');
+        }
+
+        @Override
+        byte[] computeKey(final String fieldName) {
+            return EMPTY_KEY;
+        }
+    },
+    /**
+     * Newline delimited JSON: one object per record, keyed by field name, with nulls written as JSON null.
+     */
+    NDJSON {
+        @Override
+        void writeHeader(final ExportBuffer buffer, final String[] fieldNames) {
+        }
+
+        @Override
+        void beginRecord(final ExportBuffer buffer) throws IOException {
+            buffer.put('{');
+        }
+
+        @Override
+        void writeValue(final ExportBuffer buffer, final int index, final byte[] key, final CharSequence value) throws IOException {
+            if (index > 0) {
+                buffer.put(',');
+            }
+
+            buffer.put(key);
+
+            if (null == value) {
+                buffer.put(NULL);
+            } else {
+                buffer.putJson(value);
+            }
+        }
+
+        @Override
+        void endRecord(final ExportBuffer buffer) throws IOException {
+            buffer.put('}');
+            buffer.put('\n');
+        }
+
+        @Override
+        byte[] computeKey(final String fieldName) {
+            final ByteArrayOutputStream retVal = new ByteArrayOutputStream();
+
+            try (final ExportBuffer buffer = new ExportBuffer(Channels.newChannel(retVal), ExportBuffer.MINIMUM_SIZE)) {
+                buffer.putJson(fieldName);
+                buffer.put(':');
+            } catch (final IOException ioException) {
+                throw new IllegalStateException("Could not compute key for field [" + fieldName + "]", ioException);
+            }
+
+            return retVal.toByteArray();
+        }
+    };
+
+    /**
+     * Key used by formats that do not name values per record.
+     */
+    static final byte[] EMPTY_KEY = new byte[0];
+
+    /**
+     * JSON null.
+     */
+    static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    /**
+     * Write anything that precedes the records.
+     */
+    abstract void writeHeader(ExportBuffer buffer, String[] fieldNames) throws IOException;
+
+    /**
+     * Write anything that precedes the values of a record.
+     */
+    abstract void beginRecord(ExportBuffer buffer) throws IOException;
+
+    /**
+     * Write the <code>index</code>th value of a record.
+     *
+     * @param buffer the buffer to write to.
+     * @param index  the position of the value within the record.
+     * @param key    the bytes computed for the field by {@link #computeKey(String)}.
+     * @param value  the value - may be null.
+     */
+    abstract void writeValue(ExportBuffer buffer, int index, byte[] key, CharSequence value) throws IOException;
+
+    /**
+     * Write anything that follows the values of a record.
+     */
+    abstract void endRecord(ExportBuffer buffer) throws IOException;
+
+    /**
+     * Compute, once per export, the bytes written before each value of <code>fieldName</code>.
+     */
+    abstract byte[] computeKey(String fieldName);
+}
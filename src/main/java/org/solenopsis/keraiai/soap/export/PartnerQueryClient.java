@@ -0,0 +1,423 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import javax.net.ssl.HttpsURLConnection;
+import javax.xml.stream.XMLStreamException;
+import org.flossware.jcore.AbstractCommonBase;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.flossware.jcore.utils.StringUtils;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.soap.exception.SalesforceExceptionEnum;
+import org.solenopsis.keraiai.soap.limits.ApiLimits;
+import org.solenopsis.keraiai.soap.limits.OrganizationRateLimiter;
+import org.solenopsis.keraiai.soap.limits.RateLimiters;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+import org.solenopsis.keraiai.soap.port.ProxyPortUtils;
+import org.solenopsis.keraiai.soap.session.Deadline;
+import org.solenopsis.keraiai.soap.session.SessionPortFactory;
+import org.solenopsis.keraiai.soap.session.SessionUrlFactoryEnum;
+import org.solenopsis.keraiai.soap.session.TransportConfiguration;
+import org.solenopsis.keraiai.soap.utils.LoginContextUtils;
+
+/**
+ * Queries through the partner API without JAX-WS, decoding responses with StAX into {@link RecordBatch}es rather than DOM backed
+ * SObjects. Calls use the session of a {@link LoginContext} - pass a proxy port, which is also a login context, so calls follow its
+ * re-logins. The transport configuration of {@link SessionPortFactory}, if any, applies to calls as it does to ports.
+ *
+ * Calls are paced like those of proxy ports: each attempt waits on the API usage throttle of {@link ApiLimits} and the organization's
+ * rate limiter of {@link RateLimiters}, if set, and takes no longer than the {@link Deadline} in scope, if any.
+ *
+ * Failed calls are classified by {@link SalesforceExceptionEnum}: only transient failures - I/O failures, invalid sessions and
+ * those SFDC says to retry - are called again, up to {@link #MAX_CALLS} times. Others, including unknown failures such as HTTP
+ * errors without a SOAP fault, are raised. Should the session be invalid, a proxy port is asked to log in again first, see
+ * {@link ProxyPortUtils#invalidateSession(LoginContext, String)} - any other login context cannot log in again, so its invalid
+ * sessions are raised.
+ *
+ * @author Scot P. Floess
+ */
+public final class PartnerQueryClient extends AbstractCommonBase {
+    /**
+     * Namespace of partner operations.
+     */
+    static final String PARTNER_NAMESPACE = "urn:partner.soap.sforce.com";
+
+    /**
+     * Content type of SOAP 1.1 requests.
+     */
+    static final String SOAP_CONTENT_TYPE = "text/xml; charset=UTF-8";
+
+    /**
+     * Size of the buffer of responses.
+     */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Total calls for retry.
+     */
+    static final int MAX_CALLS = 8;
+
+    /**
+     * The session used for calls.
+     */
+    private final LoginContext loginContext;
+
+    /**
+     * The records per batch requested of SFDC - 0 for SFDC's default.
+     */
+    private final int batchSize;
+
+    /**
+     * Return true if <code>salesforceException</code> is transient, so the call may be made again.
+     */
+    static boolean isTransient(final SalesforceExceptionEnum salesforceException) {
+        return SalesforceExceptionEnum.UNKNOWN != salesforceException && !SalesforceExceptionEnum.isFailException(salesforceException);
+    }
+
+    /**
+     * Append <code>value</code> to <code>sb</code>, escaped as XML text.
+     */
+    static StringBuilder appendEscaped(final StringBuilder sb, final String value) {
+        for (int index = 0; index < value.length(); index++) {
+            final char c = value.charAt(index);
+
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+
+        return sb;
+    }
+
+    /**
+     * This constructor sets the session and records per batch.
+     *
+     * @param loginContext the session used for calls.
+     * @param batchSize    the records per batch requested of SFDC (which may return fewer) - 0 for SFDC's default.
+     *
+     * @throws IllegalArgumentException if loginContext is null or batchSize is negative.
+     */
+    public PartnerQueryClient(final LoginContext loginContext, final int batchSize) {
+        if (batchSize < 0) {
+            throw new IllegalArgumentException("Batch size [" + batchSize + "] cannot be negative!");
+        }
+
+        this.loginContext = ObjectUtils.ensureObject(loginContext, "Must provide a login context!");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * This constructor uses SFDC's default records per batch.
+     *
+     * @param loginContext the session used for calls.
+     *
+     * @throws IllegalArgumentException if loginContext is null.
+     */
+    public PartnerQueryClient(final LoginContext loginContext) {
+        this(loginContext, 0);
+    }
+
+    /**
+     * Return the session used for calls.
+     *
+     * @return the login context.
+     */
+    public LoginContext getLoginContext() {
+        return loginContext;
+    }
+
+    /**
+     * Return the records per batch requested of SFDC.
+     *
+     * @return the batch size or 0 for SFDC's default.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Compute the request calling <code>operation</code> with <code>argument</code> named <code>argumentName</code> using
+     * <code>sessionId</code>.
+     */
+    String computeRequest(final String sessionId, final String operation, final String argumentName, final String argument) {
+        final StringBuilder sb = new StringBuilder("<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:urn=\"")
+                .append(PARTNER_NAMESPACE).append("\"><soapenv:Header><urn:SessionHeader><urn:sessionId>");
+
+        appendEscaped(sb, sessionId).append("</urn:sessionId></urn:SessionHeader>");
+
+        if (batchSize > 0) {
+            sb.append("<urn:QueryOptions><urn:batchSize>").append(batchSize).append("</urn:batchSize></urn:QueryOptions>");
+        }
+
+        sb.append("</soapenv:Header><soapenv:Body><urn:").append(operation).append("><urn:").append(argumentName).append('>');
+
+        return appendEscaped(sb, argument).append("</urn:").append(argumentName).append("></urn:").append(operation).append("></soapenv:Body></soapenv:Envelope>").toString();
+    }
+
+    /**
+     * Open a connection to the partner endpoint of the session, its timeouts shrunk to <code>deadline</code> if any.
+     */
+    HttpURLConnection openConnection(final String operation, final Deadline deadline) throws IOException {
+        final HttpURLConnection retVal = (HttpURLConnection) new URL(SessionUrlFactoryEnum.PARTNER_SESSION_URL_FACTORY.computeSessionUrl(getLoginContext(), ApiWebServiceEnum.PARTNER_SERVICE.getService())).openConnection();
+        final TransportConfiguration transportConfiguration = SessionPortFactory.getTransportConfiguration();
+
+        retVal.setRequestMethod("POST");
+        retVal.setDoOutput(true);
+        retVal.setRequestProperty("Content-Type", SOAP_CONTENT_TYPE);
+        retVal.setRequestProperty("SOAPAction", "\"\"");
+        retVal.setRequestProperty("Accept-Encoding", "gzip");
+
+        if (null != transportConfiguration) {
+            retVal.setConnectTimeout(transportConfiguration.getConnectTimeout());
+            retVal.setReadTimeout(transportConfiguration.getReadTimeout());
+
+            if (retVal instanceof HttpsURLConnection) {
+                ((HttpsURLConnection) retVal).setSSLSocketFactory(transportConfiguration.getSslSocketFactory());
+            }
+        }
+
+        if (null != deadline) {
+            retVal.setConnectTimeout(deadline.computeTimeout(retVal.getConnectTimeout()));
+            retVal.setReadTimeout(deadline.computeTimeout(retVal.getReadTimeout()));
+        }
+
+        log(Level.FINE, "Calling [{0}]", operation);
+
+        return retVal;
+    }
+
+    /**
+     * Return the response of <code>connection</code> - the error stream if SFDC faulted.
+     */
+    static InputStream computeResponse(final HttpURLConnection connection) throws IOException {
+        final InputStream inputStream = connection.getResponseCode() >= HttpURLConnection.HTTP_MULT_CHOICE ? connection.getErrorStream() : connection.getInputStream();
+
+        if (null == inputStream) {
+            throw new IllegalStateException("Partner call [" + connection.getURL() + "] failed with HTTP status [" + connection.getResponseCode() + " " + connection.getResponseMessage() + "]");
+        }
+
+        return new BufferedInputStream("gzip".equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(inputStream, BUFFER_SIZE) : inputStream, BUFFER_SIZE);
+    }
+
+    /**
+     * Call <code>operation</code> once with <code>argument</code> named <code>argumentName</code> using <code>sessionId</code>,
+     * decoding the result into <code>batch</code> - taking no longer than <code>deadline</code> if any.
+     */
+    void callOnce(final String sessionId, final String operation, final String argumentName, final String argument, final RecordBatch batch, final Deadline deadline) throws IOException, XMLStreamException {
+        final HttpURLConnection connection = openConnection(operation, deadline);
+
+        try (final OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(computeRequest(sessionId, operation, argumentName, argument).getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (final InputStream inputStream = computeResponse(connection)) {
+            PartnerRecordReader.read(inputStream, operation, batch);
+        }
+    }
+
+    /**
+     * Compute the failure raised when the deadline of a call to <code>operation</code> passed after <code>totalCalls</code>
+     * attempts, the last failing with <code>cause</code> - null if none.
+     */
+    IllegalStateException computeDeadlineExceeded(final String operation, final int totalCalls, final Throwable cause) {
+        final TimeoutException timeoutException = new TimeoutException("Deadline passed calling partner [" + operation + "] after [" + totalCalls + "] attempts");
+
+        if (null != cause) {
+            timeoutException.initCause(cause);
+        }
+
+        log(Level.SEVERE, timeoutException, "Deadline passed calling partner [{0}] after [{1}] attempts, raising exception", operation, totalCalls);
+
+        return new IllegalStateException(timeoutException.getMessage(), timeoutException);
+    }
+
+    /**
+     * Call <code>operation</code> with <code>argument</code> named <code>argumentName</code>, decoding the result into
+     * <code>batch</code> - calling again, and logging in again, as the failure allows, within the {@link Deadline} in scope if any.
+     *
+     * @return batch.
+     */
+    RecordBatch call(final String operation, final String argumentName, final String argument, final RecordBatch batch) {
+        ObjectUtils.ensureObject(batch, "Must provide a batch!");
+
+        final Deadline deadline = Deadline.current();
+        final String organizationId = LoginContextUtils.computeOrganizationId(getLoginContext());
+        final OrganizationRateLimiter rateLimiter = RateLimiters.getRateLimiter(organizationId);
+
+        IllegalStateException toRaise = null;
+
+        for (int totalCalls = 1;; totalCalls++) {
+            if (null != deadline && deadline.isExpired()) {
+                throw computeDeadlineExceeded(operation, totalCalls - 1, toRaise);
+            }
+
+            ApiLimits.throttle(organizationId, null == deadline ? Long.MAX_VALUE : deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+
+            if (null != rateLimiter && !rateLimiter.tryAcquire(null == deadline ? Long.MAX_VALUE : deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)) {
+                throw computeDeadlineExceeded(operation, totalCalls - 1, toRaise);
+            }
+
+            final String sessionId = getLoginContext().getSessionId();
+
+            try {
+                callOnce(sessionId, operation, argumentName, argument, batch, deadline);
+
+                if (null != rateLimiter) {
+                    rateLimiter.recordSuccess();
+                }
+
+                return batch;
+            } catch (final IOException | XMLStreamException | IllegalStateException failure) {
+                toRaise = failure instanceof IllegalStateException ? (IllegalStateException) failure : new IllegalStateException("Trouble calling partner [" + operation + "]", failure);
+
+                final SalesforceExceptionEnum salesforceException = SalesforceExceptionEnum.computeType(toRaise);
+
+                if (null != rateLimiter && SalesforceExceptionEnum.isOverloadException(salesforceException)) {
+                    rateLimiter.recordOverload();
+                }
+
+                if (!isTransient(salesforceException) || totalCalls >= MAX_CALLS) {
+                    throw toRaise;
+                }
+
+                // Timeouts shrunk to the deadline look like I/O failures.
+                if (null != deadline && deadline.isExpired()) {
+                    throw computeDeadlineExceeded(operation, totalCalls, toRaise);
+                }
+
+                // I/O failures need only a new connection - a new session is
+                // only needed once SFDC says ours is invalid.
+                if (SalesforceExceptionEnum.INVALID_SESSION_ID == salesforceException && !ProxyPortUtils.invalidateSession(getLoginContext(), sessionId)) {
+                    throw toRaise;
+                }
+
+                log(Level.WARNING, "Trouble calling partner [{0}], failure [{1}], calling again", operation, salesforceException.getHumanReadbleString());
+            } finally {
+                if (null != rateLimiter) {
+                    rateLimiter.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Query for the first batch of <code>soql</code>, decoding it into <code>batch</code>.
+     *
+     * @param soql  the SOQL query.
+     * @param batch the batch to refill.
+     *
+     * @return batch.
+     *
+     * @throws IllegalArgumentException if soql is blank or batch is null.
+     * @throws IllegalStateException if the call fails, after any retries - the message contains any SFDC fault.
+     */
+    public RecordBatch query(final String soql, final RecordBatch batch) {
+        return call("query", "queryString", StringUtils.ensureString(soql, "Must provide a query!"), batch);
+    }
+
+    /**
+     * Query for the first batch of <code>soql</code>.
+     *
+     * @param soql the SOQL query.
+     *
+     * @return the batch.
+     *
+     * @throws IllegalArgumentException if soql is blank.
+     * @throws IllegalStateException if the call fails, after any retries - the message contains any SFDC fault.
+     */
+    public RecordBatch query(final String soql) {
+        return query(soql, new RecordBatch());
+    }
+
+    /**
+     * Query for the first batch of <code>soql</code>, including deleted and archived records, decoding it into <code>batch</code>.
+     *
+     * @param soql  the SOQL query.
+     * @param batch the batch to refill.
+     *
+     * @return batch.
+     *
+     * @throws IllegalArgumentException if soql is blank or batch is null.
+     * @throws IllegalStateException if the call fails, after any retries - the message contains any SFDC fault.
+     */
+    public RecordBatch queryAll(final String soql, final RecordBatch batch) {
+        return call("queryAll", "queryString", StringUtils.ensureString(soql, "Must provide a query!"), batch);
+    }
+
+    /**
+     * Query for the batch at <code>queryLocator</code>, decoding it into <code>batch</code>.
+     *
+     * @param queryLocator the locator of a previous batch.
+     * @param batch        the batch to refill.
+     *
+     * @return batch.
+     *
+     * @throws IllegalArgumentException if queryLocator is blank or batch is null.
+     * @throws IllegalStateException if the call fails, after any retries - the message contains any SFDC fault.
+     */
+    public RecordBatch queryMore(final String queryLocator, final RecordBatch batch) {
+        return call("queryMore", "queryLocator", StringUtils.ensureString(queryLocator, "Must provide a query locator!"), batch);
+    }
+
+    /**
+     * Open a cursor over all records of <code>soql</code>.
+     *
+     * @param soql the SOQL query.
+     * @param all  if true include deleted and archived records.
+     *
+     * @return the cursor.
+     *
+     * @throws IllegalArgumentException if soql is blank.
+     */
+    public RecordCursor openCursor(final String soql, final boolean all) {
+        return new RecordCursor(this, soql, all);
+    }
+
+    /**
+     * Open a cursor over all records of <code>soql</code>, excluding deleted and archived records.
+     *
+     * @param soql the SOQL query.
+     *
+     * @return the cursor.
+     *
+     * @throws IllegalArgumentException if soql is blank.
+     */
+    public RecordCursor openCursor(final String soql) {
+        return openCursor(soql, false);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+/**
+ * A record of a {@link RecordBatch}. Values are views of the batch's shared characters, so reading a record copies nothing - call
+ * <code>toString()</code> on a value to keep it beyond the batch being refilled.
+ *
+ * @author Scot P. Floess
+ */
+public final class PartnerRecord {
+    /**
+     * The name of the type field.
+     */
+    static final String TYPE = "type";
+
+    /**
+     * The name of the Id field.
+     */
+    static final String ID = "Id";
+
+    /**
+     * The batch containing this record.
+     */
+    private final RecordBatch batch;
+
+    /**
+     * The index of this record in batch.
+     */
+    private final int record;
+
+    /**
+     * Access <code>record</code> of <code>batch</code>.
+     */
+    PartnerRecord(final RecordBatch batch, final int record) {
+        this.batch = batch;
+        this.record = record;
+    }
+
+    /**
+     * Return the batch containing this record.
+     */
+    RecordBatch getBatch() {
+        return batch;
+    }
+
+    /**
+     * Return the value, within the batch, at <code>position</code> of this record.
+     */
+    int computeValue(final int position) {
+        final int retVal = batch.getRecordStart(record) + position;
+
+        if (position < 0 || retVal >= batch.getRecordEnd(record)) {
+            throw new IndexOutOfBoundsException("Position [" + position + "] not in [0, " + getValueCount() + ")");
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Return the position of the value of the field at <code>fieldIndex</code>, searching from <code>start</code> and wrapping
+     * around.
+     *
+     * @return the position or -1 if this record has no such value.
+     */
+    int findPosition(final int fieldIndex, final int start) {
+        final int first = batch.getRecordStart(record);
+        final int total = batch.getRecordEnd(record) - first;
+
+        for (int count = 0, position = start < total ? start : 0; count < total; count++, position = position + 1 < total ? position + 1 : 0) {
+            if (fieldIndex == batch.getValueField(first + position)) {
+                return position;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Return the value at <code>position</code> viewed by <code>slice</code>.
+     *
+     * @return slice or null if the value is null.
+     */
+    CharSlice computeValue(final int position, final CharSlice slice) {
+        final int value = computeValue(position);
+        final int length = batch.getValueLength(value);
+
+        return RecordBatch.NULL == length ? null : slice.set(batch.getChars(), batch.getValueStart(value), length);
+    }
+
+    /**
+     * Return the total values of this record.
+     *
+     * @return the total values.
+     */
+    public int getValueCount() {
+        return batch.getRecordEnd(record) - batch.getRecordStart(record);
+    }
+
+    /**
+     * Return the field name of the value at <code>position</code>.
+     *
+     * @param position the position of the value in this record.
+     *
+     * @return the field name.
+     *
+     * @throws IndexOutOfBoundsException if position is not in this record.
+     */
+    public String getFieldName(final int position) {
+        return batch.getFieldName(batch.getValueField(computeValue(position)));
+    }
+
+    /**
+     * Return the value at <code>position</code>.
+     *
+     * @param position the position of the value in this record.
+     *
+     * @return the value or null if null.
+     *
+     * @throws IndexOutOfBoundsException if position is not in this record.
+     */
+    public CharSequence getValue(final int position) {
+        return computeValue(position, new CharSlice());
+    }
+
+    /**
+     * Return the value of <code>fieldName</code>.
+     *
+     * @param fieldName the field name - a path for fields of related records, such as <code>Owner.Name</code>.
+     *
+     * @return the value or null if null or not in this record.
+     */
+    public CharSequence getValue(final String fieldName) {
+        final int fieldIndex = batch.indexOf(fieldName);
+        final int position = fieldIndex < 0 ? -1 : findPosition(fieldIndex, 0);
+
+        return position < 0 ? null : getValue(position);
+    }
+
+    /**
+     * Return the value of <code>fieldName</code> as a string.
+     *
+     * @param fieldName the field name - a path for fields of related records, such as <code>Owner.Name</code>.
+     *
+     * @return the value or null if null or not in this record.
+     */
+    public String getString(final String fieldName) {
+        final CharSequence retVal = getValue(fieldName);
+
+        return null == retVal ? null : retVal.toString();
+    }
+
+    /**
+     * Return the SObject type of this record - for example <code>Account</code>.
+     *
+     * @return the type.
+     */
+    public String getType() {
+        return getString(TYPE);
+    }
+
+    /**
+     * Return the Id of this record.
+     *
+     * @return the Id or null if not queried.
+     */
+    public String getId() {
+        return getString(ID);
+    }
+}
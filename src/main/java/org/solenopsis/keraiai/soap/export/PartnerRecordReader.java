@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+import java.io.InputStream;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Decodes partner query responses with StAX straight into a {@link RecordBatch} - text is copied from the parser into the batch's
+ * characters, and no DOM or per value strings are created.
+ *
+ * @author Scot P. Floess
+ */
+final class PartnerRecordReader {
+    /**
+     * Creates readers - thread safe once configured.
+     */
+    static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    /**
+     * Suffix of the xsi:type of child relationship query results, which are skipped.
+     */
+    static final String QUERY_RESULT_TYPE = "QueryResult";
+
+    /**
+     * Create the factory of readers - namespace aware, without DTDs.
+     */
+    static XMLInputFactory createXmlInputFactory() {
+        final XMLInputFactory retVal = XMLInputFactory.newInstance();
+
+        retVal.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+        retVal.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        retVal.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+
+        return retVal;
+    }
+
+    /**
+     * Return true if the element at <code>reader</code> is nil.
+     */
+    static boolean isNil(final XMLStreamReader reader) {
+        final String nil = reader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "nil");
+
+        return "true".equals(nil) || "1".equals(nil);
+    }
+
+    /**
+     * Return true if the element at <code>reader</code> is a child relationship query result.
+     */
+    static boolean isQueryResult(final XMLStreamReader reader) {
+        final String type = reader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "type");
+
+        return null != type && type.endsWith(QUERY_RESULT_TYPE);
+    }
+
+    /**
+     * Skip the element at <code>reader</code>, leaving the reader at its end.
+     */
+    static void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+        for (int depth = 1; depth > 0;) {
+            final int event = reader.next();
+
+            if (XMLStreamConstants.START_ELEMENT == event) {
+                depth++;
+            } else if (XMLStreamConstants.END_ELEMENT == event) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Return the text of the element at <code>reader</code> - null if nil.
+     */
+    static String readText(final XMLStreamReader reader) throws XMLStreamException {
+        if (isNil(reader)) {
+            skipElement(reader);
+
+            return null;
+        }
+
+        return reader.getElementText();
+    }
+
+    /**
+     * Read the field at <code>reader</code>, of the record or related record of <code>parent</code>, leaving the reader at its end.
+     */
+    static void readField(final XMLStreamReader reader, final RecordBatch batch, final int parent) throws XMLStreamException {
+        final int fieldIndex = batch.computeFieldIndex(parent, reader.getLocalName());
+
+        if (isQueryResult(reader) || (RecordBatch.RECORD == parent && PartnerRecord.ID.equals(reader.getLocalName()) && batch.hasValue(fieldIndex))) {
+            skipElement(reader);
+
+            return;
+        }
+
+        if (isNil(reader)) {
+            batch.addNull(fieldIndex);
+            skipElement(reader);
+
+            return;
+        }
+
+        batch.beginValue(fieldIndex);
+
+        for (int event = reader.next(); XMLStreamConstants.END_ELEMENT != event; event = reader.next()) {
+            switch (event) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    batch.appendChars(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    batch.cancelValue();
+                    readField(reader, batch, fieldIndex);
+                    readFields(reader, batch, fieldIndex);
+
+                    return;
+                default:
+            }
+        }
+
+        batch.endValue();
+    }
+
+    /**
+     * Read the fields of the record or related record of <code>parent</code>, leaving the reader at the end of it.
+     */
+    static void readFields(final XMLStreamReader reader, final RecordBatch batch, final int parent) throws XMLStreamException {
+        for (int event = reader.next(); XMLStreamConstants.END_ELEMENT != event; event = reader.next()) {
+            if (XMLStreamConstants.START_ELEMENT == event) {
+                readField(reader, batch, parent);
+            }
+        }
+    }
+
+    /**
+     * Read the query result at <code>reader</code> into <code>batch</code>.
+     */
+    static void readResult(final XMLStreamReader reader, final RecordBatch batch) throws XMLStreamException {
+        boolean done = true;
+        String queryLocator = null;
+        int size = 0;
+
+        for (int event = reader.next(); XMLStreamConstants.END_ELEMENT != event; event = reader.next()) {
+            if (XMLStreamConstants.START_ELEMENT != event) {
+                continue;
+            }
+
+            switch (reader.getLocalName()) {
+                case "records":
+                    batch.beginRecord();
+                    readFields(reader, batch, RecordBatch.RECORD);
+                    break;
+                case "done":
+                    done = Boolean.parseBoolean(readText(reader));
+                    break;
+                case "queryLocator":
+                    queryLocator = readText(reader);
+                    break;
+                case "size":
+                    size = Integer.parseInt(readText(reader).trim());
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        batch.setQueryResult(done, queryLocator, size);
+    }
+
+    /**
+     * Read the fault at <code>reader</code>.
+     *
+     * @return the exception to raise.
+     */
+    static IllegalStateException readFault(final XMLStreamReader reader, final String operation) throws XMLStreamException {
+        String faultCode = null;
+        String faultString = null;
+
+        for (int event = reader.next(); XMLStreamConstants.END_ELEMENT != event; event = reader.next()) {
+            if (XMLStreamConstants.START_ELEMENT != event) {
+                continue;
+            }
+
+            if ("faultcode".equals(reader.getLocalName())) {
+                faultCode = readText(reader);
+            } else if ("faultstring".equals(reader.getLocalName())) {
+                faultString = readText(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+
+        return new IllegalStateException("Partner call [" + operation + "] failed with fault [" + faultCode + "]: " + faultString);
+    }
+
+    /**
+     * Read the response to <code>operation</code> from <code>inputStream</code> into <code>batch</code>, which is emptied first.
+     *
+     * @throws XMLStreamException if the response is not XML.
+     * @throws IllegalStateException if the response is a fault or contains no result.
+     */
+    static void read(final InputStream inputStream, final String operation, final RecordBatch batch) throws XMLStreamException {
+        final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+
+        batch.clear();
+
+        try {
+            while (reader.hasNext()) {
+                if (XMLStreamConstants.START_ELEMENT != reader.next()) {
+                    continue;
+                }
+
+                if ("result".equals(reader.getLocalName())) {
+                    readResult(reader, batch);
+
+                    return;
+                }
+
+                if ("Fault".equals(reader.getLocalName())) {
+                    throw readFault(reader, operation);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        throw new IllegalStateException("Partner call [" + operation + "] returned no result!");
+    }
+
+    /**
+     * Default constructor not allowed.
+     */
+    private PartnerRecordReader() {
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.flossware.jcore.utils.StringUtils;
+import org.solenopsis.keraiai.wsdl.partner.QueryResult;
+import org.solenopsis.keraiai.wsdl.partner.SObject;
+import org.solenopsis.keraiai.wsdl.partner.Soap;
+
+/**
+ * Iterates the records of a SOQL query through a partner port, calling queryMore as each batch is consumed. Only the current
+ * batch is held, so a cursor over millions of records needs no more memory than one batch.
+ *
+ * @author Scot P. Floess
+ */
+public class QueryCursor implements Iterator<SObject> {
+    /**
+     * The port to query.
+     */
+    private final Soap port;
+
+    /**
+     * The SOQL query.
+     */
+    private final String soql;
+
+    /**
+     * If true, deleted and archived records are included.
+     */
+    private final boolean all;
+
+    /**
+     * The current batch - null until the query is made.
+     */
+    private QueryResult queryResult;
+
+    /**
+     * The records of the current batch.
+     */
+    private List<SObject> records;
+
+    /**
+     * The index of the next record in the current batch.
+     */
+    private int index;
+
+    /**
+     * The number of records returned so far.
+     */
+    private long count;
+
+    /**
+     * Iterate the records of <code>soql</code>.
+     *
+     * @param port the partner port to query.
+     * @param soql the SOQL query.
+     * @param all  if true use queryAll to include deleted and archived records.
+     *
+     * @throws IllegalArgumentException if port is null or soql is blank.
+     */
+    public QueryCursor(final Soap port, final String soql, final boolean all) {
+        this.port = ObjectUtils.ensureObject(port, "Must provide a port!");
+        this.soql = StringUtils.ensureString(soql, "Must provide a query!");
+        this.all = all;
+    }
+
+    /**
+     * Iterate the records of <code>soql</code> excluding deleted and archived records.
+     *
+     * @param port the partner port to query.
+     * @param soql the SOQL query.
+     *
+     * @throws IllegalArgumentException if port is null or soql is blank.
+     */
+    public QueryCursor(final Soap port, final String soql) {
+        this(port, soql, false);
+    }
+
+    /**
+     * Query for the next batch: the first via query or queryAll, the rest via queryMore.
+     */
+    QueryResult computeQueryResult() {
+        try {
+            if (null == queryResult) {
+                return all ? port.queryAll(soql) : port.query(soql);
+            }
+
+            return port.queryMore(queryResult.getQueryLocator());
+        } catch (final RuntimeException runtimeException) {
+            throw runtimeException;
+        } catch (final Exception exception) {
+            throw new IllegalStateException("Could not query [" + soql + "]", exception);
+        }
+    }
+
+    /**
+     * Return the total number of records the query matches - queries for the first batch if needed.
+     */
+    public int getSize() {
+        hasNext();
+
+        return queryResult.getSize();
+    }
+
+    /**
+     * Return the number of records returned so far.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        while (null == records || index >= records.size()) {
+            if (null != queryResult && queryResult.isDone()) {
+                return false;
+            }
+
+            queryResult = computeQueryResult();
+            records = queryResult.getRecords();
+            index = 0;
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more records for [" + soql + "]");
+        }
+
+        count++;
+
+        return records.get(index++);
+    }
+
+    /**
+     * Records can not be removed.
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Records can not be removed!");
+    }
+}
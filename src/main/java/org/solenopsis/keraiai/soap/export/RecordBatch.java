@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One batch of partner query results decoded by {@link PartnerQueryClient}, without DOM. Every value is an entry of three parallel
+ * arrays - the index of its field, and the start and length of its characters in one shared character array - and every record is
+ * the range of values it owns. Relationship fields are flattened into paths such as <code>Owner.Name</code>.
+ *
+ * A batch may be refilled: field indexes stay the same, and the arrays are kept, so decoding any number of batches into one batch
+ * needs no more memory than the largest of them. Records of a batch are only valid until it is refilled.
+ *
+ * @author Scot P. Floess
+ */
+public final class RecordBatch {
+    /**
+     * The parent index of fields of records themselves, as opposed to fields of related records.
+     */
+    static final int RECORD = -1;
+
+    /**
+     * The length of null values.
+     */
+    static final int NULL = -1;
+
+    /**
+     * The initial size of the arrays.
+     */
+    static final int INITIAL_SIZE = 1024;
+
+    /**
+     * The field names by index.
+     */
+    private final List<String> fieldNames;
+
+    /**
+     * The field indexes by name, per parent field - parent {@link #RECORD} is the first.
+     */
+    private final List<Map<String, Integer>> fieldIndexes;
+
+    /**
+     * The characters of all values.
+     */
+    private char[] chars;
+
+    /**
+     * The total characters used.
+     */
+    private int charCount;
+
+    /**
+     * Per value, the index of its field.
+     */
+    private int[] valueFields;
+
+    /**
+     * Per value, where its characters start.
+     */
+    private int[] valueStarts;
+
+    /**
+     * Per value, the total of its characters - {@link #NULL} if null.
+     */
+    private int[] valueLengths;
+
+    /**
+     * The total values.
+     */
+    private int valueCount;
+
+    /**
+     * Per record, its first value.
+     */
+    private int[] recordStarts;
+
+    /**
+     * The total records.
+     */
+    private int recordCount;
+
+    /**
+     * True if there are no more batches.
+     */
+    private boolean done;
+
+    /**
+     * The locator of the next batch - null if done.
+     */
+    private String queryLocator;
+
+    /**
+     * The total records the query matches.
+     */
+    private int size;
+
+    /**
+     * Create an empty batch.
+     */
+    public RecordBatch() {
+        this.fieldNames = new ArrayList<>();
+        this.fieldIndexes = new ArrayList<>();
+        this.chars = new char[INITIAL_SIZE * 16];
+        this.valueFields = new int[INITIAL_SIZE];
+        this.valueStarts = new int[INITIAL_SIZE];
+        this.valueLengths = new int[INITIAL_SIZE];
+        this.recordStarts = new int[INITIAL_SIZE];
+        this.done = true;
+
+        this.fieldIndexes.add(new HashMap<String, Integer>());
+    }
+
+    /**
+     * Empty the batch to be refilled - field indexes are kept.
+     */
+    void clear() {
+        charCount = 0;
+        valueCount = 0;
+        recordCount = 0;
+        done = true;
+        queryLocator = null;
+        size = 0;
+    }
+
+    /**
+     * Return the index of the field <code>name</code> of <code>parent</code>, adding it if new.
+     */
+    int computeFieldIndex(final int parent, final String name) {
+        final Map<String, Integer> children = fieldIndexes.get(parent + 1);
+        final Integer retVal = children.get(name);
+
+        if (null != retVal) {
+            return retVal;
+        }
+
+        final int index = fieldNames.size();
+
+        fieldNames.add(RECORD == parent ? name : fieldNames.get(parent) + '.' + name);
+        fieldIndexes.add(new HashMap<String, Integer>());
+        children.put(name, index);
+
+        return index;
+    }
+
+    /**
+     * Start a record.
+     */
+    void beginRecord() {
+        if (recordCount == recordStarts.length) {
+            recordStarts = Arrays.copyOf(recordStarts, recordCount * 2);
+        }
+
+        recordStarts[recordCount++] = valueCount;
+    }
+
+    /**
+     * Start a value of the field at <code>fieldIndex</code> - its characters are appended until it ends.
+     */
+    void beginValue(final int fieldIndex) {
+        if (valueCount == valueFields.length) {
+            valueFields = Arrays.copyOf(valueFields, valueCount * 2);
+            valueStarts = Arrays.copyOf(valueStarts, valueCount * 2);
+            valueLengths = Arrays.copyOf(valueLengths, valueCount * 2);
+        }
+
+        valueFields[valueCount] = fieldIndex;
+        valueStarts[valueCount] = charCount;
+        valueLengths[valueCount] = 0;
+    }
+
+    /**
+     * Append characters to the value begun.
+     */
+    void appendChars(final char[] source, final int start, final int length) {
+        if (charCount + length > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charCount + length));
+        }
+
+        System.arraycopy(source, start, chars, charCount, length);
+        charCount += length;
+    }
+
+    /**
+     * End the value begun.
+     */
+    void endValue() {
+        valueLengths[valueCount] = charCount - valueStarts[valueCount];
+        valueCount++;
+    }
+
+    /**
+     * Discard the value begun - it turned out to be a related record.
+     */
+    void cancelValue() {
+        charCount = valueStarts[valueCount];
+    }
+
+    /**
+     * Add a null value of the field at <code>fieldIndex</code>.
+     */
+    void addNull(final int fieldIndex) {
+        beginValue(fieldIndex);
+        valueLengths[valueCount++] = NULL;
+    }
+
+    /**
+     * Return true if the current record has a value of the field at <code>fieldIndex</code>.
+     */
+    boolean hasValue(final int fieldIndex) {
+        for (int value = recordStarts[recordCount - 1]; value < valueCount; value++) {
+            if (fieldIndex == valueFields[value]) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Set what the response reports about the query.
+     */
+    void setQueryResult(final boolean done, final String queryLocator, final int size) {
+        this.done = done;
+        this.queryLocator = queryLocator;
+        this.size = size;
+    }
+
+    /**
+     * Return the shared characters of values.
+     */
+    char[] getChars() {
+        return chars;
+    }
+
+    /**
+     * Return the first value of the record at <code>record</code>.
+     */
+    int getRecordStart(final int record) {
+        return recordStarts[record];
+    }
+
+    /**
+     * Return the value after the last of the record at <code>record</code>.
+     */
+    int getRecordEnd(final int record) {
+        return record + 1 < recordCount ? recordStarts[record + 1] : valueCount;
+    }
+
+    /**
+     * Return the field index of <code>value</code>.
+     */
+    int getValueField(final int value) {
+        return valueFields[value];
+    }
+
+    /**
+     * Return where the characters of <code>value</code> start.
+     */
+    int getValueStart(final int value) {
+        return valueStarts[value];
+    }
+
+    /**
+     * Return the total characters of <code>value</code> - {@link #NULL} if null.
+     */
+    int getValueLength(final int value) {
+        return valueLengths[value];
+    }
+
+    /**
+     * Return true if there are no more batches.
+     *
+     * @return true if done.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Return the locator of the next batch.
+     *
+     * @return the locator or null if done.
+     */
+    public String getQueryLocator() {
+        return queryLocator;
+    }
+
+    /**
+     * Return the total records the query matches, across all batches.
+     *
+     * @return the total records of the query.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Return the total records in this batch.
+     *
+     * @return the total records.
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Return the record at <code>record</code>.
+     *
+     * @param record the index of the record.
+     *
+     * @return an accessor of the record, valid until this batch is refilled.
+     *
+     * @throws IndexOutOfBoundsException if record is not in this batch.
+     */
+    public PartnerRecord getRecord(final int record) {
+        if (record < 0 || record >= recordCount) {
+            throw new IndexOutOfBoundsException("Record [" + record + "] not in [0, " + recordCount + ")");
+        }
+
+        return new PartnerRecord(this, record);
+    }
+
+    /**
+     * Return the total fields seen.
+     *
+     * @return the total fields.
+     */
+    public int getFieldCount() {
+        return fieldNames.size();
+    }
+
+    /**
+     * Return the name of the field at <code>fieldIndex</code>.
+     *
+     * @param fieldIndex the index of the field.
+     *
+     * @return the field name - a path for fields of related records.
+     */
+    public String getFieldName(final int fieldIndex) {
+        return fieldNames.get(fieldIndex);
+    }
+
+    /**
+     * Return the index of <code>fieldName</code>.
+     *
+     * @param fieldName the field name - a path for fields of related records, such as <code>Owner.Name</code>.
+     *
+     * @return the index or -1 if not seen.
+     */
+    public int indexOf(final String fieldName) {
+        int parent = RECORD;
+        int start = 0;
+
+        while (true) {
+            final int end = fieldName.indexOf('.', start);
+            final Integer index = fieldIndexes.get(parent + 1).get(end < 0 ? fieldName.substring(start) : fieldName.substring(start, end));
+
+            if (null == index) {
+                return -1;
+            }
+
+            if (end < 0) {
+                return index;
+            }
+
+            parent = index;
+            start = end + 1;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.flossware.jcore.utils.StringUtils;
+
+/**
+ * Iterates the records of a SOQL query via a {@link PartnerQueryClient}, refilling one {@link RecordBatch} with each queryMore. A
+ * record is only valid until the next is requested past the end of its batch, so however many records are iterated, memory stays
+ * that of the largest batch.
+ *
+ * @author Scot P. Floess
+ */
+public final class RecordCursor implements Iterator<PartnerRecord> {
+    /**
+     * The client to query.
+     */
+    private final PartnerQueryClient client;
+
+    /**
+     * The SOQL query.
+     */
+    private final String soql;
+
+    /**
+     * If true, deleted and archived records are included.
+     */
+    private final boolean all;
+
+    /**
+     * The batch refilled with each query.
+     */
+    private final RecordBatch batch;
+
+    /**
+     * True once the first batch was queried.
+     */
+    private boolean queried;
+
+    /**
+     * The index of the next record in batch.
+     */
+    private int record;
+
+    /**
+     * The number of records returned so far.
+     */
+    private long count;
+
+    /**
+     * Iterate the records of <code>soql</code>.
+     *
+     * @param client the client to query.
+     * @param soql   the SOQL query.
+     * @param all    if true use queryAll to include deleted and archived records.
+     *
+     * @throws IllegalArgumentException if client is null or soql is blank.
+     */
+    public RecordCursor(final PartnerQueryClient client, final String soql, final boolean all) {
+        this.client = ObjectUtils.ensureObject(client, "Must provide a client!");
+        this.soql = StringUtils.ensureString(soql, "Must provide a query!");
+        this.all = all;
+        this.batch = new RecordBatch();
+    }
+
+    /**
+     * Return the batch containing the records - refilled as records are iterated.
+     */
+    RecordBatch getBatch() {
+        return batch;
+    }
+
+    /**
+     * Return the total number of records the query matches - queries for the first batch if needed.
+     *
+     * @return the total records of the query.
+     */
+    public int getSize() {
+        hasNext();
+
+        return batch.getSize();
+    }
+
+    /**
+     * Return the number of records returned so far.
+     *
+     * @return the number of records returned.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        while (!queried || record >= batch.getRecordCount()) {
+            if (!queried) {
+                if (all) {
+                    client.queryAll(soql, batch);
+                } else {
+                    client.query(soql, batch);
+                }
+
+                queried = true;
+            } else if (batch.isDone()) {
+                return false;
+            } else {
+                client.queryMore(batch.getQueryLocator(), batch);
+            }
+
+            record = 0;
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PartnerRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more records for [" + soql + "]");
+        }
+
+        count++;
+
+        return batch.getRecord(record++);
+    }
+
+    /**
+     * Records can not be removed.
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Records can not be removed!");
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBElement;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.solenopsis.keraiai.wsdl.partner.DescribeSObjectResult;
+import org.solenopsis.keraiai.wsdl.partner.Field;
+import org.solenopsis.keraiai.wsdl.partner.SObject;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Streams partner records to a channel as CSV or NDJSON. Values are read straight from the DOM elements of each SObject, or the
+ * shared characters of each {@link PartnerRecord}, and encoded into one reusable buffer - no per record maps or strings are
+ * created, so memory stays constant however many records are exported. Relationship fields are named by path, for example
+ * <code>Owner.Name</code>.
+ *
+ * Not thread safe: use one exporter per channel.
+ *
+ * @author Scot P. Floess
+ */
+public class SObjectExporter implements Closeable {
+    /**
+     * The default buffer size in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Separates the names of a relationship path.
+     */
+    private static final Pattern PATH_SEPARATOR = Pattern.compile("\\.");
+
+    /**
+     * The Id field - also available on the record itself.
+     */
+    private static final String ID = "Id";
+
+    /**
+     * Value of the xsi:nil attribute for null values.
+     */
+    private static final String NIL = "true";
+
+    /**
+     * The format to write.
+     */
+    private final ExportFormatEnum format;
+
+    /**
+     * Where records are buffered.
+     */
+    private final ExportBuffer buffer;
+
+    /**
+     * The field names in the order written.
+     */
+    private final String[] fieldNames;
+
+    /**
+     * The field names split into relationship paths.
+     */
+    private final String[][] fieldPaths;
+
+    /**
+     * Per field, the bytes the format writes before each value.
+     */
+    private final byte[][] keys;
+
+    /**
+     * Per field, where its value was last found in a record - records of a query share an order, so the next is usually there.
+     */
+    private final int[] positions;
+
+    /**
+     * Per field, its index in the batch of the partner records last written - -1 if not seen.
+     */
+    private final int[] fieldIndexes;
+
+    /**
+     * Views values of partner records.
+     */
+    private final CharSlice slice;
+
+    /**
+     * The batch fieldIndexes were computed for.
+     */
+    private RecordBatch indexedBatch;
+
+    /**
+     * The total fields of indexedBatch when fieldIndexes were computed - new fields may appear as batches are refilled.
+     */
+    private int indexedFieldCount;
+
+    /**
+     * True once the header has been written.
+     */
+    private boolean headerWritten;
+
+    /**
+     * The number of records written.
+     */
+    private long recordCount;
+
+    /**
+     * Export <code>fieldNames</code> of each record.
+     *
+     * @param format     the format to write.
+     * @param channel    where records are written - left open when the exporter is closed.
+     * @param fieldNames the fields to write, in order.
+     * @param bufferSize the size of the reusable buffer in bytes.
+     *
+     * @throws IllegalArgumentException if format, channel or fieldNames are null, fieldNames is empty or bufferSize is too small.
+     */
+    public SObjectExporter(final ExportFormatEnum format, final WritableByteChannel channel, final List<String> fieldNames, final int bufferSize) {
+        this.format = ObjectUtils.ensureObject(format, "Must provide a format!");
+        this.buffer = new ExportBuffer(channel, bufferSize);
+
+        if (ObjectUtils.ensureObject(fieldNames, "Must provide field names!").isEmpty()) {
+            throw new IllegalArgumentException("Must provide at least one field name!");
+        }
+
+        this.fieldNames = fieldNames.toArray(new String[fieldNames.size()]);
+        this.fieldPaths = new String[this.fieldNames.length][];
+        this.keys = new byte[this.fieldNames.length][];
+        this.positions = new int[this.fieldNames.length];
+        this.fieldIndexes = new int[this.fieldNames.length];
+        this.slice = new CharSlice();
+
+        for (int index = 0; index < this.fieldNames.length; index++) {
+            this.fieldPaths[index] = PATH_SEPARATOR.split(ObjectUtils.ensureObject(this.fieldNames[index], "Field names can not be null!"));
+            this.keys[index] = format.computeKey(this.fieldNames[index]);
+        }
+    }
+
+    /**
+     * Export <code>fieldNames</code> of each record using a buffer of {@link #DEFAULT_BUFFER_SIZE}.
+     *
+     * @param format     the format to write.
+     * @param channel    where records are written - left open when the exporter is closed.
+     * @param fieldNames the fields to write, in order.
+     *
+     * @throws IllegalArgumentException if format, channel or fieldNames are null or fieldNames is empty.
+     */
+    public SObjectExporter(final ExportFormatEnum format, final WritableByteChannel channel, final List<String> fieldNames) {
+        this(format, channel, fieldNames, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Return the names of the fields of <code>describe</code> in describe order.
+     *
+     * @param describe the describe of an SObject type.
+     *
+     * @return the field names.
+     *
+     * @throws IllegalArgumentException if describe is null.
+     */
+    public static List<String> computeFieldNames(final DescribeSObjectResult describe) {
+        return computeFieldNames(describe, null);
+    }
+
+    /**
+     * Return the names of the fields of <code>describe</code> in describe order, restricted to <code>selected</code>.
+     *
+     * @param describe the describe of an SObject type.
+     * @param selected the fields to include, compared case insensitively - null includes all.
+     *
+     * @return the field names.
+     *
+     * @throws IllegalArgumentException if describe is null.
+     */
+    public static List<String> computeFieldNames(final DescribeSObjectResult describe, final Collection<String> selected) {
+        ObjectUtils.ensureObject(describe, "Must provide a describe!");
+
+        final Set<String> include = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+        if (null != selected) {
+            include.addAll(selected);
+        }
+
+        final List<String> retVal = new ArrayList<>(describe.getFields().size());
+
+        for (final Field field : describe.getFields()) {
+            if (null == selected || include.contains(field.getName())) {
+                retVal.add(field.getName());
+            }
+        }
+
+        return Collections.unmodifiableList(retVal);
+    }
+
+    /**
+     * Return the local name of an element of a record.
+     */
+    static String computeName(final Object value) {
+        if (value instanceof Node) {
+            final Node node = (Node) value;
+
+            return null == node.getLocalName() ? node.getNodeName() : node.getLocalName();
+        }
+
+        if (value instanceof JAXBElement) {
+            return ((JAXBElement) value).getName().getLocalPart();
+        }
+
+        return null;
+    }
+
+    /**
+     * Return the text of an element of a record - null if it is nil.
+     */
+    static String computeText(final Object value) {
+        if (value instanceof Element) {
+            final Element element = (Element) value;
+
+            return NIL.equals(element.getAttributeNS(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "nil")) ? null : element.getTextContent();
+        }
+
+        if (value instanceof JAXBElement) {
+            final Object jaxbValue = ((JAXBElement) value).getValue();
+
+            return null == jaxbValue ? null : jaxbValue.toString();
+        }
+
+        return null;
+    }
+
+    /**
+     * Return the index of the element named <code>name</code> in <code>values</code>, searching from <code>start</code> and
+     * wrapping around - -1 if not found.
+     */
+    static int findIndex(final List<Object> values, final String name, final int start) {
+        final int size = values.size();
+
+        for (int count = 0, index = start < size ? start : 0; count < size; count++, index = index + 1 < size ? index + 1 : 0) {
+            if (name.equals(computeName(values.get(index)))) {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Return the child element of <code>parent</code> named <code>name</code> - null if not found.
+     */
+    static Object findChild(final Object parent, final String name) {
+        if (!(parent instanceof Element)) {
+            return null;
+        }
+
+        for (Node child = ((Node) parent).getFirstChild(); null != child; child = child.getNextSibling()) {
+            if (Node.ELEMENT_NODE == child.getNodeType() && name.equals(computeName(child))) {
+                return child;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Return the value of the <code>field</code>th field of <code>record</code> - null if absent or nil.
+     */
+    String computeValue(final SObject record, final int field) {
+        final String[] path = fieldPaths[field];
+        final List<Object> values = record.getAny();
+        final int index = findIndex(values, path[0], positions[field]);
+
+        if (index < 0) {
+            return 1 == path.length && ID.equals(path[0]) ? record.getId() : null;
+        }
+
+        positions[field] = index;
+
+        Object value = values.get(index);
+
+        for (int depth = 1; depth < path.length && null != value; depth++) {
+            value = findChild(value, path[depth]);
+        }
+
+        return computeText(value);
+    }
+
+    /**
+     * Write the header if not already written.
+     */
+    void ensureHeader() throws IOException {
+        if (!headerWritten) {
+            format.writeHeader(buffer, fieldNames);
+            headerWritten = true;
+        }
+    }
+
+    /**
+     * Write <code>record</code>.
+     *
+     * @param record the record to write.
+     *
+     * @throws IOException if the channel can not be written.
+     * @throws IllegalArgumentException if record is null.
+     */
+    public void write(final SObject record) throws IOException {
+        ObjectUtils.ensureObject(record, "Must provide a record!");
+
+        ensureHeader();
+
+        format.beginRecord(buffer);
+
+        for (int field = 0; field < fieldNames.length; field++) {
+            format.writeValue(buffer, field, keys[field], computeValue(record, field));
+        }
+
+        format.endRecord(buffer);
+
+        recordCount++;
+    }
+
+    /**
+     * Compute, per field, its index in <code>batch</code> - unless already computed and no fields were added since.
+     */
+    void ensureFieldIndexes(final RecordBatch batch) {
+        if (batch == indexedBatch && batch.getFieldCount() == indexedFieldCount) {
+            return;
+        }
+
+        for (int field = 0; field < fieldNames.length; field++) {
+            fieldIndexes[field] = batch.indexOf(fieldNames[field]);
+        }
+
+        indexedBatch = batch;
+        indexedFieldCount = batch.getFieldCount();
+    }
+
+    /**
+     * Return the value of the <code>field</code>th field of <code>record</code> - null if absent or null.
+     */
+    CharSequence computeValue(final PartnerRecord record, final int field) {
+        if (fieldIndexes[field] < 0) {
+            return null;
+        }
+
+        final int position = record.findPosition(fieldIndexes[field], positions[field]);
+
+        if (position < 0) {
+            return null;
+        }
+
+        positions[field] = position;
+
+        return record.computeValue(position, slice);
+    }
+
+    /**
+     * Write <code>record</code>.
+     *
+     * @param record the record to write.
+     *
+     * @throws IOException if the channel can not be written.
+     * @throws IllegalArgumentException if record is null.
+     */
+    public void write(final PartnerRecord record) throws IOException {
+        ensureFieldIndexes(ObjectUtils.ensureObject(record, "Must provide a record!").getBatch());
+        ensureHeader();
+
+        format.beginRecord(buffer);
+
+        for (int field = 0; field < fieldNames.length; field++) {
+            format.writeValue(buffer, field, keys[field], computeValue(record, field));
+        }
+
+        format.endRecord(buffer);
+
+        recordCount++;
+    }
+
+    /**
+     * Write every record of <code>cursor</code>, then flush.
+     *
+     * @param cursor the records to write.
+     *
+     * @return the number of records written.
+     *
+     * @throws IOException if the channel can not be written.
+     * @throws IllegalArgumentException if cursor is null.
+     */
+    public long export(final RecordCursor cursor) throws IOException {
+        ObjectUtils.ensureObject(cursor, "Must provide a cursor!");
+
+        final long start = recordCount;
+
+        while (cursor.hasNext()) {
+            write(cursor.next());
+        }
+
+        flush();
+
+        return recordCount - start;
+    }
+
+    /**
+     * Write every record of <code>records</code> - for example a {@link QueryCursor} - then flush.
+     *
+     * @param records the records to write.
+     *
+     * @return the number of records written.
+     *
+     * @throws IOException if the channel can not be written.
+     * @throws IllegalArgumentException if records is null.
+     */
+    public long export(final Iterator<SObject> records) throws IOException {
+        ObjectUtils.ensureObject(records, "Must provide records!");
+
+        final long start = recordCount;
+
+        while (records.hasNext()) {
+            write(records.next());
+        }
+
+        flush();
+
+        return recordCount - start;
+    }
+
+    /**
+     * Write anything buffered, including the header if no records were written, to the channel.
+     *
+     * @throws IOException if the channel can not be written.
+     */
+    public void flush() throws IOException {
+        ensureHeader();
+
+        buffer.flush();
+    }
+
+    /**
+     * Return the number of records written.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Return the number of bytes written to the channel.
+     */
+    public long getBytesWritten() {
+        return buffer.getBytesWritten();
+    }
+
+    /**
+     * Flush - the channel is left open.
+     *
+     * @throws IOException if the channel can not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
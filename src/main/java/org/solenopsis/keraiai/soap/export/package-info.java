@@ -0,0 +1,4 @@
+/**
+ * Streaming partner query results: cursors, decoding without DOM, and export as CSV or NDJSON.
+ */
+package org.solenopsis.keraiai.soap.export;
@@ -0,0 +1,468 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.fleet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import org.flossware.jcore.AbstractCommonBase;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.soap.ApiWebService;
+import org.solenopsis.keraiai.soap.FleetTask;
+import org.solenopsis.keraiai.soap.LoginWebService;
+
+/**
+ * Manages proxy ports for a fleet of organizations, each with its own credentials. Proxy ports are created, and therefore logged
+ * in, lazily. At most a maximum number of sessions are kept active - to make room for another, the least recently used session not
+ * in use is logged out and forgotten, and should all be in use the caller waits until one is released. Memory and logins therefore
+ * scale with active organizations rather than all organizations.
+ *
+ * Work submitted via {@link #submit(Credentials, FleetTask)} is run by a fixed set of daemon workers that serve organizations round
+ * robin, one task at a time per organization, so an organization with much work cannot starve others. Tasks should not wait on
+ * other organizations' sessions: should every active session be held by such a task, none is ever released.
+ *
+ * Organizations are keyed by login URL and user name.
+ *
+ * @author Scot P. Floess
+ */
+public final class FleetManager extends AbstractCommonBase {
+    /**
+     * The web service whose proxy ports are managed.
+     */
+    private final ApiWebService apiWebService;
+
+    /**
+     * Used for logins and logouts.
+     */
+    private final LoginWebService loginWebService;
+
+    /**
+     * Most sessions kept active.
+     */
+    private final int maximumActive;
+
+    /**
+     * Active sessions in least recently used order - guarded by itself.
+     */
+    private final LinkedHashMap<String, FleetSession> sessions;
+
+    /**
+     * Organizations with pending work - guarded by itself.
+     */
+    private final Map<String, OrganizationQueue> queues;
+
+    /**
+     * Organizations with pending work that no worker is serving.
+     */
+    private final BlockingQueue<OrganizationQueue> readyQueue;
+
+    /**
+     * Runs the workers.
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * Compute the key of the organization for <code>credentials</code>.
+     */
+    static String computeKey(final Credentials credentials) {
+        return credentials.getUrl() + '|' + credentials.getUserName();
+    }
+
+    /**
+     * This constructor sets the web service, login web service, most sessions kept active and workers.
+     *
+     * @param apiWebService   the web service whose proxy ports are managed.
+     * @param loginWebService used for logins and logouts.
+     * @param maximumActive   most sessions kept active.
+     * @param workers         total threads running submitted work.
+     *
+     * @throws IllegalArgumentException if apiWebService or loginWebService are null or maximumActive or workers are less than 1.
+     */
+    public FleetManager(final ApiWebService apiWebService, final LoginWebService loginWebService, final int maximumActive, final int workers) {
+        if (maximumActive < 1) {
+            throw new IllegalArgumentException("Maximum active sessions must be at least 1!");
+        }
+
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be at least 1!");
+        }
+
+        this.apiWebService = ObjectUtils.ensureObject(apiWebService, "Must provide an API web service!");
+        this.loginWebService = ObjectUtils.ensureObject(loginWebService, "Must provide a login web service!");
+        this.maximumActive = maximumActive;
+        this.sessions = new LinkedHashMap<>(16, 0.75f, true);
+        this.queues = new HashMap<>();
+        this.readyQueue = new LinkedBlockingQueue<>();
+        this.executorService = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread retVal = new Thread(runnable, "keraiai-fleet-worker");
+
+                retVal.setDaemon(true);
+
+                return retVal;
+            }
+        });
+
+        for (int worker = 0; worker < workers; worker++) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    serve();
+                }
+            });
+        }
+    }
+
+    /**
+     * Return the web service whose proxy ports are managed.
+     *
+     * @return the web service.
+     */
+    public ApiWebService getApiWebService() {
+        return apiWebService;
+    }
+
+    /**
+     * Return the login web service.
+     *
+     * @return the login web service.
+     */
+    public LoginWebService getLoginWebService() {
+        return loginWebService;
+    }
+
+    /**
+     * Return the most sessions kept active.
+     *
+     * @return the most sessions kept active.
+     */
+    public int getMaximumActive() {
+        return maximumActive;
+    }
+
+    /**
+     * Return the total sessions active.
+     *
+     * @return the total sessions active.
+     */
+    public int getActiveCount() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    /**
+     * Return true if another session may be made active: fewer than the most are active, or one is not in use and so may be evicted
+     * - must hold the lock on sessions.
+     */
+    boolean isRoomAvailable() {
+        if (sessions.size() < getMaximumActive()) {
+            return true;
+        }
+
+        for (final FleetSession session : sessions.values()) {
+            if (!session.isInUse()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Remove, least recently used first, sessions not in use while too many are active - must hold the lock on sessions.
+     */
+    List<FleetSession> computeEvictions() {
+        final List<FleetSession> retVal = new ArrayList<>();
+        final Iterator<FleetSession> iter = sessions.values().iterator();
+
+        while (sessions.size() > getMaximumActive() && iter.hasNext()) {
+            final FleetSession session = iter.next();
+
+            if (!session.isInUse()) {
+                iter.remove();
+                retVal.add(session);
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Log out of <code>evictions</code> that logged in.
+     */
+    void logout(final List<FleetSession> evictions) {
+        for (final FleetSession session : evictions) {
+            final Object proxyPort = session.getProxyPort();
+
+            if (null == proxyPort) {
+                continue;
+            }
+
+            log(Level.FINE, "Logging out of [{0}]", session.getCredentials().getUserName());
+
+            try {
+                getLoginWebService().logout((LoginContext) proxyPort);
+            } catch (final RuntimeException logoutFailure) {
+                log(Level.WARNING, logoutFailure, "Trouble logging out of [{0}]", session.getCredentials().getUserName());
+            }
+        }
+    }
+
+    /**
+     * Return the session for <code>credentials</code>, creating if needed, marked as in use. Should the most sessions be active and
+     * all in use, wait until one is released.
+     *
+     * @throws IllegalStateException if interrupted waiting.
+     */
+    FleetSession acquire(final Credentials credentials) {
+        final String key = computeKey(credentials);
+        final FleetSession retVal;
+        final List<FleetSession> evictions;
+
+        synchronized (sessions) {
+            FleetSession session = sessions.get(key);
+
+            while (null == session && !isRoomAvailable()) {
+                log(Level.FINE, "All [{0}] sessions in use, waiting to activate [{1}]", getMaximumActive(), credentials.getUserName());
+
+                try {
+                    sessions.wait();
+                } catch (final InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+
+                    throw new IllegalStateException("Interrupted waiting for a session for [" + credentials.getUserName() + "]", interruptedException);
+                }
+
+                session = sessions.get(key);
+            }
+
+            if (null == session) {
+                session = new FleetSession(credentials);
+                sessions.put(key, session);
+            }
+
+            session.acquire();
+
+            retVal = session;
+            evictions = computeEvictions();
+        }
+
+        logout(evictions);
+
+        return retVal;
+    }
+
+    /**
+     * Mark <code>session</code> as no longer in use.
+     */
+    void release(final FleetSession session) {
+        final List<FleetSession> evictions;
+
+        synchronized (sessions) {
+            session.release();
+
+            evictions = computeEvictions();
+
+            sessions.notifyAll();
+        }
+
+        logout(evictions);
+    }
+
+    /**
+     * Serve organizations with pending work, round robin, until interrupted.
+     */
+    void serve() {
+        while (!Thread.currentThread().isInterrupted()) {
+            final OrganizationQueue organizationQueue;
+
+            try {
+                organizationQueue = readyQueue.take();
+            } catch (final InterruptedException interruptedException) {
+                return;
+            }
+
+            final Runnable task;
+
+            synchronized (queues) {
+                task = organizationQueue.getTasks().poll();
+            }
+
+            try {
+                task.run();
+            } finally {
+                synchronized (queues) {
+                    if (organizationQueue.getTasks().isEmpty()) {
+                        queues.remove(organizationQueue.getKey());
+                    } else {
+                        readyQueue.add(organizationQueue);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the proxy port for <code>credentials</code>, creating if needed - waiting, should the most sessions be active and all in
+     * use, until one is released. The proxy port may later be evicted and logged out;
+     * if still used, it will log in again on its own, outside of the bound on active sessions - callers wanting that bound
+     * honored should use {@link #submit(Credentials, FleetTask)}.
+     *
+     * @param <P>         the type of port.
+     *
+     * @param credentials the organization's credentials.
+     *
+     * @return the proxy port.
+     *
+     * @throws IllegalArgumentException if credentials is null.
+     * @throws IllegalStateException if interrupted waiting for a session.
+     */
+    public <P> P getProxyPort(final Credentials credentials) {
+        final FleetSession session = acquire(ObjectUtils.ensureObject(credentials, "Must provide credentials!"));
+
+        try {
+            return session.getProxyPort(getApiWebService(), getLoginWebService());
+        } finally {
+            release(session);
+        }
+    }
+
+    /**
+     * Queue <code>fleetTask</code> to run against the proxy port for <code>credentials</code>. The session is kept active while the
+     * task runs.
+     *
+     * @param <P>         the type of port.
+     * @param <V>         the type of result.
+     *
+     * @param credentials the organization's credentials.
+     * @param fleetTask   the work to run.
+     *
+     * @return the result of the work.
+     *
+     * @throws IllegalArgumentException if credentials or fleetTask are null.
+     * @throws IllegalStateException    if shut down.
+     */
+    public <P, V> Future<V> submit(final Credentials credentials, final FleetTask<P, V> fleetTask) {
+        ObjectUtils.ensureObject(credentials, "Must provide credentials!");
+        ObjectUtils.ensureObject(fleetTask, "Must provide a task!");
+
+        if (executorService.isShutdown()) {
+            throw new IllegalStateException("Fleet manager has been shut down!");
+        }
+
+        final FutureTask<V> retVal = new FutureTask<>(new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                final FleetSession session = acquire(credentials);
+
+                try {
+                    return fleetTask.call(session.<P>getProxyPort(getApiWebService(), getLoginWebService()));
+                } finally {
+                    release(session);
+                }
+            }
+        });
+
+        final String key = computeKey(credentials);
+
+        synchronized (queues) {
+            OrganizationQueue organizationQueue = queues.get(key);
+
+            if (null == organizationQueue) {
+                organizationQueue = new OrganizationQueue(key);
+                queues.put(key, organizationQueue);
+                readyQueue.add(organizationQueue);
+            }
+
+            organizationQueue.getTasks().add(retVal);
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Log out of and forget the session for <code>credentials</code>, if active and not in use.
+     *
+     * @param credentials the organization's credentials.
+     *
+     * @return true if evicted.
+     */
+    public boolean evict(final Credentials credentials) {
+        final String key = computeKey(ObjectUtils.ensureObject(credentials, "Must provide credentials!"));
+        final List<FleetSession> evictions = new ArrayList<>();
+
+        synchronized (sessions) {
+            final FleetSession session = sessions.get(key);
+
+            if (null != session && !session.isInUse()) {
+                sessions.remove(key);
+                evictions.add(session);
+
+                sessions.notifyAll();
+            }
+        }
+
+        logout(evictions);
+
+        return !evictions.isEmpty();
+    }
+
+    /**
+     * Stop the workers, cancel pending work and log out of all sessions.
+     */
+    public void shutdown() {
+        executorService.shutdownNow();
+
+        synchronized (queues) {
+            for (final OrganizationQueue organizationQueue : queues.values()) {
+                for (final Runnable task : organizationQueue.getTasks()) {
+                    ((Future) task).cancel(false);
+                }
+            }
+
+            queues.clear();
+            readyQueue.clear();
+        }
+
+        final List<FleetSession> evictions;
+
+        synchronized (sessions) {
+            evictions = new ArrayList<>(sessions.values());
+            sessions.clear();
+
+            sessions.notifyAll();
+        }
+
+        logout(evictions);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.fleet;
+
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.soap.ApiWebService;
+import org.solenopsis.keraiai.soap.LoginWebService;
+
+/**
+ * An organization's session in the fleet: its credentials and lazily created proxy port.
+ *
+ * @author Scot P. Floess
+ */
+final class FleetSession {
+    /**
+     * The credentials.
+     */
+    private final Credentials credentials;
+
+    /**
+     * The proxy port - null until first needed.
+     */
+    private volatile Object proxyPort;
+
+    /**
+     * Callers currently using the proxy port - guarded by the fleet manager's sessions.
+     */
+    private int inUse;
+
+    /**
+     * This constructor sets the credentials.
+     *
+     * @param credentials the credentials.
+     */
+    FleetSession(final Credentials credentials) {
+        this.credentials = credentials;
+    }
+
+    /**
+     * Return the credentials.
+     */
+    Credentials getCredentials() {
+        return credentials;
+    }
+
+    /**
+     * Return the proxy port, creating (and therefore logging in) if needed.
+     */
+    synchronized <P> P getProxyPort(final ApiWebService apiWebService, final LoginWebService loginWebService) {
+        if (null == proxyPort) {
+            proxyPort = apiWebService.createProxyPort(getCredentials(), loginWebService);
+        }
+
+        return (P) proxyPort;
+    }
+
+    /**
+     * Return the proxy port if created.
+     */
+    Object getProxyPort() {
+        return proxyPort;
+    }
+
+    /**
+     * Return true if callers are using the proxy port.
+     */
+    boolean isInUse() {
+        return inUse > 0;
+    }
+
+    /**
+     * Note a caller is using the proxy port.
+     */
+    void acquire() {
+        inUse++;
+    }
+
+    /**
+     * Note a caller is done using the proxy port.
+     */
+    void release() {
+        inUse--;
+    }
+}
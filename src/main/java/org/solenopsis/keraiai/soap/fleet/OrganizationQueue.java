@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.fleet;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Work pending for one organization. Exists only while work is pending.
+ *
+ * @author Scot P. Floess
+ */
+final class OrganizationQueue {
+    /**
+     * The organization's key in the fleet.
+     */
+    private final String key;
+
+    /**
+     * Pending work - guarded by the fleet manager's queues.
+     */
+    private final Queue<Runnable> tasks;
+
+    /**
+     * This constructor sets the key.
+     *
+     * @param key the organization's key in the fleet.
+     */
+    OrganizationQueue(final String key) {
+        this.key = key;
+        this.tasks = new ArrayDeque<>();
+    }
+
+    /**
+     * Return the organization's key in the fleet.
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Return the pending work.
+     */
+    Queue<Runnable> getTasks() {
+        return tasks;
+    }
+}
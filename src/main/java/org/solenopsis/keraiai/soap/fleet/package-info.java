@@ -0,0 +1,5 @@
+/**
+ * Management of proxy ports across a fleet of organizations: a bounded set of active sessions, evicted least recently used, with
+ * work scheduled fairly per organization.
+ */
+package org.solenopsis.keraiai.soap.fleet;
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.jfr;
+
+import java.lang.reflect.Method;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.flossware.jcore.utils.LoggerUtils;
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.soap.utils.LoginContextUtils;
+
+/**
+ * Emits Java Flight Recorder events. Each begin returns an opaque event to hand to the matching commit - null when JFR is not
+ * available in this JVM or the event is not enabled in any recording, in which case commit does nothing. Event fields are only
+ * computed when an event will be committed.
+ *
+ * @author Scot P. Floess
+ */
+public final class JfrEvents {
+    /**
+     * Outcome of successful calls, logins and logouts.
+     */
+    public static final String SUCCESS = "SUCCESS";
+
+    /**
+     * Outcome of failed logins and logouts.
+     */
+    public static final String FAILURE = "FAILURE";
+
+    /**
+     * Our logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(JfrEvents.class.getName());
+
+    /**
+     * True if JFR is available.
+     */
+    private static final boolean AVAILABLE = computeAvailable();
+
+    /**
+     * Return the logger.
+     */
+    private static Logger getLogger() {
+        return LOGGER;
+    }
+
+    /**
+     * Compute if JFR is available.
+     */
+    static boolean computeAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, JfrEvents.class.getClassLoader());
+
+            return true;
+        } catch (final ClassNotFoundException | LinkageError failure) {
+            LoggerUtils.log(getLogger(), Level.FINE, "JFR not available - no events will be emitted");
+
+            return false;
+        }
+    }
+
+    /**
+     * Return true if JFR is available in this JVM.
+     *
+     * @return true if JFR is available.
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Compute the user name from <code>credentials</code>.
+     *
+     * @param credentials the credentials - may be null.
+     *
+     * @return the user name or an empty string if unknown.
+     */
+    static String computeUserName(final Credentials credentials) {
+        return null == credentials ? "" : credentials.getUserName();
+    }
+
+    /**
+     * Begin an attempt of a call made through a proxy port.
+     *
+     * @return the event or null if not recording.
+     */
+    public static Object beginCall() {
+        return AVAILABLE ? JfrRecorder.beginCall() : null;
+    }
+
+    /**
+     * Commit an attempt of a call made through a proxy port.
+     *
+     * @param event        returned from {@link #beginCall()}.
+     * @param portType     the port type called.
+     * @param method       the method called.
+     * @param loginContext the login context used.
+     * @param attempt      the attempt - 1 is the first.
+     * @param outcome      {@link #SUCCESS} or the failure category.
+     */
+    public static void commitCall(final Object event, final Class portType, final Method method, final LoginContext loginContext, final int attempt, final String outcome) {
+        if (null != event) {
+            JfrRecorder.commitCall(event, portType.getName(), method.getName(), LoginContextUtils.computeOrganizationId(loginContext), attempt, outcome);
+        }
+    }
+
+    /**
+     * Begin a login.
+     *
+     * @return the event or null if not recording.
+     */
+    public static Object beginLogin() {
+        return AVAILABLE ? JfrRecorder.beginLogin() : null;
+    }
+
+    /**
+     * Commit a login.
+     *
+     * @param event        returned from {@link #beginLogin()}.
+     * @param webService   the login web service.
+     * @param url          the login URL.
+     * @param credentials  the credentials used.
+     * @param loginContext the resulting login context - null if the login failed.
+     */
+    public static void commitLogin(final Object event, final Enum webService, final String url, final Credentials credentials, final LoginContext loginContext) {
+        if (null != event) {
+            JfrRecorder.commitLogin(event, webService.name(), url, computeUserName(credentials), LoginContextUtils.computeOrganizationId(loginContext), null == loginContext ? FAILURE : SUCCESS);
+        }
+    }
+
+    /**
+     * Begin a logout.
+     *
+     * @return the event or null if not recording.
+     */
+    public static Object beginLogout() {
+        return AVAILABLE ? JfrRecorder.beginLogout() : null;
+    }
+
+    /**
+     * Commit a logout.
+     *
+     * @param event        returned from {@link #beginLogout()}.
+     * @param webService   the login web service.
+     * @param loginContext the login context logged out.
+     * @param isSuccess    true if the logout succeeded.
+     */
+    public static void commitLogout(final Object event, final Enum webService, final LoginContext loginContext, final boolean isSuccess) {
+        if (null != event) {
+            JfrRecorder.commitLogout(event, webService.name(), computeUserName(loginContext.getCredentials()), LoginContextUtils.computeOrganizationId(loginContext), isSuccess ? SUCCESS : FAILURE);
+        }
+    }
+
+    /**
+     * Begin creating a session port.
+     *
+     * @return the event or null if not recording.
+     */
+    public static Object beginSessionPort() {
+        return AVAILABLE ? JfrRecorder.beginSessionPort() : null;
+    }
+
+    /**
+     * Commit creating a session port.
+     *
+     * @param event    returned from {@link #beginSessionPort()}.
+     * @param portType the port type created.
+     * @param url      the URL of the port.
+     */
+    public static void commitSessionPort(final Object event, final Class portType, final String url) {
+        if (null != event) {
+            JfrRecorder.commitSessionPort(event, portType.getName(), url);
+        }
+    }
+
+    /**
+     * Default constructor not allowed.
+     */
+    private JfrEvents() {
+    }
+}
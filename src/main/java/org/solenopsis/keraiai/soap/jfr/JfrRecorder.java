@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+
+/**
+ * Creates and commits our events. Only loaded when JFR is available - see {@link JfrEvents}. Event types are checked before
+ * creating an event, so nothing is allocated unless the event is enabled in a running recording.
+ *
+ * @author Scot P. Floess
+ */
+final class JfrRecorder {
+    /**
+     * The SOAP call event type.
+     */
+    static final EventType SOAP_CALL_EVENT_TYPE = EventType.getEventType(SoapCallEvent.class);
+
+    /**
+     * The login event type.
+     */
+    static final EventType LOGIN_EVENT_TYPE = EventType.getEventType(LoginEvent.class);
+
+    /**
+     * The logout event type.
+     */
+    static final EventType LOGOUT_EVENT_TYPE = EventType.getEventType(LogoutEvent.class);
+
+    /**
+     * The session port event type.
+     */
+    static final EventType SESSION_PORT_EVENT_TYPE = EventType.getEventType(SessionPortEvent.class);
+
+    /**
+     * Begin <code>event</code>.
+     *
+     * @return the event.
+     */
+    static <E extends Event> E begin(final E event) {
+        event.begin();
+
+        return event;
+    }
+
+    /**
+     * Begin a SOAP call event.
+     */
+    static Object beginCall() {
+        return SOAP_CALL_EVENT_TYPE.isEnabled() ? begin(new SoapCallEvent()) : null;
+    }
+
+    /**
+     * Commit a SOAP call event.
+     */
+    static void commitCall(final Object event, final String portType, final String operation, final String organization, final int attempt, final String outcome) {
+        final SoapCallEvent callEvent = (SoapCallEvent) event;
+
+        callEvent.end();
+
+        if (callEvent.shouldCommit()) {
+            callEvent.portType = portType;
+            callEvent.operation = operation;
+            callEvent.organization = organization;
+            callEvent.attempt = attempt;
+            callEvent.outcome = outcome;
+            callEvent.commit();
+        }
+    }
+
+    /**
+     * Begin a login event.
+     */
+    static Object beginLogin() {
+        return LOGIN_EVENT_TYPE.isEnabled() ? begin(new LoginEvent()) : null;
+    }
+
+    /**
+     * Commit a login event.
+     */
+    static void commitLogin(final Object event, final String webService, final String url, final String userName, final String organization, final String outcome) {
+        final LoginEvent loginEvent = (LoginEvent) event;
+
+        loginEvent.end();
+
+        if (loginEvent.shouldCommit()) {
+            loginEvent.webService = webService;
+            loginEvent.url = url;
+            loginEvent.userName = userName;
+            loginEvent.organization = organization;
+            loginEvent.outcome = outcome;
+            loginEvent.commit();
+        }
+    }
+
+    /**
+     * Begin a logout event.
+     */
+    static Object beginLogout() {
+        return LOGOUT_EVENT_TYPE.isEnabled() ? begin(new LogoutEvent()) : null;
+    }
+
+    /**
+     * Commit a logout event.
+     */
+    static void commitLogout(final Object event, final String webService, final String userName, final String organization, final String outcome) {
+        final LogoutEvent logoutEvent = (LogoutEvent) event;
+
+        logoutEvent.end();
+
+        if (logoutEvent.shouldCommit()) {
+            logoutEvent.webService = webService;
+            logoutEvent.userName = userName;
+            logoutEvent.organization = organization;
+            logoutEvent.outcome = outcome;
+            logoutEvent.commit();
+        }
+    }
+
+    /**
+     * Begin a session port event.
+     */
+    static Object beginSessionPort() {
+        return SESSION_PORT_EVENT_TYPE.isEnabled() ? begin(new SessionPortEvent()) : null;
+    }
+
+    /**
+     * Commit a session port event.
+     */
+    static void commitSessionPort(final Object event, final String portType, final String url) {
+        final SessionPortEvent sessionPortEvent = (SessionPortEvent) event;
+
+        sessionPortEvent.end();
+
+        if (sessionPortEvent.shouldCommit()) {
+            sessionPortEvent.portType = portType;
+            sessionPortEvent.url = url;
+            sessionPortEvent.commit();
+        }
+    }
+
+    /**
+     * Default constructor not allowed.
+     */
+    private JfrRecorder() {
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A logout.
+ *
+ * @author Scot P. Floess
+ */
+@Name("org.solenopsis.keraiai.Logout")
+@Label("Salesforce Logout")
+@Category("Keraiai")
+@Description("A logout.")
+final class LogoutEvent extends Event {
+    /**
+     * The login web service.
+     */
+    @Label("Web Service")
+    String webService;
+
+    /**
+     * The user logging out.
+     */
+    @Label("User Name")
+    String userName;
+
+    /**
+     * The organization id.
+     */
+    @Label("Organization")
+    String organization;
+
+    /**
+     * SUCCESS or FAILURE.
+     */
+    @Label("Outcome")
+    String outcome;
+}
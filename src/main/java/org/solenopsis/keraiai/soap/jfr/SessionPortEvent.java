@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Creation of a port using a session id.
+ *
+ * @author Scot P. Floess
+ */
+@Name("org.solenopsis.keraiai.SessionPort")
+@Label("Salesforce Session Port")
+@Category("Keraiai")
+@Description("Creation of a port using a session id.")
+final class SessionPortEvent extends Event {
+    /**
+     * The port type created.
+     */
+    @Label("Port Type")
+    String portType;
+
+    /**
+     * The URL of the port.
+     */
+    @Label("URL")
+    String url;
+}
@@ -0,0 +1,4 @@
+/**
+ * Java Flight Recorder events for SOAP calls, logins, logouts and session port creation - only emitted on JVMs providing JFR.
+ */
+package org.solenopsis.keraiai.soap.jfr;
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.limits;
+
+import org.flossware.jcore.utils.StringUtils;
+
+/**
+ * The usage of one limit of an organization as last reported by SFDC.
+ *
+ * @author Scot P. Floess
+ */
+public final class ApiLimit {
+    /**
+     * The type of the daily API request limit.
+     */
+    public static final String API_REQUESTS = "API REQUESTS";
+
+    /**
+     * The organization id.
+     */
+    private final String organizationId;
+
+    /**
+     * The type of limit - for example {@link #API_REQUESTS}.
+     */
+    private final String type;
+
+    /**
+     * Current usage.
+     */
+    private final int current;
+
+    /**
+     * The limit.
+     */
+    private final int limit;
+
+    /**
+     * When reported, in milliseconds since the epoch.
+     */
+    private final long timestamp;
+
+    /**
+     * This constructor sets all values.
+     *
+     * @param organizationId the organization id.
+     * @param type           the type of limit.
+     * @param current        current usage.
+     * @param limit          the limit.
+     * @param timestamp      when reported, in milliseconds since the epoch.
+     *
+     * @throws IllegalArgumentException if organizationId or type is null, empty or blank.
+     */
+    public ApiLimit(final String organizationId, final String type, final int current, final int limit, final long timestamp) {
+        this.organizationId = StringUtils.ensureString(organizationId, "Must provide an organization id!");
+        this.type = StringUtils.ensureString(type, "Must provide a type!");
+        this.current = current;
+        this.limit = limit;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Return the organization id.
+     *
+     * @return the organization id.
+     */
+    public String getOrganizationId() {
+        return organizationId;
+    }
+
+    /**
+     * Return the type of limit.
+     *
+     * @return the type of limit.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Return the current usage.
+     *
+     * @return the current usage.
+     */
+    public int getCurrent() {
+        return current;
+    }
+
+    /**
+     * Return the limit.
+     *
+     * @return the limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Return when reported, in milliseconds since the epoch.
+     *
+     * @return when reported.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Return how much remains before the limit is reached.
+     *
+     * @return the remaining usage - never negative.
+     */
+    public int getRemaining() {
+        return Math.max(0, limit - current);
+    }
+
+    /**
+     * Return the ratio of usage to limit.
+     *
+     * @return the ratio of usage to limit - 0 if there is no limit.
+     */
+    public double getRatio() {
+        return limit <= 0 ? 0 : (double) current / limit;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return organizationId + " " + type + " [" + current + "/" + limit + "]";
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.limits;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Slows callers as API usage nears the limit: no delay below the threshold, rising linearly to the maximum delay as usage reaches
+ * the limit.
+ *
+ * @author Scot P. Floess
+ */
+public final class ApiLimitThrottle {
+    /**
+     * Ratio of usage to limit at which callers are slowed.
+     */
+    private final double threshold;
+
+    /**
+     * Delay, in milliseconds, once usage reaches the limit.
+     */
+    private final long maximumDelay;
+
+    /**
+     * This constructor sets the threshold and maximum delay.
+     *
+     * @param threshold    ratio of usage to limit, between 0 (exclusive) and 1 (inclusive), at which callers are slowed.
+     * @param maximumDelay delay, in milliseconds, once usage reaches the limit.
+     *
+     * @throws IllegalArgumentException if threshold is not within range or maximumDelay is negative.
+     */
+    public ApiLimitThrottle(final double threshold, final long maximumDelay) {
+        if (threshold <= 0 || threshold > 1) {
+            throw new IllegalArgumentException("Threshold must be greater than 0 and at most 1!");
+        }
+
+        if (maximumDelay < 0) {
+            throw new IllegalArgumentException("Maximum delay cannot be negative!");
+        }
+
+        this.threshold = threshold;
+        this.maximumDelay = maximumDelay;
+    }
+
+    /**
+     * Return the ratio of usage to limit at which callers are slowed.
+     *
+     * @return the threshold.
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Return the delay, in milliseconds, once usage reaches the limit.
+     *
+     * @return the maximum delay.
+     */
+    public long getMaximumDelay() {
+        return maximumDelay;
+    }
+
+    /**
+     * Compute the delay, in milliseconds, for <code>apiLimit</code>.
+     *
+     * @param apiLimit the usage - may be null if not yet known.
+     *
+     * @return the delay.
+     */
+    public long computeDelay(final ApiLimit apiLimit) {
+        if (null == apiLimit || apiLimit.getRatio() < getThreshold()) {
+            return 0;
+        }
+
+        if (apiLimit.getRatio() >= 1 || 1 == getThreshold()) {
+            return getMaximumDelay();
+        }
+
+        return Math.round(getMaximumDelay() * (apiLimit.getRatio() - getThreshold()) / (1 - getThreshold()));
+    }
+
+    /**
+     * Delay the calling thread per the usage in <code>apiLimit</code>.
+     *
+     * @param apiLimit the usage - may be null if not yet known.
+     */
+    public void throttle(final ApiLimit apiLimit) {
+        throttle(apiLimit, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Delay the calling thread per the usage in <code>apiLimit</code>, but no longer than <code>timeout</code>.
+     *
+     * @param apiLimit the usage - may be null if not yet known.
+     * @param timeout  the longest delay.
+     * @param unit     the unit of timeout.
+     */
+    public void throttle(final ApiLimit apiLimit, final long timeout, final TimeUnit unit) {
+        final long delay = Math.min(TimeUnit.MILLISECONDS.toNanos(computeDelay(apiLimit)), unit.toNanos(timeout));
+
+        if (delay <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        } catch (final InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.limits;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.xml.ws.handler.Handler;
+import org.flossware.jcore.utils.StringUtils;
+
+/**
+ * Holds the API usage last reported for each organization, and the throttle, if any, applied to callers. Usage is only reported by
+ * session ports created while {@link org.solenopsis.keraiai.soap.session.SessionPortFactory#setLimitInfoTracking(boolean)} is on.
+ *
+ * @author Scot P. Floess
+ */
+public final class ApiLimits {
+    /**
+     * Usage per organization id, then per type of limit.
+     */
+    private static final ConcurrentMap<String, ConcurrentMap<String, ApiLimit>> API_LIMITS = new ConcurrentHashMap<>();
+
+    /**
+     * The throttle applied to callers - null means none.
+     */
+    private static final AtomicReference<ApiLimitThrottle> THROTTLE = new AtomicReference<>();
+
+    /**
+     * Return the usage per type of limit for <code>organizationId</code>, creating if needed.
+     */
+    static ConcurrentMap<String, ApiLimit> getOrganizationLimits(final String organizationId) {
+        ConcurrentMap<String, ApiLimit> retVal = API_LIMITS.get(organizationId);
+
+        if (null == retVal) {
+            final ConcurrentMap<String, ApiLimit> newLimits = new ConcurrentHashMap<>();
+
+            retVal = API_LIMITS.putIfAbsent(organizationId, newLimits);
+
+            if (null == retVal) {
+                retVal = newLimits;
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Record usage reported by SFDC.
+     *
+     * @param apiLimit the usage.
+     */
+    static void record(final ApiLimit apiLimit) {
+        getOrganizationLimits(apiLimit.getOrganizationId()).put(apiLimit.getType(), apiLimit);
+    }
+
+    /**
+     * Create a handler that records the usage reported in responses for <code>organizationId</code>.
+     *
+     * @param organizationId the organization id.
+     *
+     * @return the handler.
+     *
+     * @throws IllegalArgumentException if organizationId is null, empty or blank.
+     */
+    public static Handler createLimitInfoHandler(final String organizationId) {
+        return new LimitInfoSoapHeaderHandler(organizationId);
+    }
+
+    /**
+     * Return the last reported usage of <code>type</code> for <code>organizationId</code>.
+     *
+     * @param organizationId the organization id.
+     * @param type           the type of limit.
+     *
+     * @return the usage or null if none reported.
+     */
+    public static ApiLimit getApiLimit(final String organizationId, final String type) {
+        final ConcurrentMap<String, ApiLimit> organizationLimits = API_LIMITS.get(organizationId);
+
+        return null == organizationLimits ? null : organizationLimits.get(type);
+    }
+
+    /**
+     * Return the last reported daily API request usage for <code>organizationId</code>.
+     *
+     * @param organizationId the organization id.
+     *
+     * @return the usage or null if none reported.
+     */
+    public static ApiLimit getApiLimit(final String organizationId) {
+        return getApiLimit(organizationId, ApiLimit.API_REQUESTS);
+    }
+
+    /**
+     * Return all usage last reported.
+     *
+     * @return all usage.
+     */
+    public static List<ApiLimit> getApiLimits() {
+        final List<ApiLimit> retVal = new ArrayList<>();
+
+        for (final ConcurrentMap<String, ApiLimit> organizationLimits : API_LIMITS.values()) {
+            retVal.addAll(organizationLimits.values());
+        }
+
+        return Collections.unmodifiableList(retVal);
+    }
+
+    /**
+     * Forget all usage reported for <code>organizationId</code>.
+     *
+     * @param organizationId the organization id.
+     */
+    public static void clear(final String organizationId) {
+        API_LIMITS.remove(StringUtils.ensureString(organizationId, "Must provide an organization id!"));
+    }
+
+    /**
+     * Return the throttle applied to callers.
+     *
+     * @return the throttle or null if none.
+     */
+    public static ApiLimitThrottle getThrottle() {
+        return THROTTLE.get();
+    }
+
+    /**
+     * Set the throttle applied to callers.
+     *
+     * @param throttle the throttle - null to no longer throttle.
+     */
+    public static void setThrottle(final ApiLimitThrottle throttle) {
+        THROTTLE.set(throttle);
+    }
+
+    /**
+     * Delay the calling thread, if a throttle is set, per the daily API request usage of <code>organizationId</code>.
+     *
+     * @param organizationId the organization id.
+     */
+    public static void throttle(final String organizationId) {
+        throttle(organizationId, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Delay the calling thread, if a throttle is set, per the daily API request usage of <code>organizationId</code> - but no
+     * longer than <code>timeout</code>.
+     *
+     * @param organizationId the organization id.
+     * @param timeout        the longest delay.
+     * @param unit           the unit of timeout.
+     */
+    public static void throttle(final String organizationId, final long timeout, final TimeUnit unit) {
+        final ApiLimitThrottle throttle = getThrottle();
+
+        if (null != throttle) {
+            throttle.throttle(getApiLimit(organizationId), timeout, unit);
+        }
+    }
+
+    /**
+     * Default constructor not allowed.
+     */
+    private ApiLimits() {
+    }
+}
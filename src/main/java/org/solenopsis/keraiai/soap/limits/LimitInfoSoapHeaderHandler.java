@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.limits;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPElement;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPHeader;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.handler.soap.SOAPHandler;
+import javax.xml.ws.handler.soap.SOAPMessageContext;
+import org.flossware.jcore.utils.StringUtils;
+
+/**
+ * Records the usage in the <code>LimitInfoHeader</code> of inbound messages. Header elements are matched by local name, so this
+ * works for both the partner and enterprise namespaces.
+ *
+ * @author Scot P. Floess
+ */
+final class LimitInfoSoapHeaderHandler implements SOAPHandler<SOAPMessageContext> {
+    /**
+     * The inbound header.
+     */
+    static final String LIMIT_INFO_HEADER = "LimitInfoHeader";
+
+    /**
+     * Each limit in the header.
+     */
+    static final String LIMIT_INFO = "limitInfo";
+
+    /**
+     * Our logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(LimitInfoSoapHeaderHandler.class.getName());
+
+    /**
+     * The organization whose usage is reported.
+     */
+    private final String organizationId;
+
+    /**
+     * Return the LOGGER.
+     */
+    private static Logger getLogger() {
+        return LOGGER;
+    }
+
+    /**
+     * Return the first child of <code>element</code> named <code>localName</code>.
+     *
+     * @return the child or null if not found.
+     */
+    static SOAPElement findChild(final SOAPElement element, final String localName) {
+        final Iterator childIter = element.getChildElements();
+
+        while (childIter.hasNext()) {
+            final Object child = childIter.next();
+
+            if (child instanceof SOAPElement && localName.equals(((SOAPElement) child).getLocalName())) {
+                return (SOAPElement) child;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Return the value of the child of <code>element</code> named <code>localName</code>.
+     *
+     * @return the value or null if not found.
+     */
+    static String findValue(final SOAPElement element, final String localName) {
+        final SOAPElement child = findChild(element, localName);
+
+        return null == child ? null : child.getValue();
+    }
+
+    /**
+     * Return the organization whose usage is reported.
+     */
+    String getOrganizationId() {
+        return organizationId;
+    }
+
+    /**
+     * Record the usage in <code>soapHeader</code>.
+     */
+    void record(final SOAPHeader soapHeader, final long timestamp) {
+        final SOAPElement limitInfoHeader = findChild(soapHeader, LIMIT_INFO_HEADER);
+
+        if (null == limitInfoHeader) {
+            return;
+        }
+
+        final Iterator limitInfoIter = limitInfoHeader.getChildElements();
+
+        while (limitInfoIter.hasNext()) {
+            final Object limitInfo = limitInfoIter.next();
+
+            if (limitInfo instanceof SOAPElement && LIMIT_INFO.equals(((SOAPElement) limitInfo).getLocalName())) {
+                final String current = findValue((SOAPElement) limitInfo, "current");
+                final String limit = findValue((SOAPElement) limitInfo, "limit");
+                final String type = findValue((SOAPElement) limitInfo, "type");
+
+                if (null != current && null != limit && null != type) {
+                    ApiLimits.record(new ApiLimit(getOrganizationId(), type, Integer.parseInt(current.trim()), Integer.parseInt(limit.trim()), timestamp));
+                }
+            }
+        }
+    }
+
+    /**
+     * This constructor sets the organization whose usage is reported.
+     *
+     * @param organizationId the organization id.
+     *
+     * @throws IllegalArgumentException if organizationId is null, empty or blank.
+     */
+    LimitInfoSoapHeaderHandler(final String organizationId) {
+        this.organizationId = StringUtils.ensureString(organizationId, "Must provide an organization id!");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<QName> getHeaders() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean handleMessage(final SOAPMessageContext context) {
+        if ((Boolean) context.get(MessageContext.MESSAGE_OUTBOUND_PROPERTY)) {
+            return true;
+        }
+
+        try {
+            final SOAPHeader soapHeader = context.getMessage().getSOAPHeader();
+
+            if (null != soapHeader) {
+                record(soapHeader, System.currentTimeMillis());
+            }
+        } catch (final SOAPException | RuntimeException exception) {
+            getLogger().log(Level.FINE, "Trouble processing limit info header", exception);
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean handleFault(final SOAPMessageContext context) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close(final MessageContext context) {
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.limits;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.flossware.jcore.utils.ObjectUtils;
+
+/**
+ * Rate limit for one organization: a token bucket whose rate adapts to overload, plus a semaphore bounding calls in flight. Callers
+ * {@link #acquire()} before a call and {@link #release()} after, then report the outcome via {@link #recordSuccess()} or
+ * {@link #recordOverload()}.
+ *
+ * @author Scot P. Floess
+ */
+public final class OrganizationRateLimiter {
+    /**
+     * Nanoseconds that must pass between decreases of the rate, so a wave of overload failures from calls already in flight only
+     * decreases the rate once.
+     */
+    static final long DECREASE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * The organization id.
+     */
+    private final String organizationId;
+
+    /**
+     * Our settings.
+     */
+    private final RateLimitConfiguration rateLimitConfiguration;
+
+    /**
+     * Bounds calls in flight.
+     */
+    private final Semaphore concurrency;
+
+    /**
+     * Current requests per second - guarded by this.
+     */
+    private double rate;
+
+    /**
+     * Tokens in the bucket, negative when callers are waiting on tokens already reserved - guarded by this.
+     */
+    private double tokens;
+
+    /**
+     * When, in nanoseconds, tokens were last added - guarded by this.
+     */
+    private long refillTime;
+
+    /**
+     * When, in nanoseconds, the rate was last decreased - guarded by this.
+     */
+    private long decreaseTime;
+
+    /**
+     * This constructor sets the organization id and settings, starting with a full bucket at the configured rate.
+     *
+     * @param organizationId         the organization id.
+     * @param rateLimitConfiguration our settings.
+     *
+     * @throws IllegalArgumentException if organizationId or rateLimitConfiguration are null.
+     */
+    public OrganizationRateLimiter(final String organizationId, final RateLimitConfiguration rateLimitConfiguration) {
+        this.organizationId = ObjectUtils.ensureObject(organizationId, "Must provide an organization id!");
+        this.rateLimitConfiguration = ObjectUtils.ensureObject(rateLimitConfiguration, "Must provide a rate limit configuration!");
+        this.concurrency = new Semaphore(rateLimitConfiguration.getMaximumConcurrency(), true);
+        this.rate = rateLimitConfiguration.getRequestsPerSecond();
+        this.tokens = rateLimitConfiguration.getBurst();
+        this.refillTime = System.nanoTime();
+        this.decreaseTime = refillTime - DECREASE_INTERVAL;
+    }
+
+    /**
+     * Add tokens accrued at the current rate since last refilled - must hold the lock on this.
+     */
+    void refill(final long now) {
+        tokens = Math.min(getRateLimitConfiguration().getBurst(), tokens + (now - refillTime) * rate / TimeUnit.SECONDS.toNanos(1));
+        refillTime = now;
+    }
+
+    /**
+     * Take a token, returning the nanoseconds to wait until it is available.
+     *
+     * @return the nanoseconds to wait - 0 if a token is available now.
+     */
+    synchronized long reserve() {
+        refill(System.nanoTime());
+
+        tokens--;
+
+        return tokens >= 0 ? 0 : (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / rate);
+    }
+
+    /**
+     * Give back a token taken by {@link #reserve()} but not used.
+     */
+    synchronized void unreserve() {
+        tokens = Math.min(getRateLimitConfiguration().getBurst(), tokens + 1);
+    }
+
+    /**
+     * Return the organization id.
+     *
+     * @return the organization id.
+     */
+    public String getOrganizationId() {
+        return organizationId;
+    }
+
+    /**
+     * Return our settings.
+     *
+     * @return our settings.
+     */
+    public RateLimitConfiguration getRateLimitConfiguration() {
+        return rateLimitConfiguration;
+    }
+
+    /**
+     * Return the current requests per second.
+     *
+     * @return the current requests per second.
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    /**
+     * Return how many more calls may be in flight.
+     *
+     * @return the calls that may be in flight.
+     */
+    public int getAvailableConcurrency() {
+        return concurrency.availablePermits();
+    }
+
+    /**
+     * Block until a call is allowed by both rate and concurrency. Every successful acquire must be followed by a {@link #release()}.
+     *
+     * @throws IllegalStateException if interrupted while waiting - nothing is acquired and the interrupt status is preserved.
+     */
+    public void acquire() {
+        try {
+            TimeUnit.NANOSECONDS.sleep(reserve());
+
+            concurrency.acquire();
+        } catch (final InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Interrupted waiting on rate limit for organization [" + getOrganizationId() + "]", interruptedException);
+        }
+    }
+
+    /**
+     * Wait no longer than <code>timeout</code> until a call is allowed by both rate and concurrency. Every successful acquire must
+     * be followed by a {@link #release()}.
+     *
+     * @param timeout the longest wait.
+     * @param unit    the unit of timeout.
+     *
+     * @return true if acquired, false if the wait would exceed <code>timeout</code> - nothing is then acquired.
+     *
+     * @throws IllegalStateException if interrupted while waiting - nothing is acquired and the interrupt status is preserved.
+     */
+    public boolean tryAcquire(final long timeout, final TimeUnit unit) {
+        final long deadline = System.nanoTime() + Math.min(unit.toNanos(timeout), Long.MAX_VALUE / 4);
+        final long wait = reserve();
+
+        if (wait > 0 && wait > deadline - System.nanoTime()) {
+            unreserve();
+
+            return false;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(wait);
+
+            return concurrency.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (final InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Interrupted waiting on rate limit for organization [" + getOrganizationId() + "]", interruptedException);
+        }
+    }
+
+    /**
+     * Release a call acquired via {@link #acquire()} or {@link #tryAcquire(long, TimeUnit)}.
+     */
+    public void release() {
+        concurrency.release();
+    }
+
+    /**
+     * Gradually recover the rate after a successful call.
+     */
+    public synchronized void recordSuccess() {
+        final double configuredRate = getRateLimitConfiguration().getRequestsPerSecond();
+
+        if (rate < configuredRate) {
+            refill(System.nanoTime());
+
+            rate = Math.min(configuredRate, rate + configuredRate * getRateLimitConfiguration().getRecoveryRatio());
+        }
+    }
+
+    /**
+     * Decrease the rate because SFDC signaled overload.
+     */
+    public synchronized void recordOverload() {
+        final long now = System.nanoTime();
+
+        if (now - decreaseTime < DECREASE_INTERVAL) {
+            return;
+        }
+
+        refill(now);
+
+        rate = Math.max(getRateLimitConfiguration().getRequestsPerSecond() * getRateLimitConfiguration().getMinimumRatio(), rate * getRateLimitConfiguration().getDecreaseFactor());
+        decreaseTime = now;
+    }
+}
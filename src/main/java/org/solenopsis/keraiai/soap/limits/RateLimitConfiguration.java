@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.limits;
+
+/**
+ * Settings for the client side rate limit applied to each organization: a token bucket of request rate and burst, plus the most
+ * calls allowed in flight at once.
+ *
+ * When SFDC signals overload, an organization's rate is cut by {@link #getDecreaseFactor()}, at most once per second, but never
+ * below {@link #getMinimumRatio()} of the configured rate. Each successful call then recovers the rate by
+ * {@link #getRecoveryRatio()} of the configured rate.
+ *
+ * @author Scot P. Floess
+ */
+public final class RateLimitConfiguration {
+    /**
+     * Default factor the rate is multiplied by on overload.
+     */
+    public static final double DEFAULT_DECREASE_FACTOR = 0.5;
+
+    /**
+     * Default ratio of the configured rate the rate never falls below.
+     */
+    public static final double DEFAULT_MINIMUM_RATIO = 0.05;
+
+    /**
+     * Default ratio of the configured rate recovered per successful call.
+     */
+    public static final double DEFAULT_RECOVERY_RATIO = 0.01;
+
+    /**
+     * Requests per second allowed per organization.
+     */
+    private final double requestsPerSecond;
+
+    /**
+     * Requests allowed at once after idling.
+     */
+    private final int burst;
+
+    /**
+     * Calls allowed in flight at once per organization.
+     */
+    private final int maximumConcurrency;
+
+    /**
+     * Factor the rate is multiplied by on overload.
+     */
+    private final double decreaseFactor;
+
+    /**
+     * Ratio of the configured rate the rate never falls below.
+     */
+    private final double minimumRatio;
+
+    /**
+     * Ratio of the configured rate recovered per successful call.
+     */
+    private final double recoveryRatio;
+
+    /**
+     * Ensure <code>value</code> is greater than 0 and at most 1.
+     */
+    static double ensureRatio(final double value, final String message) {
+        if (value <= 0 || value > 1) {
+            throw new IllegalArgumentException(message);
+        }
+
+        return value;
+    }
+
+    /**
+     * This constructor sets all values.
+     *
+     * @param requestsPerSecond  requests per second allowed per organization.
+     * @param burst              requests allowed at once after idling.
+     * @param maximumConcurrency calls allowed in flight at once per organization.
+     * @param decreaseFactor     factor, greater than 0 and at most 1, the rate is multiplied by on overload.
+     * @param minimumRatio       ratio, greater than 0 and at most 1, of the configured rate the rate never falls below.
+     * @param recoveryRatio      ratio, greater than 0 and at most 1, of the configured rate recovered per successful call.
+     *
+     * @throws IllegalArgumentException if any value is out of range.
+     */
+    public RateLimitConfiguration(final double requestsPerSecond, final int burst, final int maximumConcurrency, final double decreaseFactor, final double minimumRatio, final double recoveryRatio) {
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("Requests per second must be greater than 0!");
+        }
+
+        if (burst < 1) {
+            throw new IllegalArgumentException("Burst must be at least 1!");
+        }
+
+        if (maximumConcurrency < 1) {
+            throw new IllegalArgumentException("Maximum concurrency must be at least 1!");
+        }
+
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.maximumConcurrency = maximumConcurrency;
+        this.decreaseFactor = ensureRatio(decreaseFactor, "Decrease factor must be greater than 0 and at most 1!");
+        this.minimumRatio = ensureRatio(minimumRatio, "Minimum ratio must be greater than 0 and at most 1!");
+        this.recoveryRatio = ensureRatio(recoveryRatio, "Recovery ratio must be greater than 0 and at most 1!");
+    }
+
+    /**
+     * This constructor uses the default decrease factor, minimum ratio and recovery ratio.
+     *
+     * @param requestsPerSecond  requests per second allowed per organization.
+     * @param burst              requests allowed at once after idling.
+     * @param maximumConcurrency calls allowed in flight at once per organization.
+     *
+     * @throws IllegalArgumentException if any value is out of range.
+     */
+    public RateLimitConfiguration(final double requestsPerSecond, final int burst, final int maximumConcurrency) {
+        this(requestsPerSecond, burst, maximumConcurrency, DEFAULT_DECREASE_FACTOR, DEFAULT_MINIMUM_RATIO, DEFAULT_RECOVERY_RATIO);
+    }
+
+    /**
+     * Return the requests per second allowed per organization.
+     *
+     * @return the requests per second.
+     */
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     * Return the requests allowed at once after idling.
+     *
+     * @return the burst.
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Return the calls allowed in flight at once per organization.
+     *
+     * @return the maximum concurrency.
+     */
+    public int getMaximumConcurrency() {
+        return maximumConcurrency;
+    }
+
+    /**
+     * Return the factor the rate is multiplied by on overload.
+     *
+     * @return the decrease factor.
+     */
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    /**
+     * Return the ratio of the configured rate the rate never falls below.
+     *
+     * @return the minimum ratio.
+     */
+    public double getMinimumRatio() {
+        return minimumRatio;
+    }
+
+    /**
+     * Return the ratio of the configured rate recovered per successful call.
+     *
+     * @return the recovery ratio.
+     */
+    public double getRecoveryRatio() {
+        return recoveryRatio;
+    }
+}
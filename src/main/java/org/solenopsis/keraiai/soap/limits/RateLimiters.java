@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.limits;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import org.flossware.jcore.utils.ObjectUtils;
+
+/**
+ * Holds the client side rate limiter for each organization, so tenants sharing a JVM cannot starve one another. Rate limiting is
+ * off until a {@link RateLimitConfiguration} is set.
+ *
+ * @author Scot P. Floess
+ */
+public final class RateLimiters {
+    /**
+     * Rate limiter per organization id.
+     */
+    private static final ConcurrentMap<String, OrganizationRateLimiter> RATE_LIMITERS = new ConcurrentHashMap<>();
+
+    /**
+     * Settings for newly created rate limiters - null means no rate limiting.
+     */
+    private static final AtomicReference<RateLimitConfiguration> RATE_LIMIT_CONFIGURATION = new AtomicReference<>();
+
+    /**
+     * Return the settings for rate limiters.
+     *
+     * @return the settings or null if not rate limiting.
+     */
+    public static RateLimitConfiguration getRateLimitConfiguration() {
+        return RATE_LIMIT_CONFIGURATION.get();
+    }
+
+    /**
+     * Set the settings for rate limiters, discarding existing rate limiters so the settings apply to all organizations.
+     *
+     * @param rateLimitConfiguration the settings - null to no longer rate limit.
+     */
+    public static void setRateLimitConfiguration(final RateLimitConfiguration rateLimitConfiguration) {
+        RATE_LIMIT_CONFIGURATION.set(rateLimitConfiguration);
+        RATE_LIMITERS.clear();
+    }
+
+    /**
+     * Return the rate limiter for <code>organizationId</code>, creating if needed.
+     *
+     * @param organizationId the organization id.
+     *
+     * @return the rate limiter or null if not rate limiting.
+     *
+     * @throws IllegalArgumentException if organizationId is null.
+     */
+    public static OrganizationRateLimiter getRateLimiter(final String organizationId) {
+        ObjectUtils.ensureObject(organizationId, "Must provide an organization id!");
+
+        final RateLimitConfiguration rateLimitConfiguration = getRateLimitConfiguration();
+
+        if (null == rateLimitConfiguration) {
+            return null;
+        }
+
+        OrganizationRateLimiter retVal = RATE_LIMITERS.get(organizationId);
+
+        if (null == retVal) {
+            final OrganizationRateLimiter newRateLimiter = new OrganizationRateLimiter(organizationId, rateLimitConfiguration);
+
+            retVal = RATE_LIMITERS.putIfAbsent(organizationId, newRateLimiter);
+
+            if (null == retVal) {
+                retVal = newRateLimiter;
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Return all rate limiters.
+     *
+     * @return all rate limiters.
+     */
+    public static List<OrganizationRateLimiter> getRateLimiters() {
+        return Collections.unmodifiableList(new ArrayList<>(RATE_LIMITERS.values()));
+    }
+
+    /**
+     * Default constructor not allowed.
+     */
+    private RateLimiters() {
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Tracking of SFDC API usage, as reported in <code>LimitInfoHeader</code> responses, with optional throttling as usage nears the
+ * limit, and adaptive client side rate limiting per organization.
+ */
+package org.solenopsis.keraiai.soap.limits;
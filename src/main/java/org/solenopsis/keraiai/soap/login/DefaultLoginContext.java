@@ -41,9 +41,11 @@ final class DefaultLoginContext implements LoginContext {
 
     private final String userId;
 
+    private final int sessionSecondsValid;
+
     private final Credentials credentials;
 
-    DefaultLoginContext(final String metadataServerUrl, final boolean isPasswordExpired, final boolean isSandbox, final String serverUrl, final String sessionId, final String userId, final Credentials credentials) {
+    DefaultLoginContext(final String metadataServerUrl, final boolean isPasswordExpired, final boolean isSandbox, final String serverUrl, final String sessionId, final String userId, final int sessionSecondsValid, final Credentials credentials) {
         this.metadataServerUrl = metadataServerUrl;
         this.isPasswordExpired = isPasswordExpired;
         this.isSandbox = isSandbox;
@@ -51,19 +53,20 @@ final class DefaultLoginContext implements LoginContext {
         this.baseServerUrl = UrlUtils.computeProtocolAndHostString(StringUtils.ensureString(serverUrl, "Must provide a server url!"));
         this.sessionId = sessionId;
         this.userId = userId;
+        this.sessionSecondsValid = sessionSecondsValid;
         this.credentials = credentials;
     }
 
     DefaultLoginContext(final org.solenopsis.keraiai.wsdl.enterprise.LoginResult loginResult, final Credentials credentials) {
-        this(loginResult.getMetadataServerUrl(), loginResult.isPasswordExpired(), loginResult.isSandbox(), loginResult.getServerUrl(), loginResult.getSessionId(), loginResult.getUserId(), credentials);
+        this(loginResult.getMetadataServerUrl(), loginResult.isPasswordExpired(), loginResult.isSandbox(), loginResult.getServerUrl(), loginResult.getSessionId(), loginResult.getUserId(), null == loginResult.getUserInfo() ? 0 : loginResult.getUserInfo().getSessionSecondsValid(), credentials);
     }
 
     DefaultLoginContext(final org.solenopsis.keraiai.wsdl.partner.LoginResult loginResult, final Credentials credentials) {
-        this(loginResult.getMetadataServerUrl(), loginResult.isPasswordExpired(), loginResult.isSandbox(), loginResult.getServerUrl(), loginResult.getSessionId(), loginResult.getUserId(), credentials);
+        this(loginResult.getMetadataServerUrl(), loginResult.isPasswordExpired(), loginResult.isSandbox(), loginResult.getServerUrl(), loginResult.getSessionId(), loginResult.getUserId(), null == loginResult.getUserInfo() ? 0 : loginResult.getUserInfo().getSessionSecondsValid(), credentials);
     }
 
     DefaultLoginContext(final org.solenopsis.keraiai.wsdl.tooling.LoginResult loginResult, final Credentials credentials) {
-        this(loginResult.getMetadataServerUrl(), loginResult.isPasswordExpired(), loginResult.isSandbox(), loginResult.getServerUrl(), loginResult.getSessionId(), loginResult.getUserId(), credentials);
+        this(loginResult.getMetadataServerUrl(), loginResult.isPasswordExpired(), loginResult.isSandbox(), loginResult.getServerUrl(), loginResult.getSessionId(), loginResult.getUserId(), null == loginResult.getUserInfo() ? 0 : loginResult.getUserInfo().getSessionSecondsValid(), credentials);
     }
 
     /**
@@ -122,6 +125,14 @@ final class DefaultLoginContext implements LoginContext {
         return userId;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSessionSecondsValid() {
+        return sessionSecondsValid;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -16,13 +16,19 @@
  */
 package org.solenopsis.keraiai.soap.login;
 
-import org.flossware.jcore.utils.soap.SoapUtils;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
 import org.solenopsis.keraiai.Credentials;
 import org.solenopsis.keraiai.LoginContext;
 import org.solenopsis.keraiai.soap.ApiWebService;
 import org.solenopsis.keraiai.soap.LoginWebService;
+import org.solenopsis.keraiai.soap.jfr.JfrEvents;
 import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
 import org.solenopsis.keraiai.soap.session.SessionPortFactory;
+import org.solenopsis.keraiai.soap.store.SessionStoreFactory;
 
 /**
  * Represents all login SOAP web service: enterprise, partner and tooling. Additionally provides the ability to create a usable
@@ -35,6 +41,20 @@ public enum LoginWebServiceEnum implements LoginWebService {
     PARTNER_LOGIN_SERVICE(ApiWebServiceEnum.PARTNER_SERVICE, LoginMgr.PARTNER_LOGIN_MGR),
     TOOLING_LOGIN_SERVICE(ApiWebServiceEnum.TOOLING_SERVICE, LoginMgr.TOOLING_LOGIN_MGR);
 
+    /**
+     * Runs asynchronous logins. Logins block on network I/O, so each gets its own thread rather than sharing the common pool.
+     */
+    static final ExecutorService LOGIN_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread retVal = new Thread(runnable, "keraiai-login");
+
+            retVal.setDaemon(true);
+
+            return retVal;
+        }
+    });
+
     /**
      * The actual web service type.
      */
@@ -73,7 +93,56 @@ public enum LoginWebServiceEnum implements LoginWebService {
      */
     @Override
     public LoginContext login(final Credentials credentials) {
-        return getLoginMgr().login(SoapUtils.createPort(getApiWebService().getService(), getApiWebService().getPortType(), getApiWebService().getWebServiceType().getSessionUrlFactory().computeUrl(credentials, getApiWebService().getService())), credentials);
+        final Object loginEvent = JfrEvents.beginLogin();
+        final String url = getApiWebService().getWebServiceType().getSessionUrlFactory().computeUrl(credentials, getApiWebService().getService());
+
+        LoginContext loginContext = null;
+
+        try {
+            loginContext = getLoginMgr().login(SessionPortFactory.createPort(url, getApiWebService().getService(), getApiWebService().getPortType()), credentials);
+
+            SessionStoreFactory.getSessionStore().store(this, loginContext);
+
+            return loginContext;
+        } finally {
+            JfrEvents.commitLogin(loginEvent, this, url, credentials, loginContext);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<LoginContext> loginAsync(final Credentials credentials) {
+        return CompletableFuture.supplyAsync(new Supplier<LoginContext>() {
+            @Override
+            public LoginContext get() {
+                return login(credentials);
+            }
+        }, LOGIN_EXECUTOR);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LoginContext restoreLogin(final Credentials credentials) {
+        final LoginContext storedLoginContext = SessionStoreFactory.getSessionStore().load(this, credentials);
+
+        return null == storedLoginContext ? login(credentials) : storedLoginContext;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<LoginContext> restoreLoginAsync(final Credentials credentials) {
+        return CompletableFuture.supplyAsync(new Supplier<LoginContext>() {
+            @Override
+            public LoginContext get() {
+                return restoreLogin(credentials);
+            }
+        }, LOGIN_EXECUTOR);
     }
 
     /**
@@ -81,6 +150,18 @@ public enum LoginWebServiceEnum implements LoginWebService {
      */
     @Override
     public void logout(final LoginContext loginContext) {
-        getLoginMgr().logout(SessionPortFactory.createSessionPort(getApiWebService(), loginContext));
+        SessionStoreFactory.getSessionStore().invalidate(this, loginContext);
+
+        final Object logoutEvent = JfrEvents.beginLogout();
+
+        boolean isSuccess = false;
+
+        try {
+            getLoginMgr().logout(SessionPortFactory.createSessionPort(getApiWebService(), loginContext));
+
+            isSuccess = true;
+        } finally {
+            JfrEvents.commitLogout(logoutEvent, this, loginContext, isSuccess);
+        }
     }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.flossware.jcore.AbstractCommonBase;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.flossware.jcore.utils.StringUtils;
+import org.solenopsis.keraiai.soap.MetricsRegistry;
+import org.solenopsis.keraiai.soap.OperationMetrics;
+
+/**
+ * Keeps {@link OperationStatistics} per operation, registering each as an MXBean named
+ * <code>domain:type=Operation,portType=...,operation=...</code> when first called.
+ *
+ * @author Scot P. Floess
+ */
+public final class JmxMetricsRegistry extends AbstractCommonBase implements MetricsRegistry {
+    /**
+     * The default JMX domain.
+     */
+    public static final String DEFAULT_DOMAIN = "org.solenopsis.keraiai";
+
+    /**
+     * Where MXBeans are registered.
+     */
+    private final MBeanServer mbeanServer;
+
+    /**
+     * The JMX domain.
+     */
+    private final String domain;
+
+    /**
+     * Statistics per method.
+     */
+    private final ConcurrentMap<Method, OperationStatistics> operationStatistics;
+
+    /**
+     * Register <code>statistics</code> - failures are logged as metrics must never break calls.
+     */
+    void register(final OperationStatistics statistics) {
+        try {
+            mbeanServer.registerMBean(statistics, computeObjectName(statistics));
+        } catch (final JMException jmException) {
+            log(Level.WARNING, jmException, "Unable to register metrics for [{0}.{1}]", statistics.getPortType(), statistics.getOperation());
+        }
+    }
+
+    /**
+     * Compute the object name of <code>statistics</code>.
+     *
+     * @param statistics the statistics to name.
+     *
+     * @return the object name.
+     *
+     * @throws JMException if the name is malformed.
+     */
+    public ObjectName computeObjectName(final OperationStatistics statistics) throws JMException {
+        return new ObjectName(domain + ":type=Operation,portType=" + ObjectName.quote(statistics.getPortType()) + ",operation=" + statistics.getOperation());
+    }
+
+    /**
+     * This constructor sets the MBean server and domain.
+     *
+     * @param mbeanServer where MXBeans are registered.
+     * @param domain      the JMX domain.
+     *
+     * @throws IllegalArgumentException if mbeanServer is null or domain is null, empty or blank.
+     */
+    public JmxMetricsRegistry(final MBeanServer mbeanServer, final String domain) {
+        this.mbeanServer = ObjectUtils.ensureObject(mbeanServer, "Must provide an MBean server!");
+        this.domain = StringUtils.ensureString(domain, "Must provide a domain!");
+        this.operationStatistics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Default constructor registers in the platform MBean server under the {@link #DEFAULT_DOMAIN}.
+     */
+    public JmxMetricsRegistry() {
+        this(ManagementFactory.getPlatformMBeanServer(), DEFAULT_DOMAIN);
+    }
+
+    /**
+     * Return the statistics of all operations called thus far.
+     *
+     * @return the statistics.
+     */
+    public Collection<OperationStatistics> getOperationStatistics() {
+        return Collections.unmodifiableCollection(operationStatistics.values());
+    }
+
+    /**
+     * Unregister all MXBeans.
+     */
+    public void unregister() {
+        for (final OperationStatistics statistics : operationStatistics.values()) {
+            try {
+                mbeanServer.unregisterMBean(computeObjectName(statistics));
+            } catch (final JMException jmException) {
+                log(Level.FINE, jmException, "Unable to unregister metrics for [{0}.{1}]", statistics.getPortType(), statistics.getOperation());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OperationMetrics getOperationMetrics(final Class portType, final Method method) {
+        final OperationStatistics statistics = operationStatistics.get(method);
+
+        if (null != statistics) {
+            return statistics;
+        }
+
+        final OperationStatistics newStatistics = new OperationStatistics(portType.getName(), method.getName());
+        final OperationStatistics existing = operationStatistics.putIfAbsent(method, newStatistics);
+
+        if (null != existing) {
+            return existing;
+        }
+
+        register(newStatistics);
+
+        return newStatistics;
+    }
+}
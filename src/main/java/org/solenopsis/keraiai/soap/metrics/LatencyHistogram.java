@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free, allocation free histogram of non negative values (typically nanoseconds). Values are counted in buckets that
+ * split each power of two into {@link #SUB_BUCKETS} linear sub buckets, bounding the error of any reported percentile to
+ * 1/{@link #SUB_BUCKETS} of its value. Values less than {@link #SUB_BUCKETS} are counted exactly.
+ *
+ * Reads are not atomic with respect to concurrent recording - they may reflect some, but not all, values recorded while reading.
+ *
+ * @author Scot P. Floess
+ */
+public final class LatencyHistogram {
+    /**
+     * Bits used to denote a sub bucket.
+     */
+    static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * Sub buckets per power of two.
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Total buckets - enough for any long.
+     */
+    static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    /**
+     * Counts per bucket.
+     */
+    private final AtomicLongArray counts;
+
+    /**
+     * Total values recorded.
+     */
+    private final AtomicLong count;
+
+    /**
+     * Sum of all values recorded.
+     */
+    private final AtomicLong sum;
+
+    /**
+     * Largest value recorded.
+     */
+    private final AtomicLong max;
+
+    /**
+     * Compute the bucket for <code>value</code>.
+     *
+     * @param value the value.
+     *
+     * @return the bucket.
+     */
+    static int computeBucket(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Compute the largest value counted in <code>bucket</code>.
+     *
+     * @param bucket the bucket.
+     *
+     * @return the largest value of the bucket.
+     */
+    static long computeUpperBound(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        final int shift = bucket / SUB_BUCKETS - 1;
+
+        return ((((long) (SUB_BUCKETS + bucket % SUB_BUCKETS)) << shift) - 1) + (1L << shift);
+    }
+
+    /**
+     * Default constructor.
+     */
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong();
+        this.sum = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    /**
+     * Record <code>value</code> - negative values are recorded as 0.
+     *
+     * @param value the value to record.
+     */
+    public void record(final long value) {
+        final long toRecord = Math.max(0, value);
+
+        counts.incrementAndGet(computeBucket(toRecord));
+        count.incrementAndGet();
+        sum.addAndGet(toRecord);
+
+        for (long current = max.get(); toRecord > current && !max.compareAndSet(current, toRecord); current = max.get()) {
+        }
+    }
+
+    /**
+     * Return the total values recorded.
+     *
+     * @return the total values recorded.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Return the mean of the values recorded.
+     *
+     * @return the mean or 0 if none recorded.
+     */
+    public double getMean() {
+        final long total = getCount();
+
+        return 0 == total ? 0 : (double) sum.get() / total;
+    }
+
+    /**
+     * Return the largest value recorded.
+     *
+     * @return the largest value or 0 if none recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Return the value at or below which <code>percentile</code> percent of the values recorded fall.
+     *
+     * @param percentile between 0 and 100.
+     *
+     * @return the value at percentile or 0 if none recorded.
+     *
+     * @throws IllegalArgumentException if percentile is not between 0 and 100.
+     */
+    public long getValueAtPercentile(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100!");
+        }
+
+        long total = 0;
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            total += counts.get(bucket);
+        }
+
+        final long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+
+        long cumulative = 0;
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            cumulative += counts.get(bucket);
+
+            if (cumulative >= target) {
+                return Math.min(computeUpperBound(bucket), getMax());
+            }
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.metrics;
+
+import java.lang.reflect.Method;
+import org.solenopsis.keraiai.soap.MetricsRegistry;
+import org.solenopsis.keraiai.soap.OperationMetrics;
+import org.solenopsis.keraiai.soap.exception.SalesforceExceptionEnum;
+
+/**
+ * Metrics registries needing no configuration.
+ *
+ * @author Scot P. Floess
+ */
+public enum MetricsRegistryEnum implements MetricsRegistry, OperationMetrics {
+    /**
+     * Records nothing.
+     */
+    NONE;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OperationMetrics getOperationMetrics(final Class portType, final Method method) {
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordSuccess(final long nanos) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordExhausted(final long nanos) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordFailure(final SalesforceExceptionEnum failure) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordRetry() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordRelogin() {
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.metrics;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.solenopsis.keraiai.soap.MetricsRegistry;
+
+/**
+ * Holds the metrics registry used by all proxy ports.
+ *
+ * @author Scot P. Floess
+ */
+public final class MetricsRegistryFactory {
+    /**
+     * The metrics registry used by all proxy ports.
+     */
+    private static final AtomicReference<MetricsRegistry> METRICS_REGISTRY = new AtomicReference<MetricsRegistry>(MetricsRegistryEnum.NONE);
+
+    /**
+     * Return the metrics registry used by all proxy ports.
+     *
+     * @return the metrics registry.
+     */
+    public static MetricsRegistry getMetricsRegistry() {
+        return METRICS_REGISTRY.get();
+    }
+
+    /**
+     * Set the metrics registry used by all proxy ports from now on.
+     *
+     * @param metricsRegistry the metrics registry - use {@link MetricsRegistryEnum#NONE} to record nothing.
+     *
+     * @throws IllegalArgumentException if metricsRegistry is null.
+     */
+    public static void setMetricsRegistry(final MetricsRegistry metricsRegistry) {
+        METRICS_REGISTRY.set(ObjectUtils.ensureObject(metricsRegistry, "Must provide a metrics registry!"));
+    }
+
+    /**
+     * Default constructor not allowed.
+     */
+    private MetricsRegistryFactory() {
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.flossware.jcore.utils.StringUtils;
+import org.solenopsis.keraiai.soap.OperationMetrics;
+import org.solenopsis.keraiai.soap.exception.SalesforceExceptionEnum;
+
+/**
+ * Lock free, allocation free metrics of one operation of a port type.
+ *
+ * @author Scot P. Floess
+ */
+public final class OperationStatistics implements OperationMetrics, OperationStatisticsMXBean {
+    /**
+     * Nanoseconds per microsecond.
+     */
+    static final double NANOS_PER_MICRO = 1000.0;
+
+    /**
+     * The name of the port type.
+     */
+    private final String portType;
+
+    /**
+     * The name of the operation.
+     */
+    private final String operation;
+
+    /**
+     * Latency of all calls.
+     */
+    private final LatencyHistogram latency;
+
+    /**
+     * Calls that failed after all retries.
+     */
+    private final AtomicLong exhaustedCalls;
+
+    /**
+     * Attempts retried.
+     */
+    private final AtomicLong retries;
+
+    /**
+     * Relogins.
+     */
+    private final AtomicLong relogins;
+
+    /**
+     * Failed attempts indexed by failure category ordinal.
+     */
+    private final AtomicLongArray failures;
+
+    /**
+     * This constructor sets the port type and operation.
+     *
+     * @param portType  the name of the port type.
+     * @param operation the name of the operation.
+     *
+     * @throws IllegalArgumentException if portType or operation is null, empty or blank.
+     */
+    public OperationStatistics(final String portType, final String operation) {
+        this.portType = StringUtils.ensureString(portType, "Must provide a port type!");
+        this.operation = StringUtils.ensureString(operation, "Must provide an operation!");
+        this.latency = new LatencyHistogram();
+        this.exhaustedCalls = new AtomicLong();
+        this.retries = new AtomicLong();
+        this.relogins = new AtomicLong();
+        this.failures = new AtomicLongArray(SalesforceExceptionEnum.values().length);
+    }
+
+    /**
+     * Return the latency histogram of all calls, in nanoseconds.
+     *
+     * @return the latency histogram.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Return the failed attempts for <code>failure</code>.
+     *
+     * @param failure the failure category.
+     *
+     * @return the failed attempts.
+     *
+     * @throws IllegalArgumentException if failure is null.
+     */
+    public long getFailures(final SalesforceExceptionEnum failure) {
+        return failures.get(ObjectUtils.ensureObject(failure, "Must provide a failure!").ordinal());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordSuccess(final long nanos) {
+        latency.record(nanos);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordExhausted(final long nanos) {
+        latency.record(nanos);
+        exhaustedCalls.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordFailure(final SalesforceExceptionEnum failure) {
+        failures.incrementAndGet(failure.ordinal());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordRetry() {
+        retries.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordRelogin() {
+        relogins.incrementAndGet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPortType() {
+        return portType;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCalls() {
+        return latency.getCount();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getExhaustedCalls() {
+        return exhaustedCalls.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRelogins() {
+        return relogins.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getFailures() {
+        final Map<String, Long> retVal = new TreeMap<>();
+
+        for (final SalesforceExceptionEnum failure : SalesforceExceptionEnum.values()) {
+            retVal.put(failure.name(), failures.get(failure.ordinal()));
+        }
+
+        return retVal;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMeanLatencyMicros() {
+        return latency.getMean() / NANOS_PER_MICRO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getP50LatencyMicros() {
+        return latency.getValueAtPercentile(50) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getP99LatencyMicros() {
+        return latency.getValueAtPercentile(99) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getP999LatencyMicros() {
+        return latency.getValueAtPercentile(99.9) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMaxLatencyMicros() {
+        return latency.getMax() / NANOS_PER_MICRO;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics of one operation of a port type. Latencies include retries.
+ *
+ * @author Scot P. Floess
+ */
+public interface OperationStatisticsMXBean {
+    /**
+     * Return the name of the port type.
+     *
+     * @return the name of the port type.
+     */
+    String getPortType();
+
+    /**
+     * Return the name of the operation.
+     *
+     * @return the name of the operation.
+     */
+    String getOperation();
+
+    /**
+     * Return the total calls - successful or not.
+     *
+     * @return the total calls.
+     */
+    long getCalls();
+
+    /**
+     * Return the total calls that failed after all retries.
+     *
+     * @return the total calls that failed.
+     */
+    long getExhaustedCalls();
+
+    /**
+     * Return the total attempts retried.
+     *
+     * @return the total retries.
+     */
+    long getRetries();
+
+    /**
+     * Return the total relogins.
+     *
+     * @return the total relogins.
+     */
+    long getRelogins();
+
+    /**
+     * Return the total failed attempts per failure category.
+     *
+     * @return failed attempts keyed by category.
+     */
+    Map<String, Long> getFailures();
+
+    /**
+     * Return the mean latency in microseconds.
+     *
+     * @return the mean latency.
+     */
+    double getMeanLatencyMicros();
+
+    /**
+     * Return the median latency in microseconds.
+     *
+     * @return the median latency.
+     */
+    double getP50LatencyMicros();
+
+    /**
+     * Return the 99th percentile latency in microseconds.
+     *
+     * @return the 99th percentile latency.
+     */
+    double getP99LatencyMicros();
+
+    /**
+     * Return the 99.9th percentile latency in microseconds.
+     *
+     * @return the 99.9th percentile latency.
+     */
+    double getP999LatencyMicros();
+
+    /**
+     * Return the maximum latency in microseconds.
+     *
+     * @return the maximum latency.
+     */
+    double getMaxLatencyMicros();
+}
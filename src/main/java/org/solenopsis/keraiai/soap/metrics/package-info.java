@@ -0,0 +1,4 @@
+/**
+ * Metrics of calls made through proxy ports - including lock free latency histograms and JMX exposure.
+ */
+package org.solenopsis.keraiai.soap.metrics;
@@ -101,6 +101,22 @@ public enum ApiWebServiceEnum implements ApiWebService {
         return (P) getWebServiceType().createProxyPort(credentials, loginWebService, getService(), getPortType());
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P> P createProxyPortAsync(final Credentials credentials, final LoginWebService loginWebService) {
+        return (P) getWebServiceType().createProxyPortAsync(credentials, loginWebService, getService(), getPortType());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <P> P createProxyPort(final Credentials credentials, final LoginWebService loginWebService, final int totalSessions) {
+        return (P) getWebServiceType().createProxyPort(credentials, loginWebService, getService(), getPortType(), totalSessions);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.port;
+
+import java.util.concurrent.TimeUnit;
+import org.solenopsis.keraiai.soap.metrics.LatencyHistogram;
+import org.solenopsis.keraiai.soap.session.HedgingPolicy;
+
+/**
+ * The observed latency of an operation, and how long its calls may take before being hedged.
+ *
+ * @author Scot P. Floess
+ */
+final class HedgedOperation {
+    /**
+     * Calls completed between computing the delay - percentiles are not computed on every call.
+     */
+    static final int RECOMPUTE_SAMPLES = 32;
+
+    /**
+     * Latency, in nanoseconds, of completed calls.
+     */
+    private final LatencyHistogram latency;
+
+    /**
+     * Time, in nanoseconds, after which calls are hedged - negative until enough calls have completed.
+     */
+    private volatile long delay;
+
+    /**
+     * Default constructor.
+     */
+    HedgedOperation() {
+        this.latency = new LatencyHistogram();
+        this.delay = -1;
+    }
+
+    /**
+     * Return the time, in nanoseconds, after which calls are hedged.
+     *
+     * @return the delay or a negative value if calls are not yet hedged.
+     */
+    long getDelay() {
+        return delay;
+    }
+
+    /**
+     * Record a completed call, recomputing the delay as needed.
+     *
+     * @param nanos         the latency of the call.
+     * @param hedgingPolicy when calls are hedged.
+     */
+    void record(final long nanos, final HedgingPolicy hedgingPolicy) {
+        latency.record(nanos);
+
+        final long count = latency.getCount();
+
+        if (count >= hedgingPolicy.getMinimumSamples() && (delay < 0 || 0 == count % RECOMPUTE_SAMPLES)) {
+            delay = Math.max(TimeUnit.MILLISECONDS.toNanos(hedgingPolicy.getMinimumDelay()), latency.getValueAtPercentile(hedgingPolicy.getPercentile()));
+        }
+    }
+}
@@ -16,13 +16,28 @@
  */
 package org.solenopsis.keraiai.soap.port;
 
+import org.solenopsis.keraiai.soap.session.Deadline;
 import org.solenopsis.keraiai.soap.session.SessionPortFactory;
+import org.solenopsis.keraiai.soap.session.SessionRefreshPolicy;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import javax.xml.ws.Service;
 import org.flossware.jcore.AbstractCommonBase;
@@ -30,9 +45,20 @@ import org.flossware.jcore.utils.ObjectUtils;
 import org.solenopsis.keraiai.Credentials;
 import org.solenopsis.keraiai.LoginContext;
 import org.solenopsis.keraiai.soap.LoginWebService;
+import org.solenopsis.keraiai.soap.OperationMetrics;
 import org.solenopsis.keraiai.soap.WebServiceType;
 import org.solenopsis.keraiai.soap.exception.ExceptionContext;
+import org.solenopsis.keraiai.soap.exception.ExceptionTotals;
 import org.solenopsis.keraiai.soap.exception.SalesforceExceptionEnum;
+import org.solenopsis.keraiai.soap.jfr.JfrEvents;
+import org.solenopsis.keraiai.soap.limits.ApiLimits;
+import org.solenopsis.keraiai.soap.limits.OrganizationRateLimiter;
+import org.solenopsis.keraiai.soap.limits.RateLimiters;
+import org.solenopsis.keraiai.soap.metrics.MetricsRegistryEnum;
+import org.solenopsis.keraiai.soap.metrics.MetricsRegistryFactory;
+import org.solenopsis.keraiai.soap.store.SessionStoreFactory;
+import org.solenopsis.keraiai.soap.store.StoredLoginContext;
+import org.solenopsis.keraiai.soap.utils.LoginContextUtils;
 
 /**
  * Acts as a proxy to call methods on ports. This is the real place that auto logins, retries, etc. happen. We leverage the
@@ -51,12 +77,28 @@ final class PortInvocationHandler extends AbstractCommonBase implements Invocati
      */
     static final int MAX_RETRIES = 8;
 
+    /**
+     * Refreshes sessions in the background.
+     */
+    static final ExecutorService REFRESH_EXECUTOR;
+
     static {
         LOGIN_CONTEXT_METHODS = new HashSet<>();
 
         for (final Method method : LoginContext.class.getDeclaredMethods()) {
             LOGIN_CONTEXT_METHODS.add(method);
         }
+
+        REFRESH_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread retVal = new Thread(runnable, "keraiai-session-refresh");
+
+                retVal.setDaemon(true);
+
+                return retVal;
+            }
+        });
     }
     /**
      * The credentials.
@@ -93,6 +135,37 @@ final class PortInvocationHandler extends AbstractCommonBase implements Invocati
      */
     private final AtomicReference port;
 
+    /**
+     * The last port given the handler shrinking timeouts to deadlines.
+     */
+    private volatile Object deadlinePort;
+
+    /**
+     * The organization id of our login.
+     */
+    private volatile String organizationId;
+
+    /**
+     * When, in nanoseconds, we last logged in.
+     */
+    private final AtomicLong loginTime;
+
+    /**
+     * True while a session refresh runs in the background.
+     */
+    private final AtomicBoolean refreshing;
+
+    /**
+     * Held while logging in again so only one caller logs in - a lock rather than a monitor so callers wait no longer than their
+     * deadline.
+     */
+    private final ReentrantLock refreshLock;
+
+    /**
+     * Completes once our first login is done and its port created.
+     */
+    private final CompletableFuture<Void> initialLogin;
+
     /**
      * Return the credentials
      *
@@ -154,6 +227,237 @@ final class PortInvocationHandler extends AbstractCommonBase implements Invocati
         return port;
     }
 
+    /**
+     * Ensure our port shrinks its timeouts to the {@link Deadline} in scope - ports created before the first deadline lack the
+     * handler doing so.
+     */
+    void applyDeadlines() {
+        final Object currentPort = getPort().get();
+
+        if (currentPort != deadlinePort) {
+            SessionPortFactory.applyDeadlines(currentPort);
+
+            deadlinePort = currentPort;
+        }
+    }
+
+    /**
+     * Return the organization id of our login.
+     */
+    final String getOrganizationId() {
+        return organizationId;
+    }
+
+    /**
+     * Return when, in nanoseconds, we last logged in.
+     */
+    final AtomicLong getLoginTime() {
+        return loginTime;
+    }
+
+    /**
+     * Return the future completing once our first login is done and its port created.
+     */
+    final CompletableFuture<Void> getInitialLogin() {
+        return initialLogin;
+    }
+
+    /**
+     * Convert <code>failure</code>, as raised by a future, to a runtime exception.
+     */
+    static RuntimeException computeLoginFailure(final RuntimeException failure) {
+        if (failure instanceof CompletionException && failure.getCause() instanceof RuntimeException) {
+            return (RuntimeException) failure.getCause();
+        }
+
+        return failure;
+    }
+
+    /**
+     * Compute, in <code>System.nanoTime()</code>, when <code>newLoginContext</code> was logged in: now unless it came from the
+     * session store, in which case it is as old as the store says.
+     */
+    static long computeLoginTime(final LoginContext newLoginContext) {
+        final long now = System.nanoTime();
+
+        if (!(newLoginContext instanceof StoredLoginContext)) {
+            return now;
+        }
+
+        final long age = System.currentTimeMillis() - ((StoredLoginContext) newLoginContext).getLoginTime();
+
+        return now - TimeUnit.MILLISECONDS.toNanos(Math.max(0, age));
+    }
+
+    /**
+     * Use <code>newLoginContext</code>: create its port, then publish both.
+     */
+    void setLogin(final LoginContext newLoginContext) {
+        getPort().set(SessionPortFactory.createSessionPort(getWebServiceType(), newLoginContext, getService(), getPortType()));
+
+        organizationId = LoginContextUtils.computeOrganizationId(newLoginContext);
+
+        getLoginTime().set(computeLoginTime(newLoginContext));
+        getLoginContext().set(newLoginContext);
+    }
+
+    /**
+     * Log in again and swap in a port for the new session. Our session may have come from the session store, so it is invalidated
+     * first so later proxy ports do not restore the same stale session - must hold the refresh lock, see
+     * {@link #relogin(LoginContext)}.
+     */
+    void relogin() {
+        final LoginContext staleLoginContext = getLoginContext().get();
+
+        if (null != staleLoginContext) {
+            SessionStoreFactory.getSessionStore().invalidate(getLoginWebService(), staleLoginContext);
+        }
+
+        setLogin(getLoginWebService().login(getCredentials()));
+    }
+
+    /**
+     * Lock the refresh lock, waiting no longer than the {@link Deadline} in scope if any.
+     *
+     * @throws TimeoutException if the deadline passes first.
+     */
+    void lockRefresh() throws TimeoutException {
+        final Deadline deadline = Deadline.current();
+
+        if (null == deadline) {
+            refreshLock.lock();
+
+            return;
+        }
+
+        try {
+            if (!refreshLock.tryLock(deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)) {
+                throw new TimeoutException("Deadline passed waiting on another login for [" + getPortType().getName() + "]");
+            }
+        } catch (final InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Interrupted waiting on another login for [" + getPortType().getName() + "]", interruptedException);
+        }
+    }
+
+    /**
+     * Wait for our first login, if still in progress, no longer than the {@link Deadline} in scope if any. Should it have failed,
+     * log in now.
+     *
+     * @throws TimeoutException if the deadline passes first.
+     */
+    void awaitLogin() throws TimeoutException {
+        if (null != getLoginContext().get()) {
+            return;
+        }
+
+        final Deadline deadline = Deadline.current();
+
+        try {
+            if (null == deadline) {
+                getInitialLogin().join();
+            } else {
+                getInitialLogin().get(deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            }
+        } catch (final CompletionException | CancellationException | ExecutionException loginFailure) {
+            lockRefresh();
+
+            try {
+                if (null == getLoginContext().get()) {
+                    log(Level.WARNING, loginFailure, "Trouble logging in for [{0}], trying again", getPortType().getName());
+
+                    relogin();
+                }
+            } finally {
+                refreshLock.unlock();
+            }
+        } catch (final InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Interrupted waiting to log in for [" + getPortType().getName() + "]", interruptedException);
+        }
+    }
+
+    /**
+     * Log in again unless another caller already did since <code>staleLoginContext</code>. Waiting on another caller's login, and
+     * our own login, take no longer than the {@link Deadline} in scope if any.
+     *
+     * @throws TimeoutException if the deadline passes waiting on another caller's login.
+     */
+    void relogin(final LoginContext staleLoginContext) throws TimeoutException {
+        lockRefresh();
+
+        try {
+            if (staleLoginContext == getLoginContext().get()) {
+                relogin();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Log in again should our session still be <code>staleSessionId</code> - used when calls made outside the proxy port with our
+     * session id find it invalid. Waiting on logins takes no longer than the {@link Deadline} in scope if any.
+     *
+     * @throws TimeoutException if the deadline passes first.
+     */
+    void invalidateSession(final String staleSessionId) throws TimeoutException {
+        awaitLogin();
+        lockRefresh();
+
+        try {
+            final LoginContext loginContext = getLoginContext().get();
+
+            if (null == loginContext || staleSessionId.equals(loginContext.getSessionId())) {
+                log(Level.FINE, "Session of [{0}] found invalid, logging in again", getPortType().getName());
+
+                relogin();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Refresh our session, per the session refresh policy if any, before it expires: in the background once old enough or
+     * immediately once as old as its lifetime.
+     *
+     * @throws TimeoutException if the deadline passes logging in immediately.
+     */
+    void refreshSession() throws TimeoutException {
+        final SessionRefreshPolicy sessionRefreshPolicy = SessionPortFactory.getSessionRefreshPolicy();
+
+        if (null == sessionRefreshPolicy) {
+            return;
+        }
+
+        final LoginContext currentLoginContext = getLoginContext().get();
+        final long age = System.nanoTime() - getLoginTime().get();
+
+        if (age >= sessionRefreshPolicy.computeLifetime(currentLoginContext)) {
+            log(Level.FINE, "Session for [{0}] expired, logging in", getPortType().getName());
+
+            relogin(currentLoginContext);
+        } else if (age >= sessionRefreshPolicy.computeRefreshAge(currentLoginContext) && refreshing.compareAndSet(false, true)) {
+            log(Level.FINE, "Refreshing session for [{0}] in the background", getPortType().getName());
+
+            REFRESH_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        relogin(currentLoginContext);
+                    } catch (final RuntimeException | TimeoutException refreshFailure) {
+                        log(Level.WARNING, refreshFailure, "Trouble refreshing session for [{0}]", getPortType().getName());
+                    } finally {
+                        refreshing.set(false);
+                    }
+                }
+            });
+        }
+    }
+
     /**
      * Return true if call retries allowed.
      *
@@ -166,23 +470,134 @@ final class PortInvocationHandler extends AbstractCommonBase implements Invocati
     }
 
     /**
-     * This constructor all one needs to provide proxy calls for autologins and retries.
+     * This constructor returns immediately - our first login completes in the background via <code>login</code>, and calls wait
+     * for it.
      *
-     * @param securityMgr    used for login, re-login, etc.
-     * @param webServiceType the type of web service being used.
-     * @param service        the web service to call.
-     * @param portType       used to retrieve a port from the service.
+     * @param credentials     used for re-login.
+     * @param login           completes with our first login.
+     * @param loginWebService used for re-login, etc.
+     * @param webServiceType  the type of web service being used.
+     * @param service         the web service to call.
+     * @param portType        used to retrieve a port from the service.
      *
      * @throws IllegalArgumentException if any of the params are null.
      */
-    <P> PortInvocationHandler(final Credentials credentials, final LoginWebService loginWebService, final WebServiceType webServiceType, final Service service, final Class portType) {
+    <P> PortInvocationHandler(final Credentials credentials, final CompletableFuture<LoginContext> login, final LoginWebService loginWebService, final WebServiceType webServiceType, final Service service, final Class portType) {
+        ObjectUtils.ensureObject(login, "Must provide a login!");
+
         this.credentials = ObjectUtils.ensureObject(credentials, "Must provide credentials!");
-        this.loginContext = new AtomicReference<>(loginWebService.login(credentials));
+        this.loginContext = new AtomicReference<>();
         this.loginWebService = ObjectUtils.ensureObject(loginWebService, "Must provide a login web service!");
         this.webServiceType = ObjectUtils.ensureObject(webServiceType, "Must provide a web service type!");
         this.service = ObjectUtils.ensureObject(service, "Must provide a service!");
         this.portType = ObjectUtils.ensureObject(portType, "Must provide a port type!");
-        this.port = new AtomicReference(SessionPortFactory.createSessionPort(webServiceType, loginContext.get(), service, portType));
+        this.port = new AtomicReference();
+        this.organizationId = "";
+        this.loginTime = new AtomicLong(System.nanoTime());
+        this.refreshing = new AtomicBoolean();
+        this.refreshLock = new ReentrantLock();
+        this.initialLogin = login.thenAccept(new Consumer<LoginContext>() {
+            @Override
+            public void accept(final LoginContext newLoginContext) {
+                setLogin(newLoginContext);
+            }
+        });
+    }
+
+    /**
+     * Return our first login: the session in the session store if <code>restore</code>, otherwise a new session.
+     */
+    static LoginContext computeLogin(final Credentials credentials, final LoginWebService loginWebService, final boolean restore) {
+        ObjectUtils.ensureObject(credentials, "Must provide credentials!");
+        ObjectUtils.ensureObject(loginWebService, "Must provide a login web service!");
+
+        return restore ? loginWebService.restoreLogin(credentials) : loginWebService.login(credentials);
+    }
+
+    /**
+     * This constructor logs in before returning.
+     *
+     * @param credentials     used for login, re-login, etc.
+     * @param loginWebService used for login, re-login, etc.
+     * @param webServiceType  the type of web service being used.
+     * @param service         the web service to call.
+     * @param portType        used to retrieve a port from the service.
+     * @param restore         if true our first session may be one in the session store - false when our session must be our own,
+     *                        as for each session of a pool.
+     *
+     * @throws IllegalArgumentException if any of the params are null.
+     */
+    <P> PortInvocationHandler(final Credentials credentials, final LoginWebService loginWebService, final WebServiceType webServiceType, final Service service, final Class portType, final boolean restore) {
+        this(credentials, CompletableFuture.completedFuture(computeLogin(credentials, loginWebService, restore)), loginWebService, webServiceType, service, portType);
+
+        // We have already logged in, so raise any trouble creating our
+        // port now rather than on first call.
+        try {
+            getInitialLogin().join();
+        } catch (final CompletionException loginFailure) {
+            throw computeLoginFailure(loginFailure);
+        }
+    }
+
+    /**
+     * This constructor all one needs to provide proxy calls for autologins and retries. Our first session may be one in the session
+     * store.
+     *
+     * @param credentials     used for login, re-login, etc.
+     * @param loginWebService used for login, re-login, etc.
+     * @param webServiceType  the type of web service being used.
+     * @param service         the web service to call.
+     * @param portType        used to retrieve a port from the service.
+     *
+     * @throws IllegalArgumentException if any of the params are null.
+     */
+    <P> PortInvocationHandler(final Credentials credentials, final LoginWebService loginWebService, final WebServiceType webServiceType, final Service service, final Class portType) {
+        this(credentials, loginWebService, webServiceType, service, portType, true);
+    }
+
+    /**
+     * Compute the failure raised when the deadline of a call passes.
+     *
+     * @param method           the method called.
+     * @param totalCalls       the total attempts made.
+     * @param startTime        when, in <code>System.nanoTime()</code>, the call started.
+     * @param operationMetrics where the call is measured.
+     * @param cause            the failure of the last attempt - null if none.
+     *
+     * @return the failure to raise.
+     */
+    IllegalStateException computeDeadlineExceeded(final Method method, final int totalCalls, final long startTime, final OperationMetrics operationMetrics, final Throwable cause) {
+        operationMetrics.recordExhausted(System.nanoTime() - startTime);
+
+        final TimeoutException timeoutException = new TimeoutException("Deadline passed calling [" + getPortType().getName() + "." + method.getName() + "()] after [" + totalCalls + "] attempts");
+
+        if (null != cause) {
+            timeoutException.initCause(cause);
+        }
+
+        log(Level.SEVERE, timeoutException, "Deadline passed calling [{0}].[{1}] after [{2}] attempts, raising exception", getPortType().getName(), method.getName(), totalCalls);
+
+        return new IllegalStateException(timeoutException.getMessage(), timeoutException);
+    }
+
+    /**
+     * Compute the failure raised when logging in fails while calling: deadline exceeded if the deadline passed.
+     *
+     * @param method           the method called.
+     * @param totalCalls       the total attempts made.
+     * @param startTime        when, in <code>System.nanoTime()</code>, the call started.
+     * @param operationMetrics where the call is measured.
+     * @param deadline         the deadline of the call - null if none.
+     * @param loginFailure     the failure logging in.
+     *
+     * @return the failure to raise.
+     */
+    RuntimeException computeCallLoginFailure(final Method method, final int totalCalls, final long startTime, final OperationMetrics operationMetrics, final Deadline deadline, final Exception loginFailure) {
+        if (loginFailure instanceof TimeoutException || (null != deadline && deadline.isExpired())) {
+            return computeDeadlineExceeded(method, totalCalls, startTime, operationMetrics, loginFailure);
+        }
+
+        return loginFailure instanceof RuntimeException ? (RuntimeException) loginFailure : new IllegalStateException(loginFailure);
     }
 
     /**
@@ -190,33 +605,145 @@ final class PortInvocationHandler extends AbstractCommonBase implements Invocati
      */
     @Override
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        final long callTimeout = SessionPortFactory.getCallTimeout();
+
+        if (0 == callTimeout || LOGIN_CONTEXT_METHODS.contains(method)) {
+            return invokeWithinDeadline(proxy, method, args);
+        }
+
+        try (final Deadline deadline = Deadline.start(callTimeout, TimeUnit.MILLISECONDS)) {
+            return invokeWithinDeadline(proxy, method, args);
+        }
+    }
+
+    /**
+     * Call <code>method</code>, retrying and re-logging in as needed, within the {@link Deadline} in scope if any.
+     *
+     * @param proxy  the proxy port called.
+     * @param method the method called.
+     * @param args   the arguments of the call.
+     *
+     * @return the result of the call.
+     *
+     * @throws Throwable if the call fails.
+     */
+    Object invokeWithinDeadline(final Object proxy, final Method method, final Object[] args) throws Throwable {
         ObjectUtils.ensureObject(proxy, "Must have a proxy object in which to call methods!");
         ObjectUtils.ensureObject(method, "Must provide a method to call!");
 
+        // Calls to login context methods never leave the JVM, so only
+        // calls to the port are measured.
+        final boolean isLoginContextMethod = LOGIN_CONTEXT_METHODS.contains(method);
+        final OperationMetrics operationMetrics = isLoginContextMethod ? MetricsRegistryEnum.NONE : MetricsRegistryFactory.getMetricsRegistry().getOperationMetrics(getPortType(), method);
+        final Deadline deadline = isLoginContextMethod ? null : Deadline.current();
+        final long startTime = System.nanoTime();
+
+        // Logins, like calls, take no longer than the deadline.
+        try {
+            awaitLogin();
+
+            if (!isLoginContextMethod) {
+                refreshSession();
+            }
+        } catch (final RuntimeException | TimeoutException loginFailure) {
+            throw computeCallLoginFailure(method, 0, startTime, operationMetrics, deadline, loginFailure);
+        }
+
         log(Level.FINE, "Calling [{0}.{1}]", getPortType().getName(), method.getName());
 
         int totalCalls = 0;
         Throwable toRaise = null;
 
         final ExceptionContext exceptionContext = new ExceptionContext();
+        final OrganizationRateLimiter rateLimiter = isLoginContextMethod ? null : RateLimiters.getRateLimiter(getOrganizationId());
 
         do {
+            if (null != deadline && deadline.isExpired()) {
+                throw computeDeadlineExceeded(method, totalCalls, startTime, operationMetrics, toRaise);
+            }
+
+            if (totalCalls > 0) {
+                operationMetrics.recordRetry();
+            }
+
+            if (!isLoginContextMethod) {
+                ApiLimits.throttle(getOrganizationId(), null == deadline ? Long.MAX_VALUE : deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            }
+
+            if (null != rateLimiter && !rateLimiter.tryAcquire(null == deadline ? Long.MAX_VALUE : deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)) {
+                throw computeDeadlineExceeded(method, totalCalls, startTime, operationMetrics, toRaise);
+            }
+
+            if (null != deadline) {
+                applyDeadlines();
+            }
+
+            // Should this attempt need a relogin, only relogin if no other
+            // caller has since this session.
+            final LoginContext attemptLoginContext = getLoginContext().get();
+            final Object callEvent = isLoginContextMethod ? null : JfrEvents.beginCall();
+
             try {
                 // If we are getting a call for login context methods, we will
                 // make the call to our login context.  Otherwise, call out
                 // to the port.
-                return method.invoke(LOGIN_CONTEXT_METHODS.contains(method) ? getLoginContext().get() : getPort().get(), args);
+                final Object retVal = method.invoke(isLoginContextMethod ? getLoginContext().get() : getPort().get(), args);
+
+                operationMetrics.recordSuccess(System.nanoTime() - startTime);
+
+                if (null != rateLimiter) {
+                    rateLimiter.recordSuccess();
+                }
+
+                JfrEvents.commitCall(callEvent, getPortType(), method, getLoginContext().get(), totalCalls + 1, JfrEvents.SUCCESS);
+
+                return retVal;
             } catch (final IllegalAccessException | IllegalArgumentException | InvocationTargetException callFailure) {
                 log(Level.WARNING, "Trouble calling [{0}.{1}()]", getPortType().getName(), method.getName());
                 toRaise = callFailure;
 
-                if (SalesforceExceptionEnum.isReloginException(exceptionContext.incrementFailureCount(toRaise))) {
-                    getLoginContext().set(getLoginWebService().login(getCredentials()));
-                    getPort().set(SessionPortFactory.createSessionPort(getWebServiceType(), getLoginContext().get(), getService(), getPortType()));
+                final SalesforceExceptionEnum failure = ExceptionTotals.incrementFailureCount(exceptionContext.incrementFailureCount(toRaise));
+
+                operationMetrics.recordFailure(failure);
+
+                if (null != rateLimiter && SalesforceExceptionEnum.isOverloadException(failure)) {
+                    rateLimiter.recordOverload();
+                }
+
+                JfrEvents.commitCall(callEvent, getPortType(), method, getLoginContext().get(), totalCalls + 1, failure.name());
+
+                if (SalesforceExceptionEnum.isFailException(failure)) {
+                    operationMetrics.recordExhausted(System.nanoTime() - startTime);
+
+                    log(Level.SEVERE, toRaise, "Unable to call [{0}].[{1}], failure [{2}] is not retriable, raising exception", port.get().getClass().getName(), method.getName(), failure.getHumanReadbleString());
+
+                    throw new IllegalStateException("Call to Salesforce failed with non retriable failure [" + failure.getHumanReadbleString() + "]", toRaise);
+                }
+
+                // Timeouts shrunk to the deadline look like I/O failures - do
+                // not relogin for them.
+                if (null != deadline && deadline.isExpired()) {
+                    throw computeDeadlineExceeded(method, totalCalls + 1, startTime, operationMetrics, toRaise);
+                }
+
+                if (SalesforceExceptionEnum.isReloginException(failure)) {
+                    operationMetrics.recordRelogin();
+
+                    try {
+                        relogin(attemptLoginContext);
+                    } catch (final RuntimeException | TimeoutException reloginFailure) {
+                        throw computeCallLoginFailure(method, totalCalls + 1, startTime, operationMetrics, deadline, reloginFailure);
+                    }
+                }
+            } finally {
+                if (null != rateLimiter) {
+                    rateLimiter.release();
                 }
             }
         } while (isCallRetriable(++totalCalls));
 
+        operationMetrics.recordExhausted(System.nanoTime() - startTime);
+
         log(Level.SEVERE, toRaise, "Unable to call [{0}].[{1}] after retry [{2}] attempts, raising exception.  Failures include [{3}]", port.get().getClass().getName(), method.getName(), totalCalls, exceptionContext.computeTotals());
 
         throw new IllegalStateException("Attempts to retry calls to Salesforce have failed after [" + totalCalls + "] times.  Failures are: " + exceptionContext.computeTotals(), toRaise);
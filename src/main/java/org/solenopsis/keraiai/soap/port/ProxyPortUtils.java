@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.port;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeoutException;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.flossware.jcore.utils.StringUtils;
+import org.solenopsis.keraiai.LoginContext;
+
+/**
+ * Utility methods for clients that call SFDC themselves with the session of a proxy port.
+ *
+ * @author Scot P. Floess
+ */
+public final class ProxyPortUtils {
+    /**
+     * Default constructor not allowed.
+     */
+    private ProxyPortUtils() {
+    }
+
+    /**
+     * Have the proxy port <code>loginContext</code> log in again, should its session still be <code>staleSessionId</code>. Callers
+     * sharing the proxy port log in once between them: should another caller already have logged in again, its session is kept.
+     * Waiting on logins takes no longer than the {@link org.solenopsis.keraiai.soap.session.Deadline} in scope if any.
+     *
+     * @param loginContext   the login context whose session was found invalid.
+     * @param staleSessionId the session id found invalid.
+     *
+     * @return true if loginContext is a proxy port, whose session is now valid, or false if it cannot log in again.
+     *
+     * @throws IllegalArgumentException if loginContext is null or staleSessionId is blank.
+     * @throws IllegalStateException if the deadline passes first.
+     */
+    public static boolean invalidateSession(final LoginContext loginContext, final String staleSessionId) {
+        ObjectUtils.ensureObject(loginContext, "Must provide a login context!");
+        StringUtils.ensureString(staleSessionId, "Must provide a session id!");
+
+        if (!Proxy.isProxyClass(loginContext.getClass())) {
+            return false;
+        }
+
+        final InvocationHandler invocationHandler = Proxy.getInvocationHandler(loginContext);
+
+        try {
+            if (invocationHandler instanceof PortInvocationHandler) {
+                ((PortInvocationHandler) invocationHandler).invalidateSession(staleSessionId);
+            } else if (invocationHandler instanceof SessionPoolInvocationHandler) {
+                ((SessionPoolInvocationHandler) invocationHandler).invalidateSession(staleSessionId);
+            } else {
+                return false;
+            }
+        } catch (final TimeoutException timeoutException) {
+            throw new IllegalStateException("Deadline passed logging in again", timeoutException);
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.port;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import javax.xml.ws.Service;
+import org.flossware.jcore.AbstractCommonBase;
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.soap.LoginWebService;
+import org.solenopsis.keraiai.soap.WebServiceType;
+import org.solenopsis.keraiai.soap.session.Deadline;
+import org.solenopsis.keraiai.soap.session.HedgingPolicy;
+import org.solenopsis.keraiai.soap.session.SessionPortFactory;
+
+/**
+ * Acts as a proxy over a pool of sessions for one set of credentials. Each session is its own {@link PortInvocationHandler} - with
+ * its own login (never one restored from the session store), port, retries and re-logins - so a session whose id becomes invalid
+ * is re-logged in without stalling callers of the other sessions. Calls go to the session with the fewest calls in flight, ties
+ * broken round robin.
+ *
+ * Calls to methods defined on <code>LoginContext</code> are answered by the first session.
+ *
+ * When a {@link HedgingPolicy} is set, calls to hedged operations run on a pool thread. Should one not complete within the latency
+ * percentile observed for its operation, it is called again on another session and whichever completes first is returned. The
+ * percentile is of first calls only, including those that lose to their hedge. The losing call is cancelled, but cancelling only
+ * interrupts its pool thread - a JAX-WS call blocked reading its response is not aborted, and runs until it completes or its
+ * read timeout or {@link Deadline} passes.
+ *
+ * @author Scot P. Floess
+ */
+final class SessionPoolInvocationHandler extends AbstractCommonBase implements InvocationHandler {
+    /**
+     * Runs hedged calls - daemon threads so callers need not shut it down.
+     */
+    static final ExecutorService HEDGE_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread retVal = new Thread(runnable, "keraiai-hedge");
+
+            retVal.setDaemon(true);
+
+            return retVal;
+        }
+    });
+
+    /**
+     * The pooled sessions.
+     */
+    private final PortInvocationHandler[] sessions;
+
+    /**
+     * Calls in flight per session.
+     */
+    private final AtomicIntegerArray inFlight;
+
+    /**
+     * Where the search for the least busy session starts.
+     */
+    private final AtomicInteger next;
+
+    /**
+     * Observed latency per hedged operation.
+     */
+    private final ConcurrentMap<Method, HedgedOperation> hedgedOperations;
+
+    /**
+     * Total calls hedged.
+     */
+    private final AtomicLong hedges;
+
+    /**
+     * Return the pooled sessions.
+     */
+    PortInvocationHandler[] getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Return the calls in flight per session.
+     */
+    AtomicIntegerArray getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Return the total calls hedged.
+     */
+    long getHedges() {
+        return hedges.get();
+    }
+
+    /**
+     * Return the session with the fewest calls in flight.
+     *
+     * @return the index of the session.
+     */
+    int computeSession() {
+        final int start = (next.getAndIncrement() & Integer.MAX_VALUE) % sessions.length;
+
+        int retVal = start;
+
+        for (int offset = 1; offset < sessions.length && inFlight.get(retVal) > 0; offset++) {
+            final int session = (start + offset) % sessions.length;
+
+            if (inFlight.get(session) < inFlight.get(retVal)) {
+                retVal = session;
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Return the session, other than <code>session</code> if possible, with the fewest calls in flight.
+     *
+     * @return the index of the session.
+     */
+    int computeHedgeSession(final int session) {
+        int retVal = session;
+
+        for (int offset = 1; offset < sessions.length; offset++) {
+            final int candidate = (session + offset) % sessions.length;
+
+            if (retVal == session || inFlight.get(candidate) < inFlight.get(retVal)) {
+                retVal = candidate;
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Return the observed latency of <code>method</code>, creating if needed.
+     */
+    HedgedOperation computeHedgedOperation(final Method method) {
+        HedgedOperation retVal = hedgedOperations.get(method);
+
+        if (null == retVal) {
+            final HedgedOperation newHedgedOperation = new HedgedOperation();
+
+            retVal = hedgedOperations.putIfAbsent(method, newHedgedOperation);
+
+            if (null == retVal) {
+                retVal = newHedgedOperation;
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Call <code>method</code> on <code>session</code>, accounting for the call in flight.
+     */
+    Object invokeSession(final int session, final Object proxy, final Method method, final Object[] args) throws Throwable {
+        log(Level.FINEST, "Calling [{0}] on session [{1}]", method.getName(), session);
+
+        inFlight.incrementAndGet(session);
+
+        try {
+            return sessions[session].invoke(proxy, method, args);
+        } finally {
+            inFlight.decrementAndGet(session);
+        }
+    }
+
+    /**
+     * Return a call of <code>method</code> on <code>session</code> to run on a pool thread.
+     */
+    Callable<Object> createCall(final int session, final Object proxy, final Method method, final Object[] args) {
+        // Deadlines are per thread, so carry the caller's to the pool thread.
+        final Deadline deadline = Deadline.current();
+
+        return new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                if (null == deadline) {
+                    return invokeCall(session, proxy, method, args);
+                }
+
+                try (final Deadline callDeadline = Deadline.start(deadline.getRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)) {
+                    return invokeCall(session, proxy, method, args);
+                }
+            }
+        };
+    }
+
+    /**
+     * Return a call that records its latency, from <code>startTime</code>, to <code>hedgedOperation</code> once it succeeds.
+     * Only first calls are recorded: a hedge starts late, and the time until whichever call wins would hide the tail latency
+     * hedging is meant to avoid.
+     */
+    static Callable<Object> createRecordedCall(final Callable<Object> call, final HedgedOperation hedgedOperation, final HedgingPolicy hedgingPolicy, final long startTime) {
+        return new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                final Object retVal = call.call();
+
+                hedgedOperation.record(System.nanoTime() - startTime, hedgingPolicy);
+
+                return retVal;
+            }
+        };
+    }
+
+    /**
+     * Call <code>method</code> on <code>session</code> from a pool thread.
+     */
+    Object invokeCall(final int session, final Object proxy, final Method method, final Object[] args) throws Exception {
+        try {
+            return invokeSession(session, proxy, method, args);
+        } catch (final Exception | Error failure) {
+            throw failure;
+        } catch (final Throwable throwable) {
+            throw new UndeclaredThrowableException(throwable);
+        }
+    }
+
+    /**
+     * Return the result of the completed <code>call</code>, raising its failure if it failed.
+     */
+    static Object computeResult(final Future<Object> call) throws Throwable {
+        try {
+            return call.get();
+        } catch (final ExecutionException executionException) {
+            throw executionException.getCause();
+        }
+    }
+
+    /**
+     * Call <code>method</code>, hedging once the call takes longer than observed for the operation.
+     */
+    Object invokeHedged(final HedgingPolicy hedgingPolicy, final Object proxy, final Method method, final Object[] args) throws Throwable {
+        final HedgedOperation hedgedOperation = computeHedgedOperation(method);
+        final long delay = hedgedOperation.getDelay();
+        final long startTime = System.nanoTime();
+        final int session = computeSession();
+
+        if (delay < 0) {
+            final Object retVal = invokeSession(session, proxy, method, args);
+
+            hedgedOperation.record(System.nanoTime() - startTime, hedgingPolicy);
+
+            return retVal;
+        }
+
+        final CompletionService<Object> completionService = new ExecutorCompletionService<>(HEDGE_EXECUTOR);
+        final List<Future<Object>> calls = new ArrayList<>(2);
+
+        calls.add(completionService.submit(createRecordedCall(createCall(session, proxy, method, args), hedgedOperation, hedgingPolicy, startTime)));
+
+        try {
+            Future<Object> completed = completionService.poll(delay, TimeUnit.NANOSECONDS);
+
+            if (null == completed) {
+                final int hedgeSession = computeHedgeSession(session);
+
+                log(Level.FINE, "Hedging [{0}] on session [{1}] after [{2}] ns", method.getName(), hedgeSession, delay);
+
+                hedges.incrementAndGet();
+
+                calls.add(completionService.submit(createCall(hedgeSession, proxy, method, args)));
+
+                completed = completionService.take();
+            }
+
+            Object retVal;
+
+            try {
+                retVal = computeResult(completed);
+            } catch (final Throwable failure) {
+                if (calls.size() < 2) {
+                    throw failure;
+                }
+
+                log(Level.FINE, "First of hedged calls to [{0}] failed, awaiting the other", method.getName());
+
+                retVal = computeResult(completionService.take());
+            }
+
+            return retVal;
+        } catch (final InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Interrupted awaiting call to [" + method.getName() + "]", interruptedException);
+        } finally {
+            // Interrupting does not abort a blocking JAX-WS read: the losing
+            // call runs on, within its deadline, holding its pool thread.
+            for (final Future<Object> call : calls) {
+                call.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * This constructor logs in <code>totalSessions</code> times.
+     *
+     * @param credentials     used for login and re-login.
+     * @param loginWebService used for logins and session ids.
+     * @param webServiceType  the type of web service being used.
+     * @param service         the web service to call.
+     * @param portType        used to retrieve a port from the service.
+     * @param totalSessions   the total sessions to pool.
+     *
+     * @throws IllegalArgumentException if any of the params are null or totalSessions is less than 1.
+     */
+    SessionPoolInvocationHandler(final Credentials credentials, final LoginWebService loginWebService, final WebServiceType webServiceType, final Service service, final Class portType, final int totalSessions) {
+        if (totalSessions < 1) {
+            throw new IllegalArgumentException("Must pool at least one session!");
+        }
+
+        this.sessions = new PortInvocationHandler[totalSessions];
+        this.inFlight = new AtomicIntegerArray(totalSessions);
+        this.next = new AtomicInteger();
+        this.hedgedOperations = new ConcurrentHashMap<>();
+        this.hedges = new AtomicLong();
+
+        for (int session = 0; session < totalSessions; session++) {
+            // Never restore from the session store: it would hand every
+            // session the same id, so one invalid session stalls them all.
+            sessions[session] = new PortInvocationHandler(credentials, loginWebService, webServiceType, service, portType, false);
+        }
+    }
+
+    /**
+     * Log in again should the session answering login context calls still be <code>staleSessionId</code>.
+     *
+     * @throws TimeoutException if the {@link Deadline} in scope passes first.
+     */
+    void invalidateSession(final String staleSessionId) throws TimeoutException {
+        sessions[0].invalidateSession(staleSessionId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+        if (PortInvocationHandler.LOGIN_CONTEXT_METHODS.contains(method)) {
+            return sessions[0].invoke(proxy, method, args);
+        }
+
+        final HedgingPolicy hedgingPolicy = SessionPortFactory.getHedgingPolicy();
+
+        if (null == hedgingPolicy || !hedgingPolicy.isHedged(method)) {
+            return invokeSession(computeSession(), proxy, method, args);
+        }
+
+        final long callTimeout = SessionPortFactory.getCallTimeout();
+
+        if (0 == callTimeout) {
+            return invokeHedged(hedgingPolicy, proxy, method, args);
+        }
+
+        // Hedged calls share the call timeout of the caller.
+        try (final Deadline deadline = Deadline.start(callTimeout, TimeUnit.MILLISECONDS)) {
+            return invokeHedged(hedgingPolicy, proxy, method, args);
+        }
+    }
+}
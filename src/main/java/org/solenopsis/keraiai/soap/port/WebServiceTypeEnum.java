@@ -112,6 +112,42 @@ public enum WebServiceTypeEnum implements WebServiceType {
         return (P) Proxy.newProxyInstance(WebServiceTypeEnum.class.getClassLoader(), new Class[]{portType, LoginContext.class}, new PortInvocationHandler(credentials, loginWebService, this, service, portType));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <S extends Service, P> P createProxyPortAsync(final Credentials credentials, final LoginWebService loginWebService, final Service service, final Class<P> portType) {
+        ObjectUtils.ensureObject(credentials, "Must provide credentials!");
+        ObjectUtils.ensureObject(loginWebService, "Must provide a login web service!");
+        ObjectUtils.ensureObject(service, "Must provide a service!");
+        ObjectUtils.ensureObject(portType, "Must provide a port type!");
+
+        service.getPort(portType);
+
+        return (P) Proxy.newProxyInstance(WebServiceTypeEnum.class.getClassLoader(), new Class[]{portType, LoginContext.class}, new PortInvocationHandler(credentials, loginWebService.restoreLoginAsync(credentials), loginWebService, this, service, portType));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <S extends Service, P> P createProxyPort(final Credentials credentials, final LoginWebService loginWebService, final Service service, final Class<P> portType, final int totalSessions) {
+        if (totalSessions < 1) {
+            throw new IllegalArgumentException("Must pool at least one session!");
+        }
+
+        if (1 == totalSessions) {
+            return createProxyPort(credentials, loginWebService, service, portType);
+        }
+
+        ObjectUtils.ensureObject(service, "Must provide a service!");
+        ObjectUtils.ensureObject(portType, "Must provide a port type!");
+
+        service.getPort(portType);
+
+        return (P) Proxy.newProxyInstance(WebServiceTypeEnum.class.getClassLoader(), new Class[]{portType, LoginContext.class}, new SessionPoolInvocationHandler(credentials, loginWebService, this, service, portType, totalSessions));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import org.flossware.jcore.utils.ObjectUtils;
+
+/**
+ * An SSL socket factory that counts connections, handshakes and bytes. The HTTPS client asks for an unconnected socket, which we
+ * return as a plain counting socket - TLS is then layered over it so the bytes counted are those on the wire.
+ *
+ * @author Scot P. Floess
+ */
+final class CountingSslSocketFactory extends SSLSocketFactory {
+    /**
+     * The real factory.
+     */
+    private final SSLSocketFactory sslSocketFactory;
+
+    /**
+     * Where we count.
+     */
+    private final TransportStatistics transportStatistics;
+
+    /**
+     * A plain socket whose streams count bytes.
+     */
+    final class CountingSocket extends Socket {
+        /**
+         * Counts bytes read.
+         */
+        private InputStream inputStream;
+
+        /**
+         * Counts bytes written.
+         */
+        private OutputStream outputStream;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized InputStream getInputStream() throws IOException {
+            if (null == inputStream) {
+                inputStream = new FilterInputStream(super.getInputStream()) {
+                    @Override
+                    public int read() throws IOException {
+                        final int retVal = super.read();
+
+                        if (retVal >= 0) {
+                            getTransportStatistics().addBytesReceived(1);
+                        }
+
+                        return retVal;
+                    }
+
+                    @Override
+                    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+                        final int retVal = super.read(bytes, offset, length);
+
+                        if (retVal > 0) {
+                            getTransportStatistics().addBytesReceived(retVal);
+                        }
+
+                        return retVal;
+                    }
+                };
+            }
+
+            return inputStream;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized OutputStream getOutputStream() throws IOException {
+            if (null == outputStream) {
+                outputStream = new FilterOutputStream(super.getOutputStream()) {
+                    @Override
+                    public void write(final int value) throws IOException {
+                        out.write(value);
+                        getTransportStatistics().addBytesSent(1);
+                    }
+
+                    @Override
+                    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+                        out.write(bytes, offset, length);
+                        getTransportStatistics().addBytesSent(length);
+                    }
+                };
+            }
+
+            return outputStream;
+        }
+    }
+
+    /**
+     * Return the real factory.
+     */
+    SSLSocketFactory getSslSocketFactory() {
+        return sslSocketFactory;
+    }
+
+    /**
+     * Return where we count.
+     */
+    TransportStatistics getTransportStatistics() {
+        return transportStatistics;
+    }
+
+    /**
+     * Count the connection and future handshakes of <code>socket</code>.
+     */
+    Socket count(final Socket socket) {
+        getTransportStatistics().incrementConnections();
+
+        if (socket instanceof SSLSocket) {
+            ((SSLSocket) socket).addHandshakeCompletedListener(new HandshakeCompletedListener() {
+                @Override
+                public void handshakeCompleted(final HandshakeCompletedEvent event) {
+                    getTransportStatistics().incrementHandshakes();
+                }
+            });
+        }
+
+        return socket;
+    }
+
+    /**
+     * This constructor sets the real factory and where we count.
+     *
+     * @param sslSocketFactory    the real factory.
+     * @param transportStatistics where we count.
+     */
+    CountingSslSocketFactory(final SSLSocketFactory sslSocketFactory, final TransportStatistics transportStatistics) {
+        this.sslSocketFactory = ObjectUtils.ensureObject(sslSocketFactory, "Must provide an SSL socket factory!");
+        this.transportStatistics = ObjectUtils.ensureObject(transportStatistics, "Must provide transport statistics!");
+    }
+
+    /**
+     * Return an unconnected counting socket - TLS will be layered on top once connected.
+     *
+     * @return an unconnected counting socket.
+     */
+    @Override
+    public Socket createSocket() {
+        return new CountingSocket();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Socket createSocket(final Socket socket, final String host, final int port, final boolean autoClose) throws IOException {
+        return count(getSslSocketFactory().createSocket(socket, host, port, autoClose));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Socket createSocket(final String host, final int port) throws IOException {
+        return count(getSslSocketFactory().createSocket(host, port));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Socket createSocket(final String host, final int port, final InetAddress localHost, final int localPort) throws IOException {
+        return count(getSslSocketFactory().createSocket(host, port, localHost, localPort));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Socket createSocket(final InetAddress host, final int port) throws IOException {
+        return count(getSslSocketFactory().createSocket(host, port));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Socket createSocket(final InetAddress address, final int port, final InetAddress localAddress, final int localPort) throws IOException {
+        return count(getSslSocketFactory().createSocket(address, port, localAddress, localPort));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return getSslSocketFactory().getDefaultCipherSuites();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return getSslSocketFactory().getSupportedCipherSuites();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the total time of calls made via proxy ports on the current thread - retries and re-logins included. While a deadline is
+ * in scope, each attempt's and each login's connect and read timeouts are shrunk to the time remaining, waits for a first login,
+ * another caller's login, API usage throttling and rate limits end with it, and no attempt is made once it has passed:
+ *
+ * <pre>
+ * try (final Deadline deadline = Deadline.start(500, TimeUnit.MILLISECONDS)) {
+ *     port.query("SELECT Id FROM Account");
+ * }
+ * </pre>
+ *
+ * Deadlines nest - a deadline started within another never outlives it.
+ *
+ * Shrinking timeouts takes a logical handler on each port. Until the first deadline is started - directly or by a call timeout -
+ * ports are created without it, so applications not using deadlines pay no handler processing.
+ *
+ * @author Scot P. Floess
+ */
+public final class Deadline implements AutoCloseable {
+    /**
+     * Longest timeout, in nanoseconds, so expiry never overflows.
+     */
+    static final long MAX_TIMEOUT = Long.MAX_VALUE / 4;
+
+    /**
+     * The deadline in scope per thread.
+     */
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    /**
+     * True once any deadline has been started.
+     */
+    private static volatile boolean started;
+
+    /**
+     * When, in <code>System.nanoTime()</code>, the deadline passes.
+     */
+    private final long expiry;
+
+    /**
+     * The deadline in scope before this one - null if none.
+     */
+    private final Deadline previous;
+
+    /**
+     * This constructor sets the expiry and previous deadline.
+     *
+     * @param expiry   when, in <code>System.nanoTime()</code>, the deadline passes.
+     * @param previous the deadline in scope before this one - null if none.
+     */
+    private Deadline(final long expiry, final Deadline previous) {
+        this.expiry = expiry;
+        this.previous = previous;
+    }
+
+    /**
+     * Start a deadline on the current thread, in scope until closed.
+     *
+     * @param timeout the time allowed.
+     * @param unit    the unit of timeout.
+     *
+     * @return the deadline - never later than any deadline already in scope.
+     *
+     * @throws IllegalArgumentException if timeout is negative or unit is null.
+     */
+    public static Deadline start(final long timeout, final TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative!");
+        }
+
+        if (null == unit) {
+            throw new IllegalArgumentException("Must provide a time unit!");
+        }
+
+        started = true;
+
+        final Deadline previous = CURRENT.get();
+        final long expiry = System.nanoTime() + Math.min(unit.toNanos(timeout), MAX_TIMEOUT);
+        final Deadline retVal = new Deadline(null == previous ? expiry : Math.min(expiry, previous.expiry), previous);
+
+        CURRENT.set(retVal);
+
+        return retVal;
+    }
+
+    /**
+     * Return true once any deadline has been started, from which point ports need the handler shrinking their timeouts.
+     *
+     * @return true if deadlines are in use.
+     */
+    public static boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Set if deadlines are in use - tests reset this to create ports as applications not using deadlines would.
+     */
+    static void setStarted(final boolean isStarted) {
+        started = isStarted;
+    }
+
+    /**
+     * Return the deadline in scope on the current thread.
+     *
+     * @return the deadline or null if none.
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Return the time remaining.
+     *
+     * @param unit the unit of the time remaining.
+     *
+     * @return the time remaining or 0 if passed.
+     */
+    public long getRemaining(final TimeUnit unit) {
+        return unit.convert(Math.max(0, expiry - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Shrink a connect or read <code>timeout</code> to the time remaining - never below a millisecond, as a timeout of 0 is
+     * infinite.
+     *
+     * @param timeout the timeout, in milliseconds - 0 meaning infinite.
+     *
+     * @return the smaller of the time remaining and timeout, in milliseconds.
+     */
+    public int computeTimeout(final int timeout) {
+        return DeadlineRequestHandler.computeTimeout(Math.max(1, getRemaining(TimeUnit.MILLISECONDS)), timeout);
+    }
+
+    /**
+     * Return true if the deadline has passed.
+     *
+     * @return true if passed.
+     */
+    public boolean isExpired() {
+        return expiry - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Ends the scope of this deadline, restoring the deadline in scope before it.
+     */
+    @Override
+    public void close() {
+        if (CURRENT.get() != this) {
+            return;
+        }
+
+        if (null == previous) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
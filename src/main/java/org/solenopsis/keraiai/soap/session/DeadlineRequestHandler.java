@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import javax.xml.ws.handler.LogicalHandler;
+import javax.xml.ws.handler.LogicalMessageContext;
+import javax.xml.ws.handler.MessageContext;
+
+/**
+ * Shrinks the connect and read timeouts of an outbound message to the time remaining on the {@link Deadline} in scope. Timeouts are
+ * set on the message context of the call, not the port, so concurrent calls on a port do not see each other's timeouts. Being a
+ * logical handler that never reads the message, it adds no parsing to calls.
+ *
+ * @author Scot P. Floess
+ */
+final class DeadlineRequestHandler implements LogicalHandler<LogicalMessageContext> {
+    /**
+     * Holds no state, so all ports share it.
+     */
+    static final DeadlineRequestHandler DEADLINE_REQUEST_HANDLER = new DeadlineRequestHandler();
+
+    /**
+     * Return the smaller of <code>remaining</code> and the configured <code>timeout</code> - 0 meaning infinite.
+     */
+    static int computeTimeout(final long remaining, final int timeout) {
+        return (int) (0 == timeout ? Math.min(remaining, Integer.MAX_VALUE) : Math.min(remaining, timeout));
+    }
+
+    /**
+     * Default constructor.
+     */
+    private DeadlineRequestHandler() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean handleMessage(final LogicalMessageContext context) {
+        final Deadline deadline = Deadline.current();
+
+        if (null == deadline || !((Boolean) context.get(MessageContext.MESSAGE_OUTBOUND_PROPERTY))) {
+            return true;
+        }
+
+        final TransportConfiguration transportConfiguration = SessionPortFactory.getTransportConfiguration();
+
+        TransportConfiguration.putAll(context, TransportConfiguration.CONNECT_TIMEOUT_PROPERTIES, deadline.computeTimeout(null == transportConfiguration ? 0 : transportConfiguration.getConnectTimeout()));
+        TransportConfiguration.putAll(context, TransportConfiguration.READ_TIMEOUT_PROPERTIES, deadline.computeTimeout(null == transportConfiguration ? 0 : transportConfiguration.getReadTimeout()));
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean handleFault(final LogicalMessageContext context) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close(final MessageContext context) {
+    }
+}
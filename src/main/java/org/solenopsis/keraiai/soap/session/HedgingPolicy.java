@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.flossware.jcore.utils.ObjectUtils;
+
+/**
+ * When pooled proxy ports hedge calls. A hedged call that has not completed within the latency percentile observed for its
+ * operation is called again, on the least busy pooled session, and whichever completes first is returned - the other is cancelled.
+ * This trims the long tail of SFDC latency at the cost of some extra calls.
+ *
+ * Only idempotent operations may be hedged, as both calls may reach SFDC. Operations are not hedged until enough of their calls
+ * have completed to know their latency. Operations are matched by name across all web services, so names shared with an operation
+ * that is not idempotent - such as the metadata <code>retrieve</code>, which starts an asynchronous retrieval - are not hedged by
+ * default.
+ *
+ * A losing call is cancelled but, as a blocking JAX-WS read cannot be interrupted, it runs until its response, read timeout or
+ * {@link Deadline} - bound calls with a deadline to free its pool thread sooner.
+ *
+ * @author Scot P. Floess
+ */
+public final class HedgingPolicy {
+    /**
+     * Idempotent read operations of the SFDC web services - hedged by default. The partner <code>retrieve</code> is left out as
+     * the metadata <code>retrieve</code> shares its name.
+     */
+    public static final Set<String> DEFAULT_OPERATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "query", "queryAll", "queryMore", "search", "describeSObject", "describeSObjects", "describeGlobal", "describeLayout",
+        "getServerTimestamp", "getUserInfo", "readMetadata", "listMetadata", "describeMetadata", "describeValueType"
+    )));
+
+    /**
+     * Default latency percentile after which calls are hedged.
+     */
+    public static final double DEFAULT_PERCENTILE = 95;
+
+    /**
+     * Default total calls of an operation to complete before it is hedged.
+     */
+    public static final int DEFAULT_MINIMUM_SAMPLES = 20;
+
+    /**
+     * Latency percentile after which calls are hedged.
+     */
+    private final double percentile;
+
+    /**
+     * Total calls of an operation to complete before it is hedged.
+     */
+    private final int minimumSamples;
+
+    /**
+     * Least time, in milliseconds, to wait before hedging.
+     */
+    private final long minimumDelay;
+
+    /**
+     * Names of the operations to hedge.
+     */
+    private final Set<String> operations;
+
+    /**
+     * This constructor sets all values.
+     *
+     * @param percentile     latency percentile, greater than 0 and less than 100, after which calls are hedged.
+     * @param minimumSamples total calls of an operation to complete before it is hedged.
+     * @param minimumDelay   least time, in milliseconds, to wait before hedging.
+     * @param operations     names of the idempotent operations to hedge.
+     *
+     * @throws IllegalArgumentException if percentile is out of range, minimumSamples is less than 1, minimumDelay is negative or
+     *                                  operations is null.
+     */
+    public HedgingPolicy(final double percentile, final int minimumSamples, final long minimumDelay, final Set<String> operations) {
+        if (percentile <= 0 || percentile >= 100) {
+            throw new IllegalArgumentException("Percentile must be greater than 0 and less than 100!");
+        }
+
+        if (minimumSamples < 1) {
+            throw new IllegalArgumentException("Minimum samples must be at least 1!");
+        }
+
+        if (minimumDelay < 0) {
+            throw new IllegalArgumentException("Minimum delay cannot be negative!");
+        }
+
+        this.percentile = percentile;
+        this.minimumSamples = minimumSamples;
+        this.minimumDelay = minimumDelay;
+        this.operations = Collections.unmodifiableSet(new HashSet<>(ObjectUtils.ensureObject(operations, "Must provide operations!")));
+    }
+
+    /**
+     * This constructor hedges the default operations.
+     *
+     * @param percentile     latency percentile, greater than 0 and less than 100, after which calls are hedged.
+     * @param minimumSamples total calls of an operation to complete before it is hedged.
+     * @param minimumDelay   least time, in milliseconds, to wait before hedging.
+     *
+     * @throws IllegalArgumentException if percentile is out of range, minimumSamples is less than 1 or minimumDelay is negative.
+     */
+    public HedgingPolicy(final double percentile, final int minimumSamples, final long minimumDelay) {
+        this(percentile, minimumSamples, minimumDelay, DEFAULT_OPERATIONS);
+    }
+
+    /**
+     * Default constructor - hedges the default operations after their 95th latency percentile.
+     */
+    public HedgingPolicy() {
+        this(DEFAULT_PERCENTILE, DEFAULT_MINIMUM_SAMPLES, 0);
+    }
+
+    /**
+     * Return the latency percentile after which calls are hedged.
+     *
+     * @return the percentile.
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * Return the total calls of an operation to complete before it is hedged.
+     *
+     * @return the minimum samples.
+     */
+    public int getMinimumSamples() {
+        return minimumSamples;
+    }
+
+    /**
+     * Return the least time, in milliseconds, to wait before hedging.
+     *
+     * @return the minimum delay.
+     */
+    public long getMinimumDelay() {
+        return minimumDelay;
+    }
+
+    /**
+     * Return the names of the operations to hedge.
+     *
+     * @return the operations.
+     */
+    public Set<String> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Return true if calls to <code>method</code> are hedged.
+     *
+     * @param method the method called.
+     *
+     * @return true if hedged.
+     */
+    public boolean isHedged(final Method method) {
+        return operations.contains(method.getName());
+    }
+}
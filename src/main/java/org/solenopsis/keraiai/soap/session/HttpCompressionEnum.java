@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.handler.MessageContext;
+import org.flossware.jcore.utils.ObjectUtils;
+
+/**
+ * HTTP compression of SOAP traffic. SFDC accepts gzip compressed requests and will compress responses when asked. Compression is
+ * requested by placing <code>Content-Encoding</code> and <code>Accept-Encoding</code> HTTP headers on the port's request context -
+ * the JAX-WS transport then streams the request through a gzip output stream and the response through a gzip input stream, so no
+ * message is buffered or handled as a DOM to compress it.
+ *
+ * @author Scot P. Floess
+ */
+public enum HttpCompressionEnum {
+    NONE(false, false),
+    RESPONSE(false, true),
+    REQUEST_AND_RESPONSE(true, true);
+
+    /**
+     * The HTTP header denoting the request body is compressed.
+     */
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+
+    /**
+     * The HTTP header asking for a compressed response.
+     */
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    /**
+     * The encoding we use.
+     */
+    public static final String GZIP = "gzip";
+
+    /**
+     * True if requests are compressed.
+     */
+    private final boolean requestCompressed;
+
+    /**
+     * True if responses are compressed.
+     */
+    private final boolean responseCompressed;
+
+    /**
+     * This constructor sets whether requests and responses are compressed.
+     *
+     * @param requestCompressed  true if requests are compressed.
+     * @param responseCompressed true if responses are compressed.
+     */
+    private HttpCompressionEnum(final boolean requestCompressed, final boolean responseCompressed) {
+        this.requestCompressed = requestCompressed;
+        this.responseCompressed = responseCompressed;
+    }
+
+    /**
+     * Return true if requests are compressed.
+     *
+     * @return true if requests are compressed.
+     */
+    public boolean isRequestCompressed() {
+        return requestCompressed;
+    }
+
+    /**
+     * Return true if responses are compressed.
+     *
+     * @return true if responses are compressed.
+     */
+    public boolean isResponseCompressed() {
+        return responseCompressed;
+    }
+
+    /**
+     * Place our HTTP headers on the request context of <code>port</code>. Any HTTP headers already present are retained.
+     *
+     * @param <P>  the type of port.
+     *
+     * @param port the port to configure.
+     *
+     * @return the port.
+     */
+    public <P> P configure(final P port) {
+        if (!isRequestCompressed() && !isResponseCompressed()) {
+            return port;
+        }
+
+        final Map<String, Object> requestContext = ((BindingProvider) ObjectUtils.ensureObject(port, "Must provide a port!")).getRequestContext();
+        final Map<String, List<String>> currentHeaders = (Map<String, List<String>>) requestContext.get(MessageContext.HTTP_REQUEST_HEADERS);
+        final Map<String, List<String>> httpHeaders = null == currentHeaders ? new HashMap<String, List<String>>() : new HashMap<>(currentHeaders);
+
+        if (isRequestCompressed()) {
+            httpHeaders.put(CONTENT_ENCODING, Collections.singletonList(GZIP));
+        }
+
+        if (isResponseCompressed()) {
+            httpHeaders.put(ACCEPT_ENCODING, Collections.singletonList(GZIP));
+        }
+
+        requestContext.put(MessageContext.HTTP_REQUEST_HEADERS, httpHeaders);
+
+        return port;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.flossware.jcore.utils.LoggerUtils;
+import org.w3c.dom.Element;
+
+/**
+ * Sets outbound SOAP headers on a port without a handler, using the JAX-WS reference implementation's
+ * <code>WSBindingProvider.setOutboundHeaders()</code>. Both the standalone (<code>com.sun.xml.ws</code>) and JDK internal
+ * (<code>com.sun.xml.internal.ws</code>) reference implementations are supported. Reflection is used so Keraiai does not depend on
+ * either at compile time.
+ *
+ * @author Scot P. Floess
+ */
+final class OutboundHeaders {
+    /**
+     * Suffix of the binding provider interface name able to set outbound headers.
+     */
+    static final String BINDING_PROVIDER_SUFFIX = ".ws.developer.WSBindingProvider";
+
+    /**
+     * Suffix of the class able to create headers.
+     */
+    static final String HEADERS_SUFFIX = ".ws.api.message.Headers";
+
+    /**
+     * Our logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(OutboundHeaders.class.getName());
+
+    /**
+     * Return the LOGGER.
+     */
+    private static Logger getLogger() {
+        return LOGGER;
+    }
+
+    /**
+     * Find the reference implementation binding provider interface implemented by <code>port</code>.
+     *
+     * @return the interface or null if <code>port</code> is not from the reference implementation.
+     */
+    static Class findBindingProvider(final Object port) {
+        for (final Class portInterface : port.getClass().getInterfaces()) {
+            if (portInterface.getName().endsWith(BINDING_PROVIDER_SUFFIX)) {
+                return portInterface;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Set <code>header</code> as an outbound header on <code>port</code>.
+     *
+     * @param port   the port whose outbound headers will be set.
+     * @param header the header to send on every outbound message.
+     *
+     * @return true if the header was set or false if <code>port</code> does not support outbound headers.
+     */
+    static boolean setOutboundHeader(final Object port, final Element header) {
+        final Class bindingProvider = findBindingProvider(port);
+
+        if (null == bindingProvider) {
+            LoggerUtils.log(getLogger(), Level.FINE, "Port [{0}] does not support outbound headers", port);
+
+            return false;
+        }
+
+        final String packagePrefix = bindingProvider.getName().substring(0, bindingProvider.getName().length() - BINDING_PROVIDER_SUFFIX.length());
+
+        try {
+            final Class headers = Class.forName(packagePrefix + HEADERS_SUFFIX, true, bindingProvider.getClassLoader());
+            final Method create = headers.getMethod("create", Element.class);
+            final Method setOutboundHeaders = bindingProvider.getMethod("setOutboundHeaders", List.class);
+
+            setOutboundHeaders.invoke(port, Collections.singletonList(create.invoke(null, header)));
+
+            return true;
+        } catch (final ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException exception) {
+            getLogger().log(Level.WARNING, "Unable to set outbound headers", exception);
+
+            return false;
+        }
+    }
+
+    /**
+     * Default constructor not allowed.
+     */
+    private OutboundHeaders() {
+    }
+}
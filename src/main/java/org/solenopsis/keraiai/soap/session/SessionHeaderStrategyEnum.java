@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import org.w3c.dom.Element;
+
+/**
+ * How the SOAP session header is placed on outbound messages.
+ *
+ * Any SOAP handler in a port's handler chain forces JAX-WS to materialize messages as SAAJ DOMs. The handler free strategy instead
+ * supplies the prebuilt session header as an outbound header of the port, leaving JAX-WS free to hand messages straight to JAXB.
+ * What that saves depends on the JAX-WS implementation and the size of responses - no figures are claimed here, the benchmark
+ * module's <code>ProxyPortBenchmark</code> compares both strategies.
+ *
+ * @author Scot P. Floess
+ */
+public enum SessionHeaderStrategyEnum {
+    /**
+     * A {@link SessionIdSoapRequestHeaderHandler} adds the session header to each outbound message.
+     */
+    HANDLER {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        <P> P applySessionHeader(final P port, final Element sessionHeader) {
+            return SessionPortFactory.addHandlers(port, new SessionIdSoapRequestHeaderHandler(sessionHeader));
+        }
+    },
+    /**
+     * The default: the session header is an outbound header on the port - no handler is installed. Should the JAX-WS
+     * implementation not support outbound headers, {@link #HANDLER} is used. Once {@link Deadline}s are in use ports also carry their logical handler, which never
+     * reads the message.
+     */
+    OUTBOUND_HEADERS {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        <P> P applySessionHeader(final P port, final Element sessionHeader) {
+            return OutboundHeaders.setOutboundHeader(port, sessionHeader) ? port : HANDLER.applySessionHeader(port, sessionHeader);
+        }
+    };
+
+    /**
+     * Place <code>sessionHeader</code> on all outbound messages of <code>port</code>.
+     *
+     * @param <P>           the type of port.
+     *
+     * @param port          the port.
+     * @param sessionHeader the prebuilt session header.
+     *
+     * @return the port.
+     */
+    abstract <P> P applySessionHeader(P port, Element sessionHeader);
+}
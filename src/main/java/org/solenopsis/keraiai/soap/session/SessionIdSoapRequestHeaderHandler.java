@@ -16,34 +16,75 @@
  */
 package org.solenopsis.keraiai.soap.session;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPHeader;
+import javax.xml.soap.SOAPMessage;
 import javax.xml.ws.Service;
-import org.flossware.jcore.soap.AbstractSoapRequestHeaderHandler;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.handler.soap.SOAPHandler;
+import javax.xml.ws.handler.soap.SOAPMessageContext;
 import org.flossware.jcore.utils.ObjectUtils;
 import org.flossware.jcore.utils.StringUtils;
 import org.solenopsis.keraiai.soap.utils.SalesforceSessionHeaderUtils;
+import org.w3c.dom.Element;
 
 /**
- * Manages the SOAP header for the session id.
+ * Manages the SOAP header for the session id. Only the names of the session header and the session id are computed once, when
+ * the handler is created for a session - each outbound message still has the header built in its own SAAJ document, which needs
+ * no lock as no DOM is shared between messages. This handler is only used by {@link SessionHeaderStrategyEnum#HANDLER}, and by
+ * the default {@link SessionHeaderStrategyEnum#OUTBOUND_HEADERS} when the JAX-WS implementation lacks outbound headers.
  *
  * @author sfloess
  */
-final class SessionIdSoapRequestHeaderHandler extends AbstractSoapRequestHeaderHandler {
+final class SessionIdSoapRequestHeaderHandler implements SOAPHandler<SOAPMessageContext> {
     /**
      * This is the session id on the session header.
      */
-    static final String SESSION_ID = "sessionId";
+    static final String SESSION_ID = SalesforceSessionHeaderUtils.SESSION_ID;
 
     /**
-     * Name where we will place the session id element.
+     * Our logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(SessionIdSoapRequestHeaderHandler.class.getName());
+
+    /**
+     * The name of the session header.
      */
     private final QName sessionHeaderName;
 
     /**
-     * The actual session id.
+     * The name of the element, within the session header, containing the session id.
+     */
+    private final QName sessionIdName;
+
+    /**
+     * The session id.
      */
     private final String sessionId;
 
+    /**
+     * Return the LOGGER.
+     */
+    private static Logger getLogger() {
+        return LOGGER;
+    }
+
+    /**
+     * Compute the name of <code>sessionHeader</code>.
+     *
+     * @throws IllegalArgumentException if sessionHeader is null.
+     */
+    static QName computeSessionHeaderName(final Element sessionHeader) {
+        ObjectUtils.ensureObject(sessionHeader, "Must provide a session header!");
+
+        return new QName(sessionHeader.getNamespaceURI(), sessionHeader.getLocalName());
+    }
+
     /**
      * This constructor sets the name in the soap header for the session id and the session id itself.
      *
@@ -54,47 +95,111 @@ final class SessionIdSoapRequestHeaderHandler extends AbstractSoapRequestHeaderH
      */
     SessionIdSoapRequestHeaderHandler(final QName sessionHeaderName, final String sessionId) {
         this.sessionHeaderName = ObjectUtils.ensureObject(sessionHeaderName, "Must provide a session header QName!");
+        this.sessionIdName = new QName(sessionHeaderName.getNamespaceURI(), SESSION_ID);
         this.sessionId = StringUtils.ensureString(sessionId, "Must provide a session id!");
     }
 
     /**
-     * Return the name that will contain the session id element.
+     * This constructor uses the name and session id of a prebuilt session header.
      *
-     * @return the name that will contain the session id element.
+     * @param sessionHeader the session header element (containing the session id element).
+     *
+     * @throws IllegalArgumentException if sessionHeader is null or contains no session id.
      */
-    @Override
-    protected QName getHeaderName() {
+    SessionIdSoapRequestHeaderHandler(final Element sessionHeader) {
+        this(computeSessionHeaderName(sessionHeader), sessionHeader.getTextContent());
+    }
+
+    /**
+     * This constructor gets the QName from the <code>service</code> needed to make web service calls.
+     *
+     * @param service   contains the QName needed for the SOAP header.
+     * @param sessionId the session id for the SFDC SOAP call.
+     */
+    public SessionIdSoapRequestHeaderHandler(final Service service, final String sessionId) {
+        this(SalesforceSessionHeaderUtils.computeSessionHeaderNameForService(service), sessionId);
+    }
+
+    /**
+     * Return the name of the session header.
+     *
+     * @return the name of the session header.
+     */
+    QName getSessionHeaderName() {
         return sessionHeaderName;
     }
 
     /**
-     * Our name is SESSION_ID.
+     * Return the name of the element containing the session id.
      *
-     * @return SESSION_ID;
+     * @return the name of the session id element.
      */
-    @Override
-    protected String getName() {
-        return SESSION_ID;
+    QName getSessionIdName() {
+        return sessionIdName;
     }
 
     /**
-     * Our value is the session id.
+     * Return the session id.
      *
-     * @return the actual session id.
+     * @return the session id.
      */
-    @Override
-    protected String getValue() {
+    String getSessionId() {
         return sessionId;
     }
 
     /**
-     * This constructor gets the session id from <code>securityMgr</code> and the QName from the <code>service</code> needed to make
-     * web service calls.
+     * Add our session header to <code>soapMessage</code>, creating it in the message's own document.
      *
-     * @param service   contains the QName needed for the SOAP header.
-     * @param sessionId the session id for the SFDC SOAP call.
+     * @param soapMessage the outbound message.
+     *
+     * @throws SOAPException if any problems arise getting or adding the SOAP header.
      */
-    public SessionIdSoapRequestHeaderHandler(final Service service, final String sessionId) {
-        this(SalesforceSessionHeaderUtils.computeSessionHeaderNameForService(service), sessionId);
+    void addSessionHeader(final SOAPMessage soapMessage) throws SOAPException {
+        final SOAPHeader soapHeader = null == soapMessage.getSOAPHeader() ? soapMessage.getSOAPPart().getEnvelope().addHeader() : soapMessage.getSOAPHeader();
+
+        soapHeader.addHeaderElement(getSessionHeaderName()).addChildElement(getSessionIdName()).addTextNode(getSessionId());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<QName> getHeaders() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean handleMessage(final SOAPMessageContext context) {
+        if (!((Boolean) context.get(MessageContext.MESSAGE_OUTBOUND_PROPERTY))) {
+            return true;
+        }
+
+        try {
+            addSessionHeader(context.getMessage());
+        } catch (final SOAPException soapException) {
+            getLogger().log(Level.SEVERE, "Trouble adding session header", soapException);
+
+            throw new IllegalStateException("Unable to add session header", soapException);
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean handleFault(final SOAPMessageContext context) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close(final MessageContext context) {
     }
 }
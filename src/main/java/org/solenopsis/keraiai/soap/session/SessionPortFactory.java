@@ -16,14 +16,25 @@
  */
 package org.solenopsis.keraiai.soap.session;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.xml.ws.BindingProvider;
 import javax.xml.ws.Service;
+import javax.xml.ws.handler.Handler;
 import org.flossware.jcore.utils.LoggerUtils;
+import org.flossware.jcore.utils.ObjectUtils;
 import org.flossware.jcore.utils.soap.SoapUtils;
 import org.solenopsis.keraiai.LoginContext;
 import org.solenopsis.keraiai.soap.ApiWebService;
 import org.solenopsis.keraiai.soap.WebServiceType;
+import org.solenopsis.keraiai.soap.jfr.JfrEvents;
+import org.solenopsis.keraiai.soap.limits.ApiLimits;
+import org.solenopsis.keraiai.soap.utils.LoginContextUtils;
+import org.solenopsis.keraiai.soap.utils.SalesforceSessionHeaderUtils;
 
 /**
  * Utility class for port functionality.
@@ -36,6 +47,43 @@ public final class SessionPortFactory {
      */
     private static final Logger LOGGER = Logger.getLogger(SessionPortFactory.class.getName());
 
+    /**
+     * The transport configuration applied to all ports - null means none.
+     */
+    private static final AtomicReference<TransportConfiguration> TRANSPORT_CONFIGURATION = new AtomicReference<>();
+
+    /**
+     * The HTTP compression applied to all ports.
+     */
+    private static final AtomicReference<HttpCompressionEnum> HTTP_COMPRESSION = new AtomicReference<>(HttpCompressionEnum.NONE);
+
+    /**
+     * How the session header is placed on outbound messages of all session ports. Outbound headers by default, which fall back to
+     * a handler when the JAX-WS implementation does not support them.
+     */
+    private static final AtomicReference<SessionHeaderStrategyEnum> SESSION_HEADER_STRATEGY = new AtomicReference<>(SessionHeaderStrategyEnum.OUTBOUND_HEADERS);
+
+    /**
+     * When true, session ports created from a login context record the API usage reported in responses. Off by default as it
+     * installs a SOAP handler, which parses every response into a DOM.
+     */
+    private static final AtomicBoolean LIMIT_INFO_TRACKING = new AtomicBoolean(false);
+
+    /**
+     * When proxy ports refresh sessions before expiry - null means never.
+     */
+    private static final AtomicReference<SessionRefreshPolicy> SESSION_REFRESH_POLICY = new AtomicReference<>();
+
+    /**
+     * When pooled proxy ports hedge calls - null means never.
+     */
+    private static final AtomicReference<HedgingPolicy> HEDGING_POLICY = new AtomicReference<>();
+
+    /**
+     * Time, in milliseconds, allowed for each call via a proxy port, retries included - 0 means unbounded.
+     */
+    private static final AtomicLong CALL_TIMEOUT = new AtomicLong();
+
     /**
      * Return the LOGGER.
      */
@@ -43,6 +91,235 @@ public final class SessionPortFactory {
         return LOGGER;
     }
 
+    /**
+     * Return the transport configuration applied to all ports.
+     *
+     * @return the transport configuration or null if none.
+     */
+    public static TransportConfiguration getTransportConfiguration() {
+        return TRANSPORT_CONFIGURATION.get();
+    }
+
+    /**
+     * Set the transport configuration applied to all ports created from now on. JVM wide keep alive settings are applied
+     * immediately.
+     *
+     * @param transportConfiguration the transport configuration - null to no longer configure ports.
+     */
+    public static void setTransportConfiguration(final TransportConfiguration transportConfiguration) {
+        if (null != transportConfiguration) {
+            transportConfiguration.applySystemProperties();
+        }
+
+        TRANSPORT_CONFIGURATION.set(transportConfiguration);
+    }
+
+    /**
+     * Return the HTTP compression applied to all ports.
+     *
+     * @return the HTTP compression applied to all ports.
+     */
+    public static HttpCompressionEnum getHttpCompression() {
+        return HTTP_COMPRESSION.get();
+    }
+
+    /**
+     * Set the HTTP compression applied to all ports created from now on.
+     *
+     * @param httpCompression the HTTP compression to apply.
+     *
+     * @throws IllegalArgumentException if httpCompression is null.
+     */
+    public static void setHttpCompression(final HttpCompressionEnum httpCompression) {
+        HTTP_COMPRESSION.set(ObjectUtils.ensureObject(httpCompression, "Must provide HTTP compression!"));
+    }
+
+    /**
+     * Return how the session header is placed on outbound messages.
+     *
+     * @return how the session header is placed on outbound messages.
+     */
+    public static SessionHeaderStrategyEnum getSessionHeaderStrategy() {
+        return SESSION_HEADER_STRATEGY.get();
+    }
+
+    /**
+     * Set how the session header is placed on outbound messages of session ports created from now on. Defaults to
+     * {@link SessionHeaderStrategyEnum#OUTBOUND_HEADERS}.
+     *
+     * @param sessionHeaderStrategy how the session header is placed on outbound messages.
+     *
+     * @throws IllegalArgumentException if sessionHeaderStrategy is null.
+     */
+    public static void setSessionHeaderStrategy(final SessionHeaderStrategyEnum sessionHeaderStrategy) {
+        SESSION_HEADER_STRATEGY.set(ObjectUtils.ensureObject(sessionHeaderStrategy, "Must provide a session header strategy!"));
+    }
+
+    /**
+     * Return true if session ports created from a login context record the API usage reported in responses - false by default.
+     *
+     * @return true if API usage is recorded.
+     */
+    public static boolean isLimitInfoTracking() {
+        return LIMIT_INFO_TRACKING.get();
+    }
+
+    /**
+     * Set if session ports created from a login context from now on record the API usage reported in responses - see
+     * {@link ApiLimits}. Recording installs a SOAP handler, which parses every response into a DOM, so it is off by default: ports
+     * using {@link SessionHeaderStrategyEnum#OUTBOUND_HEADERS} then avoid handler processing entirely, unless {@link Deadline}s are
+     * in use - their handler is a logical handler that never reads the message.
+     *
+     * @param isLimitInfoTracking true to record API usage.
+     */
+    public static void setLimitInfoTracking(final boolean isLimitInfoTracking) {
+        LIMIT_INFO_TRACKING.set(isLimitInfoTracking);
+    }
+
+    /**
+     * Return when proxy ports refresh sessions before expiry.
+     *
+     * @return the session refresh policy or null if sessions are only refreshed once found invalid.
+     */
+    public static SessionRefreshPolicy getSessionRefreshPolicy() {
+        return SESSION_REFRESH_POLICY.get();
+    }
+
+    /**
+     * Set when proxy ports refresh sessions before expiry.
+     *
+     * @param sessionRefreshPolicy the session refresh policy - null to only refresh sessions once found invalid.
+     */
+    public static void setSessionRefreshPolicy(final SessionRefreshPolicy sessionRefreshPolicy) {
+        SESSION_REFRESH_POLICY.set(sessionRefreshPolicy);
+    }
+
+    /**
+     * Return when pooled proxy ports hedge calls.
+     *
+     * @return the hedging policy or null if calls are not hedged.
+     */
+    public static HedgingPolicy getHedgingPolicy() {
+        return HEDGING_POLICY.get();
+    }
+
+    /**
+     * Set when pooled proxy ports hedge calls.
+     *
+     * @param hedgingPolicy the hedging policy - null to not hedge calls.
+     */
+    public static void setHedgingPolicy(final HedgingPolicy hedgingPolicy) {
+        HEDGING_POLICY.set(hedgingPolicy);
+    }
+
+    /**
+     * Return the time, in milliseconds, allowed for each call via a proxy port, retries included. Calls made within a
+     * {@link Deadline} are also bounded by it.
+     *
+     * @return the call timeout or 0 if unbounded.
+     */
+    public static long getCallTimeout() {
+        return CALL_TIMEOUT.get();
+    }
+
+    /**
+     * Set the time, in milliseconds, allowed for each call via a proxy port, retries included.
+     *
+     * @param callTimeout the call timeout - 0 for unbounded.
+     *
+     * @throws IllegalArgumentException if callTimeout is negative.
+     */
+    public static void setCallTimeout(final long callTimeout) {
+        if (callTimeout < 0) {
+            throw new IllegalArgumentException("Call timeout cannot be negative!");
+        }
+
+        CALL_TIMEOUT.set(callTimeout);
+    }
+
+    /**
+     * Apply the transport configuration, if any, and HTTP compression to <code>port</code>.
+     *
+     * @param <P>  the type of port.
+     *
+     * @param port the port to configure.
+     *
+     * @return the port.
+     */
+    static <P> P configureTransport(final P port) {
+        final TransportConfiguration transportConfiguration = getTransportConfiguration();
+
+        return getHttpCompression().configure(null == transportConfiguration ? port : transportConfiguration.configure(port));
+    }
+
+    /**
+     * Appends <code>handlers</code> to the handler chain of <code>port</code>.
+     *
+     * @param <P>      the type of port.
+     *
+     * @param port     the port whose handler chain will be appended to.
+     * @param handlers the handlers to append.
+     *
+     * @return the port.
+     */
+    static <P> P addHandlers(final P port, final Handler... handlers) {
+        if (null == handlers || 0 == handlers.length) {
+            return port;
+        }
+
+        final BindingProvider bindingProvider = (BindingProvider) port;
+        final List<Handler> handlerChain = bindingProvider.getBinding().getHandlerChain();
+
+        for (final Handler handler : handlers) {
+            handlerChain.add(ObjectUtils.ensureObject(handler, "Must provide a handler!"));
+        }
+
+        bindingProvider.getBinding().setHandlerChain(handlerChain);
+
+        return port;
+    }
+
+    /**
+     * Install the handler shrinking timeouts to the {@link Deadline} in scope on <code>port</code> - only once deadlines are in use
+     * (see {@link Deadline#isStarted()}) and only if not already installed. Ports created before the first deadline are given it on
+     * their first call within one. Ports that are not binding providers are returned as is.
+     *
+     * @param <P>  the type of port.
+     *
+     * @param port the port.
+     *
+     * @return the port.
+     */
+    public static <P> P applyDeadlines(final P port) {
+        if (!Deadline.isStarted() || !(port instanceof BindingProvider)) {
+            return port;
+        }
+
+        synchronized (port) {
+            if (!((BindingProvider) port).getBinding().getHandlerChain().contains(DeadlineRequestHandler.DEADLINE_REQUEST_HANDLER)) {
+                addHandlers(port, DeadlineRequestHandler.DEADLINE_REQUEST_HANDLER);
+            }
+        }
+
+        return port;
+    }
+
+    /**
+     * Create a port, without a session, for <code>url</code> - for example to login. Like session ports, its calls take no longer
+     * than the {@link Deadline} in scope if any.
+     *
+     * @param <P>      the type of port to create.
+     *
+     * @param url      the URL for the port.
+     * @param service  the service to call.
+     * @param portType used to retrieve a port from the service.
+     *
+     * @return a port whose URL is set.
+     */
+    public static <P> P createPort(final String url, final Service service, final Class portType) {
+        return applyDeadlines(configureTransport((P) SoapUtils.createPort(service, portType, url)));
+    }
+
     /**
      * Create a usable session port including a URL and session id.
      *
@@ -56,13 +333,34 @@ public final class SessionPortFactory {
      * @return a usable port that has session id and URL set.
      */
     public static <P> P createSessionPort(final String url, final String sessionId, final Service service, final Class portType) {
-        final P port = SoapUtils.createPort(service, portType, url, new SessionIdSoapRequestHeaderHandler(service, sessionId));
+        final Object sessionPortEvent = JfrEvents.beginSessionPort();
+        final P port = getSessionHeaderStrategy().applySessionHeader(configureTransport((P) SoapUtils.createPort(service, portType, url)), SalesforceSessionHeaderUtils.createSessionHeader(service, sessionId));
+
+        JfrEvents.commitSessionPort(sessionPortEvent, portType, url);
 
         LoggerUtils.log(getLogger(), Level.FINE, "Session Port = [{0}]", port);
 
         return port;
     }
 
+    /**
+     * Create a usable session port including a URL and session id. Additional <code>handlers</code> are placed after the session id
+     * handler, if any.
+     *
+     * @param <P>       the type of session port to create.
+     *
+     * @param url       the URL for the port.
+     * @param sessionId the session id to use for the SOAP header.
+     * @param service   the service to call.
+     * @param portType  used to retrieve a port from the service.
+     * @param handlers  additional handlers to install on the port.
+     *
+     * @return a usable port that has session id and URL set.
+     */
+    public static <P> P createSessionPort(final String url, final String sessionId, final Service service, final Class portType, final Handler... handlers) {
+        return addHandlers((P) createSessionPort(url, sessionId, service, portType), handlers);
+    }
+
     /**
      * Create a usable session port - the session id an url are pulled from <code>loginContext</code>.
      *
@@ -76,7 +374,28 @@ public final class SessionPortFactory {
      * @return a usable port that has session id and URL set.
      */
     public static <P> P createSessionPort(final WebServiceType webServiceType, final LoginContext loginContext, final Service service, final Class portType) {
-        return createSessionPort(webServiceType.getSessionUrlFactory().computeSessionUrl(loginContext, service), loginContext.getSessionId(), service, portType);
+        final P port = applyDeadlines((P) createSessionPort(webServiceType.getSessionUrlFactory().computeSessionUrl(loginContext, service), loginContext.getSessionId(), service, portType));
+        final String organizationId = LoginContextUtils.computeOrganizationId(loginContext);
+
+        return isLimitInfoTracking() && !organizationId.isEmpty() ? addHandlers(port, ApiLimits.createLimitInfoHandler(organizationId)) : port;
+    }
+
+    /**
+     * Create a usable session port - the session id an url are pulled from <code>loginContext</code>. Additional
+     * <code>handlers</code> are placed after any session id handler.
+     *
+     * @param <P>            the type of session port to create.
+     *
+     * @param webServiceType the type of web service that will be called..
+     * @param loginContext   a previously log in - contains the URL and session id to make the web service call.
+     * @param service        the service to call.
+     * @param portType       used to retrieve a port from the service.
+     * @param handlers       additional handlers to install on the port.
+     *
+     * @return a usable port that has session id and URL set.
+     */
+    public static <P> P createSessionPort(final WebServiceType webServiceType, final LoginContext loginContext, final Service service, final Class portType, final Handler... handlers) {
+        return addHandlers((P) createSessionPort(webServiceType, loginContext, service, portType), handlers);
     }
 
     /**
@@ -93,6 +412,22 @@ public final class SessionPortFactory {
         return createSessionPort(apiWebService.getWebServiceType(), loginContext, apiWebService.getService(), apiWebService.getPortType());
     }
 
+    /**
+     * Create a usable session port - the session id an url are pulled from <code>loginContext</code>. Additional
+     * <code>handlers</code> are placed after any session id handler.
+     *
+     * @param <P>           the type of session port to create.
+     *
+     * @param apiWebService one of the built in SFDC web service types.
+     * @param loginContext  a previously log in - contains the URL and session id to make the web service call.
+     * @param handlers      additional handlers to install on the port.
+     *
+     * @return a usable port that has session id and URL set.
+     */
+    public static <P> P createSessionPort(final ApiWebService apiWebService, final LoginContext loginContext, final Handler... handlers) {
+        return createSessionPort(apiWebService.getWebServiceType(), loginContext, apiWebService.getService(), apiWebService.getPortType(), handlers);
+    }
+
     /**
      * Default constructor not allowed.
      */
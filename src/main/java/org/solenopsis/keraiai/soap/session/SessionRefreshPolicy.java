@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.util.concurrent.TimeUnit;
+import org.solenopsis.keraiai.LoginContext;
+
+/**
+ * When proxy ports log in again before their session expires. Once a session's age reaches the refresh ratio of its lifetime, the
+ * next call starts a login in the background and the port is swapped when done. Once a session's age reaches its lifetime, the next
+ * call logs in before calling. Either way callers avoid calls failing with an invalid session.
+ *
+ * A session's lifetime is what SFDC reported on login (the <code>sessionSecondsValid</code> of the user info) or, if not reported,
+ * the default lifetime. Age is measured from login, so sessions kept alive by activity are refreshed early rather than late.
+ *
+ * @author Scot P. Floess
+ */
+public final class SessionRefreshPolicy {
+    /**
+     * SFDC's default session timeout, in seconds - two hours.
+     */
+    public static final int DEFAULT_SESSION_SECONDS_VALID = 7200;
+
+    /**
+     * Ratio of the session lifetime at which sessions are refreshed in the background.
+     */
+    private final double refreshRatio;
+
+    /**
+     * Session lifetime, in seconds, when SFDC did not report one.
+     */
+    private final int defaultSessionSecondsValid;
+
+    /**
+     * This constructor sets the refresh ratio and default session lifetime.
+     *
+     * @param refreshRatio               ratio, greater than 0 and less than 1, of the session lifetime at which sessions are
+     *                                   refreshed in the background.
+     * @param defaultSessionSecondsValid session lifetime, in seconds, when SFDC did not report one.
+     *
+     * @throws IllegalArgumentException if refreshRatio is out of range or defaultSessionSecondsValid is less than 1.
+     */
+    public SessionRefreshPolicy(final double refreshRatio, final int defaultSessionSecondsValid) {
+        if (refreshRatio <= 0 || refreshRatio >= 1) {
+            throw new IllegalArgumentException("Refresh ratio must be greater than 0 and less than 1!");
+        }
+
+        if (defaultSessionSecondsValid < 1) {
+            throw new IllegalArgumentException("Default session seconds valid must be at least 1!");
+        }
+
+        this.refreshRatio = refreshRatio;
+        this.defaultSessionSecondsValid = defaultSessionSecondsValid;
+    }
+
+    /**
+     * Return the ratio of the session lifetime at which sessions are refreshed in the background.
+     *
+     * @return the refresh ratio.
+     */
+    public double getRefreshRatio() {
+        return refreshRatio;
+    }
+
+    /**
+     * Return the session lifetime, in seconds, when SFDC did not report one.
+     *
+     * @return the default session seconds valid.
+     */
+    public int getDefaultSessionSecondsValid() {
+        return defaultSessionSecondsValid;
+    }
+
+    /**
+     * Compute the lifetime, in nanoseconds, of the session in <code>loginContext</code>.
+     *
+     * @param loginContext the session.
+     *
+     * @return the lifetime.
+     */
+    public long computeLifetime(final LoginContext loginContext) {
+        final int sessionSecondsValid = loginContext.getSessionSecondsValid();
+
+        return TimeUnit.SECONDS.toNanos(sessionSecondsValid > 0 ? sessionSecondsValid : getDefaultSessionSecondsValid());
+    }
+
+    /**
+     * Compute the age, in nanoseconds, at which the session in <code>loginContext</code> is refreshed in the background.
+     *
+     * @param loginContext the session.
+     *
+     * @return the refresh age.
+     */
+    public long computeRefreshAge(final LoginContext loginContext) {
+        return (long) (computeLifetime(loginContext) * getRefreshRatio());
+    }
+}
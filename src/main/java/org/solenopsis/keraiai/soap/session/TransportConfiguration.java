@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.xml.ws.BindingProvider;
+import org.flossware.jcore.utils.ObjectUtils;
+
+/**
+ * HTTP transport settings applied to every port Keraiai creates (session ports, including those created on re-login, and login
+ * ports).
+ *
+ * Connect and read timeouts and the TLS socket factory are set on each port's request context. Keep alive and pooling of the
+ * underlying <code>HttpURLConnection</code>s are JVM wide and controlled by system properties - these are set when this
+ * configuration is installed via {@link SessionPortFactory#setTransportConfiguration(TransportConfiguration)} and only take effect
+ * if installed before the first HTTP connection is made. The keep alive time is only honored by JDK 20 and later - earlier JDKs,
+ * including the Java 8 we target, ignore it and keep idle connections alive for 5 seconds unless the server says otherwise.
+ *
+ * All ports share one TLS socket factory whose session cache lets dropped connections resume TLS sessions rather than perform full
+ * handshakes. The factory counts connections, handshakes and bytes on the wire of HTTPS endpoints only - see
+ * {@link #getTransportStatistics()}. How many handshakes are saved, and the effect on p99 latency, has not been measured: the stub
+ * server used by the tests and the load generator is HTTP only, so compare the statistics against a real org.
+ *
+ * @author Scot P. Floess
+ */
+public final class TransportConfiguration {
+    /**
+     * Request context properties for the connect timeout (JAX-WS RI, JDK internal JAX-WS RI and CXF).
+     */
+    public static final String[] CONNECT_TIMEOUT_PROPERTIES = {"com.sun.xml.ws.connect.timeout", "com.sun.xml.internal.ws.connect.timeout", "javax.xml.ws.client.connectionTimeout"};
+
+    /**
+     * Request context properties for the read timeout (JAX-WS RI, JDK internal JAX-WS RI and CXF).
+     */
+    public static final String[] READ_TIMEOUT_PROPERTIES = {"com.sun.xml.ws.request.timeout", "com.sun.xml.internal.ws.request.timeout", "javax.xml.ws.client.receiveTimeout"};
+
+    /**
+     * Request context properties for the SSL socket factory (JAX-WS RI and JDK internal JAX-WS RI).
+     */
+    public static final String[] SSL_SOCKET_FACTORY_PROPERTIES = {"com.sun.xml.ws.transport.https.client.SSLSocketFactory", "com.sun.xml.internal.ws.transport.https.client.SSLSocketFactory"};
+
+    /**
+     * System property to enable keep alive.
+     */
+    public static final String KEEP_ALIVE_PROPERTY = "http.keepAlive";
+
+    /**
+     * System property for the maximum idle connections kept alive per host.
+     */
+    public static final String MAX_CONNECTIONS_PROPERTY = "http.maxConnections";
+
+    /**
+     * System property for how long, in seconds, an idle connection is kept alive when the server does not say - only honored by
+     * JDK 20 and later.
+     */
+    public static final String KEEP_ALIVE_TIME_PROPERTY = "http.keepAlive.time.server";
+
+    /**
+     * Maximum connections kept alive per host.
+     */
+    private final int maxConnectionsPerHost;
+
+    /**
+     * Seconds an idle connection is kept alive.
+     */
+    private final int keepAliveSeconds;
+
+    /**
+     * Connect timeout in milliseconds - 0 is infinite.
+     */
+    private final int connectTimeout;
+
+    /**
+     * Read timeout in milliseconds - 0 is infinite.
+     */
+    private final int readTimeout;
+
+    /**
+     * Total TLS sessions cached - 0 is unlimited.
+     */
+    private final int tlsSessionCacheSize;
+
+    /**
+     * Seconds a TLS session may be resumed - 0 is unlimited.
+     */
+    private final int tlsSessionTimeout;
+
+    /**
+     * Counts connections, handshakes and bytes.
+     */
+    private final TransportStatistics transportStatistics;
+
+    /**
+     * Shared by all ports so TLS sessions are resumed.
+     */
+    private final SSLSocketFactory sslSocketFactory;
+
+    /**
+     * Ensure <code>value</code> is not negative.
+     */
+    static int ensureNotNegative(final int value, final String message) {
+        if (value < 0) {
+            throw new IllegalArgumentException(message);
+        }
+
+        return value;
+    }
+
+    /**
+     * Create an SSL socket factory whose client session cache is sized to <code>tlsSessionCacheSize</code> and
+     * <code>tlsSessionTimeout</code>.
+     */
+    static SSLSocketFactory createSslSocketFactory(final int tlsSessionCacheSize, final int tlsSessionTimeout) {
+        try {
+            final SSLContext sslContext = SSLContext.getInstance("TLS");
+
+            sslContext.init(null, null, null);
+
+            final SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+
+            sessionContext.setSessionCacheSize(tlsSessionCacheSize);
+            sessionContext.setSessionTimeout(tlsSessionTimeout);
+
+            return sslContext.getSocketFactory();
+        } catch (final NoSuchAlgorithmException | KeyManagementException exception) {
+            throw new IllegalStateException("Unable to create SSL context", exception);
+        }
+    }
+
+    /**
+     * Set <code>value</code> for all <code>properties</code> in <code>requestContext</code>.
+     */
+    static void putAll(final Map<String, Object> requestContext, final String[] properties, final Object value) {
+        for (final String property : properties) {
+            requestContext.put(property, value);
+        }
+    }
+
+    /**
+     * This constructor sets all values.
+     *
+     * @param maxConnectionsPerHost maximum idle connections kept alive per host.
+     * @param keepAliveSeconds      seconds an idle connection is kept alive when the server does not specify - ignored before JDK 20.
+     * @param connectTimeout        connect timeout in milliseconds - 0 is infinite.
+     * @param readTimeout           read timeout in milliseconds - 0 is infinite.
+     * @param tlsSessionCacheSize   total TLS sessions cached - 0 is unlimited.
+     * @param tlsSessionTimeout     seconds a TLS session may be resumed - 0 is unlimited.
+     *
+     * @throws IllegalArgumentException if maxConnectionsPerHost is less than 1 or any other value is negative.
+     */
+    public TransportConfiguration(final int maxConnectionsPerHost, final int keepAliveSeconds, final int connectTimeout, final int readTimeout, final int tlsSessionCacheSize, final int tlsSessionTimeout) {
+        if (maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("Must allow at least one connection per host!");
+        }
+
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.keepAliveSeconds = ensureNotNegative(keepAliveSeconds, "Keep alive cannot be negative!");
+        this.connectTimeout = ensureNotNegative(connectTimeout, "Connect timeout cannot be negative!");
+        this.readTimeout = ensureNotNegative(readTimeout, "Read timeout cannot be negative!");
+        this.tlsSessionCacheSize = ensureNotNegative(tlsSessionCacheSize, "TLS session cache size cannot be negative!");
+        this.tlsSessionTimeout = ensureNotNegative(tlsSessionTimeout, "TLS session timeout cannot be negative!");
+        this.transportStatistics = new TransportStatistics();
+        this.sslSocketFactory = new CountingSslSocketFactory(createSslSocketFactory(tlsSessionCacheSize, tlsSessionTimeout), transportStatistics);
+    }
+
+    /**
+     * Return the maximum connections kept alive per host.
+     *
+     * @return the maximum connections kept alive per host.
+     */
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Return the seconds an idle connection is kept alive - ignored before JDK 20.
+     *
+     * @return the seconds an idle connection is kept alive.
+     */
+    public int getKeepAliveSeconds() {
+        return keepAliveSeconds;
+    }
+
+    /**
+     * Return the connect timeout in milliseconds.
+     *
+     * @return the connect timeout in milliseconds.
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Return the read timeout in milliseconds.
+     *
+     * @return the read timeout in milliseconds.
+     */
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Return the total TLS sessions cached.
+     *
+     * @return the total TLS sessions cached.
+     */
+    public int getTlsSessionCacheSize() {
+        return tlsSessionCacheSize;
+    }
+
+    /**
+     * Return the seconds a TLS session may be resumed.
+     *
+     * @return the seconds a TLS session may be resumed.
+     */
+    public int getTlsSessionTimeout() {
+        return tlsSessionTimeout;
+    }
+
+    /**
+     * Return the counters for HTTPS traffic of ports using self.
+     *
+     * @return the counters for HTTPS traffic.
+     */
+    public TransportStatistics getTransportStatistics() {
+        return transportStatistics;
+    }
+
+    /**
+     * Return the SSL socket factory shared by all ports.
+     *
+     * @return the SSL socket factory shared by all ports.
+     */
+    public SSLSocketFactory getSslSocketFactory() {
+        return sslSocketFactory;
+    }
+
+    /**
+     * Set the JVM wide keep alive system properties.
+     */
+    void applySystemProperties() {
+        System.setProperty(KEEP_ALIVE_PROPERTY, "true");
+        System.setProperty(MAX_CONNECTIONS_PROPERTY, String.valueOf(getMaxConnectionsPerHost()));
+        System.setProperty(KEEP_ALIVE_TIME_PROPERTY, String.valueOf(getKeepAliveSeconds()));
+    }
+
+    /**
+     * Apply our timeouts and SSL socket factory to <code>port</code>.
+     *
+     * @param <P>  the type of port.
+     *
+     * @param port the port to configure.
+     *
+     * @return the port.
+     */
+    public <P> P configure(final P port) {
+        final Map<String, Object> requestContext = ((BindingProvider) ObjectUtils.ensureObject(port, "Must provide a port!")).getRequestContext();
+
+        putAll(requestContext, CONNECT_TIMEOUT_PROPERTIES, getConnectTimeout());
+        putAll(requestContext, READ_TIMEOUT_PROPERTIES, getReadTimeout());
+        putAll(requestContext, SSL_SOCKET_FACTORY_PROPERTIES, getSslSocketFactory());
+
+        return port;
+    }
+}
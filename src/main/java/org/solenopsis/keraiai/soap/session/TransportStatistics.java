@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for HTTPS traffic of ports using a {@link TransportConfiguration}. Bytes are counted on the wire (after compression and
+ * encryption) so they reflect what metered links actually carry. Only HTTPS is counted - the counting socket factory is the TLS
+ * socket factory, so plain HTTP endpoints, such as the stub server used by the tests, leave all counters at zero.
+ *
+ * @author Scot P. Floess
+ */
+public final class TransportStatistics {
+    /**
+     * Total connections opened.
+     */
+    private final AtomicLong connections;
+
+    /**
+     * Total TLS handshakes completed.
+     */
+    private final AtomicLong handshakes;
+
+    /**
+     * Total bytes written.
+     */
+    private final AtomicLong bytesSent;
+
+    /**
+     * Total bytes read.
+     */
+    private final AtomicLong bytesReceived;
+
+    /**
+     * Default constructor.
+     */
+    TransportStatistics() {
+        this.connections = new AtomicLong();
+        this.handshakes = new AtomicLong();
+        this.bytesSent = new AtomicLong();
+        this.bytesReceived = new AtomicLong();
+    }
+
+    /**
+     * Denote a connection was opened.
+     */
+    void incrementConnections() {
+        connections.incrementAndGet();
+    }
+
+    /**
+     * Denote a TLS handshake completed.
+     */
+    void incrementHandshakes() {
+        handshakes.incrementAndGet();
+    }
+
+    /**
+     * Add to the bytes written.
+     */
+    void addBytesSent(final long total) {
+        bytesSent.addAndGet(total);
+    }
+
+    /**
+     * Add to the bytes read.
+     */
+    void addBytesReceived(final long total) {
+        bytesReceived.addAndGet(total);
+    }
+
+    /**
+     * Return the total connections opened.
+     *
+     * @return the total connections opened.
+     */
+    public long getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * Return the total TLS handshakes completed - full handshakes and resumptions alike.
+     *
+     * @return the total TLS handshakes completed.
+     */
+    public long getHandshakes() {
+        return handshakes.get();
+    }
+
+    /**
+     * Return the total bytes written.
+     *
+     * @return the total bytes written.
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Return the total bytes read.
+     *
+     * @return the total bytes read.
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "connections [" + getConnections() + "] handshakes [" + getHandshakes() + "] bytes sent [" + getBytesSent() + "] bytes received [" + getBytesReceived() + "]";
+    }
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Level;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.flossware.jcore.AbstractCommonBase;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.soap.LoginWebService;
+import org.solenopsis.keraiai.soap.SessionStore;
+
+/**
+ * Stores sessions in a file encrypted with AES/GCM using a key derived from a passphrase. The file holds the salt, the IV and the
+ * encrypted sessions. Passwords and tokens are never stored.
+ *
+ * Several JVMs may share the file: each change re-reads the file and merges into it while holding a lock on a sibling
+ * <code>.lock</code> file, so no JVM overwrites sessions another stored, or restores one another invalidated. Loads re-read the
+ * file too.
+ *
+ * The store is only an optimization: a file that cannot be read or decrypted (for example when the passphrase changed) is treated
+ * as empty and trouble writing is logged rather than raised.
+ *
+ * @author Scot P. Floess
+ */
+public final class FileSessionStore extends AbstractCommonBase implements SessionStore {
+    /**
+     * Length, in bytes, of the salt used to derive the key.
+     */
+    static final int SALT_LENGTH = 16;
+
+    /**
+     * Length, in bytes, of the IV.
+     */
+    static final int IV_LENGTH = 12;
+
+    /**
+     * Length, in bits, of the GCM authentication tag.
+     */
+    static final int TAG_LENGTH = 128;
+
+    /**
+     * Iterations used to derive the key.
+     */
+    static final int KEY_ITERATIONS = 65536;
+
+    /**
+     * Length, in bits, of the key.
+     */
+    static final int KEY_LENGTH = 128;
+
+    /**
+     * Cipher transformation.
+     */
+    static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    /**
+     * Key derivation algorithm.
+     */
+    static final String KEY_ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    /**
+     * Suffix of the session id property.
+     */
+    static final String SESSION_ID = ".sessionId";
+
+    /**
+     * Suffix of the server URL property.
+     */
+    static final String SERVER_URL = ".serverUrl";
+
+    /**
+     * Suffix of the metadata server URL property.
+     */
+    static final String METADATA_SERVER_URL = ".metadataServerUrl";
+
+    /**
+     * Suffix of the user id property.
+     */
+    static final String USER_ID = ".userId";
+
+    /**
+     * Suffix of the sandbox property.
+     */
+    static final String SANDBOX = ".sandbox";
+
+    /**
+     * Suffix of the password expired property.
+     */
+    static final String PASSWORD_EXPIRED = ".passwordExpired";
+
+    /**
+     * Suffix of the session seconds valid property.
+     */
+    static final String SESSION_SECONDS_VALID = ".sessionSecondsValid";
+
+    /**
+     * Suffix of the login time property - milliseconds since the epoch.
+     */
+    static final String LOGIN_TIME = ".loginTime";
+
+    /**
+     * Suffix of the lock file.
+     */
+    static final String LOCK_SUFFIX = ".lock";
+
+    /**
+     * All property suffixes.
+     */
+    static final String[] SUFFIXES = {SESSION_ID, SERVER_URL, METADATA_SERVER_URL, USER_ID, SANDBOX, PASSWORD_EXPIRED, SESSION_SECONDS_VALID, LOGIN_TIME};
+
+    /**
+     * Used for salts and IVs.
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * The file holding the sessions.
+     */
+    private final File file;
+
+    /**
+     * The passphrase - kept to derive the key again should another JVM create the file with a new salt.
+     */
+    private final char[] passphrase;
+
+    /**
+     * Salt used to derive the key - guarded by this.
+     */
+    private byte[] salt;
+
+    /**
+     * The key - guarded by this.
+     */
+    private SecretKey key;
+
+    /**
+     * Stored sessions - guarded by this.
+     */
+    private final Properties sessions;
+
+    /**
+     * Return random bytes.
+     */
+    static byte[] createRandomBytes(final int length) {
+        final byte[] retVal = new byte[length];
+
+        RANDOM.nextBytes(retVal);
+
+        return retVal;
+    }
+
+    /**
+     * Derive a key from <code>passphrase</code> and <code>salt</code>.
+     */
+    static SecretKey createKey(final char[] passphrase, final byte[] salt) {
+        final PBEKeySpec keySpec = new PBEKeySpec(passphrase, salt, KEY_ITERATIONS, KEY_LENGTH);
+
+        try {
+            return new SecretKeySpec(SecretKeyFactory.getInstance(KEY_ALGORITHM).generateSecret(keySpec).getEncoded(), "AES");
+        } catch (final GeneralSecurityException securityException) {
+            throw new IllegalStateException("Cannot derive key!", securityException);
+        } finally {
+            keySpec.clearPassword();
+        }
+    }
+
+    /**
+     * Compute the key of the session for <code>credentials</code> logged in via <code>loginWebService</code>.
+     */
+    static String computeKey(final LoginWebService loginWebService, final Credentials credentials) {
+        return loginWebService + "|" + credentials.getUrl() + "|" + credentials.getUserName();
+    }
+
+    /**
+     * Read the contents of <code>file</code>.
+     *
+     * @return the contents or null if absent or unreadable.
+     */
+    byte[] readContents(final File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (final IOException ioException) {
+            log(Level.WARNING, ioException, "Cannot read sessions from [{0}]", file);
+
+            return null;
+        }
+    }
+
+    /**
+     * Decrypt <code>contents</code> into our sessions.
+     */
+    void decrypt(final byte[] contents) {
+        try {
+            final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, contents, SALT_LENGTH, IV_LENGTH));
+
+            sessions.load(new ByteArrayInputStream(cipher.doFinal(contents, SALT_LENGTH + IV_LENGTH, contents.length - SALT_LENGTH - IV_LENGTH)));
+        } catch (final GeneralSecurityException | IOException decryptFailure) {
+            log(Level.WARNING, decryptFailure, "Cannot decrypt sessions from [{0}] - ignoring", getFile());
+
+            sessions.clear();
+        }
+    }
+
+    /**
+     * Replace our sessions with those in the file, deriving the key again if the file has a new salt - must hold the lock on this.
+     */
+    void refresh() {
+        final byte[] contents = readContents(getFile());
+
+        sessions.clear();
+
+        if (null == contents || contents.length <= SALT_LENGTH + IV_LENGTH) {
+            return;
+        }
+
+        final byte[] fileSalt = Arrays.copyOf(contents, SALT_LENGTH);
+
+        if (!Arrays.equals(salt, fileSalt)) {
+            salt = fileSalt;
+            key = createKey(passphrase, salt);
+        }
+
+        decrypt(contents);
+    }
+
+    /**
+     * Encrypt our sessions and replace the file - must hold the lock on this and on the lock file.
+     */
+    void write() {
+        try {
+            final ByteArrayOutputStream plainText = new ByteArrayOutputStream();
+
+            sessions.store(plainText, null);
+
+            final byte[] iv = createRandomBytes(IV_LENGTH);
+            final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+
+            final ByteArrayOutputStream contents = new ByteArrayOutputStream();
+
+            contents.write(salt);
+            contents.write(iv);
+            contents.write(cipher.doFinal(plainText.toByteArray()));
+
+            // Temp files are created readable only by their owner - moving
+            // keeps those permissions and readers never see a partial file.
+            final Path directory = getFile().getAbsoluteFile().getParentFile().toPath();
+            final Path tempFile = Files.createTempFile(Files.createDirectories(directory), getFile().getName(), ".tmp");
+
+            Files.write(tempFile, contents.toByteArray());
+            Files.move(tempFile, getFile().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final GeneralSecurityException | IOException writeFailure) {
+            log(Level.WARNING, writeFailure, "Cannot write sessions to [{0}]", getFile());
+        }
+    }
+
+    /**
+     * Under the lock file, re-read the file, replace the session of <code>key</code> with <code>session</code> and write the file.
+     *
+     * @param key            the key of the session.
+     * @param session        the properties of the session - null to remove it.
+     * @param staleSessionId when removing, only remove the session if it has this id.
+     */
+    synchronized void merge(final String key, final Properties session, final String staleSessionId) {
+        try {
+            Files.createDirectories(getFile().getAbsoluteFile().getParentFile().toPath());
+
+            try (final FileChannel lockChannel = FileChannel.open(getLockFile().toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 final FileLock fileLock = lockChannel.lock()) {
+                refresh();
+
+                if (null == session && !staleSessionId.equals(sessions.getProperty(key + SESSION_ID))) {
+                    return;
+                }
+
+                for (final String suffix : SUFFIXES) {
+                    sessions.remove(key + suffix);
+                }
+
+                if (null != session) {
+                    sessions.putAll(session);
+                }
+
+                write();
+            }
+        } catch (final IOException lockFailure) {
+            log(Level.WARNING, lockFailure, "Cannot lock sessions in [{0}]", getFile());
+        }
+    }
+
+    /**
+     * This constructor sets the file and derives the key from <code>passphrase</code>, loading any sessions already stored.
+     *
+     * @param file       the file holding the sessions.
+     * @param passphrase the passphrase from which the key is derived.
+     *
+     * @throws IllegalArgumentException if file or passphrase are null or passphrase is empty.
+     */
+    public FileSessionStore(final File file, final char[] passphrase) {
+        ObjectUtils.ensureObject(passphrase, "Must provide a passphrase!");
+
+        if (0 == passphrase.length) {
+            throw new IllegalArgumentException("Must provide a passphrase!");
+        }
+
+        this.file = ObjectUtils.ensureObject(file, "Must provide a file!");
+        this.passphrase = passphrase.clone();
+        this.sessions = new Properties();
+
+        final byte[] contents = readContents(file);
+        final boolean isEncrypted = null != contents && contents.length > SALT_LENGTH + IV_LENGTH;
+
+        this.salt = isEncrypted ? Arrays.copyOf(contents, SALT_LENGTH) : createRandomBytes(SALT_LENGTH);
+        this.key = createKey(passphrase, salt);
+
+        if (isEncrypted) {
+            decrypt(contents);
+        }
+    }
+
+    /**
+     * Return the file holding the sessions.
+     *
+     * @return the file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Return the file locked while changing the sessions.
+     *
+     * @return the lock file.
+     */
+    public File getLockFile() {
+        return new File(getFile().getAbsolutePath() + LOCK_SUFFIX);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized LoginContext load(final LoginWebService loginWebService, final Credentials credentials) {
+        final String key = computeKey(loginWebService, credentials);
+
+        refresh();
+
+        final String sessionId = sessions.getProperty(key + SESSION_ID);
+
+        if (null == sessionId) {
+            return null;
+        }
+
+        log(Level.FINE, "Reusing stored session for [{0}]", credentials.getUserName());
+
+        return new StoredLoginContext(sessions.getProperty(key + METADATA_SERVER_URL), Boolean.parseBoolean(sessions.getProperty(key + PASSWORD_EXPIRED)), Boolean.parseBoolean(sessions.getProperty(key + SANDBOX)), sessions.getProperty(key + SERVER_URL), sessionId, sessions.getProperty(key + USER_ID), Integer.parseInt(sessions.getProperty(key + SESSION_SECONDS_VALID, "0")), credentials, Long.parseLong(sessions.getProperty(key + LOGIN_TIME, "0")));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void store(final LoginWebService loginWebService, final LoginContext loginContext) {
+        final String key = computeKey(loginWebService, loginContext.getCredentials());
+        final Properties session = new Properties();
+
+        session.setProperty(key + SESSION_ID, loginContext.getSessionId());
+        session.setProperty(key + SERVER_URL, loginContext.getServerUrl());
+        session.setProperty(key + SANDBOX, Boolean.toString(loginContext.isSandbox()));
+        session.setProperty(key + PASSWORD_EXPIRED, Boolean.toString(loginContext.isPasswordExpired()));
+        session.setProperty(key + SESSION_SECONDS_VALID, Integer.toString(loginContext.getSessionSecondsValid()));
+        session.setProperty(key + LOGIN_TIME, Long.toString(loginContext instanceof StoredLoginContext ? ((StoredLoginContext) loginContext).getLoginTime() : System.currentTimeMillis()));
+
+        if (null != loginContext.getMetadataServerUrl()) {
+            session.setProperty(key + METADATA_SERVER_URL, loginContext.getMetadataServerUrl());
+        }
+
+        if (null != loginContext.getUserId()) {
+            session.setProperty(key + USER_ID, loginContext.getUserId());
+        }
+
+        merge(key, session, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void invalidate(final LoginWebService loginWebService, final LoginContext loginContext) {
+        merge(computeKey(loginWebService, loginContext.getCredentials()), null, loginContext.getSessionId());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.store;
+
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.soap.LoginWebService;
+import org.solenopsis.keraiai.soap.SessionStore;
+
+/**
+ * Session stores needing no configuration.
+ *
+ * @author Scot P. Floess
+ */
+public enum SessionStoreEnum implements SessionStore {
+    /**
+     * Stores nothing.
+     */
+    NONE;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LoginContext load(final LoginWebService loginWebService, final Credentials credentials) {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void store(final LoginWebService loginWebService, final LoginContext loginContext) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate(final LoginWebService loginWebService, final LoginContext loginContext) {
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.store;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.flossware.jcore.utils.ObjectUtils;
+import org.solenopsis.keraiai.soap.SessionStore;
+
+/**
+ * Holds the session store used by all logins.
+ *
+ * @author Scot P. Floess
+ */
+public final class SessionStoreFactory {
+    /**
+     * The session store used by all logins.
+     */
+    private static final AtomicReference<SessionStore> SESSION_STORE = new AtomicReference<SessionStore>(SessionStoreEnum.NONE);
+
+    /**
+     * Return the session store used by all logins.
+     *
+     * @return the session store.
+     */
+    public static SessionStore getSessionStore() {
+        return SESSION_STORE.get();
+    }
+
+    /**
+     * Set the session store used by all logins from now on.
+     *
+     * @param sessionStore the session store - use {@link SessionStoreEnum#NONE} to store nothing.
+     *
+     * @throws IllegalArgumentException if sessionStore is null.
+     */
+    public static void setSessionStore(final SessionStore sessionStore) {
+        SESSION_STORE.set(ObjectUtils.ensureObject(sessionStore, "Must provide a session store!"));
+    }
+
+    /**
+     * Default constructor not allowed.
+     */
+    private SessionStoreFactory() {
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.store;
+
+import org.flossware.jcore.utils.StringUtils;
+import org.flossware.jcore.utils.net.UrlUtils;
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.LoginContext;
+
+/**
+ * A session loaded from a session store - it also knows when it was first logged in, so it is not mistaken for a new session.
+ *
+ * @author Scot P. Floess
+ */
+public final class StoredLoginContext implements LoginContext {
+    /**
+     * The metadata server's URL.
+     */
+    private final String metadataServerUrl;
+
+    /**
+     * True if the password expired.
+     */
+    private final boolean isPasswordExpired;
+
+    /**
+     * True if a sandbox.
+     */
+    private final boolean isSandbox;
+
+    /**
+     * The server's real URL.
+     */
+    private final String serverUrl;
+
+    /**
+     * The server's real URL just including host and protocol.
+     */
+    private final String baseServerUrl;
+
+    /**
+     * The session id.
+     */
+    private final String sessionId;
+
+    /**
+     * The user id.
+     */
+    private final String userId;
+
+    /**
+     * The seconds the session is valid.
+     */
+    private final int sessionSecondsValid;
+
+    /**
+     * The credentials used for login.
+     */
+    private final Credentials credentials;
+
+    /**
+     * When, in milliseconds since the epoch, the session was logged in.
+     */
+    private final long loginTime;
+
+    /**
+     * This constructor sets all values.
+     *
+     * @throws IllegalArgumentException if serverUrl or sessionId are null, empty or blank.
+     */
+    StoredLoginContext(final String metadataServerUrl, final boolean isPasswordExpired, final boolean isSandbox, final String serverUrl, final String sessionId, final String userId, final int sessionSecondsValid, final Credentials credentials, final long loginTime) {
+        this.metadataServerUrl = metadataServerUrl;
+        this.isPasswordExpired = isPasswordExpired;
+        this.isSandbox = isSandbox;
+        this.serverUrl = serverUrl;
+        this.baseServerUrl = UrlUtils.computeProtocolAndHostString(StringUtils.ensureString(serverUrl, "Must provide a server url!"));
+        this.sessionId = StringUtils.ensureString(sessionId, "Must provide a session id!");
+        this.userId = userId;
+        this.sessionSecondsValid = sessionSecondsValid;
+        this.credentials = credentials;
+        this.loginTime = loginTime;
+    }
+
+    /**
+     * This constructor sets all values for a session logged in now.
+     *
+     * @throws IllegalArgumentException if serverUrl or sessionId are null, empty or blank.
+     */
+    StoredLoginContext(final String metadataServerUrl, final boolean isPasswordExpired, final boolean isSandbox, final String serverUrl, final String sessionId, final String userId, final int sessionSecondsValid, final Credentials credentials) {
+        this(metadataServerUrl, isPasswordExpired, isSandbox, serverUrl, sessionId, userId, sessionSecondsValid, credentials, System.currentTimeMillis());
+    }
+
+    /**
+     * Return when the session was logged in.
+     *
+     * @return the milliseconds since the epoch when the session was logged in.
+     */
+    public long getLoginTime() {
+        return loginTime;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getMetadataServerUrl() {
+        return metadataServerUrl;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isPasswordExpired() {
+        return isPasswordExpired;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSandbox() {
+        return isSandbox;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getServerUrl() {
+        return serverUrl;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getBaseServerUrl() {
+        return baseServerUrl;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSessionSecondsValid() {
+        return sessionSecondsValid;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Credentials getCredentials() {
+        return credentials;
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Storage of sessions for reuse across JVM restarts - including an encrypted file based store.
+ */
+package org.solenopsis.keraiai.soap.store;
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.utils;
+
+import org.solenopsis.keraiai.LoginContext;
+
+/**
+ * Utility class for login context functionality.
+ *
+ * @author Scot P. Floess
+ */
+public final class LoginContextUtils {
+    /**
+     * Compute the organization id of <code>loginContext</code> - the last segment of its server URL.
+     *
+     * @param loginContext the login context - may be null.
+     *
+     * @return the organization id or an empty string if unknown.
+     */
+    public static String computeOrganizationId(final LoginContext loginContext) {
+        final String serverUrl = null == loginContext ? null : loginContext.getServerUrl();
+
+        return null == serverUrl ? "" : serverUrl.substring(serverUrl.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * Default constructor not allowed.
+     */
+    private LoginContextUtils() {
+    }
+}
@@ -17,9 +17,13 @@
 package org.solenopsis.keraiai.soap.utils;
 
 import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.ws.Service;
 import org.flossware.jcore.utils.ObjectUtils;
 import org.flossware.jcore.utils.StringUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 
 /**
  * Utility class for port functionality.
@@ -32,6 +36,11 @@ public final class SalesforceSessionHeaderUtils {
      */
     public static final String SESSION_HEADER = "SessionHeader";
 
+    /**
+     * The element of the session header containing the session id.
+     */
+    public static final String SESSION_ID = "sessionId";
+
     /**
      * Compuates the QName for the SOAP session header from the <code>namespaceUri</code>.
      *
@@ -77,6 +86,55 @@ public final class SalesforceSessionHeaderUtils {
         return computeSessionHeaderNameForQname(service.getServiceName());
     }
 
+    /**
+     * Create the session header element, containing the session id element, for <code>sessionHeaderName</code>. The element is meant
+     * to be created once per session and reused for every message.
+     *
+     * @param sessionHeaderName the QName of the session header.
+     * @param sessionId         the session id.
+     *
+     * @return the session header element.
+     *
+     * @throws IllegalArgumentException if sessionHeaderName is null or sessionId is null, empty or blank.
+     */
+    public static Element createSessionHeader(final QName sessionHeaderName, final String sessionId) {
+        ObjectUtils.ensureObject(sessionHeaderName, "Must provide a session header QName!");
+        StringUtils.ensureString(sessionId, "Must provide a session id!");
+
+        final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+
+        documentBuilderFactory.setNamespaceAware(true);
+
+        try {
+            final Document document = documentBuilderFactory.newDocumentBuilder().newDocument();
+
+            final Element sessionHeader = document.createElementNS(sessionHeaderName.getNamespaceURI(), sessionHeaderName.getLocalPart());
+            final Element sessionIdElement = document.createElementNS(sessionHeaderName.getNamespaceURI(), SESSION_ID);
+
+            sessionIdElement.setTextContent(sessionId);
+            sessionHeader.appendChild(sessionIdElement);
+            document.appendChild(sessionHeader);
+
+            return sessionHeader;
+        } catch (final ParserConfigurationException parserConfigurationException) {
+            throw new IllegalStateException("Unable to create session header", parserConfigurationException);
+        }
+    }
+
+    /**
+     * Create the session header element, containing the session id element, for <code>service</code>.
+     *
+     * @param service   the service for whom we desire a session header.
+     * @param sessionId the session id.
+     *
+     * @return the session header element.
+     *
+     * @throws IllegalArgumentException if service is null or sessionId is null, empty or blank.
+     */
+    public static Element createSessionHeader(final Service service, final String sessionId) {
+        return createSessionHeader(computeSessionHeaderNameForService(service), sessionId);
+    }
+
     /**
      * Default constructor not allowed.
      */
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.bulk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+import org.solenopsis.keraiai.stub.StubSalesforceServer;
+
+/**
+ * Tests the BulkJobClient class against the stub server.
+ *
+ * @author Scot P. Floess
+ */
+public class BulkJobClientTest {
+    /**
+     * Holds our CSV files.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The stub server.
+     */
+    private StubSalesforceServer stubServer;
+
+    /**
+     * The client under test.
+     */
+    private BulkJobClient bulkJobClient;
+
+    /**
+     * Start the stub server, login and create a client.
+     */
+    @Before
+    public void setUp() throws Exception {
+        stubServer = new StubSalesforceServer(2);
+        stubServer.start();
+
+        final LoginContext loginContext = LoginWebServiceEnum.PARTNER_LOGIN_SERVICE.login(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION));
+
+        bulkJobClient = new BulkJobClient(loginContext);
+    }
+
+    /**
+     * Stop the stub server.
+     */
+    @After
+    public void tearDown() {
+        stubServer.stop();
+    }
+
+    /**
+     * Test an ingest job is created, uploaded, closed and polled until complete.
+     */
+    @Test
+    public void test_ingest() throws Exception {
+        final BulkJob job = bulkJobClient.createIngestJob("Account", BulkOperationEnum.INSERT);
+
+        Assert.assertEquals("Should be open", BulkJobStateEnum.OPEN, job.getState());
+
+        bulkJobClient.uploadJobData(job, new ByteArrayInputStream("Name\nAcme\nGlobex\nInitech\n".getBytes(StandardCharsets.UTF_8)));
+
+        Assert.assertEquals("Should be closed", BulkJobStateEnum.UPLOAD_COMPLETE, bulkJobClient.closeJob(job).getState());
+
+        final BulkJob completedJob = bulkJobClient.awaitJob(job, 10, TimeUnit.MILLISECONDS).get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals("Should be complete", BulkJobStateEnum.JOB_COMPLETE, completedJob.getState());
+        Assert.assertEquals("Should have processed all records", 3, completedJob.getNumberRecordsProcessed());
+
+        final ByteArrayOutputStream results = new ByteArrayOutputStream();
+
+        bulkJobClient.downloadIngestResults(completedJob, BulkResultTypeEnum.SUCCESSFUL_RESULTS, results);
+
+        Assert.assertEquals("Should have a header and a line per record", 4, new String(results.toByteArray(), StandardCharsets.UTF_8).split("\n").length);
+    }
+
+    /**
+     * Test all pages of query results are downloaded as one CSV.
+     */
+    @Test
+    public void test_query() throws Exception {
+        final BulkJob job = bulkJobClient.awaitJob(bulkJobClient.createQueryJob("SELECT Id, Name FROM Account"), 10, TimeUnit.MILLISECONDS).get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals("Should be complete", BulkJobStateEnum.JOB_COMPLETE, job.getState());
+
+        final ByteArrayOutputStream results = new ByteArrayOutputStream();
+
+        bulkJobClient.downloadQueryResults(job, results);
+
+        final String[] lines = new String(results.toByteArray(), StandardCharsets.UTF_8).split("\n");
+
+        Assert.assertEquals("Should have one header and all records", 11, lines.length);
+        Assert.assertEquals("Should start with the header", "\"Id\",\"Name\"", lines[0]);
+    }
+
+    /**
+     * Test ingest operations are refused for query jobs.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_createQueryJob_ingestOperation() {
+        bulkJobClient.createQueryJob("SELECT Id FROM Account", BulkOperationEnum.INSERT);
+    }
+
+    /**
+     * Test a refused session has a proxy port log in again, and the call made once more.
+     */
+    @Test
+    public void test_relogin() throws Exception {
+        final BulkJobClient proxyClient = new BulkJobClient((LoginContext) ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE));
+        final BulkJob job = proxyClient.createIngestJob("Account", BulkOperationEnum.INSERT);
+
+        stubServer.expireSessions();
+
+        Assert.assertEquals("Should be open", BulkJobStateEnum.OPEN, proxyClient.getJob(job).getState());
+        Assert.assertEquals("Should have logged in again", 3, stubServer.getSessions());
+
+        final File file = temporaryFolder.newFile("accounts.csv");
+
+        Files.write(file.toPath(), "Name\nAcme\n".getBytes(StandardCharsets.UTF_8));
+
+        stubServer.expireSessions();
+
+        proxyClient.uploadJobData(job, file);
+
+        Assert.assertEquals("Should have logged in again to upload", 4, stubServer.getSessions());
+
+        stubServer.expireSessions();
+
+        try {
+            proxyClient.uploadJobData(job, new ByteArrayInputStream("Name\nAcme\n".getBytes(StandardCharsets.UTF_8)));
+
+            Assert.fail("Should not send a stream again");
+        } catch (final IllegalStateException illegalStateException) {
+            Assert.assertEquals("Should have logged in again for later calls", 5, stubServer.getSessions());
+        }
+    }
+
+    /**
+     * Test a refused session is raised when the login context cannot log in again.
+     */
+    @Test
+    public void test_invalidSession() {
+        final BulkJob job = bulkJobClient.createIngestJob("Account", BulkOperationEnum.INSERT);
+
+        stubServer.expireSessions();
+
+        try {
+            bulkJobClient.getJob(job);
+
+            Assert.fail("Should have raised the refused session");
+        } catch (final IllegalStateException illegalStateException) {
+            Assert.assertTrue("Should contain the HTTP status", illegalStateException.getMessage().contains("401"));
+        }
+    }
+}
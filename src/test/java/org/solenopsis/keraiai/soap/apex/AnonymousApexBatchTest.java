@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.apex;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the AnonymousApexBatch class.
+ *
+ * @author Scot P. Floess
+ */
+public class AnonymousApexBatchTest {
+    /**
+     * Test batches never exceed the max length unless holding a single script.
+     */
+    @Test
+    public void test_computeBatches() {
+        final List<String> scripts = Arrays.asList("insert new Account(Name = 'a');", "insert new Account(Name = 'b');", "insert new Account(Name = 'c');");
+        final int maxLength = AnonymousApexBatch.wrap(0, scripts.get(0)).length() + AnonymousApexBatch.wrap(1, scripts.get(1)).length();
+
+        final List<AnonymousApexBatch> batches = AnonymousApexBatch.computeBatches(scripts, maxLength);
+
+        Assert.assertEquals("Should be two batches", 2, batches.size());
+        Assert.assertEquals("Should be two scripts in first batch", Arrays.asList(0, 1), batches.get(0).getIndexes());
+        Assert.assertEquals("Should be one script in second batch", Arrays.asList(2), batches.get(1).getIndexes());
+        Assert.assertEquals("Should send single script as is", scripts.get(2), batches.get(1).computeText());
+    }
+
+    /**
+     * Test a script larger than the max length is placed in its own batch.
+     */
+    @Test
+    public void test_computeBatches_oversized() {
+        final List<AnonymousApexBatch> batches = AnonymousApexBatch.computeBatches(Arrays.asList("a;", "b;"), 1);
+
+        Assert.assertEquals("Should be two batches", 2, batches.size());
+    }
+
+    /**
+     * Test mapping a line of the batch text to a script.
+     */
+    @Test
+    public void test_findPosition() {
+        final AnonymousApexBatch batch = AnonymousApexBatch.computeBatches(Arrays.asList("a;\nb;", "c;"), Integer.MAX_VALUE).get(0);
+        final String[] lines = batch.computeText().split("\n");
+
+        for (int line = 1; line <= lines.length; line++) {
+            final int position = batch.findPosition(line);
+
+            if ("a;".equals(lines[line - 1])) {
+                Assert.assertEquals("Should be first script", 0, position);
+            } else if ("b;".equals(lines[line - 1])) {
+                Assert.assertEquals("Should be first script", 0, position);
+            } else if ("c;".equals(lines[line - 1])) {
+                Assert.assertEquals("Should be second script", 1, position);
+            } else {
+                Assert.assertEquals("Should not be a script", -1, position);
+            }
+        }
+    }
+
+    /**
+     * Test extracting debug log excerpts and failures.
+     */
+    @Test
+    public void test_extractDebugLog() {
+        final AnonymousApexBatch batch = AnonymousApexBatch.computeBatches(Arrays.asList("a;", "b;"), Integer.MAX_VALUE).get(0);
+
+        final String debugLog
+                = "00:00:00.0|USER_DEBUG|[1]|ERROR|" + AnonymousApexBatch.computeMarker(AnonymousApexBatch.BEGIN_MARKER, 0) + "\n"
+                + "00:00:00.1|USER_DEBUG|[4]|DEBUG|hello\n"
+                + "00:00:00.2|USER_DEBUG|[9]|ERROR|" + AnonymousApexBatch.computeMarker(AnonymousApexBatch.END_MARKER, 0) + "\n"
+                + "00:00:00.3|USER_DEBUG|[10]|ERROR|" + AnonymousApexBatch.computeMarker(AnonymousApexBatch.BEGIN_MARKER, 1) + "\n"
+                + "00:00:00.4|USER_DEBUG|[16]|ERROR|" + AnonymousApexBatch.computeMarker(AnonymousApexBatch.FAILED_MARKER, 1) + " System.DmlException: boom\n"
+                + "00:00:00.5|USER_DEBUG|[18]|ERROR|" + AnonymousApexBatch.computeMarker(AnonymousApexBatch.END_MARKER, 1) + "\n";
+
+        Assert.assertEquals("Should be first script's log", "00:00:00.1|USER_DEBUG|[4]|DEBUG|hello\n", batch.extractDebugLog(debugLog, 0));
+        Assert.assertNull("Should not have failed", batch.extractFailure(debugLog, 0));
+        Assert.assertEquals("Should have failed", "System.DmlException: boom", batch.extractFailure(debugLog, 1));
+        Assert.assertNull("Should be no log", batch.extractDebugLog(null, 0));
+    }
+
+    /**
+     * Test scripts are only completed when both their begin and end markers are logged.
+     */
+    @Test
+    public void test_isCompleted() {
+        final AnonymousApexBatch batch = AnonymousApexBatch.computeBatches(Arrays.asList("a;", "b;"), Integer.MAX_VALUE).get(0);
+
+        final String debugLog
+                = "00:00:00.0|USER_DEBUG|[1]|ERROR|" + AnonymousApexBatch.computeMarker(AnonymousApexBatch.BEGIN_MARKER, 0) + "\n"
+                + "00:00:00.2|USER_DEBUG|[9]|ERROR|" + AnonymousApexBatch.computeMarker(AnonymousApexBatch.END_MARKER, 0) + "\n"
+                + "00:00:00.3|USER_DEBUG|[10]|ERROR|" + AnonymousApexBatch.computeMarker(AnonymousApexBatch.BEGIN_MARKER, 1) + "\n";
+
+        Assert.assertTrue("Should have completed", batch.isCompleted(debugLog, 0));
+        Assert.assertFalse("Should be truncated", batch.isCompleted(debugLog, 1));
+        Assert.assertFalse("Should not know without a log", batch.isCompleted(null, 0));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.apex;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
+import org.solenopsis.keraiai.stub.StubFaultEnum;
+import org.solenopsis.keraiai.stub.StubSalesforceServer;
+
+/**
+ * Tests the AnonymousApexExecutor class against the stub server.
+ *
+ * @author Scot P. Floess
+ */
+public class AnonymousApexExecutorTest {
+    /**
+     * The stub server.
+     */
+    private StubSalesforceServer stubServer;
+
+    /**
+     * Executes anonymous Apex against the stub server.
+     */
+    private AnonymousApexExecutor executor;
+
+    /**
+     * Start the stub server and create an executor for it.
+     */
+    @Before
+    public void setUp() throws Exception {
+        stubServer = new StubSalesforceServer(2);
+        stubServer.start();
+
+        executor = new AnonymousApexExecutor(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, AnonymousApexWebServiceEnum.APEX_SERVICE, AnonymousApexExecutor.DEFAULT_MAX_SCRIPT_LENGTH, 1);
+    }
+
+    /**
+     * Stop the stub server.
+     */
+    @After
+    public void tearDown() {
+        stubServer.stop();
+    }
+
+    /**
+     * Test scripts are batched into one call, each reporting its own failure and debug log.
+     */
+    @Test
+    public void test_execute() {
+        final List<AnonymousApexResult> results = executor.execute(Arrays.asList("System.debug('one');", "Integer i = 1 / 0; // THROW", "System.debug('three');"));
+
+        Assert.assertEquals("Should have executed one batch", 1, stubServer.getRequests("executeAnonymous"));
+        Assert.assertTrue("Should have succeeded", results.get(0).isSuccess());
+        Assert.assertTrue("Should have the debug log of the script", results.get(0).getDebugLog().contains("|one"));
+        Assert.assertFalse("Should have failed", results.get(1).isSuccess());
+        Assert.assertTrue("Should have compiled", results.get(1).isCompiled());
+        Assert.assertEquals("Should have the exception", StubSalesforceServer.APEX_EXCEPTION, results.get(1).getExceptionMessage());
+        Assert.assertTrue("Should have succeeded", results.get(2).isSuccess());
+        Assert.assertFalse("Should not have the debug log of other scripts", results.get(2).getDebugLog().contains("|one"));
+        Assert.assertEquals("Should not have logged out", 0, stubServer.getRequests("logout"));
+    }
+
+    /**
+     * Test scripts of a batch are not reported as succeeded when there is no debug log to show they did.
+     */
+    @Test
+    public void test_execute_noDebugLog() {
+        stubServer.setMaxDebugLogLines(0);
+
+        final List<AnonymousApexResult> results = executor.execute(Arrays.asList("System.debug('one');", "Integer i = 1 / 0; // THROW", "System.debug('three');"));
+
+        Assert.assertEquals("Should have executed one batch", 1, stubServer.getRequests("executeAnonymous"));
+
+        for (final AnonymousApexResult result : results) {
+            Assert.assertTrue("Should have compiled", result.isCompiled());
+            Assert.assertFalse("Should not be known to have succeeded", result.isSuccess());
+            Assert.assertEquals("Should report the outcome unknown", AnonymousApexExecutor.UNKNOWN_OUTCOME, result.getExceptionMessage());
+        }
+    }
+
+    /**
+     * Test scripts of a batch cut off by a truncated debug log are not reported as succeeded, while those logged in full are.
+     */
+    @Test
+    public void test_execute_truncatedDebugLog() {
+        // Begin, debug and end of the first script, begin and failure of
+        // the second.
+        stubServer.setMaxDebugLogLines(5);
+
+        final List<AnonymousApexResult> results = executor.execute(Arrays.asList("System.debug('one');", "Integer i = 1 / 0; // THROW", "System.debug('three');"));
+
+        Assert.assertTrue("Should have succeeded", results.get(0).isSuccess());
+        Assert.assertFalse("Should have failed", results.get(1).isSuccess());
+        Assert.assertEquals("Should have the exception", StubSalesforceServer.APEX_EXCEPTION, results.get(1).getExceptionMessage());
+        Assert.assertFalse("Should not be known to have succeeded", results.get(2).isSuccess());
+        Assert.assertEquals("Should report the outcome unknown", AnonymousApexExecutor.UNKNOWN_OUTCOME, results.get(2).getExceptionMessage());
+    }
+
+    /**
+     * Test a batch failing to compile executes the offending script by itself and the rest as a batch.
+     */
+    @Test
+    public void test_execute_compileError() {
+        final List<AnonymousApexResult> results = executor.execute(Arrays.asList("System.debug('one');", "COMPILE_ERROR", "System.debug('three');"));
+
+        Assert.assertEquals("Should have executed the batch, the offending script and the rest", 3, stubServer.getRequests("executeAnonymous"));
+        Assert.assertTrue("Should have succeeded", results.get(0).isSuccess());
+        Assert.assertTrue("Should know whether it compiled", results.get(1).isCompileKnown());
+        Assert.assertFalse("Should not have compiled", results.get(1).isCompiled());
+        Assert.assertEquals("Should report the line of the script", 1, results.get(1).getLine());
+        Assert.assertTrue("Should have succeeded", results.get(2).isSuccess());
+    }
+
+    /**
+     * Test a batch failing with an uncatchable exception executes each script by itself.
+     */
+    @Test
+    public void test_execute_uncatchable() {
+        final List<AnonymousApexResult> results = executor.execute(Arrays.asList("System.debug('one');", "LIMIT_EXCEPTION", "System.debug('three');"));
+
+        Assert.assertEquals("Should have executed the batch then each script", 4, stubServer.getRequests("executeAnonymous"));
+        Assert.assertTrue("Should have succeeded", results.get(0).isSuccess());
+        Assert.assertFalse("Should have failed", results.get(1).isSuccess());
+        Assert.assertEquals("Should have the exception", StubSalesforceServer.APEX_LIMIT_EXCEPTION, results.get(1).getExceptionMessage());
+        Assert.assertTrue("Should have succeeded", results.get(2).isSuccess());
+    }
+
+    /**
+     * Test an invalid session logs in again and executes the batch again.
+     */
+    @Test
+    public void test_execute_relogin() {
+        stubServer.injectFaults(StubFaultEnum.INVALID_SESSION_ID, 1);
+
+        Assert.assertTrue("Should have succeeded", executor.execute("System.debug('one');").isSuccess());
+        Assert.assertEquals("Should have logged in again", 2, stubServer.getSessions());
+        Assert.assertEquals("Should have executed twice", 2, stubServer.getRequests("executeAnonymous"));
+    }
+
+    /**
+     * Test a failed call reports whether scripts compiled as unknown, with the failure.
+     */
+    @Test
+    public void test_execute_callFailure() {
+        stubServer.injectFaults(StubFaultEnum.UNABLE_TO_LOCK_ROW, 1);
+
+        final List<AnonymousApexResult> results = executor.execute(Arrays.asList("System.debug('one');", "System.debug('two');"));
+
+        Assert.assertEquals("Should not retry anonymous Apex", 1, stubServer.getRequests("executeAnonymous"));
+
+        for (final AnonymousApexResult result : results) {
+            Assert.assertFalse("Should not know whether it compiled", result.isCompileKnown());
+            Assert.assertTrue("Should have the failure", result.getCallFailure().contains(StubFaultEnum.UNABLE_TO_LOCK_ROW.name()));
+            Assert.assertNull("Should not have an exception message", result.getExceptionMessage());
+        }
+    }
+}
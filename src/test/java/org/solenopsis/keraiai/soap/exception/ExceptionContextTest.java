@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.exception;
+
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the ExceptionContext and ExceptionTotals classes.
+ *
+ * @author Scot P. Floess
+ */
+public class ExceptionContextTest {
+    /**
+     * Test failures are counted and totals computed.
+     */
+    @Test
+    public void test_incrementFailureCount() {
+        final ExceptionContext exceptionContext = new ExceptionContext();
+
+        Assert.assertEquals("Should be the failure incremented", SalesforceExceptionEnum.UNABLE_TO_LOCK_ROW, exceptionContext.incrementFailureCount(SalesforceExceptionEnum.UNABLE_TO_LOCK_ROW));
+        Assert.assertEquals("Should be the failure incremented", SalesforceExceptionEnum.UNABLE_TO_LOCK_ROW, exceptionContext.incrementFailureCount(new IllegalStateException("UNABLE_TO_LOCK_ROW")));
+        Assert.assertEquals("Should be the failure incremented", SalesforceExceptionEnum.IOEXCEPTION, exceptionContext.incrementFailureCount(new IOException("Connection reset")));
+
+        Assert.assertEquals("Should have counted lock failures", 2, exceptionContext.getFailureCount(SalesforceExceptionEnum.UNABLE_TO_LOCK_ROW));
+        Assert.assertEquals("Should not have counted session failures", 0, exceptionContext.getFailureCount(SalesforceExceptionEnum.INVALID_SESSION_ID));
+        Assert.assertEquals("Should exclude zero totals", "unable to lock row [2] IOException [1]", exceptionContext.computeTotals(false));
+        Assert.assertTrue("Should include zero totals", exceptionContext.computeTotals().startsWith("invalid session id [0] "));
+    }
+
+    /**
+     * Test totals across the JVM are counted.
+     */
+    @Test
+    public void test_ExceptionTotals() {
+        final long total = ExceptionTotals.getFailureCount(SalesforceExceptionEnum.QUERY_TIMEOUT);
+
+        ExceptionTotals.incrementFailureCount(SalesforceExceptionEnum.QUERY_TIMEOUT);
+
+        Assert.assertEquals("Should have counted the failure", total + 1, ExceptionTotals.getFailureCount(SalesforceExceptionEnum.QUERY_TIMEOUT));
+        Assert.assertEquals("Should have all totals", total + 1, ExceptionTotals.getFailureCounts().get(SalesforceExceptionEnum.QUERY_TIMEOUT).longValue());
+    }
+}
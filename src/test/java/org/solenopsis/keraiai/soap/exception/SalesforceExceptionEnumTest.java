@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.exception;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPConstants;
+import javax.xml.soap.SOAPFactory;
+import javax.xml.ws.soap.SOAPFaultException;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the SalesforceExceptionEnum class.
+ *
+ * @author Scot P. Floess
+ */
+public class SalesforceExceptionEnumTest {
+    /**
+     * Stands in for a generated SFDC exception code.
+     */
+    public enum ExceptionCode {
+        UNABLE_TO_LOCK_ROW,
+        REQUEST_LIMIT_EXCEEDED
+    }
+
+    /**
+     * Stands in for generated SFDC fault info.
+     */
+    public static class FaultInfo {
+        /**
+         * The exception code.
+         */
+        private final ExceptionCode exceptionCode;
+
+        /**
+         * This constructor sets the exception code.
+         */
+        public FaultInfo(final ExceptionCode exceptionCode) {
+            this.exceptionCode = exceptionCode;
+        }
+
+        /**
+         * Return the exception code.
+         */
+        public ExceptionCode getExceptionCode() {
+            return exceptionCode;
+        }
+    }
+
+    /**
+     * Stands in for a generated SFDC typed fault.
+     */
+    public static class TypedFaultException extends Exception {
+        /**
+         * The fault info.
+         */
+        private final FaultInfo faultInfo;
+
+        /**
+         * This constructor sets the fault string and exception code.
+         */
+        public TypedFaultException(final String message, final ExceptionCode exceptionCode) {
+            super(message);
+
+            this.faultInfo = new FaultInfo(exceptionCode);
+        }
+
+        /**
+         * Return the fault info.
+         */
+        public FaultInfo getFaultInfo() {
+            return faultInfo;
+        }
+    }
+
+    /**
+     * Test messages anywhere in the cause chain are found, the first enum value winning.
+     */
+    @Test
+    public void test_computeType_message() {
+        Assert.assertEquals("Should find the session failure", SalesforceExceptionEnum.INVALID_SESSION_ID, SalesforceExceptionEnum.computeType(new InvocationTargetException(new IllegalStateException("UNABLE_TO_LOCK_ROW", new IOException("INVALID_SESSION_ID")))));
+        Assert.assertEquals("Should find service unavailable", SalesforceExceptionEnum.SERVICE_UNAVAILABLE, SalesforceExceptionEnum.computeType(new IllegalStateException("The server sent HTTP status code 503: Service Unavailable")));
+        Assert.assertEquals("Should find the IOException", SalesforceExceptionEnum.IOEXCEPTION, SalesforceExceptionEnum.computeType(new InvocationTargetException(new IllegalStateException(new IOException("Connection reset")))));
+        Assert.assertEquals("Should not find anything", SalesforceExceptionEnum.UNKNOWN, SalesforceExceptionEnum.computeType(new IllegalStateException("Something unexpected")));
+    }
+
+    /**
+     * Test fault codes are used when available.
+     */
+    @Test
+    public void test_computeType_faultCode() throws Exception {
+        final SOAPFaultException soapFaultException = new SOAPFaultException(SOAPFactory.newInstance().createFault("Server unavailable", new QName(SOAPConstants.URI_NS_SOAP_ENVELOPE, "SERVER_UNAVAILABLE", "sf")));
+
+        Assert.assertEquals("Should use the SOAP fault code", SalesforceExceptionEnum.SERVER_UNAVAILABLE, SalesforceExceptionEnum.computeType(new InvocationTargetException(soapFaultException)));
+        Assert.assertEquals("Should use the typed fault code", SalesforceExceptionEnum.UNABLE_TO_LOCK_ROW, SalesforceExceptionEnum.computeType(new InvocationTargetException(new TypedFaultException("unable to obtain exclusive access to this record", ExceptionCode.UNABLE_TO_LOCK_ROW))));
+    }
+
+    /**
+     * Test the concurrent request limit is retried, but exhausting daily requests fails.
+     */
+    @Test
+    public void test_computeType_requestLimit() {
+        Assert.assertEquals("Should find the concurrent limit in the message", SalesforceExceptionEnum.CONCURRENT_REQUEST_LIMIT_EXCEEDED, SalesforceExceptionEnum.computeType(new IllegalStateException("REQUEST_LIMIT_EXCEEDED: ConcurrentRequests (Concurrent API Requests) Limit exceeded.")));
+        Assert.assertEquals("Should find the daily limit in the message", SalesforceExceptionEnum.REQUEST_LIMIT_EXCEEDED, SalesforceExceptionEnum.computeType(new IllegalStateException("REQUEST_LIMIT_EXCEEDED: TotalRequests Limit exceeded.")));
+        Assert.assertEquals("Should qualify the typed fault code by its message", SalesforceExceptionEnum.CONCURRENT_REQUEST_LIMIT_EXCEEDED, SalesforceExceptionEnum.computeType(new InvocationTargetException(new TypedFaultException("ConcurrentRequests (Concurrent API Requests) Limit exceeded.", ExceptionCode.REQUEST_LIMIT_EXCEEDED))));
+        Assert.assertEquals("Should keep the typed fault code", SalesforceExceptionEnum.REQUEST_LIMIT_EXCEEDED, SalesforceExceptionEnum.computeType(new InvocationTargetException(new TypedFaultException("TotalRequests Limit exceeded.", ExceptionCode.REQUEST_LIMIT_EXCEEDED))));
+
+        Assert.assertTrue("Should retry", SalesforceExceptionEnum.isRetryException(SalesforceExceptionEnum.CONCURRENT_REQUEST_LIMIT_EXCEEDED));
+        Assert.assertTrue("Should slow down", SalesforceExceptionEnum.isOverloadException(SalesforceExceptionEnum.CONCURRENT_REQUEST_LIMIT_EXCEEDED));
+        Assert.assertTrue("Should fail", SalesforceExceptionEnum.isFailException(SalesforceExceptionEnum.REQUEST_LIMIT_EXCEEDED));
+    }
+
+    /**
+     * Test fault codes map to their failure policies.
+     */
+    @Test
+    public void test_getFailurePolicy() {
+        Assert.assertEquals("Should relogin", FailurePolicyEnum.RELOGIN, SalesforceExceptionEnum.computeFaultCodeType("INVALID_SESSION_ID").getFailurePolicy());
+        Assert.assertEquals("Should retry", FailurePolicyEnum.RETRY, SalesforceExceptionEnum.computeFaultCodeType("UNABLE_TO_LOCK_ROW").getFailurePolicy());
+        Assert.assertEquals("Should fail", FailurePolicyEnum.FAIL, SalesforceExceptionEnum.computeFaultCodeType("QUERY_TIMEOUT").getFailurePolicy());
+        Assert.assertEquals("Should fail", FailurePolicyEnum.FAIL, SalesforceExceptionEnum.computeFaultCodeType("INVALID_QUERY_LOCATOR").getFailurePolicy());
+        Assert.assertEquals("Should not match part of a fault code", SalesforceExceptionEnum.UNKNOWN, SalesforceExceptionEnum.computeFaultCodeType("INVALID_FIELD_FOR_INSERT_UPDATE"));
+        Assert.assertTrue("Should slow down", SalesforceExceptionEnum.isOverloadException(SalesforceExceptionEnum.REQUEST_LIMIT_EXCEEDED));
+        Assert.assertFalse("Unknown failures should not be known retries", SalesforceExceptionEnum.isRetryException(SalesforceExceptionEnum.UNKNOWN));
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.exception.SalesforceExceptionEnum;
+import org.solenopsis.keraiai.soap.limits.OrganizationRateLimiter;
+import org.solenopsis.keraiai.soap.limits.RateLimitConfiguration;
+import org.solenopsis.keraiai.soap.limits.RateLimiters;
+import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+import org.solenopsis.keraiai.soap.session.Deadline;
+import org.solenopsis.keraiai.stub.StubFaultEnum;
+import org.solenopsis.keraiai.stub.StubSalesforceServer;
+
+/**
+ * Tests decoding partner query results from the stub server.
+ *
+ * @author Scot P. Floess
+ */
+public class PartnerQueryClientTest {
+    /**
+     * The stub server.
+     */
+    private StubSalesforceServer stubServer;
+
+    /**
+     * A client using the session of a proxy port to the stub server.
+     */
+    private PartnerQueryClient client;
+
+    /**
+     * Start the stub server with five records returned two per batch.
+     */
+    @Before
+    public void setUp() throws Exception {
+        stubServer = new StubSalesforceServer(2);
+        stubServer.setQueryRecords(5);
+        stubServer.setQueryBatchSize(2);
+        stubServer.start();
+
+        client = new PartnerQueryClient((LoginContext) ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE));
+    }
+
+    /**
+     * Stop the stub server.
+     */
+    @After
+    public void tearDown() {
+        RateLimiters.setRateLimitConfiguration(null);
+
+        stubServer.stop();
+    }
+
+    /**
+     * Test only failures that may pass on their own are transient.
+     */
+    @Test
+    public void test_isTransient() {
+        Assert.assertTrue("I/O failures are transient", PartnerQueryClient.isTransient(SalesforceExceptionEnum.IOEXCEPTION));
+        Assert.assertTrue("Invalid sessions are transient", PartnerQueryClient.isTransient(SalesforceExceptionEnum.INVALID_SESSION_ID));
+        Assert.assertTrue("Unavailable servers are transient", PartnerQueryClient.isTransient(SalesforceExceptionEnum.SERVER_UNAVAILABLE));
+        Assert.assertFalse("Query timeouts are not transient", PartnerQueryClient.isTransient(SalesforceExceptionEnum.QUERY_TIMEOUT));
+        Assert.assertFalse("Unknown failures are not transient", PartnerQueryClient.isTransient(SalesforceExceptionEnum.UNKNOWN));
+    }
+
+    /**
+     * Test the cursor decodes every record, querying for more until done.
+     */
+    @Test
+    public void test_openCursor() {
+        final RecordCursor cursor = client.openCursor("SELECT Id, Name, Description FROM Account");
+
+        for (int record = 0; record < 5; record++) {
+            Assert.assertTrue("Should have more records", cursor.hasNext());
+
+            final PartnerRecord partnerRecord = cursor.next();
+
+            Assert.assertEquals("Should decode the type", "Account", partnerRecord.getType());
+            Assert.assertEquals("Should decode the Id once", String.format("001000000000%06d", record), partnerRecord.getId());
+            Assert.assertEquals("Should decode the name", "Account " + record, partnerRecord.getString("Name"));
+            Assert.assertEquals("Should decode each field once", 4, partnerRecord.getValueCount());
+            Assert.assertNull("Should not find a field not queried", partnerRecord.getValue("Missing"));
+        }
+
+        Assert.assertFalse("Should be done", cursor.hasNext());
+        Assert.assertEquals("Should report the size", 5, cursor.getSize());
+        Assert.assertEquals("Should query once", 1, stubServer.getRequests("query"));
+        Assert.assertEquals("Should query for more per remaining batch", 2, stubServer.getRequests("queryMore"));
+    }
+
+    /**
+     * Test exporting decoded records.
+     */
+    @Test
+    public void test_export() throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (final SObjectExporter exporter = new SObjectExporter(ExportFormatEnum.CSV, Channels.newChannel(outputStream), Arrays.asList("Id", "Name", "Owner.Name"))) {
+            Assert.assertEquals("Should export every record", 5, exporter.export(client.openCursor("SELECT Id, Name FROM Account")));
+        }
+
+        final String[] lines = outputStream.toString("UTF-8").split("\n");
+
+        Assert.assertEquals("Should have a header and a line per record", 6, lines.length);
+        Assert.assertEquals("Should write the record", "\"001000000000000002\",\"Account 2\",", lines[3]);
+    }
+
+    /**
+     * Test a fault is raised with its SFDC fault code.
+     */
+    @Test
+    public void test_query_fault() {
+        stubServer.injectFaults(StubFaultEnum.QUERY_TIMEOUT, 1);
+
+        try {
+            client.query("SELECT Id FROM Account");
+
+            Assert.fail("Should have raised the fault");
+        } catch (final IllegalStateException illegalStateException) {
+            Assert.assertTrue("Should contain the fault code", illegalStateException.getMessage().contains("QUERY_TIMEOUT"));
+        }
+    }
+
+    /**
+     * Test a retriable fault is called again.
+     */
+    @Test
+    public void test_query_retry() {
+        stubServer.injectFaults(StubFaultEnum.SERVER_UNAVAILABLE, 1);
+
+        Assert.assertEquals("Should return the first batch", 2, client.query("SELECT Id FROM Account").getRecordCount());
+        Assert.assertEquals("Should have queried again", 2, stubServer.getRequests("query"));
+    }
+
+    /**
+     * Test no call is made once the deadline in scope has passed.
+     */
+    @Test
+    public void test_query_deadline() throws Exception {
+        try (final Deadline deadline = Deadline.start(1, TimeUnit.MILLISECONDS)) {
+            TimeUnit.MILLISECONDS.sleep(10);
+
+            client.query("SELECT Id FROM Account");
+
+            Assert.fail("Should have raised the deadline passing");
+        } catch (final IllegalStateException illegalStateException) {
+            Assert.assertTrue("Should be caused by the deadline", illegalStateException.getCause() instanceof TimeoutException);
+        }
+
+        Assert.assertEquals("Should not have queried", 0, stubServer.getRequests("query"));
+    }
+
+    /**
+     * Test calls go through the organization's rate limiter, which slows down when SFDC is overloaded.
+     */
+    @Test
+    public void test_query_rateLimited() {
+        RateLimiters.setRateLimitConfiguration(new RateLimitConfiguration(100, 10, 1));
+
+        stubServer.injectFaults(StubFaultEnum.CONCURRENT_REQUEST_LIMIT_EXCEEDED, 1);
+
+        Assert.assertEquals("Should return the first batch", 2, client.query("SELECT Id FROM Account").getRecordCount());
+
+        final OrganizationRateLimiter rateLimiter = RateLimiters.getRateLimiter("00D000000000001");
+
+        Assert.assertTrue("Should have slowed down", rateLimiter.getRate() < 100);
+        Assert.assertEquals("Should have released each call", 1, rateLimiter.getAvailableConcurrency());
+        Assert.assertEquals("Should have queried again", 2, stubServer.getRequests("query"));
+    }
+
+    /**
+     * Test an invalid session has the proxy port log in again.
+     */
+    @Test
+    public void test_query_relogin() {
+        Assert.assertEquals("Should return the first batch", 2, client.query("SELECT Id FROM Account").getRecordCount());
+
+        final String staleSessionId = client.getLoginContext().getSessionId();
+
+        stubServer.expireSessions();
+
+        Assert.assertEquals("Should return the first batch", 2, client.query("SELECT Id FROM Account").getRecordCount());
+        Assert.assertNotEquals("Should use the new session", staleSessionId, client.getLoginContext().getSessionId());
+        Assert.assertEquals("Should have logged in again once", 2, stubServer.getSessions());
+    }
+
+    /**
+     * Test an invalid session is raised when the login context cannot log in again.
+     */
+    @Test
+    public void test_query_invalidSession() {
+        final PartnerQueryClient loginClient = new PartnerQueryClient(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE.login(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION)));
+
+        stubServer.expireSessions();
+
+        try {
+            loginClient.query("SELECT Id FROM Account");
+
+            Assert.fail("Should have raised the invalid session");
+        } catch (final IllegalStateException illegalStateException) {
+            Assert.assertTrue("Should contain the fault code", illegalStateException.getMessage().contains("INVALID_SESSION_ID"));
+        }
+
+        Assert.assertEquals("Should not have queried again", 1, stubServer.getRequests("query"));
+    }
+}
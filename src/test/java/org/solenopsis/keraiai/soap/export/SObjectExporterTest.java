@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.export;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+import org.solenopsis.keraiai.stub.StubSalesforceServer;
+import org.solenopsis.keraiai.wsdl.partner.Soap;
+
+/**
+ * Tests exporting query results from the stub server.
+ *
+ * @author Scot P. Floess
+ */
+public class SObjectExporterTest {
+    /**
+     * The fields exported.
+     */
+    private static final List<String> FIELD_NAMES = Arrays.asList("Id", "Name", "Missing");
+
+    /**
+     * The stub server.
+     */
+    private StubSalesforceServer stubServer;
+
+    /**
+     * A proxy port to the stub server.
+     */
+    private Soap port;
+
+    /**
+     * Start the stub server with five records returned two per batch.
+     */
+    @Before
+    public void setUp() throws Exception {
+        stubServer = new StubSalesforceServer(2);
+        stubServer.setQueryRecords(5);
+        stubServer.setQueryBatchSize(2);
+        stubServer.start();
+
+        port = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+    }
+
+    /**
+     * Stop the stub server.
+     */
+    @After
+    public void tearDown() {
+        stubServer.stop();
+    }
+
+    /**
+     * Export all records in <code>format</code>.
+     */
+    String export(final ExportFormatEnum format) throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (final SObjectExporter exporter = new SObjectExporter(format, Channels.newChannel(outputStream), FIELD_NAMES, ExportBuffer.MINIMUM_SIZE)) {
+            Assert.assertEquals("Should export every record", 5, exporter.export(new QueryCursor(port, "SELECT Id, Name FROM Account")));
+        }
+
+        return outputStream.toString("UTF-8");
+    }
+
+    /**
+     * Test the cursor queries for more until done.
+     */
+    @Test
+    public void test_export_cursor() throws Exception {
+        export(ExportFormatEnum.CSV);
+
+        Assert.assertEquals("Should query once", 1, stubServer.getRequests("query"));
+        Assert.assertEquals("Should query for more per remaining batch", 2, stubServer.getRequests("queryMore"));
+    }
+
+    /**
+     * Test exporting CSV.
+     */
+    @Test
+    public void test_export_csv() throws Exception {
+        final String[] lines = export(ExportFormatEnum.CSV).split("\n");
+
+        Assert.assertEquals("Should have a header and a line per record", 6, lines.length);
+        Assert.assertEquals("Should write the header", "\"Id\",\"Name\",\"Missing\"", lines[0]);
+        Assert.assertEquals("Should write the record", "\"001000000000000004\",\"Account 4\",", lines[5]);
+    }
+
+    /**
+     * Test exporting NDJSON.
+     */
+    @Test
+    public void test_export_ndjson() throws Exception {
+        final String[] lines = export(ExportFormatEnum.NDJSON).split("\n");
+
+        Assert.assertEquals("Should have a line per record", 5, lines.length);
+        Assert.assertEquals("Should write the record", "{\"Id\":\"001000000000000000\",\"Name\":\"Account 0\",\"Missing\":null}", lines[0]);
+    }
+}
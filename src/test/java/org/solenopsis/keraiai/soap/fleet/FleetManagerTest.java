@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.fleet;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.FleetTask;
+import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+import org.solenopsis.keraiai.stub.StubSalesforceServer;
+import org.solenopsis.keraiai.wsdl.partner.Soap;
+
+/**
+ * Tests the FleetManager class against the stub server.
+ *
+ * @author Scot P. Floess
+ */
+public class FleetManagerTest {
+    /**
+     * The stub server.
+     */
+    private StubSalesforceServer stubServer;
+
+    /**
+     * Manages at most one active session.
+     */
+    private FleetManager fleetManager;
+
+    /**
+     * Return credentials for <code>userName</code> on the stub server.
+     */
+    Credentials createCredentials(final String userName) {
+        return new StringCredentials(stubServer.getUrl(), userName, "password", "token", StubSalesforceServer.API_VERSION);
+    }
+
+    /**
+     * Start the stub server and fleet manager.
+     */
+    @Before
+    public void setUp() throws Exception {
+        stubServer = new StubSalesforceServer(2);
+        stubServer.start();
+
+        fleetManager = new FleetManager(ApiWebServiceEnum.PARTNER_SERVICE, LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, 1, 2);
+    }
+
+    /**
+     * Stop the fleet manager and stub server.
+     */
+    @After
+    public void tearDown() {
+        fleetManager.shutdown();
+        stubServer.stop();
+    }
+
+    /**
+     * Test proxy ports are created lazily and the least recently used session is logged out.
+     */
+    @Test
+    public void test_getProxyPort() {
+        Assert.assertEquals("Should not log in until needed", 0, stubServer.getSessions());
+
+        final Soap first = fleetManager.getProxyPort(createCredentials("first@example.com"));
+
+        Assert.assertSame("Should reuse the proxy port", first, fleetManager.getProxyPort(createCredentials("first@example.com")));
+        Assert.assertEquals("Should have logged in once", 1, stubServer.getSessions());
+
+        fleetManager.getProxyPort(createCredentials("second@example.com"));
+
+        Assert.assertEquals("Should have one active session", 1, fleetManager.getActiveCount());
+        Assert.assertEquals("Should have logged out of the first", 1, stubServer.getRequests("logout"));
+    }
+
+    /**
+     * Test submitted work runs against the organization's proxy port.
+     */
+    @Test
+    public void test_submit() throws Exception {
+        final FleetTask<Soap, Boolean> fleetTask = new FleetTask<Soap, Boolean>() {
+            @Override
+            public Boolean call(final Soap port) throws Exception {
+                return null != port.getServerTimestamp().getTimestamp();
+            }
+        };
+
+        final Future<Boolean> first = fleetManager.submit(createCredentials("first@example.com"), fleetTask);
+        final Future<Boolean> second = fleetManager.submit(createCredentials("second@example.com"), fleetTask);
+
+        Assert.assertTrue("Should have a timestamp", first.get());
+        Assert.assertTrue("Should have a timestamp", second.get());
+        Assert.assertEquals("Should have one active session", 1, fleetManager.getActiveCount());
+    }
+
+    /**
+     * Test work for another organization waits while every active session is in use, so the bound is never exceeded.
+     */
+    @Test
+    public void test_submit_maximumActive() throws Exception {
+        final AtomicInteger mostActive = new AtomicInteger();
+        final FleetTask<Soap, Boolean> fleetTask = new FleetTask<Soap, Boolean>() {
+            @Override
+            public Boolean call(final Soap port) throws Exception {
+                final boolean retVal = null != port.getServerTimestamp().getTimestamp();
+
+                Thread.sleep(100);
+
+                mostActive.set(Math.max(mostActive.get(), fleetManager.getActiveCount()));
+
+                return retVal;
+            }
+        };
+
+        final Future<Boolean> first = fleetManager.submit(createCredentials("first@example.com"), fleetTask);
+        final Future<Boolean> second = fleetManager.submit(createCredentials("second@example.com"), fleetTask);
+
+        Assert.assertTrue("Should have a timestamp", first.get());
+        Assert.assertTrue("Should have a timestamp", second.get());
+        Assert.assertEquals("Should never have more sessions active than allowed", 1, mostActive.get());
+        Assert.assertEquals("Should have logged out of the first", 1, stubServer.getRequests("logout"));
+    }
+
+    /**
+     * Test workers do not keep the JVM alive.
+     */
+    @Test
+    public void test_submit_daemon() throws Exception {
+        final Future<Boolean> daemon = fleetManager.submit(createCredentials("first@example.com"), new FleetTask<Soap, Boolean>() {
+            @Override
+            public Boolean call(final Soap port) {
+                return Thread.currentThread().isDaemon();
+            }
+        });
+
+        Assert.assertTrue("Should run on a daemon thread", daemon.get());
+    }
+}
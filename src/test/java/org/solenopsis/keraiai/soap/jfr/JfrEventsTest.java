@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.jfr;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.exception.SalesforceExceptionEnum;
+import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+import org.solenopsis.keraiai.stub.StubFaultEnum;
+import org.solenopsis.keraiai.stub.StubSalesforceServer;
+import org.solenopsis.keraiai.wsdl.partner.Soap;
+
+/**
+ * Tests the JfrEvents class - only when JFR is available.
+ *
+ * @author Scot P. Floess
+ */
+public class JfrEventsTest {
+    /**
+     * The organization id of the stub server.
+     */
+    static final String ORGANIZATION_ID = "00D000000000001";
+
+    /**
+     * Holds the recording.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The stub server.
+     */
+    private StubSalesforceServer stubServer;
+
+    /**
+     * Start the stub server when JFR is available.
+     */
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue("JFR is not available", JfrEvents.isAvailable());
+
+        stubServer = new StubSalesforceServer(2);
+        stubServer.start();
+    }
+
+    /**
+     * Stop the stub server.
+     */
+    @After
+    public void tearDown() {
+        if (null != stubServer) {
+            stubServer.stop();
+        }
+    }
+
+    /**
+     * Return the events of <code>recording</code> named <code>name</code>.
+     */
+    List<RecordedEvent> findEvents(final Recording recording, final String name) throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "keraiai.jfr");
+
+        recording.dump(file.toPath());
+
+        final List<RecordedEvent> retVal = new ArrayList<>();
+
+        for (final RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+            if (name.equals(event.getEventType().getName())) {
+                retVal.add(event);
+            }
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Test nothing is begun while no recording enables our events.
+     */
+    @Test
+    public void test_begin_notRecording() {
+        Assert.assertNull("Should not begin a call", JfrEvents.beginCall());
+        Assert.assertNull("Should not begin a login", JfrEvents.beginLogin());
+        Assert.assertNull("Should not begin a logout", JfrEvents.beginLogout());
+        Assert.assertNull("Should not begin a session port", JfrEvents.beginSessionPort());
+    }
+
+    /**
+     * Test a proxied call, failing once before succeeding, records the login and each attempt.
+     */
+    @Test
+    public void test_proxyPort_recording() throws Exception {
+        try (final Recording recording = new Recording()) {
+            recording.enable("org.solenopsis.keraiai.SoapCall");
+            recording.enable("org.solenopsis.keraiai.Login");
+            recording.start();
+
+            final Soap port = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+
+            stubServer.injectFaults(StubFaultEnum.UNABLE_TO_LOCK_ROW, 1);
+
+            Assert.assertNotNull("Should return a timestamp", port.getServerTimestamp().getTimestamp());
+
+            recording.stop();
+
+            final List<RecordedEvent> loginEvents = findEvents(recording, "org.solenopsis.keraiai.Login");
+
+            Assert.assertEquals("Should have logged in once", 1, loginEvents.size());
+            Assert.assertEquals("Should be the partner login", LoginWebServiceEnum.PARTNER_LOGIN_SERVICE.name(), loginEvents.get(0).getString("webService"));
+            Assert.assertEquals("Should be the user", "user@example.com", loginEvents.get(0).getString("userName"));
+            Assert.assertEquals("Should be the organization", ORGANIZATION_ID, loginEvents.get(0).getString("organization"));
+            Assert.assertEquals("Should succeed", JfrEvents.SUCCESS, loginEvents.get(0).getString("outcome"));
+
+            final List<RecordedEvent> callEvents = findEvents(recording, "org.solenopsis.keraiai.SoapCall");
+
+            Assert.assertEquals("Should have recorded each attempt", 2, callEvents.size());
+
+            for (int attempt = 1; attempt <= callEvents.size(); attempt++) {
+                final RecordedEvent callEvent = callEvents.get(attempt - 1);
+
+                Assert.assertEquals("Should be the port type", ApiWebServiceEnum.PARTNER_SERVICE.getPortType().getName(), callEvent.getString("portType"));
+                Assert.assertEquals("Should be the operation", "getServerTimestamp", callEvent.getString("operation"));
+                Assert.assertEquals("Should be the organization", ORGANIZATION_ID, callEvent.getString("organization"));
+                Assert.assertEquals("Should be the attempt", attempt, callEvent.getInt("attempt"));
+            }
+
+            Assert.assertEquals("Should have failed first", SalesforceExceptionEnum.UNABLE_TO_LOCK_ROW.name(), callEvents.get(0).getString("outcome"));
+            Assert.assertEquals("Should have succeeded next", JfrEvents.SUCCESS, callEvents.get(1).getString("outcome"));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.limits;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the ApiLimitThrottle class.
+ *
+ * @author Scot P. Floess
+ */
+public class ApiLimitThrottleTest {
+    /**
+     * Test the delay rises linearly from the threshold to the limit.
+     */
+    @Test
+    public void test_computeDelay() {
+        final ApiLimitThrottle throttle = new ApiLimitThrottle(0.8, 1000);
+
+        Assert.assertEquals("Should not delay when unknown", 0, throttle.computeDelay(null));
+        Assert.assertEquals("Should not delay below threshold", 0, throttle.computeDelay(new ApiLimit("00D", ApiLimit.API_REQUESTS, 7999, 10000, 0)));
+        Assert.assertEquals("Should delay half way", 500, throttle.computeDelay(new ApiLimit("00D", ApiLimit.API_REQUESTS, 9000, 10000, 0)));
+        Assert.assertEquals("Should fully delay at limit", 1000, throttle.computeDelay(new ApiLimit("00D", ApiLimit.API_REQUESTS, 10000, 10000, 0)));
+        Assert.assertEquals("Should fully delay beyond limit", 1000, throttle.computeDelay(new ApiLimit("00D", ApiLimit.API_REQUESTS, 12000, 10000, 0)));
+    }
+
+    /**
+     * Test bad thresholds.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_badThreshold() {
+        new ApiLimitThrottle(0, 1000);
+    }
+}
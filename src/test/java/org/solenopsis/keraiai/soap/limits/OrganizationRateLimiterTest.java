@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.limits;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the OrganizationRateLimiter class.
+ *
+ * @author Scot P. Floess
+ */
+public class OrganizationRateLimiterTest {
+    /**
+     * Test overload halves the rate once per interval, never below the minimum, and successes recover it.
+     */
+    @Test
+    public void test_adapt() {
+        final OrganizationRateLimiter rateLimiter = new OrganizationRateLimiter("00D", new RateLimitConfiguration(100, 10, 2, 0.5, 0.2, 0.1));
+
+        rateLimiter.recordOverload();
+        rateLimiter.recordOverload();
+
+        Assert.assertEquals("Should decrease once", 50, rateLimiter.getRate(), 0.001);
+
+        rateLimiter.recordSuccess();
+
+        Assert.assertEquals("Should recover gradually", 60, rateLimiter.getRate(), 0.001);
+
+        for (int success = 0; success < 10; success++) {
+            rateLimiter.recordSuccess();
+        }
+
+        Assert.assertEquals("Should not recover beyond the configured rate", 100, rateLimiter.getRate(), 0.001);
+    }
+
+    /**
+     * Test calls in flight are bounded.
+     */
+    @Test
+    public void test_acquire() {
+        final OrganizationRateLimiter rateLimiter = new OrganizationRateLimiter("00D", new RateLimitConfiguration(100, 10, 2));
+
+        rateLimiter.acquire();
+        rateLimiter.acquire();
+
+        Assert.assertEquals("Should have no calls left", 0, rateLimiter.getAvailableConcurrency());
+
+        rateLimiter.release();
+
+        Assert.assertEquals("Should have a call left", 1, rateLimiter.getAvailableConcurrency());
+    }
+
+    /**
+     * Test waits longer than the timeout are not made and take nothing.
+     */
+    @Test
+    public void test_tryAcquire() {
+        final OrganizationRateLimiter rateLimiter = new OrganizationRateLimiter("00D", new RateLimitConfiguration(1, 1, 1));
+        final long startTime = System.currentTimeMillis();
+
+        Assert.assertTrue("Should acquire the burst", rateLimiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+        Assert.assertFalse("Should not wait on the rate beyond the timeout", rateLimiter.tryAcquire(100, TimeUnit.MILLISECONDS));
+        Assert.assertTrue("Should not have waited", System.currentTimeMillis() - startTime < 1000);
+
+        rateLimiter.release();
+
+        Assert.assertEquals("Should have given back the call", 1, rateLimiter.getAvailableConcurrency());
+        Assert.assertTrue("Should wait on the rate within the timeout", rateLimiter.tryAcquire(2, TimeUnit.SECONDS));
+        Assert.assertFalse("Should not wait on concurrency beyond the timeout", rateLimiter.tryAcquire(0, TimeUnit.MILLISECONDS));
+    }
+}
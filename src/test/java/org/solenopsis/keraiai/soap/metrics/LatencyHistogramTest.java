@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the LatencyHistogram class.
+ *
+ * @author Scot P. Floess
+ */
+public class LatencyHistogramTest {
+    /**
+     * Test every value falls within the bounds of its bucket.
+     */
+    @Test
+    public void test_computeBucket() {
+        for (long value = 0; value < 1 << 20; value++) {
+            final int bucket = LatencyHistogram.computeBucket(value);
+
+            Assert.assertTrue("Should be at or below upper bound", value <= LatencyHistogram.computeUpperBound(bucket));
+            Assert.assertTrue("Should be above prior upper bound", 0 == bucket || value > LatencyHistogram.computeUpperBound(bucket - 1));
+        }
+
+        Assert.assertTrue("Should have a bucket for the largest long", LatencyHistogram.computeBucket(Long.MAX_VALUE) < LatencyHistogram.BUCKETS);
+    }
+
+    /**
+     * Test percentiles are within the error of a sub bucket.
+     */
+    @Test
+    public void test_getValueAtPercentile() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        Assert.assertEquals("Should be all values", 1000, histogram.getCount());
+        Assert.assertEquals("Should be the mean", 500500.0, histogram.getMean(), 0.0);
+        Assert.assertEquals("Should be the max", 1000000, histogram.getMax());
+        Assert.assertEquals("Should be the median", 500000, histogram.getValueAtPercentile(50), 500000 / LatencyHistogram.SUB_BUCKETS);
+        Assert.assertEquals("Should be the 99th percentile", 990000, histogram.getValueAtPercentile(99), 990000 / LatencyHistogram.SUB_BUCKETS);
+        Assert.assertEquals("Should be the max", 1000000, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * Test an empty histogram.
+     */
+    @Test
+    public void test_empty() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        Assert.assertEquals("Should be no values", 0, histogram.getCount());
+        Assert.assertEquals("Should be no mean", 0.0, histogram.getMean(), 0.0);
+        Assert.assertEquals("Should be no percentile", 0, histogram.getValueAtPercentile(99));
+    }
+}
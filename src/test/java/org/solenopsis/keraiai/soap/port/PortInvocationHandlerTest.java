@@ -0,0 +1,442 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.port;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.management.MBeanServerFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.exception.SalesforceExceptionEnum;
+import org.solenopsis.keraiai.soap.limits.ApiLimit;
+import org.solenopsis.keraiai.soap.limits.ApiLimits;
+import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
+import org.solenopsis.keraiai.soap.metrics.JmxMetricsRegistry;
+import org.solenopsis.keraiai.soap.metrics.MetricsRegistryEnum;
+import org.solenopsis.keraiai.soap.metrics.MetricsRegistryFactory;
+import org.solenopsis.keraiai.soap.metrics.OperationStatistics;
+import org.solenopsis.keraiai.soap.session.Deadline;
+import org.solenopsis.keraiai.soap.session.HttpCompressionEnum;
+import org.solenopsis.keraiai.soap.session.SessionPortFactory;
+import org.solenopsis.keraiai.soap.session.SessionRefreshPolicy;
+import org.solenopsis.keraiai.soap.store.FileSessionStore;
+import org.solenopsis.keraiai.soap.store.SessionStoreEnum;
+import org.solenopsis.keraiai.soap.store.SessionStoreFactory;
+import org.solenopsis.keraiai.soap.utils.LoginContextUtils;
+import org.solenopsis.keraiai.stub.StubFaultEnum;
+import org.solenopsis.keraiai.stub.StubSalesforceServer;
+import org.solenopsis.keraiai.wsdl.partner.ExceptionCode;
+import org.solenopsis.keraiai.wsdl.partner.Soap;
+import org.solenopsis.keraiai.wsdl.partner.UnexpectedErrorFault_Exception;
+
+/**
+ * Tests retry and relogin of proxy ports against the stub server.
+ *
+ * @author Scot P. Floess
+ */
+public class PortInvocationHandlerTest {
+    /**
+     * Holds session files.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The stub server.
+     */
+    private StubSalesforceServer stubServer;
+
+    /**
+     * A proxy port to the stub server.
+     */
+    private Soap port;
+
+    /**
+     * Start the stub server and create a proxy port to it.
+     */
+    @Before
+    public void setUp() throws Exception {
+        stubServer = new StubSalesforceServer(2);
+        stubServer.start();
+
+        port = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+    }
+
+    /**
+     * Stop the stub server.
+     */
+    @After
+    public void tearDown() {
+        MetricsRegistryFactory.setMetricsRegistry(MetricsRegistryEnum.NONE);
+        SessionStoreFactory.setSessionStore(SessionStoreEnum.NONE);
+        SessionPortFactory.setSessionRefreshPolicy(null);
+        SessionPortFactory.setLimitInfoTracking(false);
+        SessionPortFactory.setHttpCompression(HttpCompressionEnum.NONE);
+
+        stubServer.stop();
+    }
+
+    /**
+     * Test retriable faults are retried without logging in again.
+     */
+    @Test
+    public void test_invoke_retry() throws Exception {
+        stubServer.injectFaults(StubFaultEnum.UNABLE_TO_LOCK_ROW, 2);
+        stubServer.injectFaults(StubFaultEnum.SERVER_UNAVAILABLE, 1);
+
+        Assert.assertEquals("Should return all records", stubServer.getQueryRecords(), port.query("SELECT Id FROM Account").getRecords().size());
+        Assert.assertEquals("Should have retried", 4, stubServer.getRequests("query"));
+        Assert.assertEquals("Should not have logged in again", 1, stubServer.getSessions());
+    }
+
+    /**
+     * Test an expired session results in logging in again.
+     */
+    @Test
+    public void test_invoke_relogin() {
+        stubServer.expireSessions();
+
+        Assert.assertNotNull("Should return a timestamp", port.getServerTimestamp().getTimestamp());
+        Assert.assertEquals("Should have logged in again", 2, stubServer.getSessions());
+        Assert.assertEquals("Should have faulted once", 1, stubServer.getFaults("getServerTimestamp"));
+    }
+
+    /**
+     * Test concurrent callers failing on the same expired session log in again only once.
+     */
+    @Test
+    public void test_invoke_relogin_concurrent() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        stubServer.setLatency(50, 50);
+        stubServer.expireSessions();
+
+        try {
+            final List<Future<Object>> calls = new ArrayList<>();
+
+            for (int index = 0; index < 4; index++) {
+                calls.add(executorService.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        return port.getServerTimestamp().getTimestamp();
+                    }
+                }));
+            }
+
+            for (final Future<Object> call : calls) {
+                Assert.assertNotNull("Should return a timestamp", call.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        Assert.assertEquals("Should have logged in again once", 2, stubServer.getSessions());
+    }
+
+    /**
+     * Test failing every attempt raises an exception.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void test_invoke_exhausted() {
+        stubServer.injectFaults(StubFaultEnum.UNABLE_TO_LOCK_ROW, PortInvocationHandler.MAX_RETRIES + 1);
+
+        port.getServerTimestamp();
+    }
+
+    /**
+     * Test failures that are not retriable raise an exception without retrying.
+     */
+    @Test
+    public void test_invoke_fail() {
+        stubServer.injectFaults(StubFaultEnum.QUERY_TIMEOUT, 2);
+
+        try {
+            port.getServerTimestamp();
+
+            Assert.fail("Should have raised an exception");
+        } catch (final IllegalStateException illegalStateException) {
+            Assert.assertEquals("Should have faulted once", 1, stubServer.getFaults("getServerTimestamp"));
+        }
+    }
+
+    /**
+     * Test requests and responses are gzip compressed only when asked for.
+     */
+    @Test
+    public void test_invoke_compression() {
+        Assert.assertNotNull("Should return a timestamp", port.getServerTimestamp().getTimestamp());
+        Assert.assertEquals("Should not have compressed requests", 0, stubServer.getCompressedRequests());
+        Assert.assertEquals("Should not have compressed responses", 0, stubServer.getCompressedResponses());
+
+        SessionPortFactory.setHttpCompression(HttpCompressionEnum.REQUEST_AND_RESPONSE);
+
+        final Soap compressedPort = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+        final long compressedRequests = stubServer.getCompressedRequests();
+        final long compressedResponses = stubServer.getCompressedResponses();
+
+        Assert.assertEquals("Should return all records", stubServer.getQueryRecords(), compressedPort.query("SELECT Id FROM Account").getRecords().size());
+        Assert.assertEquals("Should have compressed the request", compressedRequests + 1, stubServer.getCompressedRequests());
+        Assert.assertEquals("Should have compressed the response", compressedResponses + 1, stubServer.getCompressedResponses());
+    }
+
+    /**
+     * Test typed faults are classified by their exception code - the concurrent request limit is retried, exhausting daily requests
+     * is not.
+     */
+    @Test
+    public void test_invoke_requestLimit() {
+        stubServer.injectFaults(StubFaultEnum.CONCURRENT_REQUEST_LIMIT_EXCEEDED, 1);
+
+        Assert.assertNotNull("Should return a timestamp", port.getServerTimestamp().getTimestamp());
+        Assert.assertEquals("Should have retried", 2, stubServer.getRequests("getServerTimestamp"));
+
+        stubServer.injectFaults(StubFaultEnum.TOTAL_REQUEST_LIMIT_EXCEEDED, 2);
+
+        try {
+            port.getServerTimestamp();
+
+            Assert.fail("Should have raised an exception");
+        } catch (final IllegalStateException illegalStateException) {
+            Assert.assertTrue("Should be a typed fault", illegalStateException.getCause().getCause() instanceof UnexpectedErrorFault_Exception);
+            Assert.assertEquals("Should have the exception code", ExceptionCode.REQUEST_LIMIT_EXCEEDED, ((UnexpectedErrorFault_Exception) illegalStateException.getCause().getCause()).getFaultInfo().getExceptionCode());
+            Assert.assertEquals("Should not have retried", 3, stubServer.getRequests("getServerTimestamp"));
+        }
+    }
+
+    /**
+     * Test a call outliving its deadline is aborted without waiting for SFDC or logging in again.
+     */
+    @Test
+    public void test_invoke_deadline() {
+        stubServer.injectDelays(2000, 1);
+
+        final long startTime = System.currentTimeMillis();
+
+        try (final Deadline deadline = Deadline.start(300, TimeUnit.MILLISECONDS)) {
+            port.getServerTimestamp();
+
+            Assert.fail("Should have raised an exception");
+        } catch (final IllegalStateException illegalStateException) {
+            Assert.assertTrue("Should have timed out", illegalStateException.getCause() instanceof TimeoutException);
+            Assert.assertTrue("Should not have waited for SFDC", System.currentTimeMillis() - startTime < 2000);
+            Assert.assertEquals("Should not have logged in again", 1, stubServer.getSessions());
+            Assert.assertNull("Should have ended the deadline", Deadline.current());
+        }
+    }
+
+    /**
+     * Test waiting on a slow first login takes no longer than the deadline.
+     */
+    @Test
+    public void test_invoke_deadline_slowLogin() {
+        stubServer.injectLoginDelays(2000, 1);
+
+        final Soap asyncPort = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPortAsync(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+        final long startTime = System.currentTimeMillis();
+
+        try (final Deadline deadline = Deadline.start(300, TimeUnit.MILLISECONDS)) {
+            asyncPort.getServerTimestamp();
+
+            Assert.fail("Should have raised an exception");
+        } catch (final IllegalStateException illegalStateException) {
+            Assert.assertTrue("Should have timed out", illegalStateException.getCause() instanceof TimeoutException);
+            Assert.assertTrue("Should not have waited for the login", System.currentTimeMillis() - startTime < 2000);
+        }
+    }
+
+    /**
+     * Test a slow relogin takes no longer than the deadline.
+     */
+    @Test
+    public void test_invoke_deadline_slowRelogin() {
+        stubServer.expireSessions();
+        stubServer.injectLoginDelays(2000, 1);
+
+        final long startTime = System.currentTimeMillis();
+
+        try (final Deadline deadline = Deadline.start(300, TimeUnit.MILLISECONDS)) {
+            port.getServerTimestamp();
+
+            Assert.fail("Should have raised an exception");
+        } catch (final IllegalStateException illegalStateException) {
+            Assert.assertTrue("Should have timed out", illegalStateException.getCause() instanceof TimeoutException);
+            Assert.assertTrue("Should not have waited for the login", System.currentTimeMillis() - startTime < 2000);
+        }
+    }
+
+    /**
+     * Test calls, retries, relogins and failures are recorded in the metrics registry.
+     */
+    @Test
+    public void test_invoke_metrics() {
+        final JmxMetricsRegistry metricsRegistry = new JmxMetricsRegistry(MBeanServerFactory.newMBeanServer(), "test");
+
+        MetricsRegistryFactory.setMetricsRegistry(metricsRegistry);
+
+        stubServer.injectFaults(StubFaultEnum.UNABLE_TO_LOCK_ROW, 1);
+        port.getServerTimestamp();
+
+        stubServer.expireSessions();
+        port.getServerTimestamp();
+
+        ((LoginContext) port).getSessionId();
+
+        Assert.assertEquals("Should only measure port operations", 1, metricsRegistry.getOperationStatistics().size());
+
+        final OperationStatistics statistics = metricsRegistry.getOperationStatistics().iterator().next();
+
+        Assert.assertEquals("Should be the operation", "getServerTimestamp", statistics.getOperation());
+        Assert.assertEquals("Should be two calls", 2, statistics.getCalls());
+        Assert.assertEquals("Should be two retries", 2, statistics.getRetries());
+        Assert.assertEquals("Should be one relogin", 1, statistics.getRelogins());
+        Assert.assertEquals("Should be one lock failure", 1, statistics.getFailures(SalesforceExceptionEnum.UNABLE_TO_LOCK_ROW));
+        Assert.assertEquals("Should be one session failure", 1, statistics.getFailures(SalesforceExceptionEnum.INVALID_SESSION_ID));
+        Assert.assertEquals("Should be no exhausted calls", 0, statistics.getExhaustedCalls());
+    }
+
+    /**
+     * Test API usage reported in responses is recorded for the organization.
+     */
+    @Test
+    public void test_invoke_apiLimit() {
+        final String organizationId = LoginContextUtils.computeOrganizationId((LoginContext) port);
+
+        ApiLimits.clear(organizationId);
+        stubServer.setApiRequestLimit(1000);
+
+        port.getServerTimestamp();
+
+        Assert.assertNull("Should not record usage by default", ApiLimits.getApiLimit(organizationId));
+
+        SessionPortFactory.setLimitInfoTracking(true);
+
+        ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE).getServerTimestamp();
+
+        final ApiLimit apiLimit = ApiLimits.getApiLimit(organizationId);
+
+        Assert.assertNotNull("Should have recorded usage", apiLimit);
+        Assert.assertEquals("Should be the limit", 1000, apiLimit.getLimit());
+        Assert.assertEquals("Should be the requests thus far", stubServer.getRequests(), apiLimit.getCurrent());
+    }
+
+    /**
+     * Test stored sessions are reused until found invalid.
+     */
+    @Test
+    public void test_invoke_sessionStore() {
+        final Credentials credentials = new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION);
+        final File file = new File(temporaryFolder.getRoot(), "sessions");
+
+        SessionStoreFactory.setSessionStore(new FileSessionStore(file, "secret".toCharArray()));
+
+        ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(credentials, LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+
+        final long sessions = stubServer.getSessions();
+
+        SessionStoreFactory.setSessionStore(new FileSessionStore(file, "secret".toCharArray()));
+
+        final Soap storedPort = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(credentials, LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+
+        Assert.assertEquals("Should reuse the stored session", sessions, stubServer.getSessions());
+
+        stubServer.expireSessions();
+
+        Assert.assertNotNull("Should return a timestamp", storedPort.getServerTimestamp().getTimestamp());
+        Assert.assertEquals("Should have logged in again once", sessions + 1, stubServer.getSessions());
+    }
+
+    /**
+     * Test restored sessions are as old as when first logged in, not when restored.
+     */
+    @Test
+    public void test_invoke_sessionStore_sessionAge() throws Exception {
+        final Credentials credentials = new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION);
+        final File file = new File(temporaryFolder.getRoot(), "sessions");
+
+        stubServer.setSessionSecondsValid(1);
+
+        SessionStoreFactory.setSessionStore(new FileSessionStore(file, "secret".toCharArray()));
+
+        ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(credentials, LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+
+        Thread.sleep(1100);
+
+        final Soap storedPort = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(credentials, LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+        final long sessions = stubServer.getSessions();
+
+        SessionPortFactory.setSessionRefreshPolicy(new SessionRefreshPolicy(0.5, 7200));
+
+        stubServer.expireSessions();
+
+        Assert.assertNotNull("Should return a timestamp", storedPort.getServerTimestamp().getTimestamp());
+        Assert.assertEquals("Should have logged in before calling", sessions + 1, stubServer.getSessions());
+        Assert.assertEquals("Should not have seen an invalid session", 0, stubServer.getFaults());
+    }
+
+    /**
+     * Test sessions are refreshed before callers find them invalid.
+     */
+    @Test
+    public void test_invoke_sessionRefresh() throws Exception {
+        stubServer.setSessionSecondsValid(1);
+
+        final Soap refreshingPort = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+        final long sessions = stubServer.getSessions();
+
+        Assert.assertEquals("Should learn the session lifetime", 1, ((LoginContext) refreshingPort).getSessionSecondsValid());
+
+        SessionPortFactory.setSessionRefreshPolicy(new SessionRefreshPolicy(0.5, 7200));
+
+        Thread.sleep(1100);
+
+        stubServer.expireSessions();
+
+        Assert.assertNotNull("Should return a timestamp", refreshingPort.getServerTimestamp().getTimestamp());
+        Assert.assertEquals("Should have logged in before calling", sessions + 1, stubServer.getSessions());
+        Assert.assertEquals("Should not have seen an invalid session", 0, stubServer.getFaults());
+    }
+
+    /**
+     * Test asynchronous proxy ports return before login and calls wait for it.
+     */
+    @Test
+    public void test_createProxyPortAsync() {
+        final long sessions = stubServer.getSessions();
+
+        stubServer.setLatency(300, 300);
+
+        final Soap asyncPort = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPortAsync(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+
+        Assert.assertEquals("Should not have waited for login", sessions, stubServer.getSessions());
+        Assert.assertNotNull("Should return a timestamp", asyncPort.getServerTimestamp().getTimestamp());
+        Assert.assertEquals("Should have logged in", sessions + 1, stubServer.getSessions());
+    }
+}
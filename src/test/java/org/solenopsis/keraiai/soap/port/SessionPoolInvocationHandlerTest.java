@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.port;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
+import org.solenopsis.keraiai.soap.session.HedgingPolicy;
+import org.solenopsis.keraiai.soap.session.SessionPortFactory;
+import org.solenopsis.keraiai.soap.store.FileSessionStore;
+import org.solenopsis.keraiai.soap.store.SessionStoreEnum;
+import org.solenopsis.keraiai.soap.store.SessionStoreFactory;
+import org.solenopsis.keraiai.stub.StubSalesforceServer;
+import org.solenopsis.keraiai.wsdl.partner.Soap;
+
+/**
+ * Tests pooled proxy ports against the stub server.
+ *
+ * @author Scot P. Floess
+ */
+public class SessionPoolInvocationHandlerTest {
+    /**
+     * Holds our session files.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The stub server.
+     */
+    private StubSalesforceServer stubServer;
+
+    /**
+     * A proxy port over three sessions to the stub server.
+     */
+    private Soap port;
+
+    /**
+     * Start the stub server and create a pooled proxy port to it.
+     */
+    @Before
+    public void setUp() throws Exception {
+        stubServer = new StubSalesforceServer(2);
+        stubServer.start();
+
+        port = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, 3);
+    }
+
+    /**
+     * Stop the stub server.
+     */
+    @After
+    public void tearDown() {
+        SessionPortFactory.setHedgingPolicy(null);
+        SessionStoreFactory.setSessionStore(SessionStoreEnum.NONE);
+
+        stubServer.stop();
+    }
+
+    /**
+     * Test each session logs in up front.
+     */
+    @Test
+    public void test_constructor() {
+        Assert.assertEquals("Should have logged in per session", 3, stubServer.getSessions());
+    }
+
+    /**
+     * Test a pool of no sessions is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_createProxyPort_noSessions() {
+        ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, 0);
+    }
+
+    /**
+     * Test a negative pool of sessions is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_createProxyPort_negativeSessions() {
+        ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, -1);
+    }
+
+    /**
+     * Test pooled sessions are never restored from the session store, so each has its own id and only the session used re-logs in.
+     */
+    @Test
+    public void test_constructor_sessionStore() {
+        final Credentials credentials = new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION);
+
+        SessionStoreFactory.setSessionStore(new FileSessionStore(new File(temporaryFolder.getRoot(), "sessions"), "secret".toCharArray()));
+
+        ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(credentials, LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+        ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(credentials, LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+
+        Assert.assertEquals("Should restore the stored session for the second proxy port", 4, stubServer.getSessions());
+
+        final Soap pooledPort = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(credentials, LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, 3);
+
+        Assert.assertEquals("Should log in anew per pooled session", 7, stubServer.getSessions());
+
+        stubServer.expireSessions();
+
+        Assert.assertNotNull("Should return a timestamp", pooledPort.getServerTimestamp().getTimestamp());
+        Assert.assertEquals("Should only log in again for the session used", 8, stubServer.getSessions());
+    }
+
+    /**
+     * Test an invalid session only re-logs in the session used.
+     */
+    @Test
+    public void test_invoke_relogin() {
+        port.getServerTimestamp();
+
+        stubServer.expireSessions();
+
+        Assert.assertNotNull("Should return a timestamp", port.getServerTimestamp().getTimestamp());
+        Assert.assertEquals("Should have logged in again once", 4, stubServer.getSessions());
+    }
+
+    /**
+     * Test a slow call is hedged on another session and the first to complete returned.
+     */
+    @Test
+    public void test_invoke_hedged() {
+        SessionPortFactory.setHedgingPolicy(new HedgingPolicy(95, 5, 50));
+
+        for (int call = 0; call < 5; call++) {
+            port.getServerTimestamp();
+        }
+
+        stubServer.injectDelays(2000, 1);
+
+        final long startTime = System.currentTimeMillis();
+
+        Assert.assertNotNull("Should return a timestamp", port.getServerTimestamp().getTimestamp());
+        Assert.assertTrue("Should not have waited for the slow call", System.currentTimeMillis() - startTime < 2000);
+        Assert.assertEquals("Should have called twice", 7, stubServer.getRequests("getServerTimestamp"));
+    }
+
+    /**
+     * Test only first calls that succeed are recorded, with their own latency.
+     */
+    @Test
+    public void test_createRecordedCall() throws Exception {
+        final HedgingPolicy hedgingPolicy = new HedgingPolicy(50, 1, 0);
+        final HedgedOperation hedgedOperation = new HedgedOperation();
+
+        try {
+            SessionPoolInvocationHandler.createRecordedCall(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    throw new IllegalStateException("Failed!");
+                }
+            }, hedgedOperation, hedgingPolicy, System.nanoTime()).call();
+
+            Assert.fail("Should have failed");
+        } catch (final IllegalStateException illegalStateException) {
+        }
+
+        Assert.assertTrue("Should not have recorded a failed call", hedgedOperation.getDelay() < 0);
+
+        Assert.assertEquals("Should return the result", "result", SessionPoolInvocationHandler.createRecordedCall(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                Thread.sleep(100);
+
+                return "result";
+            }
+        }, hedgedOperation, hedgingPolicy, System.nanoTime()).call());
+
+        Assert.assertTrue("Should have recorded the call's latency", hedgedOperation.getDelay() >= TimeUnit.MILLISECONDS.toNanos(90));
+    }
+}
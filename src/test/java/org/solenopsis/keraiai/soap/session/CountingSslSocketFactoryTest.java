@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the CountingSslSocketFactory class. Bytes and connections are counted over a plain echo server. Handshakes are counted
+ * against a local HTTPS server using a throwaway self signed certificate, created by the JDK's keytool.
+ *
+ * @author Scot P. Floess
+ */
+public class CountingSslSocketFactoryTest {
+    /**
+     * Password of the throwaway key store.
+     */
+    static final char[] KEY_STORE_PASSWORD = "secret".toCharArray();
+
+    /**
+     * The response body of the HTTPS server.
+     */
+    static final byte[] RESPONSE = "<ok/>".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Holds the throwaway key store.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Echoes what it reads.
+     */
+    private ServerSocket serverSocket;
+
+    /**
+     * Runs the echo.
+     */
+    private ExecutorService executorService;
+
+    /**
+     * Start a server that echoes bytes back.
+     */
+    @Before
+    public void setUp() throws Exception {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        executorService = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Stop the server.
+     */
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+        serverSocket.close();
+    }
+
+    /**
+     * Echo <code>total</code> bytes back to the next connection.
+     */
+    Future<Integer> echo(final int total) {
+        return executorService.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                try (final Socket socket = serverSocket.accept()) {
+                    final InputStream inputStream = socket.getInputStream();
+                    final OutputStream outputStream = socket.getOutputStream();
+
+                    for (int index = 0; index < total; index++) {
+                        outputStream.write(inputStream.read());
+                    }
+
+                    outputStream.flush();
+
+                    return total;
+                }
+            }
+        });
+    }
+
+    /**
+     * Create a key store holding a self signed certificate for the loopback address.
+     */
+    KeyStore createKeyStore() throws Exception {
+        final File keyStoreFile = new File(temporaryFolder.getRoot(), "stub.p12");
+        final Process keytool = new ProcessBuilder(new File(new File(System.getProperty("java.home"), "bin"), "keytool").getPath(), "-genkeypair", "-alias", "stub", "-keyalg", "EC", "-keysize", "256",
+                "-dname", "CN=localhost", "-ext", "SAN=ip:127.0.0.1", "-validity", "1", "-storetype", "PKCS12", "-keystore", keyStoreFile.getPath(),
+                "-storepass", new String(KEY_STORE_PASSWORD), "-keypass", new String(KEY_STORE_PASSWORD)).redirectErrorStream(true).start();
+
+        Assert.assertTrue("Should have created the key store", keytool.waitFor(60, TimeUnit.SECONDS) && 0 == keytool.exitValue());
+
+        final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+
+        try (final InputStream inputStream = new FileInputStream(keyStoreFile)) {
+            keyStore.load(inputStream, KEY_STORE_PASSWORD);
+        }
+
+        return keyStore;
+    }
+
+    /**
+     * Start an HTTPS server, on the loopback address, answering every request with {@link #RESPONSE}.
+     */
+    HttpsServer startHttpsServer(final KeyStore keyStore) throws Exception {
+        final KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+
+        keyManagerFactory.init(keyStore, KEY_STORE_PASSWORD);
+
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+
+        final HttpsServer httpsServer = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+
+        httpsServer.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+        httpsServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange httpExchange) throws IOException {
+                try (final InputStream inputStream = httpExchange.getRequestBody()) {
+                    while (inputStream.read() >= 0) {
+                    }
+                }
+
+                httpExchange.sendResponseHeaders(200, RESPONSE.length);
+
+                try (final OutputStream outputStream = httpExchange.getResponseBody()) {
+                    outputStream.write(RESPONSE);
+                }
+            }
+        });
+        httpsServer.start();
+
+        return httpsServer;
+    }
+
+    /**
+     * Return a client side SSL socket factory trusting <code>keyStore</code>.
+     */
+    static SSLSocketFactory createClientSslSocketFactory(final KeyStore keyStore) throws Exception {
+        final TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+
+        trustManagerFactory.init(keyStore);
+
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+
+        sslContext.init(null, trustManagerFactory.getTrustManagers(), null);
+
+        return sslContext.getSocketFactory();
+    }
+
+    /**
+     * Make <code>total</code> HTTPS calls to <code>url</code>, reading each response fully so the connection may be kept alive.
+     */
+    static void call(final URL url, final SSLSocketFactory sslSocketFactory, final boolean isKeepAlive, final int total) throws Exception {
+        for (int call = 0; call < total; call++) {
+            final HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
+
+            connection.setSSLSocketFactory(sslSocketFactory);
+
+            if (!isKeepAlive) {
+                connection.setRequestProperty("Connection", "close");
+            }
+
+            Assert.assertEquals("Should succeed", 200, connection.getResponseCode());
+
+            try (final InputStream inputStream = connection.getInputStream()) {
+                while (inputStream.read() >= 0) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Test repeated HTTPS calls through a shared counting factory with keep alive shake hands once - on the one connection made.
+     */
+    @Test
+    public void test_createSocket_handshakesKeepAlive() throws Exception {
+        final KeyStore keyStore = createKeyStore();
+        final HttpsServer httpsServer = startHttpsServer(keyStore);
+
+        try {
+            final TransportStatistics transportStatistics = new TransportStatistics();
+            final CountingSslSocketFactory countingSslSocketFactory = new CountingSslSocketFactory(createClientSslSocketFactory(keyStore), transportStatistics);
+
+            call(new URL("https://127.0.0.1:" + httpsServer.getAddress().getPort() + "/"), countingSslSocketFactory, true, 20);
+
+            Assert.assertEquals("Should reuse one connection", 1, transportStatistics.getConnections());
+            Assert.assertEquals("Should shake hands once per connection", 1, transportStatistics.getHandshakes());
+            Assert.assertTrue("Should count bytes sent", transportStatistics.getBytesSent() > 0);
+            Assert.assertTrue("Should count bytes received", transportStatistics.getBytesReceived() > 0);
+        } finally {
+            httpsServer.stop(0);
+        }
+    }
+
+    /**
+     * Test HTTPS calls closing their connection shake hands on every connection.
+     */
+    @Test
+    public void test_createSocket_handshakesNoKeepAlive() throws Exception {
+        final KeyStore keyStore = createKeyStore();
+        final HttpsServer httpsServer = startHttpsServer(keyStore);
+
+        try {
+            final TransportStatistics transportStatistics = new TransportStatistics();
+            final CountingSslSocketFactory countingSslSocketFactory = new CountingSslSocketFactory(createClientSslSocketFactory(keyStore), transportStatistics);
+
+            call(new URL("https://127.0.0.1:" + httpsServer.getAddress().getPort() + "/"), countingSslSocketFactory, false, 5);
+
+            Assert.assertEquals("Should connect per call", 5, transportStatistics.getConnections());
+            Assert.assertEquals("Should shake hands once per connection", 5, transportStatistics.getHandshakes());
+        } finally {
+            httpsServer.stop(0);
+        }
+    }
+
+    /**
+     * Test bytes written and read through the unconnected socket handed to the HTTPS client are counted.
+     */
+    @Test
+    public void test_createSocket_bytes() throws Exception {
+        final TransportStatistics transportStatistics = new TransportStatistics();
+        final CountingSslSocketFactory countingSslSocketFactory = new CountingSslSocketFactory((SSLSocketFactory) SSLSocketFactory.getDefault(), transportStatistics);
+        final Future<Integer> echo = echo(6);
+
+        try (final Socket socket = countingSslSocketFactory.createSocket()) {
+            socket.connect(serverSocket.getLocalSocketAddress());
+
+            socket.getOutputStream().write(new byte[]{1, 2, 3, 4, 5});
+            socket.getOutputStream().write(6);
+            socket.getOutputStream().flush();
+
+            final byte[] bytes = new byte[5];
+
+            Assert.assertEquals("Should read one byte", 1, socket.getInputStream().read());
+
+            for (int offset = 0; offset < bytes.length;) {
+                offset += socket.getInputStream().read(bytes, offset, bytes.length - offset);
+            }
+
+            Assert.assertEquals("Should have echoed", 6, (int) echo.get(5, TimeUnit.SECONDS));
+        }
+
+        Assert.assertEquals("Should count bytes sent", 6, transportStatistics.getBytesSent());
+        Assert.assertEquals("Should count bytes received", 6, transportStatistics.getBytesReceived());
+        Assert.assertEquals("Connecting the plain socket is not a TLS connection", 0, transportStatistics.getConnections());
+    }
+
+    /**
+     * Test layering TLS over a connected socket counts a connection, but no handshake until TLS is used.
+     */
+    @Test
+    public void test_createSocket_layered() throws Exception {
+        final TransportStatistics transportStatistics = new TransportStatistics();
+        final CountingSslSocketFactory countingSslSocketFactory = new CountingSslSocketFactory((SSLSocketFactory) SSLSocketFactory.getDefault(), transportStatistics);
+
+        echo(0);
+
+        try (final Socket socket = countingSslSocketFactory.createSocket()) {
+            socket.connect(serverSocket.getLocalSocketAddress());
+
+            final Socket sslSocket = countingSslSocketFactory.createSocket(socket, "localhost", serverSocket.getLocalPort(), false);
+
+            Assert.assertTrue("Should be a TLS socket", sslSocket instanceof SSLSocket);
+        }
+
+        Assert.assertEquals("Should count the connection", 1, transportStatistics.getConnections());
+        Assert.assertEquals("Should not have shaken hands", 0, transportStatistics.getHandshakes());
+        Assert.assertEquals("Should not have sent anything", 0, transportStatistics.getBytesSent());
+    }
+
+    /**
+     * Test a null SSL socket factory is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_nullSslSocketFactory() {
+        new CountingSslSocketFactory(null, new TransportStatistics());
+    }
+
+    /**
+     * Test null transport statistics are refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_nullTransportStatistics() {
+        new CountingSslSocketFactory((SSLSocketFactory) SSLSocketFactory.getDefault(), null);
+    }
+}
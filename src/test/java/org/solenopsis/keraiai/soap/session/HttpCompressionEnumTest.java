@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.handler.MessageContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the HttpCompressionEnum class.
+ *
+ * @author Scot P. Floess
+ */
+public class HttpCompressionEnumTest {
+    /**
+     * Test no compression leaves the request context alone.
+     */
+    @Test
+    public void test_configure_none() {
+        final Map<String, Object> requestContext = new HashMap<>();
+        final BindingProvider port = TransportConfigurationTest.createPort(requestContext);
+
+        Assert.assertSame("Should return the port", port, HttpCompressionEnum.NONE.configure(port));
+        Assert.assertTrue("Should not set HTTP headers", requestContext.isEmpty());
+    }
+
+    /**
+     * Test only compressed responses are asked for.
+     */
+    @Test
+    public void test_configure_response() {
+        final Map<String, Object> requestContext = new HashMap<>();
+
+        HttpCompressionEnum.RESPONSE.configure(TransportConfigurationTest.createPort(requestContext));
+
+        final Map<String, List<String>> httpHeaders = (Map<String, List<String>>) requestContext.get(MessageContext.HTTP_REQUEST_HEADERS);
+
+        Assert.assertEquals("Should ask for gzip", Collections.singletonList(HttpCompressionEnum.GZIP), httpHeaders.get(HttpCompressionEnum.ACCEPT_ENCODING));
+        Assert.assertFalse("Should not compress requests", httpHeaders.containsKey(HttpCompressionEnum.CONTENT_ENCODING));
+    }
+
+    /**
+     * Test requests and responses are compressed and HTTP headers already present are kept.
+     */
+    @Test
+    public void test_configure_requestAndResponse() {
+        final Map<String, List<String>> currentHeaders = new HashMap<>();
+        final Map<String, Object> requestContext = new HashMap<>();
+
+        currentHeaders.put("X-Custom", Arrays.asList("value"));
+        requestContext.put(MessageContext.HTTP_REQUEST_HEADERS, currentHeaders);
+
+        HttpCompressionEnum.REQUEST_AND_RESPONSE.configure(TransportConfigurationTest.createPort(requestContext));
+
+        final Map<String, List<String>> httpHeaders = (Map<String, List<String>>) requestContext.get(MessageContext.HTTP_REQUEST_HEADERS);
+
+        Assert.assertEquals("Should ask for gzip", Collections.singletonList(HttpCompressionEnum.GZIP), httpHeaders.get(HttpCompressionEnum.ACCEPT_ENCODING));
+        Assert.assertEquals("Should compress requests", Collections.singletonList(HttpCompressionEnum.GZIP), httpHeaders.get(HttpCompressionEnum.CONTENT_ENCODING));
+        Assert.assertEquals("Should keep current headers", Arrays.asList("value"), httpHeaders.get("X-Custom"));
+        Assert.assertEquals("Should not change current headers", 1, currentHeaders.size());
+    }
+
+    /**
+     * Test a null port is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_configure_nullPort() {
+        HttpCompressionEnum.RESPONSE.configure(null);
+    }
+}
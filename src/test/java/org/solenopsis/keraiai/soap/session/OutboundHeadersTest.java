@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.solenopsis.keraiai.soap.utils.SalesforceSessionHeaderUtils;
+import org.solenopsis.keraiai.stub.ws.developer.WSBindingProvider;
+import org.w3c.dom.Element;
+
+/**
+ * Tests the OutboundHeaders class against a stand in for the JAX-WS reference implementation.
+ *
+ * @author Scot P. Floess
+ */
+public class OutboundHeadersTest {
+    /**
+     * Create a session header.
+     */
+    static Element createSessionHeader() {
+        return SalesforceSessionHeaderUtils.createSessionHeader(SalesforceSessionHeaderUtils.computeSessionHeaderNameForNamespace("urn:partner.soap.sforce.com"), "SESSION");
+    }
+
+    /**
+     * Create a port able to set outbound headers, adding those set to <code>outboundHeaders</code>.
+     */
+    static WSBindingProvider createPort(final List<Object> outboundHeaders) {
+        return (WSBindingProvider) Proxy.newProxyInstance(OutboundHeadersTest.class.getClassLoader(), new Class[]{WSBindingProvider.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("setOutboundHeaders".equals(method.getName())) {
+                    outboundHeaders.addAll((List) args[0]);
+                }
+
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Test the binding provider is found by name.
+     */
+    @Test
+    public void test_findBindingProvider() {
+        Assert.assertSame("Should find the binding provider", WSBindingProvider.class, OutboundHeaders.findBindingProvider(createPort(new ArrayList<>())));
+        Assert.assertNull("Should not find a binding provider", OutboundHeaders.findBindingProvider(new Object()));
+    }
+
+    /**
+     * Test the header is created by Headers and set as the only outbound header.
+     */
+    @Test
+    public void test_setOutboundHeader() {
+        final List<Object> outboundHeaders = new ArrayList<>();
+        final Element sessionHeader = createSessionHeader();
+
+        Assert.assertTrue("Should set the header", OutboundHeaders.setOutboundHeader(createPort(outboundHeaders), sessionHeader));
+        Assert.assertEquals("Should have set the header", Collections.singletonList(sessionHeader), outboundHeaders);
+    }
+
+    /**
+     * Test ports not from the reference implementation are refused.
+     */
+    @Test
+    public void test_setOutboundHeader_unsupported() {
+        Assert.assertFalse("Should not set the header", OutboundHeaders.setOutboundHeader(new Object(), createSessionHeader()));
+    }
+
+    /**
+     * Test failing to set the header is reported rather than raised.
+     */
+    @Test
+    public void test_setOutboundHeader_failure() {
+        final WSBindingProvider port = (WSBindingProvider) Proxy.newProxyInstance(OutboundHeadersTest.class.getClassLoader(), new Class[]{WSBindingProvider.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                throw new UnsupportedOperationException("Cannot set outbound headers");
+            }
+        });
+
+        Assert.assertFalse("Should not set the header", OutboundHeaders.setOutboundHeader(port, createSessionHeader()));
+    }
+}
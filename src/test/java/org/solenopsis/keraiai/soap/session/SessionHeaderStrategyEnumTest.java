@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.ws.Binding;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.handler.Handler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+import org.solenopsis.keraiai.stub.StubSalesforceServer;
+import org.solenopsis.keraiai.stub.ws.developer.WSBindingProvider;
+import org.solenopsis.keraiai.wsdl.partner.Soap;
+
+/**
+ * Tests the SessionHeaderStrategyEnum class.
+ *
+ * @author Scot P. Floess
+ */
+public class SessionHeaderStrategyEnumTest {
+    /**
+     * Restore the default strategy.
+     */
+    @After
+    public void tearDown() {
+        SessionPortFactory.setSessionHeaderStrategy(SessionHeaderStrategyEnum.OUTBOUND_HEADERS);
+    }
+
+    /**
+     * Create a port whose handler chain is <code>handlerChain</code>. When <code>isOutboundHeaders</code>, the port also supports
+     * outbound headers, adding those set to <code>outboundHeaders</code>.
+     */
+    static Object createPort(final List<Handler> handlerChain, final boolean isOutboundHeaders, final List<Object> outboundHeaders) {
+        final Binding binding = (Binding) Proxy.newProxyInstance(SessionHeaderStrategyEnumTest.class.getClassLoader(), new Class[]{Binding.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("getHandlerChain".equals(method.getName())) {
+                    return new ArrayList<>(handlerChain);
+                } else if ("setHandlerChain".equals(method.getName())) {
+                    handlerChain.clear();
+                    handlerChain.addAll((List<Handler>) args[0]);
+                }
+
+                return null;
+            }
+        });
+
+        return Proxy.newProxyInstance(SessionHeaderStrategyEnumTest.class.getClassLoader(), isOutboundHeaders ? new Class[]{BindingProvider.class, WSBindingProvider.class} : new Class[]{BindingProvider.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if ("getBinding".equals(method.getName())) {
+                    return binding;
+                } else if ("setOutboundHeaders".equals(method.getName())) {
+                    outboundHeaders.addAll((List) args[0]);
+                }
+
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Test outbound headers are the default strategy.
+     */
+    @Test
+    public void test_getSessionHeaderStrategy_default() {
+        Assert.assertSame("Should default to outbound headers", SessionHeaderStrategyEnum.OUTBOUND_HEADERS, SessionPortFactory.getSessionHeaderStrategy());
+    }
+
+    /**
+     * Test the handler strategy installs a handler even when outbound headers are supported.
+     */
+    @Test
+    public void test_applySessionHeader_handler() {
+        final List<Handler> handlerChain = new ArrayList<>();
+        final List<Object> outboundHeaders = new ArrayList<>();
+        final Object port = createPort(handlerChain, true, outboundHeaders);
+
+        Assert.assertSame("Should return the port", port, SessionHeaderStrategyEnum.HANDLER.applySessionHeader(port, OutboundHeadersTest.createSessionHeader()));
+        Assert.assertEquals("Should have one handler", 1, handlerChain.size());
+        Assert.assertTrue("Should be the session handler", handlerChain.get(0) instanceof SessionIdSoapRequestHeaderHandler);
+        Assert.assertTrue("Should not set outbound headers", outboundHeaders.isEmpty());
+    }
+
+    /**
+     * Test the outbound headers strategy installs no handler.
+     */
+    @Test
+    public void test_applySessionHeader_outboundHeaders() {
+        final List<Handler> handlerChain = new ArrayList<>();
+        final List<Object> outboundHeaders = new ArrayList<>();
+        final Object port = createPort(handlerChain, true, outboundHeaders);
+
+        Assert.assertSame("Should return the port", port, SessionHeaderStrategyEnum.OUTBOUND_HEADERS.applySessionHeader(port, OutboundHeadersTest.createSessionHeader()));
+        Assert.assertTrue("Should not have a handler", handlerChain.isEmpty());
+        Assert.assertEquals("Should set the outbound header", 1, outboundHeaders.size());
+    }
+
+    /**
+     * Test the outbound headers strategy falls back to a handler when outbound headers are not supported.
+     */
+    @Test
+    public void test_applySessionHeader_outboundHeadersFallback() {
+        final List<Handler> handlerChain = new ArrayList<>();
+        final Object port = createPort(handlerChain, false, null);
+
+        Assert.assertSame("Should return the port", port, SessionHeaderStrategyEnum.OUTBOUND_HEADERS.applySessionHeader(port, OutboundHeadersTest.createSessionHeader()));
+        Assert.assertEquals("Should have one handler", 1, handlerChain.size());
+        Assert.assertTrue("Should be the session handler", handlerChain.get(0) instanceof SessionIdSoapRequestHeaderHandler);
+    }
+
+    /**
+     * Test JAX-WS ports support outbound headers, leaving the handler chain empty while deadlines are not in use, and the session
+     * header reaches SFDC - an expired session must be refused and logged in again.
+     */
+    @Test
+    public void test_applySessionHeader_stub() throws Exception {
+        final boolean isDeadlineStarted = Deadline.isStarted();
+        final StubSalesforceServer stubServer = new StubSalesforceServer(2);
+
+        stubServer.start();
+
+        try {
+            Deadline.setStarted(false);
+            SessionPortFactory.setSessionHeaderStrategy(SessionHeaderStrategyEnum.OUTBOUND_HEADERS);
+
+            final BindingProvider sessionPort = SessionPortFactory.createSessionPort(stubServer.getUrl(), "SESSION", ApiWebServiceEnum.PARTNER_SERVICE.getService(), ApiWebServiceEnum.PARTNER_SERVICE.getPortType());
+
+            Assert.assertNotNull("Should support outbound headers", OutboundHeaders.findBindingProvider(sessionPort));
+            Assert.assertTrue("Should not have any handler", sessionPort.getBinding().getHandlerChain().isEmpty());
+
+            final Soap port = ApiWebServiceEnum.PARTNER_SERVICE.createProxyPort(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION), LoginWebServiceEnum.PARTNER_LOGIN_SERVICE);
+
+            stubServer.expireSessions();
+
+            Assert.assertNotNull("Should return a timestamp", port.getServerTimestamp().getTimestamp());
+            Assert.assertEquals("Should have refused the session", 1, stubServer.getFaults("getServerTimestamp"));
+            Assert.assertEquals("Should have logged in again", 2, stubServer.getSessions());
+
+            final LoginContext loginContext = LoginWebServiceEnum.PARTNER_LOGIN_SERVICE.login(new StringCredentials(stubServer.getUrl(), "user@example.com", "password", "token", StubSalesforceServer.API_VERSION));
+            final BindingProvider loginSessionPort = SessionPortFactory.createSessionPort(ApiWebServiceEnum.PARTNER_SERVICE, loginContext);
+
+            Assert.assertTrue("Should not have any handler", loginSessionPort.getBinding().getHandlerChain().isEmpty());
+        } finally {
+            Deadline.setStarted(isDeadlineStarted);
+            stubServer.stop();
+        }
+    }
+}
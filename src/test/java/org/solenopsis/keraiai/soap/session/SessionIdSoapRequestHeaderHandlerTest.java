@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.xml.namespace.QName;
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.SOAPElement;
+import javax.xml.soap.SOAPHeaderElement;
+import javax.xml.soap.SOAPMessage;
+import org.junit.Assert;
+import org.junit.Test;
+import org.solenopsis.keraiai.soap.utils.SalesforceSessionHeaderUtils;
+import org.w3c.dom.Element;
+
+/**
+ * Tests the SessionIdSoapRequestHeaderHandler class.
+ *
+ * @author Scot P. Floess
+ */
+public class SessionIdSoapRequestHeaderHandlerTest {
+    /**
+     * Name of the session header.
+     */
+    static final QName SESSION_HEADER_NAME = SalesforceSessionHeaderUtils.computeSessionHeaderNameForNamespace("urn:partner.soap.sforce.com");
+
+    /**
+     * Return the session id in the session header of <code>soapMessage</code>.
+     */
+    static String computeSessionId(final SOAPMessage soapMessage) throws Exception {
+        final Iterator sessionHeaders = soapMessage.getSOAPHeader().getChildElements(SESSION_HEADER_NAME);
+
+        Assert.assertTrue("Should have a session header", sessionHeaders.hasNext());
+
+        final SOAPHeaderElement sessionHeader = (SOAPHeaderElement) sessionHeaders.next();
+
+        Assert.assertFalse("Should have one session header", sessionHeaders.hasNext());
+
+        final Iterator sessionIds = sessionHeader.getChildElements(new QName(SESSION_HEADER_NAME.getNamespaceURI(), SalesforceSessionHeaderUtils.SESSION_ID));
+
+        Assert.assertTrue("Should have a session id", sessionIds.hasNext());
+
+        return ((SOAPElement) sessionIds.next()).getValue();
+    }
+
+    /**
+     * Test a null session header is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_nullSessionHeader() {
+        new SessionIdSoapRequestHeaderHandler((Element) null);
+    }
+
+    /**
+     * Test a blank session id is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_blankSessionId() {
+        new SessionIdSoapRequestHeaderHandler(SESSION_HEADER_NAME, "  ");
+    }
+
+    /**
+     * Test the names and session id of a prebuilt session header are used.
+     */
+    @Test
+    public void test_constructor_sessionHeader() {
+        final SessionIdSoapRequestHeaderHandler handler = new SessionIdSoapRequestHeaderHandler(SalesforceSessionHeaderUtils.createSessionHeader(SESSION_HEADER_NAME, "SESSION"));
+
+        Assert.assertEquals("Should use the header name", SESSION_HEADER_NAME, handler.getSessionHeaderName());
+        Assert.assertEquals("Should use the session id", "SESSION", handler.getSessionId());
+    }
+
+    /**
+     * Test the session header is added to messages.
+     */
+    @Test
+    public void test_addSessionHeader() throws Exception {
+        final SOAPMessage soapMessage = MessageFactory.newInstance().createMessage();
+
+        new SessionIdSoapRequestHeaderHandler(SESSION_HEADER_NAME, "SESSION").addSessionHeader(soapMessage);
+
+        Assert.assertEquals("Should contain the session id", "SESSION", computeSessionId(soapMessage));
+    }
+
+    /**
+     * Test threads add the session header at once.
+     */
+    @Test
+    public void test_addSessionHeader_concurrent() throws Exception {
+        final SessionIdSoapRequestHeaderHandler handler = new SessionIdSoapRequestHeaderHandler(SESSION_HEADER_NAME, "SESSION");
+        final MessageFactory messageFactory = MessageFactory.newInstance();
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+        try {
+            final List<Future<String>> sessionIds = new ArrayList<>();
+
+            for (int message = 0; message < 200; message++) {
+                sessionIds.add(executorService.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        final SOAPMessage soapMessage;
+
+                        synchronized (messageFactory) {
+                            soapMessage = messageFactory.createMessage();
+                        }
+
+                        handler.addSessionHeader(soapMessage);
+
+                        return computeSessionId(soapMessage);
+                    }
+                }));
+            }
+
+            for (final Future<String> sessionId : sessionIds) {
+                Assert.assertEquals("Should contain the session id", "SESSION", sessionId.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.util.concurrent.TimeUnit;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.handler.Handler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.solenopsis.keraiai.soap.port.ApiWebServiceEnum;
+
+/**
+ * Tests the SessionPortFactory class.
+ *
+ * @author Scot P. Floess
+ */
+public class SessionPortFactoryTest {
+    /**
+     * Deadlines are in use once any test starts one.
+     */
+    @After
+    public void tearDown() {
+        Deadline.setStarted(true);
+    }
+
+    /**
+     * Return how many times the deadline handler is in the handler chain of <code>port</code>.
+     */
+    static int countDeadlineHandlers(final Object port) {
+        int retVal = 0;
+
+        for (final Handler handler : ((BindingProvider) port).getBinding().getHandlerChain()) {
+            retVal += DeadlineRequestHandler.DEADLINE_REQUEST_HANDLER == handler ? 1 : 0;
+        }
+
+        return retVal;
+    }
+
+    /**
+     * Test ports carry the deadline handler only once deadlines are in use, and only once.
+     */
+    @Test
+    public void test_applyDeadlines() {
+        Deadline.setStarted(false);
+
+        final Object port = SessionPortFactory.createPort("http://localhost/services/Soap/u/39.0", ApiWebServiceEnum.PARTNER_SERVICE.getService(), ApiWebServiceEnum.PARTNER_SERVICE.getPortType());
+
+        Assert.assertEquals("Should not have the deadline handler", 0, countDeadlineHandlers(port));
+        Assert.assertSame("Should return the port", port, SessionPortFactory.applyDeadlines(port));
+        Assert.assertEquals("Should still not have the deadline handler", 0, countDeadlineHandlers(port));
+
+        try (final Deadline deadline = Deadline.start(1, TimeUnit.SECONDS)) {
+            Assert.assertTrue("Should be in use", Deadline.isStarted());
+        }
+
+        SessionPortFactory.applyDeadlines(port);
+        SessionPortFactory.applyDeadlines(port);
+
+        Assert.assertEquals("Should have the deadline handler once", 1, countDeadlineHandlers(port));
+        Assert.assertEquals("New ports should have the deadline handler", 1, countDeadlineHandlers(SessionPortFactory.createPort("http://localhost/services/Soap/u/39.0", ApiWebServiceEnum.PARTNER_SERVICE.getService(), ApiWebServiceEnum.PARTNER_SERVICE.getPortType())));
+    }
+
+    /**
+     * Test ports that are not binding providers are left alone.
+     */
+    @Test
+    public void test_applyDeadlines_notBindingProvider() {
+        final Object port = new Object();
+
+        Assert.assertSame("Should return the port", port, SessionPortFactory.applyDeadlines(port));
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.session;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import javax.xml.ws.BindingProvider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the TransportConfiguration class.
+ *
+ * @author Scot P. Floess
+ */
+public class TransportConfigurationTest {
+    /**
+     * System properties before each test.
+     */
+    private Properties systemProperties;
+
+    /**
+     * Remember the system properties.
+     */
+    @Before
+    public void setUp() {
+        systemProperties = (Properties) System.getProperties().clone();
+    }
+
+    /**
+     * Restore the system properties and remove any transport configuration.
+     */
+    @After
+    public void tearDown() {
+        SessionPortFactory.setTransportConfiguration(null);
+        System.setProperties(systemProperties);
+    }
+
+    /**
+     * Create a port whose request context is <code>requestContext</code>.
+     */
+    static BindingProvider createPort(final Map<String, Object> requestContext) {
+        return (BindingProvider) Proxy.newProxyInstance(TransportConfigurationTest.class.getClassLoader(), new Class[]{BindingProvider.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                return "getRequestContext".equals(method.getName()) ? requestContext : null;
+            }
+        });
+    }
+
+    /**
+     * Test at least one connection per host is required.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_noConnections() {
+        new TransportConfiguration(0, 5, 0, 0, 0, 0);
+    }
+
+    /**
+     * Test a negative keep alive is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_negativeKeepAlive() {
+        new TransportConfiguration(1, -1, 0, 0, 0, 0);
+    }
+
+    /**
+     * Test a negative connect timeout is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_negativeConnectTimeout() {
+        new TransportConfiguration(1, 5, -1, 0, 0, 0);
+    }
+
+    /**
+     * Test a negative read timeout is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_negativeReadTimeout() {
+        new TransportConfiguration(1, 5, 0, -1, 0, 0);
+    }
+
+    /**
+     * Test a negative TLS session cache size is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_negativeTlsSessionCacheSize() {
+        new TransportConfiguration(1, 5, 0, 0, -1, 0);
+    }
+
+    /**
+     * Test a negative TLS session timeout is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_constructor_negativeTlsSessionTimeout() {
+        new TransportConfiguration(1, 5, 0, 0, 0, -1);
+    }
+
+    /**
+     * Test all values are kept and one counting TLS socket factory is shared.
+     */
+    @Test
+    public void test_constructor() {
+        final TransportConfiguration transportConfiguration = new TransportConfiguration(10, 30, 1000, 2000, 50, 3600);
+
+        Assert.assertEquals("Should keep the connections per host", 10, transportConfiguration.getMaxConnectionsPerHost());
+        Assert.assertEquals("Should keep the keep alive", 30, transportConfiguration.getKeepAliveSeconds());
+        Assert.assertEquals("Should keep the connect timeout", 1000, transportConfiguration.getConnectTimeout());
+        Assert.assertEquals("Should keep the read timeout", 2000, transportConfiguration.getReadTimeout());
+        Assert.assertEquals("Should keep the TLS session cache size", 50, transportConfiguration.getTlsSessionCacheSize());
+        Assert.assertEquals("Should keep the TLS session timeout", 3600, transportConfiguration.getTlsSessionTimeout());
+        Assert.assertTrue("Should count TLS traffic", transportConfiguration.getSslSocketFactory() instanceof CountingSslSocketFactory);
+        Assert.assertSame("Should share the TLS socket factory", transportConfiguration.getSslSocketFactory(), transportConfiguration.getSslSocketFactory());
+        Assert.assertEquals("Should not have connected", 0, transportConfiguration.getTransportStatistics().getConnections());
+    }
+
+    /**
+     * Test installing the configuration sets the keep alive system properties.
+     */
+    @Test
+    public void test_setTransportConfiguration() {
+        final TransportConfiguration transportConfiguration = new TransportConfiguration(10, 30, 1000, 2000, 50, 3600);
+
+        SessionPortFactory.setTransportConfiguration(transportConfiguration);
+
+        Assert.assertSame("Should install the configuration", transportConfiguration, SessionPortFactory.getTransportConfiguration());
+        Assert.assertEquals("Should enable keep alive", "true", System.getProperty(TransportConfiguration.KEEP_ALIVE_PROPERTY));
+        Assert.assertEquals("Should set the connections per host", "10", System.getProperty(TransportConfiguration.MAX_CONNECTIONS_PROPERTY));
+        Assert.assertEquals("Should set the keep alive", "30", System.getProperty(TransportConfiguration.KEEP_ALIVE_TIME_PROPERTY));
+    }
+
+    /**
+     * Test timeouts and the TLS socket factory are set for every JAX-WS implementation.
+     */
+    @Test
+    public void test_configure() {
+        final TransportConfiguration transportConfiguration = new TransportConfiguration(10, 30, 1000, 2000, 50, 3600);
+        final Map<String, Object> requestContext = new HashMap<>();
+        final BindingProvider port = createPort(requestContext);
+
+        Assert.assertSame("Should return the port", port, transportConfiguration.configure(port));
+
+        for (final String property : TransportConfiguration.CONNECT_TIMEOUT_PROPERTIES) {
+            Assert.assertEquals("Should set the connect timeout", 1000, requestContext.get(property));
+        }
+
+        for (final String property : TransportConfiguration.READ_TIMEOUT_PROPERTIES) {
+            Assert.assertEquals("Should set the read timeout", 2000, requestContext.get(property));
+        }
+
+        for (final String property : TransportConfiguration.SSL_SOCKET_FACTORY_PROPERTIES) {
+            Assert.assertSame("Should set the TLS socket factory", transportConfiguration.getSslSocketFactory(), requestContext.get(property));
+        }
+    }
+
+    /**
+     * Test a null port is refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void test_configure_nullPort() {
+        new TransportConfiguration(10, 30, 1000, 2000, 50, 3600).configure(null);
+    }
+}
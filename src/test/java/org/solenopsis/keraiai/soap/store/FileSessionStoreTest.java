@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.soap.store;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.solenopsis.keraiai.Credentials;
+import org.solenopsis.keraiai.LoginContext;
+import org.solenopsis.keraiai.credentials.StringCredentials;
+import org.solenopsis.keraiai.soap.login.LoginWebServiceEnum;
+
+/**
+ * Tests the FileSessionStore class.
+ *
+ * @author Scot P. Floess
+ */
+public class FileSessionStoreTest {
+    /**
+     * Holds our session files.
+     */
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Credentials whose sessions are stored.
+     */
+    private final Credentials credentials = new StringCredentials("https://test.salesforce.com", "user@example.com", "password", "token", "39.0");
+
+    /**
+     * A session to store.
+     */
+    private final LoginContext loginContext = new StoredLoginContext("https://cs9.salesforce.com/services/Soap/m/39.0/00D", false, true, "https://cs9.salesforce.com/services/Soap/u/39.0/00D", "00D!SESSION", "005", 7200, credentials, 1234567890L);
+
+    /**
+     * Test sessions survive new stores on the same file, encrypted.
+     */
+    @Test
+    public void test_load() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "sessions");
+
+        new FileSessionStore(file, "secret".toCharArray()).store(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, loginContext);
+
+        final LoginContext stored = new FileSessionStore(file, "secret".toCharArray()).load(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, credentials);
+
+        Assert.assertEquals("Should be the same session", "00D!SESSION", stored.getSessionId());
+        Assert.assertEquals("Should be the same server", loginContext.getServerUrl(), stored.getServerUrl());
+        Assert.assertTrue("Should be a sandbox", stored.isSandbox());
+        Assert.assertEquals("Should be valid as long", 7200, stored.getSessionSecondsValid());
+        Assert.assertSame("Should use the credentials", credentials, stored.getCredentials());
+        Assert.assertEquals("Should be as old as when logged in", ((StoredLoginContext) loginContext).getLoginTime(), ((StoredLoginContext) stored).getLoginTime());
+        Assert.assertNull("Should be stored per login web service", new FileSessionStore(file, "secret".toCharArray()).load(LoginWebServiceEnum.ENTERPRISE_LOGIN_SERVICE, credentials));
+        Assert.assertNull("Should not decrypt with another passphrase", new FileSessionStore(file, "other".toCharArray()).load(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, credentials));
+        Assert.assertFalse("Should be encrypted", new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1).contains("SESSION"));
+    }
+
+    /**
+     * Test only the stored session is invalidated.
+     */
+    @Test
+    public void test_invalidate() {
+        final FileSessionStore sessionStore = new FileSessionStore(new File(temporaryFolder.getRoot(), "sessions"), "secret".toCharArray());
+
+        sessionStore.store(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, loginContext);
+        sessionStore.invalidate(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, new StoredLoginContext(null, false, true, loginContext.getServerUrl(), "00D!OTHER", "005", 7200, credentials));
+
+        Assert.assertNotNull("Should not invalidate another session", sessionStore.load(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, credentials));
+
+        sessionStore.invalidate(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, loginContext);
+
+        Assert.assertNull("Should invalidate the session", sessionStore.load(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, credentials));
+    }
+
+    /**
+     * Test stores sharing a file merge their changes rather than overwrite each other's.
+     */
+    @Test
+    public void test_merge() {
+        final File file = new File(temporaryFolder.getRoot(), "sessions");
+        final FileSessionStore first = new FileSessionStore(file, "secret".toCharArray());
+        final FileSessionStore second = new FileSessionStore(file, "secret".toCharArray());
+        final Credentials otherCredentials = new StringCredentials("https://test.salesforce.com", "other@example.com", "password", "token", "39.0");
+
+        first.store(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, loginContext);
+        second.store(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, new StoredLoginContext(null, false, true, loginContext.getServerUrl(), "00D!OTHER", "005", 7200, otherCredentials));
+
+        Assert.assertEquals("Should keep the session of the first store", "00D!SESSION", second.load(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, credentials).getSessionId());
+        Assert.assertEquals("Should see the session of the second store", "00D!OTHER", first.load(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, otherCredentials).getSessionId());
+
+        second.invalidate(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, loginContext);
+        first.store(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, new StoredLoginContext(null, false, true, loginContext.getServerUrl(), "00D!OTHER", "005", 7200, otherCredentials));
+
+        Assert.assertNull("Should not restore an invalidated session", first.load(LoginWebServiceEnum.PARTNER_LOGIN_SERVICE, credentials));
+        Assert.assertTrue("Should lock a sibling file", first.getLockFile().isFile());
+    }
+}
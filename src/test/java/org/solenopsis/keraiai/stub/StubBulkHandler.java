@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves Bulk API 2.0 jobs for the {@link StubSalesforceServer}. Jobs are in progress on the first poll after upload completes and
+ * done on the next. Query jobs return {@link #QUERY_RECORDS} records, {@link #QUERY_PAGE_SIZE} per page.
+ *
+ * @author Scot P. Floess
+ */
+final class StubBulkHandler implements HttpHandler {
+    /**
+     * Records returned by query jobs.
+     */
+    static final int QUERY_RECORDS = 10;
+
+    /**
+     * Records per page of query results.
+     */
+    static final int QUERY_PAGE_SIZE = 4;
+
+    /**
+     * Matches job paths: job type, then optionally job id and resource.
+     */
+    static final Pattern JOB_PATH = Pattern.compile(".*/jobs/(ingest|query)(?:/([^/]+)(?:/([^/]+))?)?");
+
+    /**
+     * Finds string or numeric values in flat JSON.
+     */
+    static final Pattern JSON_VALUE = Pattern.compile("\"(\\w+)\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    /**
+     * A job.
+     */
+    static final class Job {
+        /**
+         * Job id.
+         */
+        final String id;
+
+        /**
+         * Job operation.
+         */
+        final String operation;
+
+        /**
+         * SObject of the job.
+         */
+        final String object;
+
+        /**
+         * Job state.
+         */
+        volatile String state;
+
+        /**
+         * Records uploaded.
+         */
+        volatile long records;
+
+        /**
+         * Sets the id, operation, object and state.
+         */
+        Job(final String id, final String operation, final String object, final String state) {
+            this.id = id;
+            this.operation = operation;
+            this.object = object;
+            this.state = state;
+        }
+
+        /**
+         * Return the job as JSON.
+         */
+        String toJson() {
+            return "{\"id\":\"" + id + "\",\"operation\":\"" + operation + "\",\"object\":" + (null == object ? "null" : "\"" + object + "\"") + ",\"state\":\"" + state + "\",\"numberRecordsProcessed\":" + ("JobComplete".equals(state) ? records : 0) + ",\"numberRecordsFailed\":0,\"columnDelimiter\":\"COMMA\"}";
+        }
+    }
+
+    /**
+     * Jobs per id.
+     */
+    private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Used to generate job ids.
+     */
+    private final AtomicLong ids = new AtomicLong();
+
+    /**
+     * The last session expired - sessions up to and including it are refused.
+     */
+    private final AtomicLong expiredSessions;
+
+    /**
+     * This constructor sets the last session expired.
+     *
+     * @param expiredSessions the last session expired, as updated by the stub server.
+     */
+    StubBulkHandler(final AtomicLong expiredSessions) {
+        this.expiredSessions = expiredSessions;
+    }
+
+    /**
+     * Return true if <code>authorization</code> does not bear a session, or bears one that expired.
+     */
+    boolean isRefused(final String authorization) {
+        if (null == authorization || !authorization.startsWith("Bearer " + StubSalesforceServer.SESSION_PREFIX)) {
+            return true;
+        }
+
+        return Long.parseLong(authorization.substring(("Bearer " + StubSalesforceServer.SESSION_PREFIX).length())) <= expiredSessions.get();
+    }
+
+    /**
+     * Read all of <code>inputStream</code>.
+     */
+    static String read(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+
+        for (int total = inputStream.read(buffer); total >= 0; total = inputStream.read(buffer)) {
+            outputStream.write(buffer, 0, total);
+        }
+
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Return the value of <code>name</code> in flat JSON <code>json</code>.
+     */
+    static String computeValue(final String json, final String name) {
+        final Matcher matcher = JSON_VALUE.matcher(json);
+
+        while (matcher.find()) {
+            if (name.equals(matcher.group(1))) {
+                return matcher.group(2);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Respond to <code>httpExchange</code>.
+     */
+    static void respond(final HttpExchange httpExchange, final int status, final String contentType, final String response) throws IOException {
+        final byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+
+        httpExchange.getResponseHeaders().set("Content-Type", contentType);
+        httpExchange.sendResponseHeaders(status, 0 == bytes.length ? -1 : bytes.length);
+
+        if (bytes.length > 0) {
+            try (final OutputStream outputStream = httpExchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Return a page of query results starting at record <code>start</code>.
+     */
+    static String computeQueryPage(final int start) {
+        final StringBuilder sb = new StringBuilder("\"Id\",\"Name\"\n");
+
+        for (int record = start; record < Math.min(QUERY_RECORDS, start + QUERY_PAGE_SIZE); record++) {
+            sb.append("\"001").append(record).append("\",\"Account ").append(record).append("\"\n");
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Poll <code>job</code>, moving it toward completion.
+     */
+    static void poll(final Job job) {
+        if ("InProgress".equals(job.state)) {
+            job.state = "JobComplete";
+        } else if ("UploadComplete".equals(job.state)) {
+            job.state = "InProgress";
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void handle(final HttpExchange httpExchange) throws IOException {
+        try {
+            if (isRefused(httpExchange.getRequestHeaders().getFirst("Authorization"))) {
+                respond(httpExchange, 401, "application/json", "[{\"errorCode\":\"INVALID_SESSION_ID\",\"message\":\"Session expired or invalid\"}]");
+
+                return;
+            }
+
+            final String method = httpExchange.getRequestMethod();
+            final String query = httpExchange.getRequestURI().getRawQuery();
+            final String body = read(httpExchange.getRequestBody());
+            final Matcher matcher = JOB_PATH.matcher(httpExchange.getRequestURI().getPath());
+
+            if (!matcher.matches()) {
+                respond(httpExchange, 404, "application/json", "[{\"errorCode\":\"NOT_FOUND\",\"message\":\"Not found\"}]");
+
+                return;
+            }
+
+            final Job job = null == matcher.group(2) ? null : jobs.get(matcher.group(2));
+
+            if (null == matcher.group(2) && "POST".equals(method)) {
+                final boolean isQuery = "query".equals(matcher.group(1));
+                final Job newJob = new Job("750" + ids.incrementAndGet(), computeValue(body, "operation"), isQuery ? null : computeValue(body, "object"), isQuery ? "UploadComplete" : "Open");
+
+                if (isQuery) {
+                    newJob.records = QUERY_RECORDS;
+                }
+
+                jobs.put(newJob.id, newJob);
+                respond(httpExchange, 200, "application/json", newJob.toJson());
+            } else if (null == job) {
+                respond(httpExchange, 404, "application/json", "[{\"errorCode\":\"NOT_FOUND\",\"message\":\"Unknown job\"}]");
+            } else if ("batches".equals(matcher.group(3)) && "PUT".equals(method)) {
+                job.records += Math.max(0, body.split("\n").length - 1);
+                respond(httpExchange, 201, "application/json", "");
+            } else if ("results".equals(matcher.group(3))) {
+                final int start = null == query ? 0 : Integer.parseInt(query.substring(query.indexOf('=') + 1));
+
+                httpExchange.getResponseHeaders().set("Sforce-Locator", start + QUERY_PAGE_SIZE < QUERY_RECORDS ? String.valueOf(start + QUERY_PAGE_SIZE) : "null");
+                respond(httpExchange, 200, "text/csv", computeQueryPage(start));
+            } else if ("successfulResults".equals(matcher.group(3))) {
+                final StringBuilder sb = new StringBuilder("\"sf__Id\",\"sf__Created\"\n");
+
+                for (int record = 0; record < job.records; record++) {
+                    sb.append("\"001").append(record).append("\",\"true\"\n");
+                }
+
+                respond(httpExchange, 200, "text/csv", sb.toString());
+            } else if ("POST".equals(method) && null != query && query.contains("_HttpMethod=PATCH")) {
+                job.state = computeValue(body, "state");
+                respond(httpExchange, 200, "application/json", job.toJson());
+            } else if ("DELETE".equals(method)) {
+                jobs.remove(job.id);
+                respond(httpExchange, 204, "application/json", "");
+            } else if ("GET".equals(method)) {
+                poll(job);
+                respond(httpExchange, 200, "application/json", job.toJson());
+            } else {
+                respond(httpExchange, 405, "application/json", "[{\"errorCode\":\"METHOD_NOT_ALLOWED\",\"message\":\"Not allowed\"}]");
+            }
+        } finally {
+            httpExchange.close();
+        }
+    }
+}
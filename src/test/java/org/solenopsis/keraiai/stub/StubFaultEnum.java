@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.stub;
+
+/**
+ * Faults the {@link StubSalesforceServer} can be told to raise.
+ *
+ * @author Scot P. Floess
+ */
+public enum StubFaultEnum {
+    INVALID_SESSION_ID("INVALID_SESSION_ID", "Invalid Session ID found in SessionHeader: Illegal Session"),
+    UNABLE_TO_LOCK_ROW("UNABLE_TO_LOCK_ROW", "unable to obtain exclusive access to this record"),
+    SERVER_UNAVAILABLE("SERVER_UNAVAILABLE", "server temporarily unavailable"),
+    QUERY_TIMEOUT("QUERY_TIMEOUT", "Your query request was running for too long."),
+    CONCURRENT_REQUEST_LIMIT_EXCEEDED("REQUEST_LIMIT_EXCEEDED", "ConcurrentRequests (Concurrent API Requests) Limit exceeded."),
+    TOTAL_REQUEST_LIMIT_EXCEEDED("REQUEST_LIMIT_EXCEEDED", "TotalRequests Limit exceeded.");
+
+    /**
+     * The SFDC exception code.
+     */
+    private final String exceptionCode;
+
+    /**
+     * The exception message as SFDC returns it.
+     */
+    private final String exceptionMessage;
+
+    /**
+     * This constructor sets the exception code and message.
+     *
+     * @param exceptionCode    the SFDC exception code.
+     * @param exceptionMessage the exception message as SFDC returns it.
+     */
+    private StubFaultEnum(final String exceptionCode, final String exceptionMessage) {
+        this.exceptionCode = exceptionCode;
+        this.exceptionMessage = exceptionMessage;
+    }
+
+    /**
+     * Return the fault code - for example <code>sf:UNABLE_TO_LOCK_ROW</code>.
+     *
+     * @return the fault code.
+     */
+    public String getFaultCode() {
+        return "sf:" + getExceptionCode();
+    }
+
+    /**
+     * Return the SFDC exception code - for example <code>UNABLE_TO_LOCK_ROW</code>.
+     *
+     * @return the exception code.
+     */
+    public String getExceptionCode() {
+        return exceptionCode;
+    }
+
+    /**
+     * Return the exception message.
+     *
+     * @return the exception message.
+     */
+    public String getExceptionMessage() {
+        return exceptionMessage;
+    }
+
+    /**
+     * Return the fault string.
+     *
+     * @return the fault string.
+     */
+    public String getFaultString() {
+        return getExceptionCode() + ": " + getExceptionMessage();
+    }
+}
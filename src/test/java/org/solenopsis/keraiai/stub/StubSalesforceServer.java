@@ -0,0 +1,1248 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * An in-process stand in for SFDC SOAP endpoints, built on the JDK HTTP server. Requests are dispatched on the name of the first
+ * element of the SOAP body and answered with canned responses in the namespace of the API being called (as denoted by the
+ * <code>services/Soap/*</code> URL). Supported are login, logout, getServerTimestamp, query/queryAll/queryMore, create, update,
+ * upsert, delete, retrieve, describeGlobal, describeSObject, executeAnonymous and metadata deploy/retrieve with their status
+ * checks. Records are partner sObjects. Bulk API 2.0 jobs, under <code>services/data</code>, are served by {@link StubBulkHandler}.
+ *
+ * Anonymous Apex is simulated line by line: a line containing <code>COMPILE_ERROR</code> fails to compile, one containing
+ * <code>LIMIT_EXCEPTION</code> raises an uncatchable limit exception and one containing <code>THROW</code> raises an exception
+ * caught by an enclosing <code>try</code> block. <code>System.debug</code> lines log their quoted text to the debug log.
+ *
+ * Latency can be added to every call, faults injected either for the next N calls or at a rate, and sessions expired so
+ * callers must login again. Requests and faults are counted per operation. Gzip request and response bodies are honored.
+ *
+ * @author Scot P. Floess
+ */
+public class StubSalesforceServer {
+    /**
+     * The API version used in URLs.
+     */
+    public static final String API_VERSION = "39.0";
+
+    /**
+     * The encoding of requests and responses.
+     */
+    public static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Default total records in a query batch.
+     */
+    public static final int DEFAULT_QUERY_BATCH_SIZE = 2000;
+
+    /**
+     * Default daily API request limit.
+     */
+    public static final int DEFAULT_API_REQUEST_LIMIT = 15000;
+
+    /**
+     * Default seconds sessions are valid, as reported on login.
+     */
+    public static final int DEFAULT_SESSION_SECONDS_VALID = 7200;
+
+    /**
+     * Prefix of all session ids we hand out.
+     */
+    public static final String SESSION_PREFIX = "STUB_SESSION_";
+
+    /**
+     * Prefix of all query locators we hand out.
+     */
+    static final String QUERY_LOCATOR_PREFIX = "STUB_QUERY-";
+
+    /**
+     * Finds the first element in the SOAP body.
+     */
+    static final Pattern OPERATION_PATTERN = Pattern.compile("<(?:[\\w-]+:)?Body[^>]*>\\s*<(?:[\\w-]+:)?([\\w]+)");
+
+    /**
+     * Finds the session id in the session header.
+     */
+    static final Pattern SESSION_PATTERN = Pattern.compile("<(?:[\\w-]+:)?sessionId>" + SESSION_PREFIX + "(\\d+)<");
+
+    /**
+     * Finds the offset in a query locator.
+     */
+    static final Pattern QUERY_LOCATOR_PATTERN = Pattern.compile("<(?:[\\w-]+:)?queryLocator>" + QUERY_LOCATOR_PREFIX + "(\\d+)<");
+
+    /**
+     * Finds sObjects being created, updated or upserted.
+     */
+    static final Pattern SOBJECTS_PATTERN = Pattern.compile("<(?:[\\w-]+:)?sObjects[\\s>]");
+
+    /**
+     * Finds ids being retrieved or deleted.
+     */
+    static final Pattern IDS_PATTERN = Pattern.compile("<(?:[\\w-]+:)?ids>([^<]*)<");
+
+    /**
+     * Finds the sObject type being retrieved or described.
+     */
+    static final Pattern SOBJECT_TYPE_PATTERN = Pattern.compile("<(?:[\\w-]+:)?sObjectTypes?>([^<]*)<");
+
+    /**
+     * Finds the anonymous Apex being executed.
+     */
+    static final Pattern SCRIPT_PATTERN = Pattern.compile("<(?:[\\w-]+:)?String>([^<]*)<");
+
+    /**
+     * The catchable exception raised by <code>THROW</code> in anonymous Apex.
+     */
+    public static final String APEX_EXCEPTION = "System.MathException: Divide by 0";
+
+    /**
+     * The uncatchable exception raised by <code>LIMIT_EXCEPTION</code> in anonymous Apex.
+     */
+    public static final String APEX_LIMIT_EXCEPTION = "System.LimitException: Too many SOQL queries: 101";
+
+    /**
+     * Begins all SOAP envelopes.
+     */
+    static final String ENVELOPE_BEGIN = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"><soapenv:Body>";
+
+    /**
+     * Ends all SOAP envelopes.
+     */
+    static final String ENVELOPE_END = "</soapenv:Body></soapenv:Envelope>";
+
+    /**
+     * A base64 encoded zip containing an empty package - returned from metadata retrieves.
+     */
+    static final String RETRIEVE_ZIP = computeRetrieveZip();
+
+    /**
+     * The HTTP server.
+     */
+    private final HttpServer httpServer;
+
+    /**
+     * Handles requests.
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * Used to generate session ids.
+     */
+    private final AtomicLong sessions;
+
+    /**
+     * Sessions up to and including this one are invalid.
+     */
+    private final AtomicLong expiredSessions;
+
+    /**
+     * Used to generate record and async process ids.
+     */
+    private final AtomicLong ids;
+
+    /**
+     * Total gzip compressed requests received.
+     */
+    private final AtomicLong compressedRequests;
+
+    /**
+     * Total gzip compressed responses sent.
+     */
+    private final AtomicLong compressedResponses;
+
+    /**
+     * Faults to raise, in order, on the next calls.
+     */
+    private final Queue<StubFaultEnum> injectedFaults;
+
+    /**
+     * Delays, in milliseconds, to add, in order, to the next calls.
+     */
+    private final Queue<Long> injectedDelays;
+
+    /**
+     * Delays, in milliseconds, to add, in order, to the next logins.
+     */
+    private final Queue<Long> injectedLoginDelays;
+
+    /**
+     * Rate, between 0 and 1, at which a fault is raised.
+     */
+    private final ConcurrentMap<StubFaultEnum, Double> faultRates;
+
+    /**
+     * Total requests per operation.
+     */
+    private final ConcurrentMap<String, AtomicLong> requests;
+
+    /**
+     * Total faults per operation.
+     */
+    private final ConcurrentMap<String, AtomicLong> faults;
+
+    /**
+     * Total records returned for a query.
+     */
+    private volatile int queryRecords;
+
+    /**
+     * Total records returned per query batch.
+     */
+    private volatile int queryBatchSize;
+
+    /**
+     * The daily API request limit reported in partner and enterprise responses.
+     */
+    private volatile int apiRequestLimit;
+
+    /**
+     * Seconds sessions are valid, as reported on login.
+     */
+    private volatile int sessionSecondsValid;
+
+    /**
+     * Lines of anonymous Apex debug logs returned - all if negative, no debug log if 0.
+     */
+    private volatile int maxDebugLogLines;
+
+    /**
+     * Minimum latency, in milliseconds, for each call.
+     */
+    private volatile long minimumLatency;
+
+    /**
+     * Maximum latency, in milliseconds, for each call.
+     */
+    private volatile long maximumLatency;
+
+    /**
+     * Compute the retrieve zip.
+     */
+    static String computeRetrieveZip() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (final ZipOutputStream zipOutputStream = new ZipOutputStream(bytes)) {
+            zipOutputStream.putNextEntry(new ZipEntry("unpackaged/package.xml"));
+            zipOutputStream.write(("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Package xmlns=\"http://soap.sforce.com/2006/04/metadata\"><version>" + API_VERSION + "</version></Package>").getBytes(UTF_8));
+            zipOutputStream.closeEntry();
+        } catch (final IOException ioException) {
+            throw new IllegalStateException("Unable to create retrieve zip", ioException);
+        }
+
+        return DatatypeConverter.printBase64Binary(bytes.toByteArray());
+    }
+
+    /**
+     * Compute the namespace of the API denoted by <code>path</code>.
+     *
+     * @param path the request path - for example <code>/services/Soap/u/39.0</code>.
+     *
+     * @return the namespace.
+     */
+    static String computeNamespace(final String path) {
+        if (path.startsWith("/services/Soap/c")) {
+            return "urn:enterprise.soap.sforce.com";
+        } else if (path.startsWith("/services/Soap/T")) {
+            return "urn:tooling.soap.sforce.com";
+        } else if (path.startsWith("/services/Soap/m")) {
+            return "http://soap.sforce.com/2006/04/metadata";
+        } else if (path.startsWith("/services/Soap/s")) {
+            return "http://soap.sforce.com/2006/08/apex";
+        }
+
+        return "urn:partner.soap.sforce.com";
+    }
+
+    /**
+     * Compute the name of the operation called in <code>request</code>.
+     *
+     * @param request the SOAP request.
+     *
+     * @return the operation or null if not found.
+     */
+    static String computeOperation(final String request) {
+        final Matcher matcher = OPERATION_PATTERN.matcher(request);
+
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Return the first group found by <code>pattern</code> in <code>request</code>.
+     *
+     * @return the first group or <code>defaultValue</code> if not found.
+     */
+    static String find(final Pattern pattern, final String request, final String defaultValue) {
+        final Matcher matcher = pattern.matcher(request);
+
+        return matcher.find() ? matcher.group(1) : defaultValue;
+    }
+
+    /**
+     * Return the total times <code>pattern</code> is found in <code>request</code>.
+     */
+    static int count(final Pattern pattern, final String request) {
+        final Matcher matcher = pattern.matcher(request);
+
+        int total = 0;
+
+        while (matcher.find()) {
+            total++;
+        }
+
+        return total;
+    }
+
+    /**
+     * Read all of <code>inputStream</code>.
+     */
+    static String read(final InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+
+        for (int total = inputStream.read(buffer); total >= 0; total = inputStream.read(buffer)) {
+            outputStream.write(buffer, 0, total);
+        }
+
+        return new String(outputStream.toByteArray(), UTF_8);
+    }
+
+    /**
+     * Gzip <code>bytes</code>.
+     */
+    static byte[] gzip(final byte[] bytes) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(bytes);
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Return true if <code>value</code>, a header value, denotes gzip.
+     */
+    static boolean isGzip(final String value) {
+        return null != value && value.toLowerCase().contains("gzip");
+    }
+
+    /**
+     * Wrap <code>body</code> in a SOAP envelope.
+     */
+    static String envelope(final String body) {
+        return ENVELOPE_BEGIN + body + ENVELOPE_END;
+    }
+
+    /**
+     * Wrap <code>result</code> in an element named <code>operation</code>Response.
+     */
+    static String response(final String operation, final String namespace, final String result) {
+        return envelope("<" + operation + "Response xmlns=\"" + namespace + "\" xmlns:sf=\"urn:sobject.partner.soap.sforce.com\">" + result + "</" + operation + "Response>");
+    }
+
+    /**
+     * Compute a SOAP fault.
+     */
+    static String computeFault(final String faultCode, final String faultString) {
+        return envelope("<soapenv:Fault xmlns:sf=\"urn:fault.partner.soap.sforce.com\"><faultcode>" + faultCode + "</faultcode><faultstring>" + faultString + "</faultstring></soapenv:Fault>");
+    }
+
+    /**
+     * Compute the namespace of typed faults for the web service whose namespace is <code>namespace</code>.
+     *
+     * @return the fault namespace or null if the web service has no typed <code>UnexpectedErrorFault</code>.
+     */
+    static String computeFaultNamespace(final String namespace) {
+        return namespace.startsWith("urn:") ? "urn:fault." + namespace.substring("urn:".length()) : null;
+    }
+
+    /**
+     * Compute a SOAP fault for <code>fault</code> - when <code>faultNamespace</code> is not null, its detail is a typed
+     * <code>UnexpectedErrorFault</code> as SFDC returns it.
+     */
+    static String computeFault(final StubFaultEnum fault, final String faultNamespace) {
+        if (null == faultNamespace) {
+            return computeFault(fault.getFaultCode(), fault.getFaultString());
+        }
+
+        return envelope("<soapenv:Fault xmlns:sf=\"" + faultNamespace + "\"><faultcode>" + fault.getFaultCode() + "</faultcode><faultstring>" + fault.getFaultString()
+                        + "</faultstring><detail><sf:UnexpectedErrorFault xsi:type=\"sf:UnexpectedErrorFault\"><sf:exceptionCode>"
+                        + fault.getExceptionCode() + "</sf:exceptionCode><sf:exceptionMessage>" + fault.getExceptionMessage() + "</sf:exceptionMessage></sf:UnexpectedErrorFault></detail></soapenv:Fault>");
+    }
+
+    /**
+     * Increment the count for <code>operation</code> in <code>counters</code>.
+     */
+    static void increment(final ConcurrentMap<String, AtomicLong> counters, final String operation) {
+        AtomicLong counter = counters.get(operation);
+
+        if (null == counter) {
+            final AtomicLong newCounter = new AtomicLong();
+
+            counter = counters.putIfAbsent(operation, newCounter);
+
+            if (null == counter) {
+                counter = newCounter;
+            }
+        }
+
+        counter.incrementAndGet();
+    }
+
+    /**
+     * Sum all counts in <code>counters</code>.
+     */
+    static long sum(final ConcurrentMap<String, AtomicLong> counters) {
+        long total = 0;
+
+        for (final AtomicLong counter : counters.values()) {
+            total += counter.get();
+        }
+
+        return total;
+    }
+
+    /**
+     * Return the count for <code>operation</code> in <code>counters</code>.
+     */
+    static long get(final ConcurrentMap<String, AtomicLong> counters, final String operation) {
+        final AtomicLong counter = counters.get(operation);
+
+        return null == counter ? 0 : counter.get();
+    }
+
+    /**
+     * Compute a new 18 character id starting with <code>keyPrefix</code>.
+     */
+    String computeId(final String keyPrefix) {
+        return keyPrefix + String.format("%012dAAA", ids.incrementAndGet());
+    }
+
+    /**
+     * Compute a partner account record.
+     */
+    static StringBuilder computeRecord(final StringBuilder sb, final String id, final String name) {
+        return sb.append("<sf:type>Account</sf:type><sf:Id>").append(id).append("</sf:Id>")
+                .append("<sf:Id>").append(id).append("</sf:Id>")
+                .append("<sf:Name>").append(name).append("</sf:Name>")
+                .append("<sf:Description>A stub account used to exercise large responses</sf:Description>");
+    }
+
+    /**
+     * Add a <code>LimitInfoHeader</code>, reporting total requests thus far against the API request limit, to partner and
+     * enterprise <code>response</code>s.
+     */
+    String addLimitInfoHeader(final String namespace, final String response) {
+        if (!"urn:partner.soap.sforce.com".equals(namespace) && !"urn:enterprise.soap.sforce.com".equals(namespace)) {
+            return response;
+        }
+
+        return response.replaceFirst("<soapenv:Body>", "<soapenv:Header><LimitInfoHeader xmlns=\"" + namespace + "\"><limitInfo><current>" + getRequests()
+                                                      + "</current><limit>" + getApiRequestLimit() + "</limit><type>API REQUESTS</type></limitInfo></LimitInfoHeader></soapenv:Header><soapenv:Body>");
+    }
+
+    /**
+     * Compute the login response.
+     */
+    String computeLoginResponse(final String namespace, final String path) {
+        final String serverUrl = getUrl() + path.substring(0, path.lastIndexOf('/') + 1) + API_VERSION + "/00D000000000001";
+
+        return response("login", namespace, "<result>"
+                        + "<metadataServerUrl>" + getUrl() + "/services/Soap/m/" + API_VERSION + "/00D000000000001</metadataServerUrl>"
+                        + "<passwordExpired>false</passwordExpired>"
+                        + "<sandbox>true</sandbox>"
+                        + "<serverUrl>" + serverUrl + "</serverUrl>"
+                        + "<sessionId>" + SESSION_PREFIX + sessions.incrementAndGet() + "</sessionId>"
+                        + "<userId>005000000000001AAA</userId>"
+                        + "<userInfo><sessionSecondsValid>" + getSessionSecondsValid() + "</sessionSecondsValid></userInfo>"
+                        + "</result>");
+    }
+
+    /**
+     * Compute a query response of records <code>offset</code> up to a batch size of records.
+     */
+    String computeQueryResponse(final String operation, final String namespace, final int offset) {
+        final int end = Math.min(getQueryRecords(), offset + getQueryBatchSize());
+        final StringBuilder sb = new StringBuilder("<result><done>").append(end >= getQueryRecords()).append("</done>");
+
+        if (end >= getQueryRecords()) {
+            sb.append("<queryLocator xsi:nil=\"true\"/>");
+        } else {
+            sb.append("<queryLocator>").append(QUERY_LOCATOR_PREFIX).append(end).append("</queryLocator>");
+        }
+
+        for (int record = offset; record < end; record++) {
+            computeRecord(sb.append("<records xsi:type=\"sf:sObject\">"), "001000000000" + String.format("%06d", record), "Account " + record).append("</records>");
+        }
+
+        return response(operation, namespace, sb.append("<size>").append(getQueryRecords()).append("</size></result>").toString());
+    }
+
+    /**
+     * Compute a create, update or upsert response - one result per sObject in the request.
+     */
+    String computeSaveResponse(final String operation, final String namespace, final String request) {
+        final StringBuilder sb = new StringBuilder();
+        final int total = count(SOBJECTS_PATTERN, request);
+
+        for (int index = 0; index < total; index++) {
+            sb.append("<result>");
+
+            if ("upsert".equals(operation)) {
+                sb.append("<created>true</created>");
+            }
+
+            sb.append("<id>").append(computeId("001")).append("</id><success>true</success></result>");
+        }
+
+        return response(operation, namespace, sb.toString());
+    }
+
+    /**
+     * Compute a delete response - one result per id in the request.
+     */
+    static String computeDeleteResponse(final String namespace, final String request) {
+        final StringBuilder sb = new StringBuilder();
+        final Matcher matcher = IDS_PATTERN.matcher(request);
+
+        while (matcher.find()) {
+            sb.append("<result><id>").append(matcher.group(1)).append("</id><success>true</success></result>");
+        }
+
+        return response("delete", namespace, sb.toString());
+    }
+
+    /**
+     * Compute a retrieve response - one record per id in the request.
+     */
+    static String computeRetrieveResponse(final String namespace, final String request) {
+        final StringBuilder sb = new StringBuilder();
+        final Matcher matcher = IDS_PATTERN.matcher(request);
+
+        while (matcher.find()) {
+            computeRecord(sb.append("<result xsi:type=\"sf:sObject\">"), matcher.group(1), "Account " + matcher.group(1)).append("</result>");
+        }
+
+        return response("retrieve", namespace, sb.toString());
+    }
+
+    /**
+     * Compute a describe global response.
+     */
+    static String computeDescribeGlobalResponse(final String namespace) {
+        final StringBuilder sb = new StringBuilder("<result><encoding>UTF-8</encoding><maxBatchSize>200</maxBatchSize>");
+
+        for (final String sObject : new String[]{"Account", "Contact", "Opportunity"}) {
+            sb.append("<sobjects><createable>true</createable><deletable>true</deletable><label>").append(sObject).append("</label>")
+                    .append("<labelPlural>").append(sObject).append("s</labelPlural><name>").append(sObject).append("</name>")
+                    .append("<queryable>true</queryable><retrieveable>true</retrieveable><updateable>true</updateable></sobjects>");
+        }
+
+        return response("describeGlobal", namespace, sb.append("</result>").toString());
+    }
+
+    /**
+     * Compute a describe sObject response.
+     */
+    static String computeDescribeSObjectResponse(final String namespace, final String request) {
+        final String sObject = find(SOBJECT_TYPE_PATTERN, request, "Account");
+
+        return response("describeSObject", namespace, "<result><createable>true</createable><deletable>true</deletable>"
+                        + "<fields><label>Record ID</label><length>18</length><name>Id</name><soapType>tns:ID</soapType><type>id</type></fields>"
+                        + "<fields><label>Name</label><length>255</length><name>Name</name><nameField>true</nameField><soapType>xsd:string</soapType><type>string</type><updateable>true</updateable></fields>"
+                        + "<fields><label>Description</label><length>32000</length><name>Description</name><nillable>true</nillable><soapType>xsd:string</soapType><type>textarea</type><updateable>true</updateable></fields>"
+                        + "<keyPrefix>001</keyPrefix><label>" + sObject + "</label><labelPlural>" + sObject + "s</labelPlural><name>" + sObject + "</name>"
+                        + "<queryable>true</queryable><retrieveable>true</retrieveable><updateable>true</updateable></result>");
+    }
+
+    /**
+     * Compute a metadata deploy or retrieve response - both complete immediately.
+     */
+    String computeAsyncResponse(final String operation, final String namespace) {
+        return response(operation, namespace, "<result><done>true</done><id>" + computeId("0Af") + "</id><state>Completed</state></result>");
+    }
+
+    /**
+     * Compute a metadata check deploy status response.
+     */
+    static String computeCheckDeployStatusResponse(final String namespace, final String request) {
+        return response("checkDeployStatus", namespace, "<result><checkOnly>false</checkOnly><createdBy>005000000000001AAA</createdBy><createdByName>Stub</createdByName>"
+                        + "<createdDate>2017-01-01T00:00:00.000Z</createdDate><details/><done>true</done><id>" + find(Pattern.compile("<(?:[\\w-]+:)?asyncProcessId>([^<]*)<"), request, "") + "</id>"
+                        + "<ignoreWarnings>false</ignoreWarnings><numberComponentErrors>0</numberComponentErrors><numberComponentsDeployed>0</numberComponentsDeployed>"
+                        + "<numberComponentsTotal>0</numberComponentsTotal><numberTestErrors>0</numberTestErrors><numberTestsCompleted>0</numberTestsCompleted>"
+                        + "<numberTestsTotal>0</numberTestsTotal><rollbackOnError>true</rollbackOnError><runTestsEnabled>false</runTestsEnabled>"
+                        + "<status>Succeeded</status><success>true</success></result>");
+    }
+
+    /**
+     * Compute a metadata check retrieve status response.
+     */
+    static String computeCheckRetrieveStatusResponse(final String namespace, final String request) {
+        return response("checkRetrieveStatus", namespace, "<result><done>true</done><id>" + find(Pattern.compile("<(?:[\\w-]+:)?asyncProcessId>([^<]*)<"), request, "") + "</id>"
+                        + "<status>Succeeded</status><success>true</success><zipFile>" + RETRIEVE_ZIP + "</zipFile></result>");
+    }
+
+    /**
+     * Escape <code>str</code> as XML text.
+     */
+    static String escape(final String str) {
+        return str.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * Unescape <code>str</code>, XML text.
+     */
+    static String unescape(final String str) {
+        return str.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'").replace("&#xD;", "\r").replace("&#xd;", "\r").replace("&amp;", "&");
+    }
+
+    /**
+     * Return the first <code>maxLines</code> lines of <code>debugLog</code> - all of them if <code>maxLines</code> is negative.
+     */
+    static String truncate(final CharSequence debugLog, final int maxLines) {
+        final String str = debugLog.toString();
+
+        int end = 0;
+
+        for (int lines = 0; lines < maxLines && end < str.length(); lines++) {
+            final int newLine = str.indexOf('\n', end);
+
+            end = newLine < 0 ? str.length() : newLine + 1;
+        }
+
+        return maxLines < 0 ? str : str.substring(0, end);
+    }
+
+    /**
+     * Compute an execute anonymous response, with the first <code>maxDebugLogLines</code> of <code>debugLog</code> in a
+     * <code>DebuggingInfo</code> header - no header if 0, all of the debug log if negative.
+     */
+    static String computeExecuteAnonymousResponse(final String namespace, final boolean compiled, final boolean success, final int line, final String compileProblem, final String exceptionMessage, final CharSequence debugLog, final int maxDebugLogLines) {
+        final String response = response("executeAnonymous", namespace, "<result><column>" + (compiled ? -1 : 1) + "</column>"
+                        + (null == compileProblem ? "<compileProblem xsi:nil=\"true\"/>" : "<compileProblem>" + escape(compileProblem) + "</compileProblem>")
+                        + "<compiled>" + compiled + "</compiled>"
+                        + (null == exceptionMessage ? "<exceptionMessage xsi:nil=\"true\"/>" : "<exceptionMessage>" + escape(exceptionMessage) + "</exceptionMessage>")
+                        + "<exceptionStackTrace xsi:nil=\"true\"/><line>" + line + "</line><success>" + success + "</success></result>");
+
+        if (0 == maxDebugLogLines) {
+            return response;
+        }
+
+        return response.replaceFirst("<soapenv:Body>", "<soapenv:Header><DebuggingInfo xmlns=\"" + namespace + "\"><debugLog>" + Matcher.quoteReplacement(escape(truncate(debugLog, maxDebugLogLines)))
+                                     + "</debugLog></DebuggingInfo></soapenv:Header><soapenv:Body>");
+    }
+
+    /**
+     * Simulate executing the anonymous Apex in <code>request</code> - see the class comment.
+     */
+    static String computeExecuteAnonymousResponse(final String namespace, final String request, final int maxDebugLogLines) {
+        final String[] lines = unescape(find(SCRIPT_PATTERN, request, "")).split("\n", -1);
+
+        for (int index = 0; index < lines.length; index++) {
+            if (lines[index].contains("COMPILE_ERROR")) {
+                return computeExecuteAnonymousResponse(namespace, false, false, index + 1, "Unexpected token 'COMPILE_ERROR'.", null, "", maxDebugLogLines);
+            }
+        }
+
+        final StringBuilder debugLog = new StringBuilder();
+
+        boolean isTry = false;
+        boolean isCatch = false;
+        String thrown = null;
+
+        for (int index = 0; index < lines.length; index++) {
+            final String line = lines[index].trim();
+
+            if ("try {".equals(line)) {
+                isTry = true;
+            } else if (line.startsWith("} catch")) {
+                isTry = false;
+                isCatch = true;
+            } else if (isCatch && "}".equals(line)) {
+                isCatch = false;
+                thrown = null;
+            } else if (isCatch ? null == thrown : null != thrown) {
+                // Skip the catch block if nothing was thrown and the rest of
+                // the try block if something was.
+                continue;
+            } else if (line.contains("LIMIT_EXCEPTION")) {
+                return computeExecuteAnonymousResponse(namespace, true, false, index + 1, null, APEX_LIMIT_EXCEPTION, debugLog, maxDebugLogLines);
+            } else if (line.contains("THROW")) {
+                if (!isTry) {
+                    return computeExecuteAnonymousResponse(namespace, true, false, index + 1, null, APEX_EXCEPTION, debugLog, maxDebugLogLines);
+                }
+
+                thrown = APEX_EXCEPTION;
+            } else if (line.startsWith("System.debug(") && line.indexOf('\'') >= 0) {
+                final int begin = line.indexOf('\'') + 1;
+
+                debugLog.append("00:00:00.0 (").append(index).append(")|USER_DEBUG|[").append(index + 1).append("]|DEBUG|")
+                        .append(line, begin, Math.max(begin, line.indexOf('\'', begin))).append(isCatch ? thrown : "").append('\n');
+            }
+        }
+
+        return computeExecuteAnonymousResponse(namespace, true, true, -1, null, null, debugLog, maxDebugLogLines);
+    }
+
+    /**
+     * Compute the response for <code>operation</code>.
+     *
+     * @param operation the operation called.
+     * @param namespace the namespace of the API called.
+     * @param path      the path called.
+     * @param request   the full request.
+     *
+     * @return the response or null if the operation is not supported.
+     */
+    String computeResponse(final String operation, final String namespace, final String path, final String request) {
+        switch (operation) {
+            case "login":
+                return computeLoginResponse(namespace, path);
+            case "logout":
+                return response(operation, namespace, "");
+            case "getServerTimestamp":
+                return response(operation, namespace, "<result><timestamp>2017-01-01T00:00:00.000Z</timestamp></result>");
+            case "query":
+            case "queryAll":
+                return computeQueryResponse(operation, namespace, 0);
+            case "queryMore":
+                return computeQueryResponse(operation, namespace, Integer.parseInt(find(QUERY_LOCATOR_PATTERN, request, "0")));
+            case "create":
+            case "update":
+            case "upsert":
+                return computeSaveResponse(operation, namespace, request);
+            case "delete":
+                return computeDeleteResponse(namespace, request);
+            case "retrieve":
+                return "http://soap.sforce.com/2006/04/metadata".equals(namespace) ? computeAsyncResponse(operation, namespace) : computeRetrieveResponse(namespace, request);
+            case "describeGlobal":
+                return computeDescribeGlobalResponse(namespace);
+            case "describeSObject":
+                return computeDescribeSObjectResponse(namespace, request);
+            case "deploy":
+                return computeAsyncResponse(operation, namespace);
+            case "checkDeployStatus":
+                return computeCheckDeployStatusResponse(namespace, request);
+            case "checkRetrieveStatus":
+                return computeCheckRetrieveStatusResponse(namespace, request);
+            case "executeAnonymous":
+                return computeExecuteAnonymousResponse(namespace, request, getMaxDebugLogLines());
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Compute the fault, if any, to raise for <code>request</code>. Login and logout are never faulted.
+     *
+     * @return the fault to raise or null if none.
+     */
+    StubFaultEnum computeInjectedFault(final String operation, final String request) {
+        if ("login".equals(operation) || "logout".equals(operation)) {
+            return null;
+        }
+
+        final String session = find(SESSION_PATTERN, request, null);
+
+        if (null != session && Long.parseLong(session) <= expiredSessions.get()) {
+            return StubFaultEnum.INVALID_SESSION_ID;
+        }
+
+        final StubFaultEnum injectedFault = injectedFaults.poll();
+
+        if (null != injectedFault) {
+            return injectedFault;
+        }
+
+        for (final Map.Entry<StubFaultEnum, Double> faultRate : faultRates.entrySet()) {
+            if (ThreadLocalRandom.current().nextDouble() < faultRate.getValue()) {
+                return faultRate.getKey();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Sleep for the configured latency.
+     */
+    void sleep() {
+        final long minimum = getMinimumLatency();
+        final long maximum = getMaximumLatency();
+
+        if (maximum <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.MILLISECONDS.sleep(maximum > minimum ? minimum + ThreadLocalRandom.current().nextLong(maximum - minimum + 1) : minimum);
+        } catch (final InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sleep for the delay injected, if any, for <code>operation</code>.
+     */
+    void sleepInjected(final String operation) {
+        if ("logout".equals(operation)) {
+            return;
+        }
+
+        final Long delay = "login".equals(operation) ? injectedLoginDelays.poll() : injectedDelays.poll();
+
+        if (null == delay) {
+            return;
+        }
+
+        try {
+            TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (final InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Respond to <code>httpExchange</code>.
+     */
+    void respond(final HttpExchange httpExchange, final int status, final String response) throws IOException {
+        byte[] bytes = response.getBytes(UTF_8);
+
+        httpExchange.getResponseHeaders().set("Content-Type", "text/xml; charset=UTF-8");
+
+        if (isGzip(httpExchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+            bytes = gzip(bytes);
+            httpExchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            compressedResponses.incrementAndGet();
+        }
+
+        httpExchange.sendResponseHeaders(status, bytes.length);
+
+        try (final OutputStream outputStream = httpExchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    /**
+     * Handle a request.
+     */
+    void handle(final HttpExchange httpExchange) throws IOException {
+        final String path = httpExchange.getRequestURI().getPath();
+        final boolean isCompressed = isGzip(httpExchange.getRequestHeaders().getFirst("Content-Encoding"));
+        final String request = read(isCompressed ? new GZIPInputStream(httpExchange.getRequestBody()) : httpExchange.getRequestBody());
+        final String operation = computeOperation(request);
+
+        if (isCompressed) {
+            compressedRequests.incrementAndGet();
+        }
+
+        increment(requests, String.valueOf(operation));
+
+        sleep();
+        sleepInjected(operation);
+
+        final StubFaultEnum fault = null == operation ? null : computeInjectedFault(operation, request);
+
+        if (null != fault) {
+            increment(faults, operation);
+            respond(httpExchange, 500, computeFault(fault, computeFaultNamespace(computeNamespace(path))));
+
+            return;
+        }
+
+        final String namespace = computeNamespace(path);
+        final String response = null == operation ? null : computeResponse(operation, namespace, path, request);
+
+        if (null == response) {
+            respond(httpExchange, 500, computeFault("soapenv:Client", "Unsupported operation [" + operation + "]"));
+        } else {
+            respond(httpExchange, 200, addLimitInfoHeader(namespace, response));
+        }
+    }
+
+    /**
+     * This constructor binds to an ephemeral port on the loop back address.
+     *
+     * @param threads the total threads handling requests.
+     *
+     * @throws IOException if unable to bind.
+     */
+    public StubSalesforceServer(final int threads) throws IOException {
+        this.httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.executorService = Executors.newFixedThreadPool(threads);
+        this.sessions = new AtomicLong();
+        this.expiredSessions = new AtomicLong();
+        this.ids = new AtomicLong();
+        this.compressedRequests = new AtomicLong();
+        this.compressedResponses = new AtomicLong();
+        this.injectedFaults = new ConcurrentLinkedQueue<>();
+        this.injectedDelays = new ConcurrentLinkedQueue<>();
+        this.injectedLoginDelays = new ConcurrentLinkedQueue<>();
+        this.faultRates = new ConcurrentHashMap<>();
+        this.requests = new ConcurrentHashMap<>();
+        this.faults = new ConcurrentHashMap<>();
+        this.queryRecords = 10;
+        this.queryBatchSize = DEFAULT_QUERY_BATCH_SIZE;
+        this.apiRequestLimit = DEFAULT_API_REQUEST_LIMIT;
+        this.sessionSecondsValid = DEFAULT_SESSION_SECONDS_VALID;
+        this.maxDebugLogLines = -1;
+
+        httpServer.setExecutor(executorService);
+        httpServer.createContext("/services/Soap/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange httpExchange) throws IOException {
+                try {
+                    StubSalesforceServer.this.handle(httpExchange);
+                } finally {
+                    httpExchange.close();
+                }
+            }
+        });
+        httpServer.createContext("/services/data/", new StubBulkHandler(expiredSessions));
+    }
+
+    /**
+     * Default constructor.
+     *
+     * @throws IOException if unable to bind.
+     */
+    public StubSalesforceServer() throws IOException {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Return the URL of the server - use as the credentials URL.
+     *
+     * @return the URL of the server.
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Return the total records returned for a query.
+     *
+     * @return the total records returned for a query.
+     */
+    public int getQueryRecords() {
+        return queryRecords;
+    }
+
+    /**
+     * Set the total records returned for a query.
+     *
+     * @param queryRecords the total records returned for a query.
+     */
+    public void setQueryRecords(final int queryRecords) {
+        this.queryRecords = queryRecords;
+    }
+
+    /**
+     * Return the total records returned per query batch - remaining records are returned by queryMore.
+     *
+     * @return the total records returned per query batch.
+     */
+    public int getQueryBatchSize() {
+        return queryBatchSize;
+    }
+
+    /**
+     * Set the total records returned per query batch.
+     *
+     * @param queryBatchSize the total records returned per query batch.
+     *
+     * @throws IllegalArgumentException if queryBatchSize is not positive.
+     */
+    public void setQueryBatchSize(final int queryBatchSize) {
+        if (queryBatchSize < 1) {
+            throw new IllegalArgumentException("Query batch size must be positive!");
+        }
+
+        this.queryBatchSize = queryBatchSize;
+    }
+
+    /**
+     * Return the daily API request limit reported in partner and enterprise responses.
+     *
+     * @return the API request limit.
+     */
+    public int getApiRequestLimit() {
+        return apiRequestLimit;
+    }
+
+    /**
+     * Set the daily API request limit reported in partner and enterprise responses.
+     *
+     * @param apiRequestLimit the API request limit.
+     */
+    public void setApiRequestLimit(final int apiRequestLimit) {
+        this.apiRequestLimit = apiRequestLimit;
+    }
+
+    /**
+     * Return the seconds sessions are valid, as reported on login.
+     *
+     * @return the session seconds valid.
+     */
+    public int getSessionSecondsValid() {
+        return sessionSecondsValid;
+    }
+
+    /**
+     * Set the seconds sessions are valid, as reported on login. Sessions do not actually expire - see {@link #expireSessions()}.
+     *
+     * @param sessionSecondsValid the session seconds valid.
+     */
+    public void setSessionSecondsValid(final int sessionSecondsValid) {
+        this.sessionSecondsValid = sessionSecondsValid;
+    }
+
+    /**
+     * Return the lines of anonymous Apex debug logs returned.
+     *
+     * @return the lines returned - all if negative, no debug log if 0.
+     */
+    public int getMaxDebugLogLines() {
+        return maxDebugLogLines;
+    }
+
+    /**
+     * Set the lines of anonymous Apex debug logs returned, as though SFDC truncated them.
+     *
+     * @param maxDebugLogLines the lines returned - all if negative, no debug log at all if 0.
+     */
+    public void setMaxDebugLogLines(final int maxDebugLogLines) {
+        this.maxDebugLogLines = maxDebugLogLines;
+    }
+
+    /**
+     * Return the minimum latency, in milliseconds, of each call.
+     *
+     * @return the minimum latency.
+     */
+    public long getMinimumLatency() {
+        return minimumLatency;
+    }
+
+    /**
+     * Return the maximum latency, in milliseconds, of each call.
+     *
+     * @return the maximum latency.
+     */
+    public long getMaximumLatency() {
+        return maximumLatency;
+    }
+
+    /**
+     * Set the latency of each call - uniformly distributed between <code>minimumLatency</code> and
+     * <code>maximumLatency</code> milliseconds.
+     *
+     * @param minimumLatency the minimum latency in milliseconds.
+     * @param maximumLatency the maximum latency in milliseconds.
+     *
+     * @throws IllegalArgumentException if minimumLatency is negative or greater than maximumLatency.
+     */
+    public void setLatency(final long minimumLatency, final long maximumLatency) {
+        if (minimumLatency < 0 || minimumLatency > maximumLatency) {
+            throw new IllegalArgumentException("Latency must be non negative and minimum cannot exceed maximum!");
+        }
+
+        this.minimumLatency = minimumLatency;
+        this.maximumLatency = maximumLatency;
+    }
+
+    /**
+     * Raise <code>fault</code> for the next <code>total</code> calls other than login and logout.
+     *
+     * @param fault the fault to raise.
+     * @param total the total calls to fail.
+     */
+    public void injectFaults(final StubFaultEnum fault, final int total) {
+        for (int count = 0; count < total; count++) {
+            injectedFaults.add(fault);
+        }
+    }
+
+    /**
+     * Delay the next <code>total</code> calls other than login and logout by <code>delay</code> milliseconds.
+     *
+     * @param delay the delay in milliseconds.
+     * @param total the total calls to delay.
+     */
+    public void injectDelays(final long delay, final int total) {
+        for (int count = 0; count < total; count++) {
+            injectedDelays.add(delay);
+        }
+    }
+
+    /**
+     * Delay the next <code>total</code> logins by <code>delay</code> milliseconds.
+     *
+     * @param delay the delay in milliseconds.
+     * @param total the total logins to delay.
+     */
+    public void injectLoginDelays(final long delay, final int total) {
+        for (int count = 0; count < total; count++) {
+            injectedLoginDelays.add(delay);
+        }
+    }
+
+    /**
+     * Raise <code>fault</code> randomly for the <code>rate</code> of calls other than login and logout.
+     *
+     * @param fault the fault to raise.
+     * @param rate  between 0 and 1 - 0 stops raising the fault.
+     *
+     * @throws IllegalArgumentException if rate is not between 0 and 1.
+     */
+    public void setFaultRate(final StubFaultEnum fault, final double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Fault rate must be between 0 and 1!");
+        }
+
+        if (0 == rate) {
+            faultRates.remove(fault);
+        } else {
+            faultRates.put(fault, rate);
+        }
+    }
+
+    /**
+     * Invalidate all sessions handed out thus far - calls using them raise INVALID_SESSION_ID until callers login again.
+     */
+    public void expireSessions() {
+        expiredSessions.set(sessions.get());
+    }
+
+    /**
+     * Return the total sessions handed out - in other words the total logins.
+     *
+     * @return the total sessions.
+     */
+    public long getSessions() {
+        return sessions.get();
+    }
+
+    /**
+     * Return the total gzip compressed requests received.
+     *
+     * @return the total compressed requests.
+     */
+    public long getCompressedRequests() {
+        return compressedRequests.get();
+    }
+
+    /**
+     * Return the total gzip compressed responses sent.
+     *
+     * @return the total compressed responses.
+     */
+    public long getCompressedResponses() {
+        return compressedResponses.get();
+    }
+
+    /**
+     * Return the total requests received.
+     *
+     * @return the total requests received.
+     */
+    public long getRequests() {
+        return sum(requests);
+    }
+
+    /**
+     * Return the total requests received for <code>operation</code>.
+     *
+     * @param operation the operation - for example <code>query</code>.
+     *
+     * @return the total requests received for operation.
+     */
+    public long getRequests(final String operation) {
+        return get(requests, operation);
+    }
+
+    /**
+     * Return the total faults raised.
+     *
+     * @return the total faults raised.
+     */
+    public long getFaults() {
+        return sum(faults);
+    }
+
+    /**
+     * Return the total faults raised for <code>operation</code>.
+     *
+     * @param operation the operation - for example <code>query</code>.
+     *
+     * @return the total faults raised for operation.
+     */
+    public long getFaults(final String operation) {
+        return get(faults, operation);
+    }
+
+    /**
+     * Reset request and fault counts, and drop any injected faults and fault rates.
+     */
+    public void reset() {
+        requests.clear();
+        faults.clear();
+        injectedFaults.clear();
+        faultRates.clear();
+    }
+
+    /**
+     * Start the server.
+     */
+    public void start() {
+        httpServer.start();
+    }
+
+    /**
+     * Stop the server.
+     */
+    public void stop() {
+        httpServer.stop(0);
+        executorService.shutdownNow();
+    }
+}
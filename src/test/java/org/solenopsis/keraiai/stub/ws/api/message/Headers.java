@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.stub.ws.api.message;
+
+import org.w3c.dom.Element;
+
+/**
+ * Stands in for the JAX-WS reference implementation's <code>Headers</code> - found by name like the real one.
+ *
+ * @author Scot P. Floess
+ */
+public final class Headers {
+    /**
+     * Create a header from <code>element</code>.
+     *
+     * @param element the header.
+     *
+     * @return element itself.
+     */
+    public static Object create(final Element element) {
+        return element;
+    }
+
+    /**
+     * Default constructor not allowed.
+     */
+    private Headers() {
+    }
+}
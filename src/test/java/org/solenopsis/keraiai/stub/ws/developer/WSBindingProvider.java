@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2017 Scot P. Floess
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.solenopsis.keraiai.stub.ws.developer;
+
+import java.util.List;
+
+/**
+ * Stands in for the JAX-WS reference implementation's <code>WSBindingProvider</code> - found by name like the real one.
+ *
+ * @author Scot P. Floess
+ */
+public interface WSBindingProvider {
+    /**
+     * Set the headers sent on every outbound message.
+     *
+     * @param headers the headers created by {@link org.solenopsis.keraiai.stub.ws.api.message.Headers}.
+     */
+    void setOutboundHeaders(List headers);
+}